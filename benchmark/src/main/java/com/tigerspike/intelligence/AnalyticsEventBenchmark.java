@@ -0,0 +1,45 @@
+package com.tigerspike.intelligence;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization of a single analytics event, as done for every tracked event.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnalyticsEventBenchmark {
+
+    private AnalyticsEvent mAnalyticsEvent;
+
+    @Setup
+    public void setUp() {
+        mAnalyticsEvent = Fixtures.analyticsEvent(0);
+    }
+
+    @Benchmark
+    public JSONObject toJSONObject() {
+        return mAnalyticsEvent.toJSONObject();
+    }
+
+    @Benchmark
+    public String toJSONString() {
+        return mAnalyticsEvent.toJSONString();
+    }
+
+}
@@ -0,0 +1,87 @@
+package com.tigerspike.intelligence;
+
+import org.json.JSONException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persistence of the AnalyticsModule event queue: the queue is written to the DataStore before a
+ * batch is sent if it changed since it was last stored, and read back when the module is created.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnalyticsQueueBenchmark {
+
+    // Same key as AnalyticsModule.
+    private static final String KEY_STORAGE_EVENT_QUEUE = "eventQueue";
+
+    @Param({"10", "100", "1000"})
+    public int queueSize;
+
+    private DataStore mDataStore;
+    private List<String> mEventQueue;
+
+    @Setup
+    public void setUp() {
+
+        mDataStore = new InMemoryDataStore();
+
+        // The module queues the events serialized once, when they are tracked.
+        mEventQueue = new ArrayList<>(queueSize);
+        for (int i = 0; i < queueSize; i++) {
+            mEventQueue.add(JsonCodecs.toJson(Fixtures.analyticsEvent(i), AnalyticsEvent.CODEC));
+        }
+
+        persist();
+    }
+
+    /**
+     * Same as AnalyticsModule.storeEventQueue when the queue changed: the serialized events are
+     * joined into a JSON array, as in AnalyticsModule.toJsonArray.
+     */
+    @Benchmark
+    public DataStore persist() {
+
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < mEventQueue.size(); i++) {
+            json.append(i > 0 ? "," : "").append(mEventQueue.get(i));
+        }
+        json.append("]");
+
+        mDataStore.set(KEY_STORAGE_EVENT_QUEUE, json.toString());
+        return mDataStore;
+    }
+
+    /**
+     * Same as the AnalyticsModule constructor loading the stored queue: every event is parsed, then
+     * serialized again into its queued snapshot.
+     */
+    @Benchmark
+    public void restore(Blackhole blackhole) throws JSONException {
+        for (AnalyticsEvent event : JsonCodecs.listFromJson(mDataStore.get(KEY_STORAGE_EVENT_QUEUE), AnalyticsEvent.CODEC)) {
+            String json = JsonCodecs.toJson(event, AnalyticsEvent.CODEC);
+            blackhole.consume(json);
+            blackhole.consume(Metrics.utf8Length(json));
+            blackhole.consume(event.getExpirationTime());
+        }
+    }
+
+}
@@ -0,0 +1,45 @@
+package com.tigerspike.intelligence;
+
+import org.json.JSONException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of the token response, and of the stored tokens read by OAuth on start up.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuthenticationTokenBenchmark {
+
+    private AuthenticationToken mAuthenticationToken;
+
+    @Setup
+    public void setUp() throws JSONException {
+        mAuthenticationToken = new AuthenticationToken(Fixtures.TOKEN_JSON);
+    }
+
+    @Benchmark
+    public AuthenticationToken parse() throws JSONException {
+        return new AuthenticationToken(Fixtures.TOKEN_JSON);
+    }
+
+    @Benchmark
+    public String toJSONString() {
+        return mAuthenticationToken.toJSONString();
+    }
+
+}
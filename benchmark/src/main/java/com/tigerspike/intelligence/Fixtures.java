@@ -0,0 +1,79 @@
+package com.tigerspike.intelligence;
+
+import java.util.HashMap;
+
+/**
+ * Data shared by the benchmarks, shaped like what the SDK sends and receives.
+ */
+final class Fixtures {
+
+    static final String TOKEN_JSON = "{\"access_token\":\"8a8ab1e6d07f4cf9b6a2c7cd2d5b3e3f\",\"token_type\":\"bearer\"," +
+            "\"expires_in\":7200,\"refresh_token\":\"0c2dd7a3b0e34f9c8d0a4a5f7d9b1e62\"}";
+
+    private Fixtures() {
+    }
+
+    static Configuration configuration() {
+
+        Configuration configuration = new Configuration();
+        configuration.setRegion(Region.Europe);
+        configuration.setEnvironment(Environment.Production);
+        configuration.setProjectID(40003);
+        configuration.setApplicationID(10);
+        configuration.setCompanyID(4);
+
+        return configuration;
+    }
+
+    /**
+     * @return an event as queued by AnalyticsModule.trackEvent, with installation and location set.
+     */
+    static AnalyticsEvent analyticsEvent(int index) {
+
+        AnalyticsEvent analyticsEvent = new AnalyticsEvent("Phoenix.Identity.Application.Opened", String.valueOf(index));
+        analyticsEvent.setProjectId(40003);
+        analyticsEvent.setApplicationID(10);
+        analyticsEvent.setUserID(310375);
+        analyticsEvent.setInstallationID("0d2f8d2c-94c4-4c34-8d8b-63b1e4c0d8f1");
+        analyticsEvent.setApplicationVersion("1.4.2");
+        analyticsEvent.setDeviceType("Nexus 5X");
+        analyticsEvent.setOperatingSystem("Android 7.1.1");
+        analyticsEvent.setLocation(151.2099, -33.865143);
+
+        HashMap<String, String> metadata = new HashMap<>();
+        metadata.put("screen", "Home");
+        metadata.put("origin", "notification");
+        analyticsEvent.setMetaData(metadata);
+
+        return analyticsEvent;
+    }
+
+    /**
+     * @return an API response with a page of geofences. Every other geofence misses the optional
+     * fields and numbers are sent as strings, as returned by the server.
+     */
+    static String geofencesPage(int pageSize) {
+
+        StringBuilder json = new StringBuilder("{\"TotalRecords\":").append(pageSize).append(",\"Data\":[");
+
+        for (int i = 0; i < pageSize; i++) {
+
+            if (i > 0) {
+                json.append(',');
+            }
+
+            json.append("{\"Id\":\"").append(60000 + i).append("\",\"ProjectId\":40003,\"Name\":\"Geofence ").append(i)
+                    .append("\",\"Geolocation\":{\"Latitude\":").append(-33.865143 + i * 0.001)
+                    .append(",\"Longitude\":\"").append(151.2099 + i * 0.001).append("\"},\"Radius\":\"528.23\"");
+
+            if (i % 2 == 0) {
+                json.append(",\"Address\":\"119 Devonshire St, Surry Hills NSW 2010, Australia\",\"Tags\":\"tags\",\"GroupId\":null");
+            }
+
+            json.append('}');
+        }
+
+        return json.append("]}").toString();
+    }
+
+}
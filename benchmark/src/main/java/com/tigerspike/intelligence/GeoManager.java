@@ -0,0 +1,30 @@
+package com.tigerspike.intelligence;
+
+import android.content.Context;
+import android.location.Location;
+import android.support.annotation.NonNull;
+
+import java.util.List;
+
+/**
+ * Stand-in for the SDK GeoManager, which needs Play Services. Only keeps the members used by
+ * LocationModule so that the rest of the SDK compiles; none of the benchmarks reach it.
+ */
+class GeoManager {
+
+    GeoManager(@NonNull Context context, @NonNull GeofenceTransitionFilter transitionFilter) {
+    }
+
+    void setListener(Listener listener) {
+    }
+
+    void reloadIntelligenceGeofencesList(List<IntelligenceGeofence> intelligenceGeofences) {
+    }
+
+    interface Listener {
+        void onEnterGeofence(Integer GeofenceID);
+        void onExitGeofence(Integer GeofenceID);
+        void onLocationUpdate(Location location);
+    }
+
+}
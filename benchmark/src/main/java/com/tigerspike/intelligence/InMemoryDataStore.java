@@ -0,0 +1,43 @@
+package com.tigerspike.intelligence;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * DataStore backed by a HashMap, so that persistence benchmarks measure serialization rather
+ * than SharedPreferences.
+ */
+final class InMemoryDataStore extends DataStore {
+
+    private final HashMap<String, Object> mValues = new HashMap<>();
+
+    @Override
+    void set(String key, String value, boolean commit) {
+        mValues.put(key, value);
+    }
+
+    @Override
+    String get(String key, String defaultValue) {
+        Object value = mValues.get(key);
+        return value instanceof String ? (String) value : defaultValue;
+    }
+
+    @Override
+    void setStringSet(String key, Set<String> values) {
+        mValues.put(key, new HashSet<>(values));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    Set<String> getStringSet(String key, Set<String> defaultValues) {
+        Object value = mValues.get(key);
+        return value instanceof Set ? (Set<String>) value : defaultValues;
+    }
+
+    @Override
+    void remove(String key, boolean commit) {
+        mValues.remove(key);
+    }
+
+}
@@ -0,0 +1,62 @@
+package com.tigerspike.intelligence;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of a geofences response, with the JSONObject constructor and with the streaming codec
+ * used by LocationGetGeoFencesTask.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IntelligenceGeofenceBenchmark {
+
+    @Param({"50", "500"})
+    public int pageSize;
+
+    private String mPage;
+
+    @Setup
+    public void setUp() {
+        mPage = Fixtures.geofencesPage(pageSize);
+    }
+
+    @Benchmark
+    public List<IntelligenceGeofence> jsonObject() throws JSONException {
+
+        JSONArray data = new JSONObject(mPage).getJSONArray(JsonCodecs.KEY_DATA);
+        List<IntelligenceGeofence> geofences = new ArrayList<>(data.length());
+
+        for (int i = 0; i < data.length(); i++) {
+            geofences.add(new IntelligenceGeofence(data.getJSONObject(i)));
+        }
+
+        return geofences;
+    }
+
+    @Benchmark
+    public List<IntelligenceGeofence> codec() throws JSONException {
+        return JsonCodecs.dataFromJson(mPage, IntelligenceGeofence.CODEC);
+    }
+
+}
@@ -0,0 +1,125 @@
+package com.tigerspike.intelligence;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSONUtils accessors compared with the previous getString based ones, which threw and caught a
+ * JSONException for every absent key. Reads the fields of a page of 50 sparse geofences.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JSONUtilsBenchmark {
+
+    private static final int PAGE_SIZE = 50;
+
+    private static final String[] INTEGER_KEYS = { "Id", "ProjectId", "GroupId" };
+    private static final String[] DOUBLE_KEYS = { "Radius", "Altitude" };
+    private static final String[] STRING_KEYS = { "Name", "Address", "Tags", "Description" };
+
+    private JSONObject[] mPage;
+
+    @Setup
+    public void setUp() throws JSONException {
+
+        JSONArray data = new JSONObject(Fixtures.geofencesPage(PAGE_SIZE)).getJSONArray(JsonCodecs.KEY_DATA);
+
+        mPage = new JSONObject[data.length()];
+        for (int i = 0; i < mPage.length; i++) {
+            mPage[i] = data.getJSONObject(i);
+        }
+    }
+
+    @Benchmark
+    public void accessors(Blackhole blackhole) {
+
+        for (JSONObject geofence : mPage) {
+            for (String key : INTEGER_KEYS) {
+                blackhole.consume(JSONUtils.getInteger(geofence, key, null));
+            }
+            for (String key : DOUBLE_KEYS) {
+                blackhole.consume(JSONUtils.getDouble(geofence, key, null));
+            }
+            for (String key : STRING_KEYS) {
+                blackhole.consume(JSONUtils.getString(geofence, key, null));
+            }
+        }
+    }
+
+    @Benchmark
+    public void primitiveAccessors(Blackhole blackhole) {
+
+        for (JSONObject geofence : mPage) {
+            for (String key : INTEGER_KEYS) {
+                blackhole.consume(JSONUtils.optInt(geofence, key, IntelligenceGeofence.NO_VALUE));
+            }
+            for (String key : DOUBLE_KEYS) {
+                blackhole.consume(JSONUtils.optDouble(geofence, key, Double.NaN));
+            }
+            for (String key : STRING_KEYS) {
+                blackhole.consume(JSONUtils.optString(geofence, key));
+            }
+        }
+    }
+
+    @Benchmark
+    public void legacyAccessors(Blackhole blackhole) {
+
+        for (JSONObject geofence : mPage) {
+            for (String key : INTEGER_KEYS) {
+                blackhole.consume(legacyGetInteger(geofence, key));
+            }
+            for (String key : DOUBLE_KEYS) {
+                blackhole.consume(legacyGetDouble(geofence, key));
+            }
+            for (String key : STRING_KEYS) {
+                blackhole.consume(legacyGetString(geofence, key));
+            }
+        }
+    }
+
+    // Accessors as they were implemented before, kept here for comparison.
+
+    private static Integer legacyGetInteger(JSONObject jsonObject, String name) {
+        try {
+            return Integer.valueOf(jsonObject.getString(name));
+        } catch (Exception exception) {
+            return null;
+        }
+    }
+
+    private static Double legacyGetDouble(JSONObject jsonObject, String name) {
+        try {
+            return Double.valueOf(jsonObject.getString(name));
+        } catch (Exception exception) {
+            return null;
+        }
+    }
+
+    private static String legacyGetString(JSONObject jsonObject, String name) {
+        try {
+            return jsonObject.getString(name);
+        } catch (Exception exception) {
+            return null;
+        }
+    }
+
+}
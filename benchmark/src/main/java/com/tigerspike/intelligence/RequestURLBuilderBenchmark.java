@@ -0,0 +1,60 @@
+package com.tigerspike.intelligence;
+
+import com.tigerspike.intelligence.exceptions.IntelligenceInvalidParameterException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * URL creation, done for every request sent to the API.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestURLBuilderBenchmark {
+
+    // Same as IdentityModule.ENDPOINT_DELETE_IDENTIFIER, the module itself needs Android to load.
+    private static final String ENDPOINT_DELETE_IDENTIFIER = "projects/{PROJECT_ID}/identifiers/{IDENTIFIER_ID}";
+
+    // Modules keep one builder and reuse it for every request.
+    private RequestURLBuilder mRequestURLBuilder;
+
+    @Setup
+    public void setUp() {
+        mRequestURLBuilder = new RequestURLBuilder(Fixtures.configuration());
+    }
+
+    /**
+     * URL of the AnalyticsModule requests.
+     */
+    @Benchmark
+    public URL analyticsURL() throws IntelligenceInvalidParameterException {
+        return mRequestURLBuilder.analyticsBaseURL().urlPath("projects/{PROJECT_ID}/events").url();
+    }
+
+    /**
+     * URL with parameters added to the builder, as built by IdentityModule.createDeleteIdentifierRequest.
+     */
+    @Benchmark
+    public URL identityURL() throws IntelligenceInvalidParameterException {
+        return mRequestURLBuilder.identityBaseURL().urlPath(ENDPOINT_DELETE_IDENTIFIER)
+                .addParam("USER_ID", "310375")
+                .addParam("IDENTIFIER_ID", "523")
+                .url();
+    }
+
+}
@@ -0,0 +1,22 @@
+package android.net.http;
+
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.util.List;
+
+import javax.net.ssl.X509TrustManager;
+
+/**
+ * Added in API 17, missing from the Android jar the benchmarks compile against. Refuses every chain,
+ * the benchmarks do not open TLS connections.
+ */
+public class X509TrustManagerExtensions {
+
+    public X509TrustManagerExtensions(X509TrustManager trustManager) {
+    }
+
+    public List<X509Certificate> checkServerTrusted(X509Certificate[] chain, String authType, String host) throws CertificateException {
+        throw new CertificateException("Not available on the JVM");
+    }
+
+}
@@ -0,0 +1,66 @@
+package com.tigerspike.intelligence;
+
+/**
+ * AnalyticsBatchSizer
+ *
+ * Bytes of serialized events the AnalyticsModule sends in a batch, adapted to the results of the
+ * previous batches: the limit grows by BYTES_INCREASE after a batch uploaded within UPLOAD_TARGET_MS
+ * and is halved after a slower batch or a timeout.
+ *
+ * Until a batch was sent on the network, the limit is also bounded by what the throughput measured by
+ * NetworkQuality uploads in UPLOAD_TARGET_MS.
+ */
+final class AnalyticsBatchSizer {
+
+    static final long MIN_BYTES = 4 * 1024;
+    static final long MAX_BYTES = 256 * 1024;
+    static final long INITIAL_BYTES = 64 * 1024;
+    static final long BYTES_INCREASE = 16 * 1024;
+
+    // Time a batch should take to upload, well within the response timeout.
+    static final long UPLOAD_TARGET_MS = Constants.CONNECTION_RESPONSE_TIMEOUT_MS / 4;
+
+    private final NetworkQuality mNetworkQuality;
+    private long mLimit = INITIAL_BYTES;
+
+    AnalyticsBatchSizer(NetworkQuality networkQuality) {
+        mNetworkQuality = networkQuality;
+    }
+
+    /**
+     * @return the bytes of serialized events to send in the next batch, a batch has at least one event.
+     */
+    synchronized long byteLimit() {
+
+        long throughput = mNetworkQuality.getThroughput();
+
+        if (throughput < 0) {
+            return mNetworkQuality.isPoor() ? Math.min(mLimit, MIN_BYTES) : mLimit;
+        }
+
+        return Math.max(MIN_BYTES, Math.min(mLimit, throughput * UPLOAD_TARGET_MS / 1000));
+    }
+
+    /**
+     * Called when a batch was uploaded.
+     */
+    synchronized void onSuccess(long elapsedNanos) {
+        if (elapsedNanos <= UPLOAD_TARGET_MS * 1000000) {
+            mLimit = Math.min(MAX_BYTES, mLimit + BYTES_INCREASE);
+        } else {
+            decrease();
+        }
+    }
+
+    /**
+     * Called when a batch timed out.
+     */
+    synchronized void onTimeout() {
+        decrease();
+    }
+
+    private void decrease() {
+        mLimit = Math.max(MIN_BYTES, mLimit / 2);
+    }
+
+}
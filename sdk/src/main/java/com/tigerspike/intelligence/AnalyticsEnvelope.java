@@ -0,0 +1,41 @@
+package com.tigerspike.intelligence;
+
+/**
+ * Metadata identical for all the events tracked by an installation and user: installation,
+ * application version, device, operating system, application, project and user.
+ *
+ * Immutable, AnalyticsModule builds a new one only when the installation or the user changed, and
+ * every event tracked meanwhile shares its values.
+ */
+final class AnalyticsEnvelope {
+
+    final String installationID;
+    final String applicationVersion;
+    final String deviceType;
+    final String operatingSystem;
+    final Integer applicationID;
+    final Integer projectID;
+    final Integer userID;
+
+    AnalyticsEnvelope(String installationID, Installation device, Integer applicationID, Integer projectID, Integer userID) {
+        this.installationID = Utils.isEmpty(installationID) ? null : installationID;
+        this.applicationVersion = device.getInstalledVersion();
+        this.deviceType = device.getModelReference();
+        this.operatingSystem = "Android " + device.getOperatingSystemVersion();
+        this.applicationID = applicationID;
+        this.projectID = projectID;
+        this.userID = userID;
+    }
+
+    /**
+     * @return true if the envelope was built for the installation and user.
+     */
+    boolean matches(String installationID, Integer userID) {
+        return equals(this.installationID, Utils.isEmpty(installationID) ? null : installationID) && equals(this.userID, userID);
+    }
+
+    private static boolean equals(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+}
@@ -2,12 +2,17 @@ package com.tigerspike.intelligence;
 
 import android.annotation.SuppressLint;
 
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Map;
 import java.util.TimeZone;
 
 public class AnalyticsEvent {
@@ -72,8 +77,14 @@ public class AnalyticsEvent {
         mDate = simpleDateFormat.format(new Date());
     }
 
+    /**
+     * Used by CODEC to restore stored events, which already have a date.
+     */
+    private AnalyticsEvent() {
+    }
+
     public String toJSONString() {
-        return toJSONObject().toString();
+        return JsonCodecs.toJson(this, CODEC);
     }
 
     public JSONObject toJSONObject() {
@@ -116,6 +127,19 @@ public class AnalyticsEvent {
 
     }
 
+    /**
+     * Sets the installation, application, device and user of the event, sharing the values of the envelope.
+     */
+    void setEnvelope(AnalyticsEnvelope envelope) {
+        mInstallationID = envelope.installationID;
+        mApplicationVersion = envelope.applicationVersion;
+        mDeviceType = envelope.deviceType;
+        mOperatingSystem = envelope.operatingSystem;
+        mApplicationID = envelope.applicationID;
+        mProjectId = envelope.projectID;
+        mUserId = envelope.userID;
+    }
+
     void setUserID(Integer userID) {
         mUserId = userID;
     }
@@ -172,28 +196,146 @@ public class AnalyticsEvent {
     }
 
     /**
-     * Checks the JSON event and tells if it should be discarded or not.
-     * @param jsonEvent
-     * @return
+     * Adds a MetaData entry to a copy of the MetaData, the map set by the app is not changed.
+     */
+    void putMetaData(String key, String value) {
+        HashMap<String, String> metaData = mMetaData != null ? new HashMap<>(mMetaData) : new HashMap<String, String>();
+        metaData.put(key, value);
+        mMetaData = metaData;
+    }
+
+    /**
+     * @return the time in milliseconds after which the event is too old to be sent, 0 if its date is invalid.
      */
-    static boolean shouldDropJSONObjectFromQueue(JSONObject jsonEvent) {
+    long getExpirationTime() {
         try {
             @SuppressLint("SimpleDateFormat")
             SimpleDateFormat simpleDateFormat = new SimpleDateFormat(Constants.SDK_DATE_FORMAT);
-            String dateString = jsonEvent.optString(KEY_EVENT_DATE);
-            Date date = simpleDateFormat.parse(dateString);
-            return ((new Date()).getTime() - date.getTime()) > MILLIS_BEFORE_EVENT_EXPIRATION;
+            Date date = simpleDateFormat.parse(mDate);
+            return date.getTime() + MILLIS_BEFORE_EVENT_EXPIRATION;
         }
         catch (Exception e) {
-            // The JSON is invalid, drop it to avoid corrupted data.
-            return true;
+            // The date is invalid, drop it to avoid corrupted data.
+            return 0;
         }
     }
 
+    /**
+     * Streaming codec, writes the same JSON as toJSONObject and reads it back for the stored event queue.
+     */
+    static final JsonCodec<AnalyticsEvent> CODEC = new JsonCodec<AnalyticsEvent>() {
+
+        @Override
+        public AnalyticsEvent read(JsonReader reader) throws IOException {
+
+            AnalyticsEvent event = new AnalyticsEvent();
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String key = reader.nextName();
+                if (KEY_EVENT_DATE.equals(key)) {
+                    event.mDate = JsonCodecs.nextString(reader);
+                } else if (KEY_PROJECT_ID.equals(key)) {
+                    event.mProjectId = JsonCodecs.nextInteger(reader, null);
+                } else if (KEY_TYPE.equals(key)) {
+                    event.mType = JsonCodecs.nextString(reader);
+                } else if (KEY_VALUE.equals(key)) {
+                    event.mValue = JsonCodecs.nextString(reader);
+                } else if (KEY_TARGET_ID.equals(key)) {
+                    event.mTargetID = JsonCodecs.nextString(reader);
+                } else if (KEY_USER_ID.equals(key)) {
+                    event.mUserId = JsonCodecs.nextInteger(reader, null);
+                } else if (KEY_APPLICATION_ID.equals(key)) {
+                    event.mApplicationID = JsonCodecs.nextInteger(reader, null);
+                } else if (KEY_INSTALLATION_ID.equals(key)) {
+                    event.mInstallationID = JsonCodecs.nextString(reader);
+                } else if (KEY_APPLICATION_VERSION.equals(key)) {
+                    event.mApplicationVersion = JsonCodecs.nextString(reader);
+                } else if (KEY_DEVICE_TYPE.equals(key)) {
+                    event.mDeviceType = JsonCodecs.nextString(reader);
+                } else if (KEY_OPERATING_SYSTEM.equals(key)) {
+                    event.mOperatingSystem = JsonCodecs.nextString(reader);
+                } else if (KEY_IP_ADDRESS.equals(key)) {
+                    event.mIpAddress = JsonCodecs.nextString(reader);
+                } else if (KEY_LOCATION.equals(key)) {
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        String locationKey = reader.nextName();
+                        if (KEY_LOCATION_LATITUDE.equals(locationKey)) {
+                            event.mLatitude = JSONUtils.parseDouble(JsonCodecs.nextString(reader), null);
+                        } else if (KEY_LOCATION_LONGITUDE.equals(locationKey)) {
+                            event.mLongitude = JSONUtils.parseDouble(JsonCodecs.nextString(reader), null);
+                        } else {
+                            reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                } else if (KEY_META_DATA.equals(key)) {
+                    event.mMetaData = new HashMap<>();
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        event.mMetaData.put(reader.nextName(), JsonCodecs.nextString(reader));
+                    }
+                    reader.endObject();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            return event;
+        }
+
+        @Override
+        public void write(JsonWriter writer, AnalyticsEvent event) throws IOException {
+            writer.beginObject();
+            writer.name(KEY_EVENT_DATE).value(event.mDate);
+            writer.name(KEY_PROJECT_ID).value(event.mProjectId);
+            writer.name(KEY_TYPE).value(event.mType);
+            writer.name(KEY_VALUE).value(event.mValue);
+            writer.name(KEY_TARGET_ID).value(event.mTargetID);
+
+            writer.name(KEY_USER_ID).value(event.mUserId);
+            writer.name(KEY_APPLICATION_ID).value(event.mApplicationID);
+            writer.name(KEY_INSTALLATION_ID).value(event.mInstallationID);
+
+            writer.name(KEY_APPLICATION_VERSION).value(event.mApplicationVersion);
+            writer.name(KEY_DEVICE_TYPE).value(event.mDeviceType);
+            writer.name(KEY_OPERATING_SYSTEM).value(event.mOperatingSystem);
+
+            if (event.mLatitude != null && event.mLongitude != null) {
+                writer.name(KEY_LOCATION).beginObject();
+                writer.name(KEY_LOCATION_LATITUDE).value(event.mLatitude);
+                writer.name(KEY_LOCATION_LONGITUDE).value(event.mLongitude);
+                writer.endObject();
+            }
+
+            if (event.mMetaData != null) {
+                writer.name(KEY_META_DATA).beginObject();
+                for (Map.Entry<String, String> entry : event.mMetaData.entrySet()) {
+                    writer.name(entry.getKey()).value(entry.getValue());
+                }
+                writer.endObject();
+            }
+
+            writer.name(KEY_IP_ADDRESS).value(event.mIpAddress);
+            writer.endObject();
+        }
+
+    };
+
     /**
      * @return the type of the event.
      */
     public String getType() {
         return mType;
     }
+
+    String getValue() {
+        return mValue;
+    }
+
+    String getTargetID() {
+        return mTargetID;
+    }
 }
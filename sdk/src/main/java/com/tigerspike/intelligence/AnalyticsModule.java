@@ -2,19 +2,23 @@ package com.tigerspike.intelligence;
 
 import android.app.Application;
 import android.location.Location;
-import android.text.TextUtils;
+import android.os.Handler;
+import android.os.Looper;
 
 import com.tigerspike.intelligence.exceptions.IntelligenceException;
 import com.tigerspike.intelligence.exceptions.IntelligenceInvalidParameterException;
 import com.tigerspike.intelligence.exceptions.IntelligenceServerException;
 
-import org.json.JSONArray;
 import org.json.JSONException;
-import org.json.JSONObject;
 
+import java.io.InterruptedIOException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
 
 public final class AnalyticsModule extends IntelligenceModule implements Analytics {
 
@@ -28,24 +32,44 @@ public final class AnalyticsModule extends IntelligenceModule implements Analyti
     private Configuration mConfiguration;
     private Application mApplication;
     private TaskExecutor mTaskExecutor;
+    private Metrics mMetrics;
 
     private Location mLastKnownLocation;
-    private Installation mInstallation;
+    private Installation mDevice;
+    private InstallationStore mInstallationStore;
+    private volatile AnalyticsEnvelope mEnvelope;
     private RequestURLBuilder mRequestURLBuilder;
+    private RequestContext mRequestContext;
+    private AnalyticsBatchSizer mBatchSizer;
+    private AnalyticsSampler mSampler;
+    private long mAggregationWindowMillis;
+    private Handler mHandler;
 
     private boolean mIsBusy = false;
+    private boolean mAggregatesFlushScheduled = false;
 
-    private LinkedList<JSONObject> mEventQueue;
+    // Events are serialized when queued, the app may keep changing the AnalyticsEvent it tracked.
+    private LinkedList<QueuedEvent> mEventQueue;
+    // Incremented on every change of the queue, the queue is only stored again when it changed.
+    private int mEventQueueVersion;
+    private int mStoredEventQueueVersion;
 
-    public AnalyticsModule(Configuration configuration, TaskExecutor taskExecutor, DataStore dataStore, OAuth oAuth, Application application) {
+    public AnalyticsModule(Configuration configuration, TaskExecutor taskExecutor, DataStore dataStore, OAuth oAuth, Application application, InstallationStore installationStore) {
 
         mConfiguration = configuration;
         mTaskExecutor = taskExecutor;
         mOAuth = oAuth;
         mDataStore = dataStore;
         mApplication = application;
+        mMetrics = taskExecutor.getMetrics();
+        mInstallationStore = installationStore;
 
         mRequestURLBuilder = new RequestURLBuilder(configuration);
+        mRequestContext = taskExecutor.getRequestContext();
+        mBatchSizer = new AnalyticsBatchSizer(taskExecutor.getNetworkQuality());
+        mSampler = new AnalyticsSampler(configuration.getAnalyticsSamplingRates(), configuration.getAnalyticsAggregatedTypes(), new Random());
+        mAggregationWindowMillis = configuration.getAnalyticsAggregationWindow() * 1000L;
+        mHandler = new Handler(Looper.getMainLooper());
 
         mEventQueue = new LinkedList<>();
 
@@ -56,9 +80,8 @@ public final class AnalyticsModule extends IntelligenceModule implements Analyti
         if (eventQueueString != null && !eventQueueString.isEmpty()) {
 
             try {
-                JSONArray eventQueueArray = new JSONArray(eventQueueString);
-                for (int i = 0; i < eventQueueArray.length(); i++) {
-                    mEventQueue.add(eventQueueArray.getJSONObject(i));
+                for (AnalyticsEvent event : JsonCodecs.listFromJson(eventQueueString, AnalyticsEvent.CODEC)) {
+                    mEventQueue.add(new QueuedEvent(event));
                 }
             } catch (JSONException exception) {
                 // Nothing much we can do here.
@@ -74,38 +97,119 @@ public final class AnalyticsModule extends IntelligenceModule implements Analyti
     }
 
     @Override
-    public void trackEvent(AnalyticsEvent analyticsEvent) {
+    void shutdown() {
+
+        mHandler.removeCallbacks(mFlushAggregates);
 
-        if (mInstallation == null) {
-            mInstallation = new Installation(mApplication);
+        List<AnalyticsEvent> summaries = mSampler.drain();
+
+        if (summaries.isEmpty()) {
+            return;
         }
 
-        // Only set installation ID when it was provided by the back-end, aka when it has a back-end ID.
-        /*if (mInstallation.getID() != null) {
-            analyticsEvent.setInstallationID(mInstallation.getInstallationID());
-        }*/
+        // Keep the aggregates of the current window with the stored queue, sent on next start up.
+        synchronized (this) {
+            for (AnalyticsEvent summary : summaries) {
+                summary.setLocation(mLastKnownLocation);
+                mEventQueue.add(new QueuedEvent(summary));
+            }
+            mEventQueueVersion++;
+        }
+
+        storeEventQueue();
+    }
+
+    @Override
+    public void trackEvent(AnalyticsEvent analyticsEvent) {
+
+        AnalyticsEnvelope envelope = getEnvelope();
+        AnalyticsSampler.Decision decision = mSampler.offer(analyticsEvent, envelope);
 
-        if (!TextUtils.isEmpty(Utils.getInstallationId(mDataStore))) {
-            analyticsEvent.setInstallationID(Utils.getInstallationId(mDataStore));
+        if (decision == AnalyticsSampler.Decision.Drop) {
+            mMetrics.analyticsEventsSampledOut.increment();
+        } else if (decision == AnalyticsSampler.Decision.Aggregate) {
+            mMetrics.analyticsEventsAggregated.increment();
+            scheduleAggregatesFlush();
+        } else {
+            analyticsEvent.setEnvelope(envelope);
+            enqueue(analyticsEvent);
         }
 
-        analyticsEvent.setApplicationVersion(mInstallation.getInstalledVersion());
-        analyticsEvent.setDeviceType(mInstallation.getModelReference());
-        analyticsEvent.setOperatingSystem("Android " + mInstallation.getOperatingSystemVersion());
+    }
+
+    /**
+     * Queues an event which has its envelope.
+     */
+    private void enqueue(AnalyticsEvent analyticsEvent) {
 
-        analyticsEvent.setApplicationID(mConfiguration.getApplicationID());
-        analyticsEvent.setProjectId(mConfiguration.getProjectID());
-        analyticsEvent.setUserID(mOAuth.getCurrentUserId());
         analyticsEvent.setLocation(mLastKnownLocation);
 
+        QueuedEvent queuedEvent = new QueuedEvent(analyticsEvent);
+
         synchronized (this) {
-            mEventQueue.add(analyticsEvent.toJSONObject());
+            mEventQueue.add(queuedEvent);
+            mEventQueueVersion++;
         }
 
+        mMetrics.analyticsEventsEnqueued.increment();
+
         process(false);
 
     }
 
+    /**
+     * Sends the aggregates once the window of the first aggregated event ends.
+     */
+    private void scheduleAggregatesFlush() {
+
+        synchronized (this) {
+            if (mAggregatesFlushScheduled) {
+                return;
+            }
+            mAggregatesFlushScheduled = true;
+        }
+
+        mHandler.postDelayed(mFlushAggregates, mAggregationWindowMillis);
+    }
+
+    private final Runnable mFlushAggregates = new Runnable() {
+        @Override
+        public void run() {
+
+            synchronized (AnalyticsModule.this) {
+                mAggregatesFlushScheduled = false;
+            }
+
+            for (AnalyticsEvent summary : mSampler.drain()) {
+                enqueue(summary);
+            }
+        }
+    };
+
+    /**
+     * @return the envelope of the current installation and user, built again only after the installation was posted, or on login and logout.
+     */
+    private AnalyticsEnvelope getEnvelope() {
+
+        // Only set installation ID when it was provided by the back-end.
+        String installationID = mInstallationStore.getInstallationID();
+        Integer userID = mOAuth.getCurrentUserId();
+
+        AnalyticsEnvelope envelope = mEnvelope;
+
+        if (envelope == null || !envelope.matches(installationID, userID)) {
+
+            if (mDevice == null) {
+                mDevice = new Installation(mApplication);
+            }
+
+            envelope = new AnalyticsEnvelope(installationID, mDevice, mConfiguration.getApplicationID(), mConfiguration.getProjectID(), userID);
+            mEnvelope = envelope;
+        }
+
+        return envelope;
+    }
+
     @Override
     public void trackScreenViewed(String screenName, Double timeViewed) {
         trackEvent(new AnalyticsEventScreenViewed(screenName, timeViewed));
@@ -136,7 +240,7 @@ public final class AnalyticsModule extends IntelligenceModule implements Analyti
         }
     }
 
-    private Request createAnalyticsRequest(JSONArray eventsData) {
+    private Request createAnalyticsRequest(List<QueuedEvent> events) {
 
         URL url = null;
 
@@ -145,13 +249,27 @@ public final class AnalyticsModule extends IntelligenceModule implements Analyti
         } catch (IntelligenceInvalidParameterException ignored) {
         }
 
-        return RequestBuilder.POST(url)
+        return mRequestContext.POST(url)
                 .authentication(mOAuth.getCurrentAuthenticationToken())
-                .body(eventsData.toString())
+                .body(toJsonArray(events))
                 .build();
 
     }
 
+    /**
+     * @return the JSON array of the serialized events, the format of both the stored queue and the request body.
+     */
+    private static String toJsonArray(List<QueuedEvent> events) {
+
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < events.size(); i++) {
+            json.append(i > 0 ? "," : "").append(events.get(i).json);
+        }
+        json.append("]");
+
+        return json.toString();
+    }
+
     private void processQueue() throws Exception {
 
         boolean doContinue = true;
@@ -160,71 +278,133 @@ public final class AnalyticsModule extends IntelligenceModule implements Analyti
 
         while (doContinue) {
 
-            // -- SAVE Current EventQueue --
-            JSONArray eventQueueJsonArray;
-            synchronized (AnalyticsModule.this) {
-                eventQueueJsonArray = new JSONArray(mEventQueue);
-            }
-
-            mDataStore.set(KEY_STORAGE_EVENT_QUEUE, eventQueueJsonArray.toString());
+            List<QueuedEvent> eventQueue = storeEventQueue();
 
-            if (eventQueueJsonArray.length() <= 0) {
+            if (eventQueue.size() <= 0) {
                 doContinue = false;
             } else {
+                sendBatch(nextBatch(eventQueue));
+            }
 
-                JSONArray eventsData = new JSONArray();
+        }
 
-                for (int eventIndex = 0; eventIndex < MAX_EVENTS_TO_SEND && eventIndex < eventQueueJsonArray.length(); eventIndex++) {
-                    eventsData.put(eventQueueJsonArray.opt(eventIndex));
-                }
+    }
 
-                // Create and execute request
-                Response response = createAnalyticsRequest(eventsData).execute();
-
-                // A non success HTTP code would not trigger an exception, but we should treat it as
-                // such so that we don't delete events not submitted but where not successfully treated
-                // by the backend.
-                if (response.isSuccess() && response.exception() == null) {
-
-                    synchronized (AnalyticsModule.this) {
-                        for (int i = 0; i < eventsData.length(); i++) {
-                            mEventQueue.removeFirst();
-                        }
-                    }
-
-                } else {
-
-                    // TODO This should be done via tasks. The handleError method code is duplicated within the fromResponse method.
-                    IntelligenceServerException intelligenceServerException = IntelligenceServerException.fromResponse(response.code(), response.bodyData());
-
-                    // If we receive "invalid_request" server error response the sent events are wrong / out of date.
-                    // We clear the events and continue with the rest of the events list.
-                    // If we receive a different server error we throw an exception.
-                    if (intelligenceServerException.getServerError().equalsIgnoreCase("invalid_request")) {
-                        synchronized (AnalyticsModule.this) {
-                            for (int i = 0; i < eventsData.length(); i++) {
-                                mEventQueue.removeFirst();
-                            }
-                        }
-                    } else {
-                        throw (intelligenceServerException);
-                    }
+    /**
+     * Stores the queue if it changed since it was last stored.
+     *
+     * @return a snapshot of the queue.
+     */
+    private List<QueuedEvent> storeEventQueue() {
 
-                }
+        List<QueuedEvent> eventQueue;
+
+        synchronized (this) {
 
+            eventQueue = new ArrayList<>(mEventQueue);
+
+            if (mStoredEventQueueVersion == mEventQueueVersion) {
+                return eventQueue;
             }
 
+            mStoredEventQueueVersion = mEventQueueVersion;
+        }
+
+        mDataStore.set(KEY_STORAGE_EVENT_QUEUE, toJsonArray(eventQueue));
+
+        return eventQueue;
+    }
+
+    /**
+     * @return the events at the head of the queue fitting in the byte limit of the batch sizer, at
+     * least one and at most MAX_EVENTS_TO_SEND.
+     */
+    private List<QueuedEvent> nextBatch(List<QueuedEvent> eventQueue) {
+
+        List<QueuedEvent> events = new ArrayList<>();
+        long byteLimit = mBatchSizer.byteLimit();
+        long bytes = 0;
+
+        for (QueuedEvent event : eventQueue) {
+
+            bytes += event.bytes + 1;
+
+            if (events.size() == MAX_EVENTS_TO_SEND || (!events.isEmpty() && bytes > byteLimit)) {
+                break;
+            }
+
+            events.add(event);
+        }
+
+        return events;
+    }
+
+    /**
+     * Sends the events at the head of the queue and removes them once uploaded. A batch rejected with
+     * "invalid_request" is sent again in two halves, down to the single invalid events, which are dropped.
+     */
+    private void sendBatch(List<QueuedEvent> events) throws IntelligenceException {
+
+        long start = System.nanoTime();
+
+        // Create and execute request
+        Response response = createAnalyticsRequest(events).execute();
+
+        // A non success HTTP code would not trigger an exception, but we should treat it as
+        // such so that we don't delete events not submitted but where not successfully treated
+        // by the backend.
+        if (response.isSuccess() && response.exception() == null) {
+
+            mBatchSizer.onSuccess(System.nanoTime() - start);
+
+            removeEvents(events.size());
+            mMetrics.analyticsEventsUploaded.add(events.size());
+
+            return;
+        }
+
+        if (response.exception() instanceof InterruptedIOException) {
+            mBatchSizer.onTimeout();
+        }
+
+        // TODO This should be done via tasks. The handleError method code is duplicated within the fromResponse method.
+        IntelligenceServerException intelligenceServerException = IntelligenceServerException.fromResponse(response.code(), response.bodyData());
+
+        // If we receive "invalid_request" server error response some of the sent events are wrong / out of date.
+        // We bisect the batch to drop only those and continue with the rest of the events list.
+        // If we receive a different server error we throw an exception.
+        if (!intelligenceServerException.getServerError().equalsIgnoreCase("invalid_request")) {
+            throw (intelligenceServerException);
+        }
+
+        if (events.size() == 1) {
+            removeEvents(1);
+            mMetrics.analyticsEventsDropped.increment();
+            return;
         }
 
+        int half = events.size() / 2;
+        sendBatch(events.subList(0, half));
+        sendBatch(events.subList(half, events.size()));
+    }
+
+    private synchronized void removeEvents(int count) {
+        for (int i = 0; i < count; i++) {
+            mEventQueue.removeFirst();
+        }
+        mEventQueueVersion++;
     }
 
     private void filterInvalidEventsInQueue() {
         synchronized (this) {
-            Iterator<JSONObject> iterator = mEventQueue.iterator();
+            long now = new Date().getTime();
+            Iterator<QueuedEvent> iterator = mEventQueue.iterator();
             while (iterator.hasNext()) {
-                JSONObject object = iterator.next();
-                if (AnalyticsEvent.shouldDropJSONObjectFromQueue(object)) {
+                QueuedEvent event = iterator.next();
+                if (now > event.expirationTime) {
                     iterator.remove();
+                    mEventQueueVersion++;
+                    mMetrics.analyticsEventsDropped.increment();
                 }
             }
         }
@@ -235,6 +415,23 @@ public final class AnalyticsModule extends IntelligenceModule implements Analyti
         mLastKnownLocation = location;
     }
 
+    /**
+     * Snapshot of a tracked event, as sent to the back-end.
+     */
+    private static final class QueuedEvent {
+
+        final String json;
+        final long bytes;
+        final long expirationTime;
+
+        QueuedEvent(AnalyticsEvent event) {
+            json = JsonCodecs.toJson(event, AnalyticsEvent.CODEC);
+            bytes = Metrics.utf8Length(json);
+            expirationTime = event.getExpirationTime();
+        }
+
+    }
+
     private class ProcessQueueTask extends IntelligenceTask {
 
         private boolean mSuccess;
@@ -253,6 +450,12 @@ public final class AnalyticsModule extends IntelligenceModule implements Analyti
             processQueue();
         }
 
+        @Override
+        NetworkRequirement networkRequirement() {
+            // Events can wait for a better network, a poor metered one times out on full batches.
+            return NetworkRequirement.UnmeteredOrGood;
+        }
+
         @Override
         void onError(IntelligenceException intelligenceException) {
             super.onError(intelligenceException);
@@ -0,0 +1,151 @@
+package com.tigerspike.intelligence;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * AnalyticsSampler
+ *
+ * Reduces the volume of the event types configured in Configuration before they are queued:
+ *
+ * - Events of an aggregated type are counted and their values summed per target, installation and
+ *   user, and sent as one summary event per aggregate when the AnalyticsModule drains the window. The
+ *   summary has the envelope of its events, the sum as value, and the count and sum in its MetaData.
+ * - Events of a sampled type are kept with their sampling rate, and the rate is added to their
+ *   MetaData so that the counts can be scaled back.
+ *
+ * Aggregates are kept in memory only, the ones of the current window are lost if the app is killed.
+ */
+final class AnalyticsSampler {
+
+    static final String META_DATA_COUNT = "AggregatedCount";
+    static final String META_DATA_SUM = "AggregatedSum";
+    static final String META_DATA_SAMPLING_RATE = "SamplingRate";
+
+    enum Decision {
+        // Queue the event.
+        Keep,
+        // Not sampled, drop the event.
+        Drop,
+        // Added to an aggregate, sent with the next drain.
+        Aggregate
+    }
+
+    private final Map<String, Double> mSamplingRates;
+    private final Set<String> mAggregatedTypes;
+    private final Random mRandom;
+
+    // Aggregates of the current window by type, target, installation and user, in the order they were started.
+    private final LinkedHashMap<String, Aggregate> mAggregates = new LinkedHashMap<>();
+
+    AnalyticsSampler(Map<String, Double> samplingRates, Set<String> aggregatedTypes, Random random) {
+        mSamplingRates = samplingRates;
+        mAggregatedTypes = aggregatedTypes;
+        mRandom = random;
+    }
+
+    /**
+     * Decides what to do with a tracked event, a sampled event gets its sampling rate in its MetaData.
+     *
+     * @param envelope envelope of the installation and user tracking the event.
+     */
+    synchronized Decision offer(AnalyticsEvent event, AnalyticsEnvelope envelope) {
+
+        String type = event.getType();
+
+        if (mAggregatedTypes.contains(type)) {
+
+            // Events of another user or installation, e.g. after a logout, are not merged.
+            String key = type + "\n" + event.getTargetID() + "\n" + envelope.installationID + "\n" + envelope.userID;
+            Aggregate aggregate = mAggregates.get(key);
+
+            if (aggregate == null) {
+                aggregate = new Aggregate(type, event.getTargetID(), envelope);
+                mAggregates.put(key, aggregate);
+            }
+
+            aggregate.add(event.getValue());
+
+            return Decision.Aggregate;
+        }
+
+        Double rate = mSamplingRates.get(type);
+
+        if (rate == null || rate >= 1) {
+            return Decision.Keep;
+        }
+
+        if (mRandom.nextDouble() >= rate) {
+            return Decision.Drop;
+        }
+
+        event.putMetaData(META_DATA_SAMPLING_RATE, String.valueOf(rate));
+
+        return Decision.Keep;
+    }
+
+    /**
+     * Ends the current window.
+     *
+     * @return the summary events of the window with their envelope, one per aggregate.
+     */
+    synchronized List<AnalyticsEvent> drain() {
+
+        List<AnalyticsEvent> events = new ArrayList<>(mAggregates.size());
+
+        for (Aggregate aggregate : mAggregates.values()) {
+            events.add(aggregate.toEvent());
+        }
+
+        mAggregates.clear();
+
+        return events;
+    }
+
+    private static final class Aggregate {
+
+        private final String mType;
+        private final String mTargetID;
+        private final AnalyticsEnvelope mEnvelope;
+        private long mCount;
+        private double mSum;
+
+        Aggregate(String type, String targetID, AnalyticsEnvelope envelope) {
+            mType = type;
+            mTargetID = targetID;
+            mEnvelope = envelope;
+        }
+
+        void add(String value) {
+
+            mCount++;
+
+            // Events without a numeric value are only counted.
+            Double number = JSONUtils.parseDouble(value, null);
+            if (number != null) {
+                mSum += number;
+            }
+        }
+
+        AnalyticsEvent toEvent() {
+
+            AnalyticsEvent event = new AnalyticsEvent(mType, String.valueOf(mSum));
+            event.setTargetID(mTargetID);
+            event.setEnvelope(mEnvelope);
+
+            HashMap<String, String> metaData = new HashMap<>();
+            metaData.put(META_DATA_COUNT, String.valueOf(mCount));
+            metaData.put(META_DATA_SUM, String.valueOf(mSum));
+            event.setMetaData(metaData);
+
+            return event;
+        }
+
+    }
+
+}
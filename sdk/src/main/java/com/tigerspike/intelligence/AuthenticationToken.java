@@ -2,9 +2,13 @@ package com.tigerspike.intelligence;
 
 import android.support.annotation.Nullable;
 
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.IOException;
 import java.util.Date;
 
 final class AuthenticationToken {
@@ -29,21 +33,11 @@ final class AuthenticationToken {
      * @throws JSONException
      */
     public AuthenticationToken(String jsonData) throws JSONException {
+        this(JsonCodecs.fromJson(jsonData, CODEC));
+    }
 
-        JSONObject jsonObject = JSONUtils.parseSimpleJSONObject(jsonData);
-
-        int expires_in;
-
-        mToken = jsonObject.getString(KEY_ACCESS_TOKEN);
-        mTokenType = jsonObject.getString(KEY_TOKEN_TYPE);
-        expires_in = jsonObject.getInt(KEY_EXPIRES_IN);
-
-        if (jsonObject.has(KEY_REFRESH_TOKEN)) {
-            mRefreshToken = jsonObject.getString(KEY_REFRESH_TOKEN);
-        }
-
-        mDateExpires = new Date(new Date().getTime() + (expires_in*1000));
-
+    private AuthenticationToken(AuthenticationToken authenticationToken) {
+        this(authenticationToken.mToken, authenticationToken.mRefreshToken, authenticationToken.mTokenType, authenticationToken.mDateExpires);
     }
 
     public JSONObject toJSONObject() {
@@ -68,10 +62,58 @@ final class AuthenticationToken {
     }
 
     public String toJSONString() {
-        JSONObject jsonObject = toJSONObject();
-        return jsonObject != null ? jsonObject.toString() : null;
+        return JsonCodecs.toJson(this, CODEC);
     }
 
+    /**
+     * Streaming codec, reads the token responses of the server and writes the same JSON as toJSONObject.
+     */
+    static final JsonCodec<AuthenticationToken> CODEC = new JsonCodec<AuthenticationToken>() {
+
+        @Override
+        public AuthenticationToken read(JsonReader reader) throws IOException {
+
+            String token = null;
+            String tokenType = null;
+            String refreshToken = null;
+            Integer expiresIn = null;
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String key = reader.nextName();
+                if (KEY_ACCESS_TOKEN.equals(key)) {
+                    token = JsonCodecs.nextString(reader);
+                } else if (KEY_TOKEN_TYPE.equals(key)) {
+                    tokenType = JsonCodecs.nextString(reader);
+                } else if (KEY_EXPIRES_IN.equals(key)) {
+                    expiresIn = JsonCodecs.nextInteger(reader, null);
+                } else if (KEY_REFRESH_TOKEN.equals(key)) {
+                    refreshToken = JsonCodecs.nextString(reader);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            if (token == null || tokenType == null || expiresIn == null) {
+                throw new IOException("Token requires " + KEY_ACCESS_TOKEN + ", " + KEY_TOKEN_TYPE + " and " + KEY_EXPIRES_IN);
+            }
+
+            return new AuthenticationToken(token, refreshToken, tokenType, new Date(new Date().getTime() + (expiresIn * 1000L)));
+        }
+
+        @Override
+        public void write(JsonWriter writer, AuthenticationToken authenticationToken) throws IOException {
+            writer.beginObject();
+            writer.name(KEY_ACCESS_TOKEN).value(authenticationToken.mToken);
+            writer.name(KEY_REFRESH_TOKEN).value(authenticationToken.mRefreshToken);
+            writer.name(KEY_TOKEN_TYPE).value(authenticationToken.mTokenType);
+            writer.name(KEY_EXPIRES_IN).value((authenticationToken.mDateExpires.getTime() - (new Date()).getTime()) / 1000);
+            writer.endObject();
+        }
+
+    };
+
     /**
      * Creates AuthenticationToken from provided token, refreshToken and dateExpires
      *
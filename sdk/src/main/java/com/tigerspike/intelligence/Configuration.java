@@ -4,17 +4,18 @@ import android.content.Context;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
-import com.google.gson.JsonIOException;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
-import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
 import com.tigerspike.intelligence.exceptions.IntelligenceConfigurationException;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 
 /* Configuration.java - Intelligence SDK
 *
@@ -25,6 +26,12 @@ import java.util.HashMap;
 
 final public class Configuration {
 
+    private static final int DEFAULT_GEOFENCE_DWELL_TIME = 0;
+    private static final int DEFAULT_GEOFENCE_EXIT_DELAY = 0;
+    private static final int DEFAULT_GEOFENCE_MIN_INTERVAL = 0;
+    private static final int DEFAULT_RESPONSE_CACHE_SIZE = 0;
+    private static final int DEFAULT_ANALYTICS_AGGREGATION_WINDOW = 60;
+
     private HashMap<ConfigurationProperty, Object> mParameters;
 
     /**
@@ -86,24 +93,27 @@ final public class Configuration {
      */
     public void loadFromJSON(Context context, String jsonFileName) throws IntelligenceConfigurationException {
 
-        JsonObject jsonObject;
-        InputStream inputStream = null;
+        HashMap<String, String> values;
+        InputStream inputStream;
 
         try {
             inputStream = context.getAssets().open(jsonFileName);
-            BufferedReader bufferReader = new BufferedReader(new InputStreamReader(inputStream, "UTF-8"));
-            jsonObject = (JsonObject) new JsonParser().parse(bufferReader);
         } catch (IOException e) {
             throw (new IntelligenceConfigurationException(IntelligenceConfigurationException.ErrorCode.FileNotFound, "Unable to load " + jsonFileName));
-        } catch (JsonIOException e) {
-            throw (new IntelligenceConfigurationException(IntelligenceConfigurationException.ErrorCode.InvalidFile, "Unable to read " + jsonFileName));
-        } catch (JsonSyntaxException e) {
+        }
+
+        try {
+            JsonReader reader = new JsonReader(new InputStreamReader(inputStream, "UTF-8"));
+            // Same leniency as the JsonParser used before.
+            reader.setLenient(true);
+            values = readValues(reader);
+        } catch (MalformedJsonException | IllegalStateException e) {
             throw (new IntelligenceConfigurationException(IntelligenceConfigurationException.ErrorCode.InvalidFile, "Unable to parse " + jsonFileName));
+        } catch (IOException e) {
+            throw (new IntelligenceConfigurationException(IntelligenceConfigurationException.ErrorCode.InvalidFile, "Unable to read " + jsonFileName));
         } finally {
             try {
-                if (inputStream != null) {
-                    inputStream.close();
-                }
+                inputStream.close();
             } catch (IOException e) {
                 // Nothing much we can do here.
             }
@@ -111,10 +121,9 @@ final public class Configuration {
 
         for (ConfigurationProperty configurationProperty : ConfigurationProperty.values()) {
 
-            String value;
-            try {
-                 value = jsonObject.get(configurationProperty.key()).getAsString();
-            } catch(Exception e) {
+            String value = values.get(configurationProperty.key());
+
+            if (value == null) {
                 if(!configurationProperty.isRequired()) {
                     parseParameter(configurationProperty, null);
                     continue;
@@ -128,6 +137,31 @@ final public class Configuration {
 
     }
 
+    /**
+     * Streams the top level object of the configuration file and keeps its string, number and boolean values.
+     * Nulls, objects and arrays are skipped, they are not valid property values.
+     */
+    private static HashMap<String, String> readValues(JsonReader reader) throws IOException {
+
+        HashMap<String, String> values = new HashMap<>();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String key = reader.nextName();
+            JsonToken token = reader.peek();
+            if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+                values.put(key, reader.nextString());
+            } else if (token == JsonToken.BOOLEAN) {
+                values.put(key, String.valueOf(reader.nextBoolean()));
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return values;
+    }
+
     private void parseParameter(ConfigurationProperty param, String value) throws IntelligenceConfigurationException {
 
         switch (param.type()) {
@@ -135,6 +169,9 @@ final public class Configuration {
                 mParameters.put(param, value);
                 break;
             case integer:
+                if (value == null && !param.isRequired()) {
+                    break;
+                }
                 try {
                     int intValue = Integer.parseInt(value);
                     mParameters.put(param, intValue);
@@ -166,6 +203,12 @@ final public class Configuration {
             case bool:
                 mParameters.put(param, value);
                 break;
+            case sampling_rates:
+                if (value != null && parseSamplingRates(value) == null) {
+                    throw (new IntelligenceConfigurationException(IntelligenceConfigurationException.ErrorCode.InvalidProperty, param.key() + " is not a valid list of sampling rates"));
+                }
+                mParameters.put(param, value);
+                break;
         }
 
     }
@@ -352,9 +395,252 @@ final public class Configuration {
         Object useGeofenceProperty = mParameters.get(ConfigurationProperty.USE_GEOFENCES);
 
         if(useGeofenceProperty != null && !useGeofenceProperty.toString().equalsIgnoreCase("")) {
-            return Boolean.valueOf((String)useGeofenceProperty);
+            return Boolean.valueOf(useGeofenceProperty.toString());
         }
 
         return true;
     }
+
+    /**
+     * Sets the time in seconds the device needs to stay inside a geofence before the enter is tracked.
+     *
+     * @param seconds dwell time in seconds
+     * */
+    public void setGeofenceDwellTime(@NonNull Integer seconds) {
+        mParameters.put(ConfigurationProperty.GEOFENCE_DWELL_TIME, seconds);
+    }
+
+    /**
+     * Returns the geofence dwell time in seconds.
+     * If no value is specified, the default is 0, enters are tracked straight away.
+     *
+     * @return geofence dwell time in seconds
+     * */
+    public int getGeofenceDwellTime() {
+        return getInteger(ConfigurationProperty.GEOFENCE_DWELL_TIME, DEFAULT_GEOFENCE_DWELL_TIME);
+    }
+
+    /**
+     * Sets the time in seconds the device needs to stay outside a geofence before the exit is tracked.
+     * Entering the geofence again within this time cancels the exit.
+     *
+     * @param seconds exit delay in seconds
+     * */
+    public void setGeofenceExitDelay(@NonNull Integer seconds) {
+        mParameters.put(ConfigurationProperty.GEOFENCE_EXIT_DELAY, seconds);
+    }
+
+    /**
+     * Returns the geofence exit delay in seconds.
+     * If no value is specified, the default is 0, exits are tracked straight away.
+     *
+     * @return geofence exit delay in seconds
+     * */
+    public int getGeofenceExitDelay() {
+        return getInteger(ConfigurationProperty.GEOFENCE_EXIT_DELAY, DEFAULT_GEOFENCE_EXIT_DELAY);
+    }
+
+    /**
+     * Sets the minimum time in seconds between two tracked enters (or exits) of the same geofence.
+     *
+     * @param seconds minimum interval in seconds
+     * */
+    public void setGeofenceMinInterval(@NonNull Integer seconds) {
+        mParameters.put(ConfigurationProperty.GEOFENCE_MIN_INTERVAL, seconds);
+    }
+
+    /**
+     * Returns the minimum time in seconds between two tracked enters (or exits) of the same geofence.
+     * If no value is specified, the default is 0, every enter is tracked.
+     *
+     * @return minimum transition interval in seconds
+     * */
+    public int getGeofenceMinInterval() {
+        return getInteger(ConfigurationProperty.GEOFENCE_MIN_INTERVAL, DEFAULT_GEOFENCE_MIN_INTERVAL);
+    }
+
+    /**
+     * Sets the number of responses kept in memory for user and geofence reads, 0 to disable the cache.
+     *
+     * @param size maximum number of cached responses
+     * */
+    public void setResponseCacheSize(@NonNull Integer size) {
+        mParameters.put(ConfigurationProperty.RESPONSE_CACHE_SIZE, size);
+    }
+
+    /**
+     * Returns the number of responses kept in memory for user and geofence reads.
+     * If no value is specified, the default is 0, the cache is disabled.
+     *
+     * @return maximum number of cached responses
+     * */
+    public int getResponseCacheSize() {
+        return getInteger(ConfigurationProperty.RESPONSE_CACHE_SIZE, DEFAULT_RESPONSE_CACHE_SIZE);
+    }
+
+    /**
+     * Sets the public keys trusted for the Intelligence servers, as comma separated "sha256/" followed by the
+     * base64 SHA-256 of the certificate SubjectPublicKeyInfo. A connection is refused unless one of the
+     * certificates of the server matches one of the pins.
+     *
+     * @param pins comma separated pins, e.g. "sha256/AAAA...=,sha256/BBBB...="
+     * */
+    public void setCertificatePins(@NonNull String pins) {
+        mParameters.put(ConfigurationProperty.CERTIFICATE_PINS, pins);
+    }
+
+    /**
+     * Returns the public key pins of the Intelligence servers.
+     * If no value is specified, no pinning is done.
+     *
+     * @return pins, empty if none
+     * */
+    public @NonNull String[] getCertificatePins() {
+        Object value = mParameters.get(ConfigurationProperty.CERTIFICATE_PINS);
+        if (!(value instanceof String) || ((String) value).trim().isEmpty()) {
+            return new String[0];
+        }
+        String[] pins = ((String) value).split(",");
+        for (int i = 0; i < pins.length; i++) {
+            pins[i] = pins[i].trim();
+        }
+        return pins;
+    }
+
+    /**
+     * Sets use HTTP/2 flag. When set, requests are sent with OkHttp, which multiplexes the requests
+     * to a server over a single HTTP/2 connection, or reuses HTTP/1.1 connections if HTTP/2 is not available.
+     *
+     * @param useHttp2 boolean flag on using HTTP/2
+     * */
+    public void setUseHttp2(@NonNull Boolean useHttp2) {
+        mParameters.put(ConfigurationProperty.USE_HTTP2, useHttp2);
+    }
+
+    /**
+     * Return use HTTP/2 flag
+     * If no value is specified, the default is false
+     *
+     * @return use HTTP/2
+     * */
+    public Boolean getUseHttp2() {
+
+        Object useHttp2Property = mParameters.get(ConfigurationProperty.USE_HTTP2);
+
+        if(useHttp2Property != null && !useHttp2Property.toString().equalsIgnoreCase("")) {
+            return Boolean.valueOf(useHttp2Property.toString());
+        }
+
+        return false;
+    }
+
+    /**
+     * Sets the rate at which events of a type are sent, as comma separated event type, "=" and a rate
+     * between 0 and 1. Each event of the type is sent with that probability, with the rate in its MetaData.
+     *
+     * @param rates comma separated rates, e.g. "Phoenix.Identity.Application.ScreenViewed=0.1"
+     * @throws IllegalArgumentException if a rate is malformed or not between 0 and 1
+     * */
+    public void setAnalyticsSamplingRates(@NonNull String rates) {
+        if (parseSamplingRates(rates) == null) {
+            throw new IllegalArgumentException(ConfigurationProperty.ANALYTICS_SAMPLING_RATES.key() + " is not a valid list of sampling rates: " + rates);
+        }
+        mParameters.put(ConfigurationProperty.ANALYTICS_SAMPLING_RATES, rates);
+    }
+
+    /**
+     * Returns the sampling rates of the event types.
+     * If no value is specified, every event is sent.
+     *
+     * @return sampling rates by event type, empty if none
+     * */
+    public @NonNull HashMap<String, Double> getAnalyticsSamplingRates() {
+        Object value = mParameters.get(ConfigurationProperty.ANALYTICS_SAMPLING_RATES);
+        // Validated when set.
+        HashMap<String, Double> rates = value instanceof String ? parseSamplingRates((String) value) : null;
+        return rates != null ? rates : new HashMap<String, Double>();
+    }
+
+    /**
+     * @return the rates by event type of comma separated rates, null if a rate is malformed or not between 0 and 1.
+     */
+    private static HashMap<String, Double> parseSamplingRates(String value) {
+
+        HashMap<String, Double> rates = new HashMap<>();
+
+        for (String entry : splitList(value)) {
+
+            int separator = entry.lastIndexOf('=');
+            Double rate = separator > 0 ? JSONUtils.parseDouble(entry.substring(separator + 1).trim(), null) : null;
+
+            if (rate == null || rate < 0 || rate > 1) {
+                return null;
+            }
+
+            rates.put(entry.substring(0, separator).trim(), rate);
+        }
+
+        return rates;
+    }
+
+    /**
+     * Sets the event types aggregated on the device: their events are counted and their values summed
+     * per target, and sent as one summary event per type and target every aggregation window.
+     *
+     * @param types comma separated event types, e.g. "Phoenix.Analytics.Application.Time"
+     * */
+    public void setAnalyticsAggregatedTypes(@NonNull String types) {
+        mParameters.put(ConfigurationProperty.ANALYTICS_AGGREGATED_TYPES, types);
+    }
+
+    /**
+     * Returns the event types aggregated on the device.
+     * If no value is specified, no event type is aggregated.
+     *
+     * @return event types, empty if none
+     * */
+    public @NonNull HashSet<String> getAnalyticsAggregatedTypes() {
+        Object value = mParameters.get(ConfigurationProperty.ANALYTICS_AGGREGATED_TYPES);
+        return new HashSet<>(value instanceof String ? splitList((String) value) : new ArrayList<String>());
+    }
+
+    /**
+     * Sets the time in seconds events of the aggregated types are aggregated before the summary events are sent.
+     *
+     * @param seconds aggregation window in seconds
+     * */
+    public void setAnalyticsAggregationWindow(@NonNull Integer seconds) {
+        mParameters.put(ConfigurationProperty.ANALYTICS_AGGREGATION_WINDOW, seconds);
+    }
+
+    /**
+     * Returns the aggregation window in seconds.
+     * If no value is specified, the default is 60 seconds.
+     *
+     * @return aggregation window in seconds
+     * */
+    public int getAnalyticsAggregationWindow() {
+        return getInteger(ConfigurationProperty.ANALYTICS_AGGREGATION_WINDOW, DEFAULT_ANALYTICS_AGGREGATION_WINDOW);
+    }
+
+    /**
+     * @return the trimmed non empty values of a comma separated value.
+     */
+    private static List<String> splitList(String value) {
+
+        List<String> values = new ArrayList<>();
+
+        for (String item : value.split(",")) {
+            if (!item.trim().isEmpty()) {
+                values.add(item.trim());
+            }
+        }
+
+        return values;
+    }
+
+    private int getInteger(ConfigurationProperty property, int defaultValue) {
+        Object value = mParameters.get(property);
+        return value instanceof Integer ? (Integer) value : defaultValue;
+    }
 }
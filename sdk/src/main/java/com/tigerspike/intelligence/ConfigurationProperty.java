@@ -17,7 +17,16 @@ enum ConfigurationProperty {
     COMPANY_ID                  ("company_id",                  ConfigurationPropertyType.integer,                  true),
     USE_GEOFENCES               ("use_geofences",               ConfigurationPropertyType.bool,                    false),
     CERTIFICATE_TRUST_POLICY    ("certificate_trust_policy",    ConfigurationPropertyType.certificate_trust_policy, true),
-    SDK_USER_ROLE               ("sdk_user_role",               ConfigurationPropertyType.integer,                  true);
+    SDK_USER_ROLE               ("sdk_user_role",               ConfigurationPropertyType.integer,                  true),
+    GEOFENCE_DWELL_TIME         ("geofence_dwell_time",         ConfigurationPropertyType.integer,                  false),
+    GEOFENCE_EXIT_DELAY         ("geofence_exit_delay",         ConfigurationPropertyType.integer,                  false),
+    GEOFENCE_MIN_INTERVAL       ("geofence_min_interval",       ConfigurationPropertyType.integer,                  false),
+    RESPONSE_CACHE_SIZE         ("response_cache_size",         ConfigurationPropertyType.integer,                  false),
+    CERTIFICATE_PINS            ("certificate_pins",            ConfigurationPropertyType.string,                   false),
+    USE_HTTP2                   ("use_http2",                   ConfigurationPropertyType.bool,                     false),
+    ANALYTICS_SAMPLING_RATES    ("analytics_sampling_rates",    ConfigurationPropertyType.sampling_rates,           false),
+    ANALYTICS_AGGREGATED_TYPES  ("analytics_aggregated_types",  ConfigurationPropertyType.string,                   false),
+    ANALYTICS_AGGREGATION_WINDOW("analytics_aggregation_window", ConfigurationPropertyType.integer,                 false);
 
     String key;
     ConfigurationPropertyType type;
@@ -1,5 +1,5 @@
 package com.tigerspike.intelligence;
 
 enum ConfigurationPropertyType {
-    string, integer, region, environment, certificate_trust_policy,  bool
+    string, integer, region, environment, certificate_trust_policy,  bool, sampling_rates
 }
@@ -28,6 +28,5 @@ final class Constants {
     static final String APPLICATION_USER_CREATED_EVENT = "Phoenix.Identity.User.Created";
 
     static final String KEY_INSTALLATION_DATA = "INSTALLATION_DATA";
-    static final String KEY_INSTALLATION_ID = "InstallationId";
 
 }
@@ -1,41 +1,300 @@
 package com.tigerspike.intelligence;
 
+import android.content.Context;
 import android.net.SSLCertificateSocketFactory;
+import android.net.SSLSessionCache;
+import android.net.http.X509TrustManagerExtensions;
+import android.util.Base64;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.List;
 
 import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLPeerUnverifiedException;
 import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509TrustManager;
 
 /**
  * Created by marcinowoc on 16/02/16.
  *
  * Implementation class of RequestSecurityPolicy interface.
  * It provides implementation of RequestSecurityPolicy public interface.
+ *
+ * The socket factory and hostname verifier are created once and shared by all connections, so
+ * that TLS sessions are resumed instead of doing a full handshake for every request. Sessions are
+ * also kept on disk when a Context is given. Optional public key pins are decoded once, and checked
+ * against the certificate path validated by the trust manager, not the chain sent by the server.
  */
 public class DefaultRequestSecurityPolicy implements RequestSecurityPolicy {
 
+    private static final String PIN_PREFIX = "sha256/";
+
     private CertificateTrustPolicy mCertificateTrustPolicy;
     private Environment mEnvironment;
+    private Context mContext;
+    private byte[][] mPins;
+
+    private volatile SSLSocketFactory mSocketFactory;
+    private volatile HostnameVerifier mHostnameVerifier;
 
     DefaultRequestSecurityPolicy(CertificateTrustPolicy certificateTrustPolicy, Environment environment){
+        this(null, certificateTrustPolicy, environment, new String[0]);
+    }
+
+    /**
+     * @param context                used to keep TLS sessions on disk, null to keep them in memory only.
+     * @param certificateTrustPolicy certificates to trust.
+     * @param environment            environment of the servers.
+     * @param pins                   "sha256/" base64 SHA-256 pins of the server public keys, empty for no pinning.
+     */
+    DefaultRequestSecurityPolicy(Context context, CertificateTrustPolicy certificateTrustPolicy, Environment environment, String[] pins){
+        mContext = context;
         mCertificateTrustPolicy = certificateTrustPolicy;
         mEnvironment = environment;
+        mPins = decodePins(pins);
     }
+
     @Override
     public void applySecurityPolicy(HttpsURLConnection connection) {
-        if( mCertificateTrustPolicy.equals(CertificateTrustPolicy.Any)
-                || mCertificateTrustPolicy.equals(CertificateTrustPolicy.AnyNonProduction)
-                || (mCertificateTrustPolicy.equals(CertificateTrustPolicy.AnyNonProduction) && mEnvironment.equals(Environment.Production))) {
 
-            connection.setHostnameVerifier(new HostnameVerifier() {
+        if (mSocketFactory == null) {
+            createSocketFactory();
+        }
+
+        connection.setSSLSocketFactory(mSocketFactory);
+        connection.setHostnameVerifier(mHostnameVerifier);
+    }
+
+    /**
+     * @return the shared socket factory, for transports not using HttpsURLConnection.
+     */
+    SSLSocketFactory getSocketFactory() {
+
+        if (mSocketFactory == null) {
+            createSocketFactory();
+        }
+
+        return mSocketFactory;
+    }
+
+    /**
+     * @return the shared hostname verifier, for transports not using HttpsURLConnection.
+     */
+    HostnameVerifier getHostnameVerifier() {
+
+        if (mSocketFactory == null) {
+            createSocketFactory();
+        }
+
+        return mHostnameVerifier;
+    }
+
+    /**
+     * @return the trust manager matching the socket factory, for transports not using HttpsURLConnection.
+     */
+    X509TrustManager getTrustManager() {
+
+        if (trustsAnyCertificate()) {
+            return new X509TrustManager() {
+
+                @Override
+                public void checkClientTrusted(X509Certificate[] chain, String authType) {
+                }
+
+                @Override
+                public void checkServerTrusted(X509Certificate[] chain, String authType) {
+                }
+
+                @Override
+                public X509Certificate[] getAcceptedIssuers() {
+                    return new X509Certificate[0];
+                }
+
+            };
+        }
+
+        try {
+
+            TrustManagerFactory trustManagerFactory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+            trustManagerFactory.init((KeyStore) null);
+
+            for (TrustManager trustManager : trustManagerFactory.getTrustManagers()) {
+                if (trustManager instanceof X509TrustManager) {
+                    return (X509TrustManager) trustManager;
+                }
+            }
+
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Default trust manager unavailable", e);
+        }
+
+        throw new IllegalStateException("Default trust manager unavailable");
+    }
+
+    private synchronized void createSocketFactory() {
+
+        if (mSocketFactory != null) {
+            return;
+        }
+
+        SSLSessionCache sessionCache = mContext != null ? new SSLSessionCache(mContext) : null;
+        HostnameVerifier hostnameVerifier;
+
+        if (trustsAnyCertificate()) {
+            hostnameVerifier = new HostnameVerifier() {
 
                 @Override
                 public boolean verify(String s, SSLSession sslSession) {
                     return true;
                 }
 
-            });
-            connection.setSSLSocketFactory(SSLCertificateSocketFactory.getInsecure(0, null));
+            };
+            mSocketFactory = SSLCertificateSocketFactory.getInsecure(0, sessionCache);
+        } else {
+            hostnameVerifier = HttpsURLConnection.getDefaultHostnameVerifier();
+            mSocketFactory = SSLCertificateSocketFactory.getDefault(0, sessionCache);
         }
+
+        if (mPins.length > 0) {
+            // When any certificate is trusted, only the leaf key is proven by the handshake.
+            ChainCleaner chainCleaner = trustsAnyCertificate() ? LEAF_CHAIN_CLEANER : new TrustManagerChainCleaner(getTrustManager());
+            mHostnameVerifier = new PinningHostnameVerifier(hostnameVerifier, mPins, chainCleaner);
+        } else {
+            mHostnameVerifier = hostnameVerifier;
+        }
+    }
+
+    private boolean trustsAnyCertificate() {
+        return mCertificateTrustPolicy.equals(CertificateTrustPolicy.Any)
+                || mCertificateTrustPolicy.equals(CertificateTrustPolicy.AnyNonProduction)
+                || (mCertificateTrustPolicy.equals(CertificateTrustPolicy.AnyNonProduction) && mEnvironment.equals(Environment.Production));
+    }
+
+    /**
+     * @return the SHA-256 hashes of the pins.
+     * @throws IllegalArgumentException if a pin is not "sha256/" followed by a base64 SHA-256.
+     */
+    static byte[][] decodePins(String[] pins) {
+
+        byte[][] hashes = new byte[pins.length][];
+
+        for (int i = 0; i < pins.length; i++) {
+
+            if (!pins[i].startsWith(PIN_PREFIX)) {
+                throw new IllegalArgumentException("Certificate pin must start with " + PIN_PREFIX + ": " + pins[i]);
+            }
+
+            hashes[i] = Base64.decode(pins[i].substring(PIN_PREFIX.length()), Base64.DEFAULT);
+
+            if (hashes[i].length != 32) {
+                throw new IllegalArgumentException("Certificate pin is not a SHA-256 hash: " + pins[i]);
+            }
+        }
+
+        return hashes;
+    }
+
+    /**
+     * Returns the certificates of a server chain which can be matched against the pins.
+     */
+    interface ChainCleaner {
+        List<X509Certificate> clean(X509Certificate[] chain, String hostname) throws CertificateException;
+    }
+
+    /**
+     * Keeps the leaf only, for servers whose chain is not validated.
+     */
+    static final ChainCleaner LEAF_CHAIN_CLEANER = new ChainCleaner() {
+        @Override
+        public List<X509Certificate> clean(X509Certificate[] chain, String hostname) {
+            return Collections.singletonList(chain[0]);
+        }
+    };
+
+    /**
+     * Returns the path from the leaf to a trusted root built by the trust manager, the certificates
+     * the server added to its chain and which are not on that path are dropped.
+     */
+    static final class TrustManagerChainCleaner implements ChainCleaner {
+
+        private final X509TrustManagerExtensions mTrustManagerExtensions;
+
+        TrustManagerChainCleaner(X509TrustManager trustManager) {
+            mTrustManagerExtensions = new X509TrustManagerExtensions(trustManager);
+        }
+
+        @Override
+        public List<X509Certificate> clean(X509Certificate[] chain, String hostname) throws CertificateException {
+            return mTrustManagerExtensions.checkServerTrusted(chain, "RSA", hostname);
+        }
+
+    }
+
+    /**
+     * Verifies the host name with another verifier, then that a certificate of the validated path of
+     * the server matches a pin.
+     */
+    static final class PinningHostnameVerifier implements HostnameVerifier {
+
+        private final HostnameVerifier mHostnameVerifier;
+        private final byte[][] mPins;
+        private final ChainCleaner mChainCleaner;
+
+        PinningHostnameVerifier(HostnameVerifier hostnameVerifier, byte[][] pins, ChainCleaner chainCleaner) {
+            mHostnameVerifier = hostnameVerifier;
+            mPins = pins;
+            mChainCleaner = chainCleaner;
+        }
+
+        @Override
+        public boolean verify(String hostname, SSLSession session) {
+
+            if (!mHostnameVerifier.verify(hostname, session)) {
+                return false;
+            }
+
+            try {
+
+                Certificate[] peerCertificates = session.getPeerCertificates();
+                X509Certificate[] chain = new X509Certificate[peerCertificates.length];
+                for (int i = 0; i < peerCertificates.length; i++) {
+                    chain[i] = (X509Certificate) peerCertificates[i];
+                }
+
+                if (chain.length == 0) {
+                    return false;
+                }
+
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+
+                for (X509Certificate certificate : mChainCleaner.clean(chain, hostname)) {
+
+                    byte[] hash = digest.digest(certificate.getPublicKey().getEncoded());
+
+                    for (byte[] pin : mPins) {
+                        if (MessageDigest.isEqual(pin, hash)) {
+                            return true;
+                        }
+                    }
+                }
+
+            } catch (SSLPeerUnverifiedException | NoSuchAlgorithmException | CertificateException | ClassCastException e) {
+                return false;
+            }
+
+            return false;
+        }
+
     }
 }
@@ -35,14 +35,20 @@ final class GeoManager
 
     private Listener mListener;
 
+    private GeofenceTransitionFilter mTransitionFilter;
+
     private ArrayList<Geofence> mGeofenceList;
     private ArrayList<IntelligenceGeofence> mIntelligenceGeofences;
 
     /**
-     * Public constructor - only Context is required
+     * Public constructor
+     *
+     * @param context Context used to connect to Location Services
+     * @param transitionFilter filter applied to the raw geofence transitions before they are passed to the Listener
      * */
-    public GeoManager(@NonNull Context context) {
+    public GeoManager(@NonNull Context context, @NonNull GeofenceTransitionFilter transitionFilter) {
         mContext = context;
+        mTransitionFilter = transitionFilter;
         mIntelligenceGeofences = new ArrayList<>();
         mGeofenceList = new ArrayList<>();
 
@@ -111,6 +117,9 @@ final class GeoManager
         if (mListener != null) {
             mListener.onLocationUpdate(location);
         }
+
+        // Location updates are used as a clock to confirm transitions waiting for their dwell time or exit delay.
+        dispatchTransitions(mTransitionFilter.flush(System.currentTimeMillis()));
     }
 
     /**
@@ -182,7 +191,22 @@ final class GeoManager
     public void reloadIntelligenceGeofencesList(List<IntelligenceGeofence> intelligenceGeofences) {
 
         mIntelligenceGeofences.clear();
-        mIntelligenceGeofences.addAll(intelligenceGeofences);
+
+        // Fences with missing or invalid values would be rejected by Geofence.Builder.
+        for (IntelligenceGeofence intelligenceGeofence : intelligenceGeofences) {
+            if (intelligenceGeofence.hasRegion()) {
+                mIntelligenceGeofences.add(intelligenceGeofence);
+            } else {
+                Log.w("Intelligence.Location", "Skipped geofence " + intelligenceGeofence.getId() + " without a valid id, location or radius");
+            }
+        }
+
+        // Forget the transition state of fences that are no longer monitored.
+        ArrayList<Integer> geofenceIDs = new ArrayList<>();
+        for (IntelligenceGeofence intelligenceGeofence : mIntelligenceGeofences) {
+            geofenceIDs.add(intelligenceGeofence.getIdValue());
+        }
+        mTransitionFilter.retain(geofenceIDs);
 
         removeGeofencesLocationServices();
 
@@ -205,11 +229,11 @@ final class GeoManager
             mGeofenceList.clear();
             for(IntelligenceGeofence intelligenceGeofence : mIntelligenceGeofences) {
                 mGeofenceList.add(new Geofence.Builder()
-                        .setRequestId(String.valueOf(intelligenceGeofence.getId()))
+                        .setRequestId(String.valueOf(intelligenceGeofence.getIdValue()))
                         .setCircularRegion(
-                                intelligenceGeofence.getLatitude(),
-                                intelligenceGeofence.getLongitude(),
-                                intelligenceGeofence.getRadius().floatValue()
+                                intelligenceGeofence.getLatitudeValue(),
+                                intelligenceGeofence.getLongitudeValue(),
+                                (float) intelligenceGeofence.getRadiusValue()
                         )
                         .setExpirationDuration(Geofence.NEVER_EXPIRE)
                         .setTransitionTypes(Geofence.GEOFENCE_TRANSITION_ENTER |
@@ -316,34 +340,57 @@ final class GeoManager
     }
 
     /**
-     * Processes triggeredGeofences and passes every single Geofence event to GeoManager.Listener
+     * Processes triggeredGeofences through the GeofenceTransitionFilter and passes every confirmed Geofence event to GeoManager.Listener
      *
      * @param triggeredGeofences - triggeredGeofences tracked in GeofenceTransitionIntentService
      *
      * @param geofenceTransition - Geofence Transition code
      * */
     public void onTriggeringGeofences(List<Geofence> triggeredGeofences, int geofenceTransition) {
+
+        int transition;
+
+        if (geofenceTransition == Geofence.GEOFENCE_TRANSITION_ENTER) {
+            transition = GeofenceTransitionFilter.TRANSITION_ENTER;
+        } else if (geofenceTransition == Geofence.GEOFENCE_TRANSITION_EXIT) {
+            transition = GeofenceTransitionFilter.TRANSITION_EXIT;
+        } else {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+
         for (Geofence geofence : triggeredGeofences) {
 
-            Integer geofenceID;
+            int geofenceID;
 
             try {
                 geofenceID = Integer.parseInt(geofence.getRequestId());
             } catch (NumberFormatException numberFormatException) {
                 // Nothing much we can do here.
-                geofenceID = null;
+                continue;
             }
 
-            if (geofenceID != null) {
+            dispatchTransitions(mTransitionFilter.onTransition(geofenceID, transition, now));
 
-                if (geofenceTransition == Geofence.GEOFENCE_TRANSITION_ENTER) {
-                    mListener.onEnterGeofence(geofenceID);
-                } else if (geofenceTransition == Geofence.GEOFENCE_TRANSITION_EXIT) {
-                    mListener.onExitGeofence(geofenceID);
-                }
+        }
+    }
 
-            }
+    /**
+     * Passes confirmed transitions to GeoManager.Listener
+     * */
+    private void dispatchTransitions(List<GeofenceTransitionFilter.Transition> transitions) {
 
+        if (mListener == null) {
+            return;
+        }
+
+        for (GeofenceTransitionFilter.Transition transition : transitions) {
+            if (transition.transition == GeofenceTransitionFilter.TRANSITION_ENTER) {
+                mListener.onEnterGeofence(transition.geofenceID);
+            } else if (transition.transition == GeofenceTransitionFilter.TRANSITION_EXIT) {
+                mListener.onExitGeofence(transition.geofenceID);
+            }
         }
     }
 
@@ -0,0 +1,264 @@
+package com.tigerspike.intelligence;
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * GeofenceTransitionFilter
+ *
+ * Keeps a small state machine per geofence ID and turns the raw transitions reported by Location Services
+ * into confirmed enter / exit transitions:
+ *
+ * - An enter is only confirmed after the device has been inside the fence for the dwell time.
+ * - An exit is only confirmed after the device has been outside the fence for the exit delay (hysteresis),
+ *   re-entering within that time cancels the exit.
+ * - Identical transitions of the same fence are reported at most once per minimum interval.
+ *
+ * Pending transitions are confirmed when a new raw transition arrives or when flush is called,
+ * e.g. on every location update. The state is persisted in the DataStore so it survives process death.
+ */
+final class GeofenceTransitionFilter {
+
+    static final int TRANSITION_ENTER = 1;
+    static final int TRANSITION_EXIT = 2;
+
+    // Per fence states.
+    private static final int STATE_OUTSIDE = 0;
+    private static final int STATE_PENDING_ENTER = 1;
+    private static final int STATE_INSIDE = 2;
+    private static final int STATE_PENDING_EXIT = 3;
+
+    private static final String KEY_STORAGE_TRANSITION_STATE = "GeofenceTransitionState";
+
+    private static final char ENTRY_SEPARATOR = ';';
+    private static final char FIELD_SEPARATOR = ',';
+    private static final int STORAGE_RADIX = 36;
+
+    private final DataStore mDataStore;
+    private final long mDwellTimeMillis;
+    private final long mExitDelayMillis;
+    private final long mMinTransitionIntervalMillis;
+
+    private final TreeMap<Integer, FenceState> mFenceStates;
+
+    /**
+     * @param dataStore DataStore used to persist the state of every fence.
+     * @param dwellTimeMillis time the device needs to stay inside a fence before the enter is confirmed.
+     * @param exitDelayMillis time the device needs to stay outside a fence before the exit is confirmed.
+     * @param minTransitionIntervalMillis minimum time between two reported enters (or exits) of the same fence.
+     */
+    GeofenceTransitionFilter(@NonNull DataStore dataStore, long dwellTimeMillis, long exitDelayMillis, long minTransitionIntervalMillis) {
+        mDataStore = dataStore;
+        mDwellTimeMillis = Math.max(0, dwellTimeMillis);
+        mExitDelayMillis = Math.max(0, exitDelayMillis);
+        mMinTransitionIntervalMillis = Math.max(0, minTransitionIntervalMillis);
+        mFenceStates = new TreeMap<>();
+
+        restore(mDataStore.get(KEY_STORAGE_TRANSITION_STATE));
+    }
+
+    /**
+     * Creates a filter with the dwell, exit delay and interval values of the configuration.
+     */
+    GeofenceTransitionFilter(@NonNull DataStore dataStore, @NonNull Configuration configuration) {
+        this(dataStore,
+                configuration.getGeofenceDwellTime() * 1000L,
+                configuration.getGeofenceExitDelay() * 1000L,
+                configuration.getGeofenceMinInterval() * 1000L);
+    }
+
+    /**
+     * Feeds a raw transition reported by Location Services.
+     *
+     * @param geofenceID ID of the fence.
+     * @param transition TRANSITION_ENTER or TRANSITION_EXIT.
+     * @param timeMillis time of the transition.
+     * @return transitions confirmed at timeMillis, never null.
+     */
+    synchronized List<Transition> onTransition(int geofenceID, int transition, long timeMillis) {
+
+        FenceState fenceState = mFenceStates.get(geofenceID);
+
+        if (fenceState == null) {
+            fenceState = new FenceState();
+            mFenceStates.put(geofenceID, fenceState);
+        }
+
+        if (transition == TRANSITION_ENTER) {
+            if (fenceState.state == STATE_OUTSIDE) {
+                fenceState.state = STATE_PENDING_ENTER;
+                fenceState.since = timeMillis;
+            } else if (fenceState.state == STATE_PENDING_EXIT) {
+                // Came back before the exit was confirmed, the exit never happened.
+                fenceState.state = STATE_INSIDE;
+            }
+        } else if (transition == TRANSITION_EXIT) {
+            if (fenceState.state == STATE_INSIDE) {
+                fenceState.state = STATE_PENDING_EXIT;
+                fenceState.since = timeMillis;
+            } else if (fenceState.state == STATE_PENDING_ENTER) {
+                // Left before the enter was confirmed, the enter never happened.
+                fenceState.state = STATE_OUTSIDE;
+            }
+        }
+
+        return flushLocked(timeMillis, true);
+    }
+
+    /**
+     * Confirms the pending transitions whose dwell time or exit delay has elapsed.
+     *
+     * @param timeMillis current time
+     * @return transitions confirmed at timeMillis, never null.
+     */
+    synchronized List<Transition> flush(long timeMillis) {
+        return flushLocked(timeMillis, false);
+    }
+
+    /**
+     * Drops the state of every fence that is not monitored anymore.
+     *
+     * @param geofenceIDs IDs of the fences currently monitored.
+     */
+    synchronized void retain(@NonNull Collection<Integer> geofenceIDs) {
+        Set<Integer> retainedIDs = new HashSet<>(geofenceIDs);
+        if (mFenceStates.keySet().retainAll(retainedIDs)) {
+            persist();
+        }
+    }
+
+    private List<Transition> flushLocked(long timeMillis, boolean changed) {
+
+        List<Transition> transitions = new ArrayList<>();
+
+        for (Map.Entry<Integer, FenceState> entry : mFenceStates.entrySet()) {
+
+            FenceState fenceState = entry.getValue();
+
+            if (fenceState.state == STATE_PENDING_ENTER && timeMillis - fenceState.since >= mDwellTimeMillis) {
+
+                fenceState.state = STATE_INSIDE;
+                fenceState.reported = fenceState.lastEnter == 0 || timeMillis - fenceState.lastEnter >= mMinTransitionIntervalMillis;
+
+                if (fenceState.reported) {
+                    fenceState.lastEnter = timeMillis;
+                    transitions.add(new Transition(entry.getKey(), TRANSITION_ENTER));
+                }
+
+                changed = true;
+
+            } else if (fenceState.state == STATE_PENDING_EXIT && timeMillis - fenceState.since >= mExitDelayMillis) {
+
+                fenceState.state = STATE_OUTSIDE;
+
+                // Exits are only reported for enters that have been reported, so events always come in pairs.
+                if (fenceState.reported) {
+                    fenceState.reported = false;
+                    transitions.add(new Transition(entry.getKey(), TRANSITION_EXIT));
+                }
+
+                changed = true;
+            }
+        }
+
+        if (changed) {
+            persist();
+        }
+
+        return transitions;
+    }
+
+    /**
+     * Stores the states as "id,state,since,lastEnter,reported;..." using radix 36 numbers.
+     * Fences outside and without history are not stored.
+     */
+    private void persist() {
+
+        StringBuilder builder = new StringBuilder();
+
+        Iterator<Map.Entry<Integer, FenceState>> iterator = mFenceStates.entrySet().iterator();
+
+        while (iterator.hasNext()) {
+            Map.Entry<Integer, FenceState> entry = iterator.next();
+            FenceState fenceState = entry.getValue();
+
+            if (fenceState.state == STATE_OUTSIDE && fenceState.lastEnter == 0) {
+                iterator.remove();
+                continue;
+            }
+
+            if (builder.length() > 0) {
+                builder.append(ENTRY_SEPARATOR);
+            }
+
+            builder.append(Integer.toString(entry.getKey(), STORAGE_RADIX)).append(FIELD_SEPARATOR)
+                    .append(fenceState.state).append(FIELD_SEPARATOR)
+                    .append(Long.toString(fenceState.since, STORAGE_RADIX)).append(FIELD_SEPARATOR)
+                    .append(Long.toString(fenceState.lastEnter, STORAGE_RADIX)).append(FIELD_SEPARATOR)
+                    .append(fenceState.reported ? '1' : '0');
+        }
+
+        mDataStore.set(KEY_STORAGE_TRANSITION_STATE, builder.length() > 0 ? builder.toString() : null);
+    }
+
+    private void restore(String storedState) {
+
+        if (Utils.isEmpty(storedState)) {
+            return;
+        }
+
+        for (String entry : storedState.split(String.valueOf(ENTRY_SEPARATOR))) {
+
+            String[] fields = entry.split(String.valueOf(FIELD_SEPARATOR));
+
+            if (fields.length != 5) {
+                continue;
+            }
+
+            try {
+                FenceState fenceState = new FenceState();
+                fenceState.state = Integer.parseInt(fields[1]);
+                fenceState.since = Long.parseLong(fields[2], STORAGE_RADIX);
+                fenceState.lastEnter = Long.parseLong(fields[3], STORAGE_RADIX);
+                fenceState.reported = "1".equals(fields[4]);
+
+                if (fenceState.state >= STATE_OUTSIDE && fenceState.state <= STATE_PENDING_EXIT) {
+                    mFenceStates.put(Integer.parseInt(fields[0], STORAGE_RADIX), fenceState);
+                }
+            } catch (NumberFormatException ignore) {
+                // Corrupted entry, the fence starts from scratch.
+            }
+        }
+    }
+
+    private static final class FenceState {
+        int state = STATE_OUTSIDE;
+        long since;
+        long lastEnter;
+        boolean reported;
+    }
+
+    /**
+     * A confirmed transition.
+     */
+    static final class Transition {
+
+        final int geofenceID;
+        final int transition;
+
+        Transition(int geofenceID, int transition) {
+            this.geofenceID = geofenceID;
+            this.transition = transition;
+        }
+
+    }
+
+}
@@ -12,6 +12,10 @@ import com.tigerspike.intelligence.exceptions.IntelligenceInvalidParameterExcept
  * Interface definition for managing Intelligence User Identity Data.
  * Can be used to create, get or update User data.
  * Use related callbacks interface definition to make further data/error processing.
+ *
+ * Registering or unregistering an identifier, assigning or revoking a role and updating a user
+ * without password do not fail when offline: they are kept, also across restarts, and sent in order
+ * once the network is back. Their listener is called then, if the app was not restarted.
  */
 public interface Identity
 {
@@ -23,7 +27,7 @@ public interface Identity
     User getUser();
 
     /**
-     * Clear current user authentication tokens.
+     * Clear current user authentication tokens, and the writes of the user kept while offline.
      *
      * @param onLogoutListener Listener triggered after logout
      */
@@ -132,6 +136,68 @@ public interface Identity
     void updateUser(@NonNull User userObject, OnUpdateUserListener onUpdateUserListener)
             throws IntelligenceInvalidParameterException;
 
+    /**
+     * Tries to login with username and password.
+     *
+     * @param username Users username
+     * @param password Users password
+     * @return future completed once logged in.
+     */
+    IntelligenceFuture<Void> login(@NonNull String username, @NonNull String password);
+
+    /**
+     * Creates user from provided user object.
+     * Throws a IntelligenceInvalidParameterException if userObject is invalid.
+     *
+     * @param userObject - object that contains data to use to create new Intelligence User
+     * @return future completed with the created user.
+     * @throws IntelligenceInvalidParameterException
+     * */
+    IntelligenceFuture<User> createUser(@NonNull User userObject) throws IntelligenceInvalidParameterException;
+
+    /**
+     * Sends GET User(Me) request
+     *
+     * @return future completed with the logged in user.
+     * */
+    IntelligenceFuture<User> getMe();
+
+    /**
+     * Sends assign role request
+     *
+     * @param userId - int user id for which role need to be assigned
+     * @param roleId - int id of role that will be assigned
+     * @return future completed once the role has been assigned.
+     * */
+    IntelligenceFuture<Void> assignRole(int userId, int roleId);
+
+    /**
+     * Sends Revoke role request
+     *
+     * @param userId - int user id for which role need to be revoked
+     * @param roleId - int id of role that will be revoked
+     * @return future completed once the role has been revoked.
+     * */
+    IntelligenceFuture<Void> revokeRole(int userId, int roleId);
+
+    /**
+     * Sends GET User request
+     *
+     * @param id - id of user to be found
+     * @return future completed with the user.
+     * */
+    IntelligenceFuture<User> getUserById(int id);
+
+    /**
+     * Try updating user with user object. UserObject should be requested by getMe or getUser.
+     * Throws a IntelligenceInvalidParameterException if userObject is invalid.
+     *
+     * @param userObject - object that contains data to use to update existing IntelligenceUser
+     * @return future completed with the updated user.
+     * @throws IntelligenceInvalidParameterException
+     * */
+    IntelligenceFuture<User> updateUser(@NonNull User userObject) throws IntelligenceInvalidParameterException;
+
     public interface OnLoginListener  {
         void onLogin(IntelligenceException intelligenceException);
     }
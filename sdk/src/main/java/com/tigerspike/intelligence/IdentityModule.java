@@ -36,16 +36,31 @@ final class IdentityModule extends IntelligenceModule implements Identity
     static String ENDPOINT_DELETE_IDENTIFIER = "projects/{PROJECT_ID}/identifiers/{IDENTIFIER_ID}";
     static String ENDPOINT_DELETE_IDENTIFIER_ON_BEHALF = "projects/{PROJECT_ID}/identifiers";
 
-    private static String KEY_INSTALLATION_DATA = "INSTALLATION_DATA";
+    // Followed by the identifier type value.
+    private static String KEY_REGISTERED_IDENTIFIER = "REGISTERED_IDENTIFIER_";
+    private static String KEY_REGISTERED_IDENTIFIER_FINGERPRINT = "REGISTERED_IDENTIFIER_FINGERPRINT_";
+    private static String KEY_REGISTERED_IDENTIFIER_TIME = "REGISTERED_IDENTIFIER_TIME_";
+
+    // A registered identifier is sent again after this time, in case the backend deleted it meanwhile.
+    static final long REGISTERED_IDENTIFIER_TTL_MS = 24 * 60 * 60 * 1000;
+
+    // Types of the writes kept in the TaskOutbox while offline.
+    static final String OUTBOX_REGISTER_IDENTIFIER = "identity.registerIdentifier";
+    static final String OUTBOX_UNREGISTER_IDENTIFIER = "identity.unregisterIdentifier";
+    static final String OUTBOX_ASSIGN_ROLE = "identity.assignRole";
+    static final String OUTBOX_REVOKE_ROLE = "identity.revokeRole";
+    static final String OUTBOX_UPDATE_USER = "identity.updateUser";
 
     private Configuration mConfiguration;
     private TaskExecutor mTaskExecutor;
     private RequestURLBuilder mRequestURLBuilder;
+    private RequestContext mRequestContext;
     private OAuth mOAuth;
     private DataStore mDataStore;
     private Application mApplication;
 
-    private Installation mInstallation;
+    private InstallationStore mInstallationStore;
+    private TaskOutbox mTaskOutbox;
 
     @Override
     public void registerGCMToken(String gcmToken, @Nullable final OnRegisterIdentifierListener onRegisterIdentifierListener) {
@@ -55,32 +70,24 @@ final class IdentityModule extends IntelligenceModule implements Identity
 
     /**
      * Registers the specified Identifier to the current logged in user.
+     * Nothing is sent when the same identifier was registered to the same user within REGISTERED_IDENTIFIER_TTL_MS.
      *
      * @param identifier Identifier to register
      */
     @Override
     public void registerIdentifier(Identifier identifier, @Nullable final OnRegisterIdentifierListener onRegisterIdentifierListener) {
-        // we always need to unregister the identifier we are trying to register to avoid getting a duplication error from the backend
-        // so, the continuation of the 'unregister identifier' action is to register the same identifier
-        deleteIdentifierOnBehalf(identifier, new OnUnregisterIdentifierOnBehalfListener() {
-           @Override
-           public void OnUnregisterIdentifierOnBehalf(@Nullable Identifier identifier, @Nullable IntelligenceException intelligenceException) {
-               proceedRegisterIdentifier(identifier, onRegisterIdentifierListener);
-           }
-       });
-    }
+        identifier.setUserId(mOAuth.getCurrentUserId());
+        identifier.setProjectID(mConfiguration.getProjectID());
 
-    private void proceedRegisterIdentifier(Identifier identifier, @Nullable final OnRegisterIdentifierListener onRegisterIdentifierListener){
-        if (!mTaskExecutor.hasConnection()) {
+        Identifier registeredIdentifier = getRegisteredIdentifier(identifier);
+
+        if (registeredIdentifier != null) {
             if (onRegisterIdentifierListener != null) {
-                onRegisterIdentifierListener.onRegisterIdentifier(identifier, new IntelligenceRequestException(IntelligenceRequestException.ErrorCode.InternetOfflineError));
+                onRegisterIdentifierListener.onRegisterIdentifier(registeredIdentifier, null);
             }
             return;
         }
 
-        identifier.setUserId(mOAuth.getCurrentUserId());
-        identifier.setProjectID(mConfiguration.getProjectID());
-
         IntelligenceTask.TaskListener taskListener = null;
 
         if (onRegisterIdentifierListener != null) {
@@ -99,10 +106,88 @@ final class IdentityModule extends IntelligenceModule implements Identity
 
         }
 
-        IdentityRegisterIdentifierTask task = new IdentityRegisterIdentifierTask(identifier, mOAuth, this, taskListener);
+        if (!mTaskExecutor.hasConnection()) {
+            keepOffline(OUTBOX_REGISTER_IDENTIFIER, identifierOutboxKey(identifier), identifier.toJSONString(), !hasPersonalData(identifier), taskListener);
+            return;
+        }
+
+        // we always need to unregister the identifier we are trying to register to avoid getting a duplication error from the backend,
+        // the replace task sends both requests in one task.
+        IdentityReplaceIdentifierTask task = new IdentityReplaceIdentifierTask(identifier, mOAuth, this, taskListener);
         mTaskExecutor.addTask(task);
     }
 
+    /**
+     * @return the identifier registered by the backend, if the same identifier was registered to the same user
+     * within REGISTERED_IDENTIFIER_TTL_MS, null otherwise.
+     */
+    private @Nullable Identifier getRegisteredIdentifier(Identifier identifier) {
+
+        if (identifier.getIdentifierType() == null) {
+            return null;
+        }
+
+        Integer type = identifier.getIdentifierType().value;
+
+        if (!fingerprint(identifier).equals(mDataStore.get(KEY_REGISTERED_IDENTIFIER_FINGERPRINT + type))) {
+            return null;
+        }
+
+        // Registrations stored without a time, or in the future after a clock change, are expired too.
+        long age = System.currentTimeMillis() - mDataStore.getLong(KEY_REGISTERED_IDENTIFIER_TIME + type, 0);
+
+        if (age < 0 || age >= REGISTERED_IDENTIFIER_TTL_MS) {
+            return null;
+        }
+
+        String registeredIdentifier = mDataStore.get(KEY_REGISTERED_IDENTIFIER + type);
+
+        try {
+            return registeredIdentifier == null ? null : new Identifier(registeredIdentifier);
+        } catch (JSONException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Stores the identifier registered by the backend, to skip registering the same identifier again.
+     *
+     * @param requestedIdentifier identifier sent to the backend
+     * @param registeredIdentifier identifier returned by the backend
+     */
+    void onIdentifierRegistered(Identifier requestedIdentifier, Identifier registeredIdentifier) {
+
+        if (requestedIdentifier.getIdentifierType() == null || registeredIdentifier == null) {
+            return;
+        }
+
+        Integer type = requestedIdentifier.getIdentifierType().value;
+
+        mDataStore.set(KEY_REGISTERED_IDENTIFIER + type, registeredIdentifier.toJSONString());
+        mDataStore.set(KEY_REGISTERED_IDENTIFIER_FINGERPRINT + type, fingerprint(requestedIdentifier));
+        mDataStore.set(KEY_REGISTERED_IDENTIFIER_TIME + type, System.currentTimeMillis());
+    }
+
+    /**
+     * Forgets the registered identifier of the type, so that registering it again is sent to the backend.
+     */
+    private void clearRegisteredIdentifier(Identifier identifier) {
+
+        if (identifier.getIdentifierType() == null) {
+            return;
+        }
+
+        Integer type = identifier.getIdentifierType().value;
+
+        mDataStore.remove(KEY_REGISTERED_IDENTIFIER + type);
+        mDataStore.remove(KEY_REGISTERED_IDENTIFIER_FINGERPRINT + type);
+        mDataStore.remove(KEY_REGISTERED_IDENTIFIER_TIME + type);
+    }
+
+    private static String fingerprint(Identifier identifier) {
+        return identifier.getApplicationID() + "|" + identifier.getProjectID() + "|" + identifier.getUserID() + "|" + identifier.getIdentifierType().value + "|" + identifier.getValue();
+    }
+
     /**
      * Returns user object if logged in.
      *
@@ -113,12 +198,14 @@ final class IdentityModule extends IntelligenceModule implements Identity
     }
 
     /**
-     * Clear current user authentication tokens.
+     * Clear current user authentication tokens, and the writes of the user kept while offline.
      *
      * @param onLogoutListener Listener triggered after logout
      */
     public void logout(@Nullable OnLogoutListener onLogoutListener) {
         mOAuth.clearUser();
+        // The writes kept offline were requested by the user.
+        mTaskOutbox.clear();
         if (onLogoutListener != null) {
             onLogoutListener.onLogout(null);
         }
@@ -133,49 +220,17 @@ final class IdentityModule extends IntelligenceModule implements Identity
      */
     public void login(@NonNull String username, @NonNull String password, @Nullable final OnLoginListener onLoginListener) {
 
-        if (Utils.isEmpty(username)) {
-            if (onLoginListener != null) {
-                onLoginListener.onLogin(new IntelligenceInvalidParameterException("Username can't be empty"));
-            }
-            return;
-        }
-
-        if (Utils.isEmpty(password)) {
-            if (onLoginListener != null) {
-                onLoginListener.onLogin(new IntelligenceInvalidParameterException("Password can't be empty"));
-            }
-            return;
-        }
-
-        if (!mTaskExecutor.hasConnection()) {
-            if (onLoginListener != null) {
-                onLoginListener.onLogin(new IntelligenceRequestException(IntelligenceRequestException.ErrorCode.InternetOfflineError));
-            }
-            return;
-        }
-
-        IntelligenceTask.TaskListener taskListener = null;
+        IntelligenceFuture<Void> future = login(username, password);
 
         if (onLoginListener != null) {
-
-            taskListener = new IntelligenceTask.TaskListener() {
-                @Override
-                public void onTaskFinish(IntelligenceTask intelligenceTask) {
-                    onLoginListener.onLogin(null);
-                }
-
+            future.addListener(new IntelligenceFuture.Listener<Void>() {
                 @Override
-                public void onTaskError(IntelligenceTask intelligenceTask, IntelligenceException intelligenceException) {
+                public void onComplete(@Nullable Void result, @Nullable IntelligenceException intelligenceException) {
                     onLoginListener.onLogin(intelligenceException);
                 }
-            };
-
+            });
         }
 
-        OAuthAuthenticateTask task = new OAuthAuthenticateTask(username, password, OAuth.UserType.User, mOAuth, taskListener);
-
-        mTaskExecutor.addTask(task);
-
     }
 
     /**
@@ -186,12 +241,7 @@ final class IdentityModule extends IntelligenceModule implements Identity
     @Override
     public void unregisterIdentifier(Identifier identifier, @Nullable final OnUnregisterIdentifierListener onUnregisterIdentifierListener) {
 
-        if (!mTaskExecutor.hasConnection()) {
-            if (onUnregisterIdentifierListener != null) {
-                onUnregisterIdentifierListener.onUnregisterIdentifier(identifier, new IntelligenceRequestException(IntelligenceRequestException.ErrorCode.InternetOfflineError));
-            }
-            return;
-        }
+        clearRegisteredIdentifier(identifier);
 
         IntelligenceTask.TaskListener taskListener = null;
 
@@ -211,6 +261,11 @@ final class IdentityModule extends IntelligenceModule implements Identity
 
         }
 
+        if (!mTaskExecutor.hasConnection()) {
+            keepOffline(OUTBOX_UNREGISTER_IDENTIFIER, identifierOutboxKey(identifier), identifier.toJSONString(), !hasPersonalData(identifier), taskListener);
+            return;
+        }
+
         IdentityUnregisterIdentifierTask task = new IdentityUnregisterIdentifierTask(identifier, mOAuth, this, taskListener);
         mTaskExecutor.addTask(task);
     }
@@ -223,6 +278,8 @@ final class IdentityModule extends IntelligenceModule implements Identity
     @Override
     public void deleteIdentifierOnBehalf(Identifier identifier, @Nullable final OnUnregisterIdentifierOnBehalfListener onUnregisterIdentifierOnBehalfListener) {
 
+        clearRegisteredIdentifier(identifier);
+
         if (!mTaskExecutor.hasConnection()) {
             if (onUnregisterIdentifierOnBehalfListener != null) {
                 onUnregisterIdentifierOnBehalfListener.OnUnregisterIdentifierOnBehalf(identifier, new IntelligenceRequestException(IntelligenceRequestException.ErrorCode.InternetOfflineError,"No network available"));
@@ -256,14 +313,93 @@ final class IdentityModule extends IntelligenceModule implements Identity
      * Public constructor
      * @param configuration - Intelligence configuration, required parameter. If configuration is null, any Identity action cannot be performed (dependency)
      * @param taskExecutor - TaskExecutor
+     * @param installationStore - Installation shared with the Analytics module
+     * @param taskOutbox - Outbox keeping the writes requested while offline
      * */
-    public IdentityModule(@NonNull Configuration configuration, @NonNull TaskExecutor taskExecutor, @NonNull DataStore dataStore, @NonNull OAuth OAuth, @NonNull Application application) {
+    public IdentityModule(@NonNull Configuration configuration, @NonNull TaskExecutor taskExecutor, @NonNull DataStore dataStore, @NonNull OAuth OAuth, @NonNull Application application, @NonNull InstallationStore installationStore, @NonNull TaskOutbox taskOutbox) {
         mConfiguration = configuration;
         mTaskExecutor = taskExecutor;
         mDataStore = dataStore;
         mOAuth = OAuth;
         mApplication = application;
+        mInstallationStore = installationStore;
+        mTaskOutbox = taskOutbox;
         mRequestURLBuilder = new RequestURLBuilder(mConfiguration);
+        mRequestContext = taskExecutor.getRequestContext();
+
+        mTaskOutbox.registerFactory(OUTBOX_REGISTER_IDENTIFIER, mOutboxTaskFactory);
+        mTaskOutbox.registerFactory(OUTBOX_UNREGISTER_IDENTIFIER, mOutboxTaskFactory);
+        mTaskOutbox.registerFactory(OUTBOX_ASSIGN_ROLE, mOutboxTaskFactory);
+        mTaskOutbox.registerFactory(OUTBOX_REVOKE_ROLE, mOutboxTaskFactory);
+        mTaskOutbox.registerFactory(OUTBOX_UPDATE_USER, mOutboxTaskFactory);
+    }
+
+    /**
+     * Creates the tasks of the writes kept in the TaskOutbox while offline.
+     */
+    private final TaskOutbox.TaskFactory mOutboxTaskFactory = new TaskOutbox.TaskFactory() {
+        @Override
+        public IntelligenceTask createTask(String type, String payload, @Nullable IntelligenceTask.TaskListener taskListener) throws JSONException {
+
+            if (type.equals(OUTBOX_REGISTER_IDENTIFIER)) {
+                return new IdentityReplaceIdentifierTask(new Identifier(payload), mOAuth, IdentityModule.this, taskListener);
+            }
+
+            if (type.equals(OUTBOX_UNREGISTER_IDENTIFIER)) {
+                return new IdentityUnregisterIdentifierTask(new Identifier(payload), mOAuth, IdentityModule.this, taskListener);
+            }
+
+            if (type.equals(OUTBOX_UPDATE_USER)) {
+                return new OAuthUpdateUserTask(mOAuth, new User(payload), taskListener);
+            }
+
+            String[] ids = payload.split(",");
+            int userId = Integer.parseInt(ids[0]);
+            int roleId = Integer.parseInt(ids[1]);
+
+            if (type.equals(OUTBOX_ASSIGN_ROLE)) {
+                return new OAuthAssignRoleTask(mOAuth, userId, roleId, taskListener);
+            }
+
+            return new OAuthRevokeRoleTask(mOAuth, userId, roleId, taskListener);
+        }
+    };
+
+    /**
+     * Keeps a write requested offline in the outbox, replayed while the signed in user is the same.
+     *
+     * @param persistent false for payloads with personal data, which are kept in memory only.
+     */
+    private void keepOffline(String type, String key, String payload, boolean persistent, @Nullable IntelligenceTask.TaskListener taskListener) {
+        mTaskOutbox.add(type, key, mOAuth.getCurrentUserId(), payload, persistent, taskListener);
+    }
+
+    /**
+     * @return true if the identifier is an email or MSN address, false for push tokens.
+     */
+    private static boolean hasPersonalData(Identifier identifier) {
+        return identifier.getIdentifierType() == Identifier.IdentifierType.EMAIL || identifier.getIdentifierType() == Identifier.IdentifierType.MSN;
+    }
+
+    // Registering and unregistering the same identifier replace each other in the outbox, as do assigning and revoking the same role.
+
+    private static String identifierOutboxKey(Identifier identifier) {
+        return "identifier/" + identifier.getIdentifierType() + "/" + identifier.getValue();
+    }
+
+    private static String roleOutboxKey(int userId, int roleId) {
+        return "role/" + userId + "/" + roleId;
+    }
+
+    private static String userOutboxKey(User user) {
+        return "user/" + user.getUserId();
+    }
+
+    /**
+     * @return true if the update can be kept in the outbox: updates with a password are not written to the DataStore.
+     */
+    private static boolean canKeepUserUpdate(User user) {
+        return Utils.isEmpty(user.getPassword());
     }
 
     @Override
@@ -279,31 +415,25 @@ final class IdentityModule extends IntelligenceModule implements Identity
      */
     private void checkInstallation(Context context) {
 
-        // Check if mInstallation is not initialized, if not try getting it from DataStore.
-        if (mInstallation == null) {
-            String installationString = mDataStore.get(KEY_INSTALLATION_DATA);
+        Installation storedInstallation = mInstallationStore.get();
 
-            if (installationString != null) {
-                try {
-                    mInstallation = new Installation(installationString);
-                } catch (JSONException jsonException) {
-                    // Invalid JSON
-                }
-            }
-        }
-
-        // If mInstallation == null, no installation has been posted to Intelligence yet. Try to post it.
-        // If mInstallation != null, check if app version has changed and try to post an update.
-        if (mInstallation == null) {
+        // If storedInstallation == null, no installation has been posted to Intelligence yet. Try to post it.
+        // If storedInstallation != null, check if app version, OS version or user has changed and try to post an update.
+        if (storedInstallation == null) {
             Installation installation = new Installation(context);
             installation.setApplicationID(mConfiguration.getApplicationID());
             installation.setProjectID(mConfiguration.getProjectID());
             installation.setUserID(mOAuth.getCurrentUserId());
             mTaskExecutor.addTask(new IdentityCreateInstallationTask(this, installation, mInstallationTaskListener));
-        } else if (!mInstallation.getInstalledVersion().equals(Installation.getAppVersionName(context))) {
-            Installation installation = new Installation(mInstallation);
+        } else {
+            Installation installation = new Installation(storedInstallation);
             installation.updateAppAndOSVersion(context);
-            mTaskExecutor.addTask(new IdentityUpdateInstallationTask(this, installation, mInstallationTaskListener));
+            if (mOAuth.getCurrentUserId() != null) {
+                installation.setUserID(mOAuth.getCurrentUserId());
+            }
+            if (!installation.fingerprint().equals(storedInstallation.fingerprint())) {
+                mTaskExecutor.addTask(new IdentityUpdateInstallationTask(this, installation, mInstallationTaskListener));
+            }
         }
 
     }
@@ -319,7 +449,7 @@ final class IdentityModule extends IntelligenceModule implements Identity
 
         JSONArray bodyJSON = new JSONArray().put(installation.toJSONObject());
 
-        return RequestBuilder.POST(url)
+        return mRequestContext.POST(url)
                 .accept(Constants.CONTENT_TYPE_JSON)
                 .authentication(mOAuth.getCurrentAuthenticationToken())
                 .body(bodyJSON.toString())
@@ -338,7 +468,7 @@ final class IdentityModule extends IntelligenceModule implements Identity
 
         JSONArray bodyJSON = new JSONArray().put(installation.prepareJSONObjectForUpdate());
 
-        return RequestBuilder.PUT(url)
+        return mRequestContext.PUT(url)
                 .accept(Constants.CONTENT_TYPE_JSON)
                 .authentication(mOAuth.getCurrentAuthenticationToken())
                 .body(bodyJSON.toString())
@@ -365,8 +495,7 @@ final class IdentityModule extends IntelligenceModule implements Identity
             }
 
             if (installation != null) {
-                mInstallation = installation;
-                mDataStore.set(KEY_INSTALLATION_DATA, mInstallation.toJSONString());
+                mInstallationStore.set(installation);
             }
 
         }
@@ -389,34 +518,17 @@ final class IdentityModule extends IntelligenceModule implements Identity
     public void getMe(@Nullable final OnGetUserListener onGetUserListener)
     {
 
-        if (!mTaskExecutor.hasConnection()) {
-            if (onGetUserListener != null) {
-                onGetUserListener.onGetUser(null, new IntelligenceRequestException(IntelligenceRequestException.ErrorCode.InternetOfflineError));
-            }
-            return;
-        }
-
-        IntelligenceTask.TaskListener taskListener = null;
+        IntelligenceFuture<User> future = getMe();
 
         if (onGetUserListener != null) {
-
-            taskListener = new IntelligenceTask.TaskListener() {
+            future.addListener(new IntelligenceFuture.Listener<User>() {
                 @Override
-                public void onTaskFinish(IntelligenceTask intelligenceTask) {
-                    onGetUserListener.onGetUser(((OAuthGetUserMeTask) intelligenceTask).user, null);
+                public void onComplete(@Nullable User result, @Nullable IntelligenceException intelligenceException) {
+                    onGetUserListener.onGetUser(result, intelligenceException);
                 }
-
-                @Override
-                public void onTaskError(IntelligenceTask intelligenceTask, IntelligenceException e) {
-                    onGetUserListener.onGetUser(null, e);
-                }
-            };
-
+            });
         }
 
-        OAuthGetUserMeTask task = new OAuthGetUserMeTask(mOAuth, taskListener);
-        mTaskExecutor.addTask(task);
-
     }
 
     /**
@@ -429,97 +541,50 @@ final class IdentityModule extends IntelligenceModule implements Identity
     public void getUserById(int id, @Nullable final OnGetUserListener onGetUserListener)
     {
 
-        if (!mTaskExecutor.hasConnection()) {
-            if (onGetUserListener != null) {
-                onGetUserListener.onGetUser(null, new IntelligenceRequestException(IntelligenceRequestException.ErrorCode.InternetOfflineError,"No network available"));
-            }
-            return;
-        }
-
-        IntelligenceTask.TaskListener taskListener = null;
+        IntelligenceFuture<User> future = getUserById(id);
 
         if (onGetUserListener != null) {
-
-            taskListener = new IntelligenceTask.TaskListener() {
+            future.addListener(new IntelligenceFuture.Listener<User>() {
                 @Override
-                public void onTaskFinish(IntelligenceTask intelligenceTask) {
-                    onGetUserListener.onGetUser(((OAuthGetUserByIdTask) intelligenceTask).user, null);
+                public void onComplete(@Nullable User result, @Nullable IntelligenceException intelligenceException) {
+                    onGetUserListener.onGetUser(result, intelligenceException);
                 }
-
-                @Override
-                public void onTaskError(IntelligenceTask intelligenceTask, IntelligenceException e) {
-                    onGetUserListener.onGetUser(null, e);
-                }
-            };
-
+            });
         }
 
-        OAuthGetUserByIdTask task = new OAuthGetUserByIdTask(mOAuth, id, taskListener);
-        mTaskExecutor.addTask(task);
     }
 
     @Override
     public void assignRole(int userId, int roleId, final @Nullable OnAssignRoleListener onAssignRoleListener) {
-        if (!mTaskExecutor.hasConnection()) {
-            if (onAssignRoleListener != null) {
-                onAssignRoleListener.onAssignRole(new IntelligenceRequestException(IntelligenceRequestException.ErrorCode.InternetOfflineError, "No network available"));
-            }
-            return;
-        }
 
-        IntelligenceTask.TaskListener taskListener = null;
+        IntelligenceFuture<Void> future = assignRole(userId, roleId);
 
         if (onAssignRoleListener != null) {
-
-            taskListener = new IntelligenceTask.TaskListener() {
-                @Override
-                public void onTaskFinish(IntelligenceTask intelligenceTask) {
-                    onAssignRoleListener.onAssignRole(null);
-                }
-
+            future.addListener(new IntelligenceFuture.Listener<Void>() {
                 @Override
-                public void onTaskError(IntelligenceTask intelligenceTask, IntelligenceException e) {
-                    onAssignRoleListener.onAssignRole(e);
+                public void onComplete(@Nullable Void result, @Nullable IntelligenceException intelligenceException) {
+                    onAssignRoleListener.onAssignRole(intelligenceException);
                 }
-            };
-
+            });
         }
 
-        OAuthAssignRoleTask task = new OAuthAssignRoleTask(mOAuth, userId, roleId, taskListener);
-        mTaskExecutor.addTask(task);
     }
 
     @Override
     public void revokeRole(int userId, int roleId, @Nullable final OnRevokeRoleListener onRevokeRoleListener)
     {
 
-        if (!mTaskExecutor.hasConnection()) {
-            if (onRevokeRoleListener != null) {
-                onRevokeRoleListener.onRevokeRole(new IntelligenceRequestException(IntelligenceRequestException.ErrorCode.InternetOfflineError,"No network available"));
-            }
-            return;
-        }
-
-        IntelligenceTask.TaskListener taskListener = null;
+        IntelligenceFuture<Void> future = revokeRole(userId, roleId);
 
         if (onRevokeRoleListener != null) {
-
-            taskListener = new IntelligenceTask.TaskListener() {
+            future.addListener(new IntelligenceFuture.Listener<Void>() {
                 @Override
-                public void onTaskFinish(IntelligenceTask intelligenceTask) {
-                    onRevokeRoleListener.onRevokeRole(null);
+                public void onComplete(@Nullable Void result, @Nullable IntelligenceException intelligenceException) {
+                    onRevokeRoleListener.onRevokeRole(intelligenceException);
                 }
-
-                @Override
-                public void onTaskError(IntelligenceTask intelligenceTask, IntelligenceException e) {
-                    onRevokeRoleListener.onRevokeRole(e);
-                }
-            };
-
+            });
         }
 
-        OAuthRevokeRoleTask task = new OAuthRevokeRoleTask(mOAuth, userId, roleId, taskListener);
-        mTaskExecutor.addTask(task);
     }
 
     /**
@@ -534,36 +599,17 @@ final class IdentityModule extends IntelligenceModule implements Identity
     public void updateUser(@NonNull User user, @Nullable final OnUpdateUserListener onUpdateUserListener) throws IntelligenceInvalidParameterException
     {
 
-        if (!mTaskExecutor.hasConnection()) {
-            if (onUpdateUserListener != null) {
-                onUpdateUserListener.onUpdateUser(null, new IntelligenceRequestException(IntelligenceRequestException.ErrorCode.InternetOfflineError));
-            }
-            return;
-        }
-
-        isValidUserObjectToUpdate(user);
-
-        IntelligenceTask.TaskListener taskListener = null;
+        IntelligenceFuture<User> future = updateUser(user);
 
         if (onUpdateUserListener != null) {
-
-            taskListener = new IntelligenceTask.TaskListener() {
+            future.addListener(new IntelligenceFuture.Listener<User>() {
                 @Override
-                public void onTaskFinish(IntelligenceTask intelligenceTask) {
-                    onUpdateUserListener.onUpdateUser(((OAuthUpdateUserTask) intelligenceTask).user, null);
+                public void onComplete(@Nullable User result, @Nullable IntelligenceException intelligenceException) {
+                    onUpdateUserListener.onUpdateUser(result, intelligenceException);
                 }
-
-                @Override
-                public void onTaskError(IntelligenceTask intelligenceTask, IntelligenceException e) {
-                    onUpdateUserListener.onUpdateUser(null, e);
-                }
-            };
-
+            });
         }
 
-        OAuthUpdateUserTask task = new OAuthUpdateUserTask(mOAuth, user, taskListener);
-        mTaskExecutor.addTask(task);
-
     }
 
     /**
@@ -577,36 +623,116 @@ final class IdentityModule extends IntelligenceModule implements Identity
     public void createUser(@NonNull User user, @Nullable final OnCreateUserListener onCreateUserListener) throws IntelligenceInvalidParameterException
     {
 
+        IntelligenceFuture<User> future = createUser(user);
+
+        if (onCreateUserListener != null) {
+            future.addListener(new IntelligenceFuture.Listener<User>() {
+                @Override
+                public void onComplete(@Nullable User result, @Nullable IntelligenceException intelligenceException) {
+                    onCreateUserListener.onCreateUser(result, intelligenceException);
+                }
+            });
+        }
+
+    }
+
+    @Override
+    public IntelligenceFuture<Void> login(@NonNull String username, @NonNull String password) {
+
+        if (Utils.isEmpty(username)) {
+            return IntelligenceFuture.failed(new IntelligenceInvalidParameterException("Username can't be empty"));
+        }
+
+        if (Utils.isEmpty(password)) {
+            return IntelligenceFuture.failed(new IntelligenceInvalidParameterException("Password can't be empty"));
+        }
+
         if (!mTaskExecutor.hasConnection()) {
-            if (onCreateUserListener != null) {
-                onCreateUserListener.onCreateUser(null, new IntelligenceRequestException(IntelligenceRequestException.ErrorCode.InternetOfflineError));
-            }
-            return;
+            return IntelligenceFuture.failed(new IntelligenceRequestException(IntelligenceRequestException.ErrorCode.InternetOfflineError));
+        }
+
+        TaskFuture<Void> future = new TaskFuture<>();
+        return mTaskExecutor.submit(new OAuthAuthenticateTask(username, password, OAuth.UserType.User, mOAuth, future), future);
+    }
+
+    @Override
+    public IntelligenceFuture<User> createUser(@NonNull User user) throws IntelligenceInvalidParameterException {
+
+        if (!mTaskExecutor.hasConnection()) {
+            return IntelligenceFuture.failed(new IntelligenceRequestException(IntelligenceRequestException.ErrorCode.InternetOfflineError));
         }
 
         isValidUserObjectToCreate(user);
 
-        IntelligenceTask.TaskListener taskListener = null;
+        TaskFuture<User> future = new TaskFuture<>();
+        return mTaskExecutor.submit(new OAuthCreateUserTask(mOAuth, user, future), future);
+    }
 
-        if (onCreateUserListener != null) {
+    @Override
+    public IntelligenceFuture<User> getMe() {
 
-            taskListener = new IntelligenceTask.TaskListener() {
-                @Override
-                public void onTaskFinish(IntelligenceTask intelligenceTask) {
-                    onCreateUserListener.onCreateUser(((OAuthCreateUserTask) intelligenceTask).user, null);
-                }
+        if (!mTaskExecutor.hasConnection()) {
+            return IntelligenceFuture.failed(new IntelligenceRequestException(IntelligenceRequestException.ErrorCode.InternetOfflineError));
+        }
 
-                @Override
-                public void onTaskError(IntelligenceTask intelligenceTask, IntelligenceException e) {
-                    onCreateUserListener.onCreateUser(null, e);
-                }
-            };
+        TaskFuture<User> future = new TaskFuture<>();
+        return mTaskExecutor.submit(new OAuthGetUserMeTask(mOAuth, future), future);
+    }
+
+    @Override
+    public IntelligenceFuture<Void> assignRole(int userId, int roleId) {
 
+        TaskFuture<Void> future = new TaskFuture<>();
+
+        if (!mTaskExecutor.hasConnection()) {
+            keepOffline(OUTBOX_ASSIGN_ROLE, roleOutboxKey(userId, roleId), userId + "," + roleId, true, future);
+            return future;
         }
 
-        OAuthCreateUserTask task = new OAuthCreateUserTask(mOAuth, user, taskListener);
-        mTaskExecutor.addTask(task);
+        return mTaskExecutor.submit(new OAuthAssignRoleTask(mOAuth, userId, roleId, future), future);
+    }
+
+    @Override
+    public IntelligenceFuture<Void> revokeRole(int userId, int roleId) {
+
+        TaskFuture<Void> future = new TaskFuture<>();
+
+        if (!mTaskExecutor.hasConnection()) {
+            keepOffline(OUTBOX_REVOKE_ROLE, roleOutboxKey(userId, roleId), userId + "," + roleId, true, future);
+            return future;
+        }
+
+        return mTaskExecutor.submit(new OAuthRevokeRoleTask(mOAuth, userId, roleId, future), future);
+    }
+
+    @Override
+    public IntelligenceFuture<User> getUserById(int id) {
+
+        if (!mTaskExecutor.hasConnection()) {
+            return IntelligenceFuture.failed(new IntelligenceRequestException(IntelligenceRequestException.ErrorCode.InternetOfflineError, "No network available"));
+        }
+
+        TaskFuture<User> future = new TaskFuture<>();
+        return mTaskExecutor.submit(new OAuthGetUserByIdTask(mOAuth, id, future), future);
+    }
+
+    @Override
+    public IntelligenceFuture<User> updateUser(@NonNull User user) throws IntelligenceInvalidParameterException {
+
+        if (!mTaskExecutor.hasConnection() && !canKeepUserUpdate(user)) {
+            return IntelligenceFuture.failed(new IntelligenceRequestException(IntelligenceRequestException.ErrorCode.InternetOfflineError));
+        }
+
+        isValidUserObjectToUpdate(user);
+
+        TaskFuture<User> future = new TaskFuture<>();
+
+        if (!mTaskExecutor.hasConnection()) {
+            keepOffline(OUTBOX_UPDATE_USER, userOutboxKey(user), user.toJSONString(), false, future);
+            return future;
+        }
 
+        return mTaskExecutor.submit(new OAuthUpdateUserTask(mOAuth, user, future), future);
     }
 
     /**
@@ -692,7 +818,7 @@ final class IdentityModule extends IntelligenceModule implements Identity
         JSONArray identifierJSON = new JSONArray();
         identifierJSON.put(identifier.toJSONObject());
 
-        return RequestBuilder.POST(url)
+        return mRequestContext.POST(url)
                 .accept(Constants.CONTENT_TYPE_JSON)
                 .authentication(authenticationToken)
                 .body(identifierJSON)
@@ -715,7 +841,7 @@ final class IdentityModule extends IntelligenceModule implements Identity
                 .addParam("IDENTIFIER_ID", String.valueOf(identifier.getId()))
                 .url();
 
-        return RequestBuilder.DELETE(url)
+        return mRequestContext.DELETE(url)
                 .accept(Constants.CONTENT_TYPE_JSON)
                 .authentication(authenticationToken)
                 .build();
@@ -749,7 +875,7 @@ final class IdentityModule extends IntelligenceModule implements Identity
             e.printStackTrace();
         }
 
-        return RequestBuilder.DELETE(queryUrl)
+        return mRequestContext.DELETE(queryUrl)
                 .accept(Constants.CONTENT_TYPE_JSON)
                 .authentication(authenticationToken)
                 .build();
@@ -0,0 +1,33 @@
+package com.tigerspike.intelligence;
+
+/**
+ * Registers an identifier after deleting it from any other user, within the same task so that
+ * both requests are sent back to back on the same worker thread.
+ */
+class IdentityReplaceIdentifierTask extends IdentityRegisterIdentifierTask {
+
+    private OAuth mOAuth;
+    private IdentityModule mIdentity;
+
+    public IdentityReplaceIdentifierTask(Identifier identifier, OAuth oAuth, IdentityModule identityModule, TaskListener taskListener) {
+        super(identifier, oAuth, identityModule, taskListener);
+        mOAuth = oAuth;
+        mIdentity = identityModule;
+    }
+
+    @Override
+    void execute() throws Exception {
+
+        Identifier requestedIdentifier = identifier;
+
+        // The identifier may not be registered yet, the delete result does not matter: it only
+        // avoids a duplication error from the backend on create.
+        mIdentity.createDeleteIdentifierOnBehalfRequest(mOAuth.getCurrentAuthenticationToken(), identifier).execute();
+
+        super.execute();
+
+        mIdentity.onIdentifierRegistered(requestedIdentifier, identifier);
+
+    }
+
+}
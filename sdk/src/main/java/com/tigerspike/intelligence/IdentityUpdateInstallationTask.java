@@ -2,9 +2,7 @@ package com.tigerspike.intelligence;
 
 import com.tigerspike.intelligence.exceptions.IntelligenceRequestException;
 
-import org.json.JSONArray;
 import org.json.JSONException;
-import org.json.JSONObject;
 
 public class IdentityUpdateInstallationTask extends IntelligenceTask {
 
@@ -28,9 +26,7 @@ public class IdentityUpdateInstallationTask extends IntelligenceTask {
         handleError(response);
 
         try {
-            JSONObject jsonObject = JSONUtils.parseSimpleJSONObject(response.bodyData());
-            JSONArray jsonArray = jsonObject.getJSONArray("Data");
-            installation = new Installation(jsonArray.getJSONObject(0));
+            installation = response.readFirstData(Installation.CODEC);
         } catch (JSONException jsonException) {
             throw (new IntelligenceRequestException(IntelligenceRequestException.ErrorCode.ParseError, "Could not parse installation").addCause(jsonException));
         }
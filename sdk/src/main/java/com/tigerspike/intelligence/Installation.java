@@ -4,9 +4,14 @@ import android.content.Context;
 import android.content.pm.PackageManager;
 import android.os.Build;
 
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.IOException;
+
 /**
  * Installation class implementation.
  * Handles create and update Installation requests and responses.
@@ -54,7 +59,10 @@ public class Installation {
     }
 
     public Installation(String jsonString) throws JSONException {
-        this(new JSONObject(jsonString));
+        this(JsonCodecs.fromJson(jsonString, CODEC));
+    }
+
+    private Installation() {
     }
 
     public Installation(Installation installation) {
@@ -154,8 +162,74 @@ public class Installation {
     }
 
     public String toJSONString() {
-        JSONObject jsonObject = toJSONObject();
-        return jsonObject != null ? jsonObject.toString() : null;
+        return JsonCodecs.toJson(this, CODEC);
+    }
+
+    /**
+     * Streaming codec, reads the same JSON as the JSONObject constructor and writes the same JSON as toJSONObject.
+     */
+    static final JsonCodec<Installation> CODEC = new JsonCodec<Installation>() {
+
+        @Override
+        public Installation read(JsonReader reader) throws IOException {
+
+            Installation installation = new Installation();
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String key = reader.nextName();
+                if (KEY_ID.equals(key)) {
+                    installation.mID = JsonCodecs.nextInteger(reader, null);
+                } else if (KEY_INSTALLATION_ID.equals(key)) {
+                    installation.mInstallationID = JsonCodecs.nextString(reader);
+                } else if (KEY_INSTALLED_VERSION.equals(key)) {
+                    installation.mInstalledVersion = JsonCodecs.nextString(reader);
+                } else if (KEY_DEVICE_TYPE_ID.equals(key)) {
+                    installation.mDeviceTypeID = JsonCodecs.nextInteger(reader, null);
+                } else if (KEY_OPERATING_SYSTEM_VERSION.equals(key)) {
+                    installation.mOperatingSystemVersion = JsonCodecs.nextString(reader);
+                } else if (KEY_USER_ID.equals(key)) {
+                    installation.mUserID = JsonCodecs.nextInteger(reader, null);
+                } else if (KEY_PROJECT_ID.equals(key)) {
+                    installation.mProjectID = JsonCodecs.nextInteger(reader, null);
+                } else if (KEY_APPLICATION_ID.equals(key)) {
+                    installation.mApplicationID = JsonCodecs.nextInteger(reader, null);
+                } else if (KEY_CREATE_DATE.equals(key)) {
+                    installation.mCreateDate = JsonCodecs.nextString(reader);
+                } else if (KEY_UPDATE_DATE.equals(key)) {
+                    installation.mUpdateDate = JsonCodecs.nextString(reader);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            return installation;
+        }
+
+        @Override
+        public void write(JsonWriter writer, Installation installation) throws IOException {
+            writer.beginObject();
+            writer.name(KEY_ID).value(installation.mID);
+            writer.name(KEY_INSTALLATION_ID).value(installation.mInstallationID);
+            writer.name(KEY_INSTALLED_VERSION).value(installation.mInstalledVersion);
+            writer.name(KEY_DEVICE_TYPE_ID).value(installation.mDeviceTypeID);
+            writer.name(KEY_OPERATING_SYSTEM_VERSION).value(installation.mOperatingSystemVersion);
+            writer.name(KEY_USER_ID).value(installation.mUserID);
+            writer.name(KEY_PROJECT_ID).value(installation.mProjectID);
+            writer.name(KEY_APPLICATION_ID).value(installation.mApplicationID);
+            writer.name(KEY_CREATE_DATE).value(installation.mCreateDate);
+            writer.name(KEY_UPDATE_DATE).value(installation.mUpdateDate);
+            writer.endObject();
+        }
+
+    };
+
+    /**
+     * @return the properties sent in Update Installation requests that change on the device: app version, OS version and user.
+     */
+    String fingerprint() {
+        return mInstalledVersion + "|" + mOperatingSystemVersion + "|" + mUserID;
     }
 
     public void updateAppAndOSVersion(Context context) {
@@ -0,0 +1,76 @@
+package com.tigerspike.intelligence;
+
+import org.json.JSONException;
+
+/**
+ * Installation posted to Intelligence, shared by the Identity and Analytics modules.
+ *
+ * It is parsed from the DataStore once, and written back only when it changed.
+ */
+class InstallationStore {
+
+    private DataStore mDataStore;
+
+    private volatile Installation mInstallation;
+    private volatile String mInstallationID = "";
+    private String mStoredJSON;
+    private boolean mLoaded;
+
+    InstallationStore(DataStore dataStore) {
+        mDataStore = dataStore;
+    }
+
+    /**
+     * @return the installation posted to Intelligence, null if none was posted yet.
+     */
+    Installation get() {
+        load();
+        return mInstallation;
+    }
+
+    /**
+     * @return the installation ID given by Intelligence, empty if no installation was posted yet.
+     */
+    String getInstallationID() {
+        load();
+        return mInstallationID;
+    }
+
+    /**
+     * Keeps the installation returned by Intelligence, and stores it when it changed.
+     */
+    synchronized void set(Installation installation) {
+
+        load();
+
+        String json = installation.toJSONString();
+
+        mInstallation = installation;
+        mInstallationID = installation.getInstallationID() != null ? installation.getInstallationID() : "";
+
+        if (!json.equals(mStoredJSON)) {
+            mStoredJSON = json;
+            mDataStore.set(Constants.KEY_INSTALLATION_DATA, json);
+        }
+    }
+
+    private synchronized void load() {
+
+        if (mLoaded) {
+            return;
+        }
+
+        mLoaded = true;
+        mStoredJSON = mDataStore.get(Constants.KEY_INSTALLATION_DATA);
+
+        if (mStoredJSON != null) {
+            try {
+                mInstallation = new Installation(mStoredJSON);
+                mInstallationID = mInstallation.getInstallationID() != null ? mInstallation.getInstallationID() : "";
+            } catch (JSONException jsonException) {
+                // Invalid JSON, the installation will be posted again.
+            }
+        }
+    }
+
+}
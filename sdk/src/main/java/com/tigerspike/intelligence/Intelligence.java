@@ -11,11 +11,13 @@ import com.tigerspike.intelligence.exceptions.IntelligenceRequestException;
 
 final public class Intelligence {
 
-    private static final int MAX_RETRY_COUNT = 3;
     private Application mApplication;
     private Configuration mConfiguration;
     private OAuth mOAuth;
     private TaskExecutor mTaskExecutor;
+    private TaskOutbox mTaskOutbox;
+    private Metrics mMetrics;
+    private RequestTracer mRequestTracer;
 
     public static DefaultRequestSecurityPolicy defaultRequestSecurityPolicy;
 
@@ -50,6 +52,31 @@ final public class Intelligence {
      * @throws IntelligenceConfigurationException
      */
     public Intelligence(Application application, Configuration configuration) throws IntelligenceConfigurationException {
+        this(application, configuration, null);
+    }
+
+    /**
+     * Instantiates Intelligence instance with the given DataStore instead of the SharedPreferences one.
+     *
+     * @param application   Application object
+     * @param configuration Intelligence configuration object
+     * @param dataStore     DataStore to be used by all modules, null for SharedPreferences.
+     * @throws IntelligenceConfigurationException
+     */
+    Intelligence(Application application, Configuration configuration, @Nullable DataStore dataStore) throws IntelligenceConfigurationException {
+        this(application, configuration, dataStore, null);
+    }
+
+    /**
+     * Instantiates Intelligence instance sending its requests with the given transport, e.g. without network in load tests.
+     *
+     * @param application      Application object
+     * @param configuration    Intelligence configuration object
+     * @param dataStore        DataStore to be used by all modules, null for SharedPreferences.
+     * @param requestTransport RequestTransport sending all requests, null for the one of the configuration.
+     * @throws IntelligenceConfigurationException
+     */
+    Intelligence(Application application, Configuration configuration, @Nullable DataStore dataStore, @Nullable RequestTransport requestTransport) throws IntelligenceConfigurationException {
 
         mApplication = application;
 
@@ -59,27 +86,47 @@ final public class Intelligence {
             throw (new IntelligenceConfigurationException(IntelligenceConfigurationException.ErrorCode.MissingProperty));
         }
 
-        DataStore dataStore = new SharedPreferencesDataStore(mApplication);
+        if (dataStore == null) {
+            dataStore = new SharedPreferencesDataStore(mApplication);
+        }
+
+        mMetrics = new Metrics();
+        dataStore = new TimedDataStore(dataStore, mMetrics);
+
+        // Create defaultRequestSecurityPolicy
+        try {
+            defaultRequestSecurityPolicy = new DefaultRequestSecurityPolicy(mApplication, mConfiguration.getCertificateTrustPolicy(), mConfiguration.getEnvironment(), mConfiguration.getCertificatePins());
+        } catch (IllegalArgumentException e) {
+            throw (new IntelligenceConfigurationException(IntelligenceConfigurationException.ErrorCode.InvalidProperty, e.getMessage()));
+        }
+
+        if (requestTransport == null && mConfiguration.getUseHttp2()) {
+            requestTransport = new OkHttpRequestTransport(defaultRequestSecurityPolicy);
+        }
+
+        // Create the context shared by all requests
+        mRequestTracer = new RequestTracer();
+        ResponseCache responseCache = mConfiguration.getResponseCacheSize() > 0 ? new ResponseCache(mConfiguration.getResponseCacheSize(), mMetrics) : null;
+        RequestContext requestContext = new RequestContext(defaultRequestSecurityPolicy, requestTransport, mMetrics, mRequestTracer,
+                new RetryPolicy(), responseCache, new NetworkQuality());
 
         // Create Authentication class
-        mOAuth = new OAuth(mConfiguration, dataStore);
+        mOAuth = new OAuth(mConfiguration, dataStore, requestContext);
 
         // Create Task Executor
-        mTaskExecutor = new TaskExecutor(mApplication, mOAuth);
+        mTaskExecutor = new TaskExecutor(mApplication, mOAuth, requestContext);
         mTaskExecutor.addNetworkChangeListener(mOnNetworkChangeListener);
 
-        identity = new IdentityModule(mConfiguration, mTaskExecutor, dataStore, mOAuth, mApplication);
-        analytics = new AnalyticsModule(mConfiguration, mTaskExecutor, dataStore, mOAuth, mApplication);
+        InstallationStore installationStore = new InstallationStore(dataStore);
+        mTaskOutbox = new TaskOutbox(dataStore, mTaskExecutor);
+        identity = new IdentityModule(mConfiguration, mTaskExecutor, dataStore, mOAuth, mApplication, installationStore, mTaskOutbox);
+        analytics = new AnalyticsModule(mConfiguration, mTaskExecutor, dataStore, mOAuth, mApplication, installationStore);
         location = new LocationModule(mConfiguration, mTaskExecutor, dataStore, mOAuth, mApplication, analytics);
 
         // Register to lifecycle callbacks.
         mActivityLifecycleCallback = new TimerActivityLifecycleCallbacks(analytics, dataStore);
         mApplication.registerActivityLifecycleCallbacks(mActivityLifecycleCallback);
 
-        // Create defaultRequestSecurityPolicy
-        defaultRequestSecurityPolicy = new DefaultRequestSecurityPolicy(mConfiguration.getCertificateTrustPolicy(), mConfiguration.getEnvironment());
-        RequestBuilder.setRequestSecurityPolicy(defaultRequestSecurityPolicy);
-
     }
 
     private TaskExecutor.OnNetworkChangeListener mOnNetworkChangeListener = new TaskExecutor.OnNetworkChangeListener() {
@@ -91,6 +138,7 @@ final public class Intelligence {
         @Override
         public void onNetworkDetected() {
             if (mIsStarted) {
+                mTaskOutbox.replay(mOAuth.getCurrentUserId());
                 ((AnalyticsModule) analytics).process(false);
                 ((LocationModule) location).updateGeofences();
             } else if (mStart) {
@@ -106,6 +154,25 @@ final public class Intelligence {
         return new Configuration(mConfiguration);
     }
 
+    /**
+     * @return Returns the metrics of this instance: task queue, requests per module, analytics events,
+     * token refreshes and DataStore writes.
+     */
+    public Metrics getMetrics() {
+        return mMetrics;
+    }
+
+    /**
+     * Reports the phases of the requests sent to Intelligence, with their System.nanoTime() timestamps:
+     * DNS lookup, connection, request, time to first byte and response.
+     *
+     * @param onPhaseListener Listener called on the request thread, null to stop timing requests.
+     * @param sampleInterval  Times one request every sampleInterval requests, 1 to time all of them.
+     */
+    public void setRequestPhaseListener(@Nullable RequestTiming.OnPhaseListener onPhaseListener, int sampleInterval) {
+        mRequestTracer.setListener(onPhaseListener, sampleInterval);
+    }
+
     /**
      * Validates configuration and initializes the Intelligence instance.
      *
@@ -140,6 +207,8 @@ final public class Intelligence {
             ((IntelligenceModule) identity).startUp();
             ((IntelligenceModule) location).startUp();
 
+            // Writes kept offline, possibly by a previous run of the app.
+            mTaskOutbox.replay(mOAuth.getCurrentUserId());
 
             analytics.trackEvent(new AnalyticsEventApplicationOpened(String.valueOf(mConfiguration.getApplicationID())));
 
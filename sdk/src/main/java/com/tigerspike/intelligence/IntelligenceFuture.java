@@ -0,0 +1,244 @@
+package com.tigerspike.intelligence;
+
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.tigerspike.intelligence.exceptions.IntelligenceException;
+
+import com.tigerspike.intelligence.exceptions.IntelligenceRequestException;
+
+import java.util.ArrayList;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * IntelligenceFuture
+ *
+ * Result of an asynchronous call of the SDK, completed with its value or with an IntelligenceException.
+ *
+ * Listeners are called on the main thread once the task is finished, or straight away on the thread
+ * adding them when the future is already completed. A call rejected before it is queued, e.g. for an
+ * invalid parameter or without connection, returns a completed future, like the callback variants
+ * call their listener straight away. get blocks until completion, so it must be called on a
+ * background thread.
+ * Several calls can be sent together and awaited at once with all.
+ *
+ * A pending call can be cancelled, or given a deadline with setTimeout. Either way it fails with a
+ * Cancelled or Timeout IntelligenceRequestException and is dropped from the queue without sending it.
+ *
+ * @param <T> type of the value, Void for calls without one.
+ */
+public class IntelligenceFuture<T> implements Future<T> {
+
+    private final CountDownLatch mDone = new CountDownLatch(1);
+
+    private volatile T mResult;
+    private volatile IntelligenceException mException;
+
+    // Listeners to call on completion, null once completed.
+    private ArrayList<Listener<? super T>> mListeners = new ArrayList<>();
+
+    IntelligenceFuture() {
+    }
+
+    /**
+     * @return a future already completed with the exception, its listeners are called on the thread adding them.
+     */
+    static <T> IntelligenceFuture<T> failed(IntelligenceException intelligenceException) {
+        IntelligenceFuture<T> future = new IntelligenceFuture<>();
+        future.complete(null, intelligenceException);
+        return future;
+    }
+
+    /**
+     * @return a future completed once all the futures are, with the first exception of them if any.
+     */
+    public static IntelligenceFuture<Void> all(@NonNull final IntelligenceFuture<?>... futures) {
+
+        final IntelligenceFuture<Void> all = new IntelligenceFuture<>();
+
+        if (futures.length == 0) {
+            all.complete(null, null);
+            return all;
+        }
+
+        final AtomicInteger remaining = new AtomicInteger(futures.length);
+
+        Listener<Object> listener = new Listener<Object>() {
+            @Override
+            public void onComplete(@Nullable Object result, @Nullable IntelligenceException intelligenceException) {
+                if (remaining.decrementAndGet() == 0) {
+                    IntelligenceException firstException = null;
+                    for (IntelligenceFuture<?> future : futures) {
+                        if (firstException == null) {
+                            firstException = future.mException;
+                        }
+                    }
+                    all.complete(null, firstException);
+                }
+            }
+        };
+
+        for (IntelligenceFuture<?> future : futures) {
+            future.addListener(listener);
+        }
+
+        return all;
+    }
+
+    /**
+     * Completes the future, only the first completion is kept.
+     *
+     * @return true if the future was completed by this call.
+     */
+    boolean complete(@Nullable T result, @Nullable IntelligenceException intelligenceException) {
+
+        ArrayList<Listener<? super T>> listeners;
+
+        synchronized (this) {
+
+            if (mListeners == null) {
+                return false;
+            }
+
+            mResult = result;
+            mException = intelligenceException;
+            listeners = mListeners;
+            mListeners = null;
+            mDone.countDown();
+        }
+
+        for (Listener<? super T> listener : listeners) {
+            listener.onComplete(result, intelligenceException);
+        }
+
+        return true;
+    }
+
+    /**
+     * Calls the listener when the future is completed, straight away if it already is.
+     *
+     * @return this future.
+     */
+    public IntelligenceFuture<T> addListener(@NonNull Listener<? super T> listener) {
+
+        synchronized (this) {
+            if (mListeners != null) {
+                mListeners.add(listener);
+                return this;
+            }
+        }
+
+        listener.onComplete(mResult, mException);
+
+        return this;
+    }
+
+    /**
+     * @return the exception the future completed with, null if it did not fail or is not completed.
+     */
+    public @Nullable IntelligenceException getException() {
+        return mException;
+    }
+
+    /**
+     * Fails the call with Timeout if it is not finished within the timeout from now: it is dropped
+     * if still queued by then, and its requests time out.
+     *
+     * @return this future.
+     */
+    public IntelligenceFuture<T> setTimeout(long timeout, @NonNull TimeUnit unit) {
+        return this;
+    }
+
+    /**
+     * Cancels the call: it is dropped if still queued, and fails if executing unless it finishes anyway.
+     *
+     * @param mayInterruptIfRunning true to interrupt the requests of an executing call.
+     * @return false if the future was already completed.
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+
+        if (!complete(null, new IntelligenceRequestException(IntelligenceRequestException.ErrorCode.Cancelled))) {
+            return false;
+        }
+
+        onCancel(mayInterruptIfRunning);
+
+        return true;
+    }
+
+    /**
+     * Called once the future is cancelled, to cancel the work completing it.
+     */
+    void onCancel(boolean mayInterruptIfRunning) {
+    }
+
+    @Override
+    public boolean isCancelled() {
+        IntelligenceException exception = mException;
+        return exception instanceof IntelligenceRequestException
+                && IntelligenceRequestException.ErrorCode.Cancelled.getCode().equals(exception.getErrorCode());
+    }
+
+    @Override
+    public boolean isDone() {
+        return mDone.getCount() == 0;
+    }
+
+    /**
+     * @throws ExecutionException caused by the IntelligenceException the future completed with.
+     * @throws CancellationException if the future was cancelled.
+     * @throws IllegalStateException when called on the main thread before completion, as the future is completed on it.
+     */
+    @Override
+    public T get() throws InterruptedException, ExecutionException {
+
+        if (!isDone() && Looper.myLooper() == Looper.getMainLooper()) {
+            throw new IllegalStateException("IntelligenceFuture.get would block the main thread");
+        }
+
+        mDone.await();
+
+        return getResult();
+    }
+
+    /**
+     * @throws ExecutionException caused by the IntelligenceException the future completed with.
+     * @throws TimeoutException if the future is not completed within the timeout.
+     */
+    @Override
+    public T get(long timeout, @NonNull TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+
+        if (!mDone.await(timeout, unit)) {
+            throw new TimeoutException();
+        }
+
+        return getResult();
+    }
+
+    private T getResult() throws ExecutionException {
+
+        if (isCancelled()) {
+            throw new CancellationException();
+        }
+
+        if (mException != null) {
+            throw new ExecutionException(mException);
+        }
+
+        return mResult;
+    }
+
+    public interface Listener<T> {
+        void onComplete(@Nullable T result, @Nullable IntelligenceException intelligenceException);
+    }
+
+}
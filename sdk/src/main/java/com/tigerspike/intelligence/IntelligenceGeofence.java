@@ -1,18 +1,35 @@
 package com.tigerspike.intelligence;
 
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.IOException;
+
+/**
+ * IntelligenceGeofence
+ *
+ * Immutable geofence. Values are kept as primitives, missing values are stored as NO_VALUE for
+ * IDs and NaN for coordinates and radius. The boxed getters return null for missing values,
+ * the primitive getters return the sentinels.
+ */
 public final class IntelligenceGeofence
 {
-    private Double mLongitude;
-    private Double mLatitude;
-    private Integer mId;
-    private Integer mProjectId;
-    private String mName;
-    private String mAddress;
-    private Double mRadius;
-    private String mTags;
+    /**
+     * Value of the primitive ID getters when the value is missing.
+     * */
+    public static final int NO_VALUE = Integer.MIN_VALUE;
+
+    private final double mLongitude;
+    private final double mLatitude;
+    private final int mId;
+    private final int mProjectId;
+    private final String mName;
+    private final String mAddress;
+    private final double mRadius;
+    private final String mTags;
 
     /**
      *
@@ -37,32 +54,47 @@ public final class IntelligenceGeofence
      * */
     public IntelligenceGeofence(JSONObject jsonObject) throws JSONException {
 
-        mId = (JSONUtils.getInteger(jsonObject, GEOFENCE_ID_KEY, null));
-        mProjectId = (JSONUtils.getInteger(jsonObject, GEOFENCE_PROJECT_ID_KEY, null));
-        mName = (JSONUtils.getString(jsonObject, GEOFENCE_NAME_KEY, null));
-        mAddress = (JSONUtils.getString(jsonObject, GEOFENCE_ADDRESS_KEY, null));
-        mRadius = (JSONUtils.getDouble(jsonObject, GEOFENCE_RADIUS_KEY, null));
+        mId = JSONUtils.optInt(jsonObject, GEOFENCE_ID_KEY, NO_VALUE);
+        mProjectId = JSONUtils.optInt(jsonObject, GEOFENCE_PROJECT_ID_KEY, NO_VALUE);
+        mName = JSONUtils.optString(jsonObject, GEOFENCE_NAME_KEY);
+        mAddress = JSONUtils.optString(jsonObject, GEOFENCE_ADDRESS_KEY);
+        mRadius = JSONUtils.optDouble(jsonObject, GEOFENCE_RADIUS_KEY, Double.NaN);
 
         JSONObject geolocation = jsonObject.getJSONObject(GEOFENCE_GEOLOCATION_KEY);
-        mLatitude = (JSONUtils.getDouble(geolocation, GEOFENCE_LATITUDE_KEY, null));
-        mLongitude = (JSONUtils.getDouble(geolocation, GEOFENCE_LONGITUDE_KEY, null));
+        mLatitude = JSONUtils.optDouble(geolocation, GEOFENCE_LATITUDE_KEY, Double.NaN);
+        mLongitude = JSONUtils.optDouble(geolocation, GEOFENCE_LONGITUDE_KEY, Double.NaN);
 
-        mTags = (JSONUtils.getString(jsonObject, GEOFENCE_TAGS_KEY, null));
+        mTags = JSONUtils.optString(jsonObject, GEOFENCE_TAGS_KEY);
+    }
+
+    /**
+     * Constructs Geofence object from already parsed values, e.g. from the geofence cache.
+     * Missing values are passed as NO_VALUE, NaN or null.
+     * */
+    IntelligenceGeofence(int id, int projectId, String name, String address, double latitude, double longitude, double radius, String tags) {
+        mId = id;
+        mProjectId = projectId;
+        mName = name;
+        mAddress = address;
+        mLatitude = latitude;
+        mLongitude = longitude;
+        mRadius = radius;
+        mTags = tags;
     }
 
     public JSONObject toJSONObject() throws JSONException{
 
         JSONObject jsonObject = new JSONObject();
 
-        jsonObject.put(GEOFENCE_ID_KEY, mId);
-        jsonObject.put(GEOFENCE_PROJECT_ID_KEY, mProjectId);
+        jsonObject.put(GEOFENCE_ID_KEY, getId());
+        jsonObject.put(GEOFENCE_PROJECT_ID_KEY, getProjectId());
         jsonObject.put(GEOFENCE_NAME_KEY, mName);
         jsonObject.put(GEOFENCE_ADDRESS_KEY, mAddress);
-        jsonObject.put(GEOFENCE_RADIUS_KEY, mRadius);
+        jsonObject.put(GEOFENCE_RADIUS_KEY, getRadius());
 
         JSONObject geolocation = new JSONObject();
-        geolocation.put(GEOFENCE_LATITUDE_KEY, mLatitude);
-        geolocation.put(GEOFENCE_LONGITUDE_KEY, mLongitude);
+        geolocation.put(GEOFENCE_LATITUDE_KEY, getLatitude());
+        geolocation.put(GEOFENCE_LONGITUDE_KEY, getLongitude());
         jsonObject.put(GEOFENCE_GEOLOCATION_KEY, geolocation);
 
         jsonObject.put(GEOFENCE_TAGS_KEY, mTags);
@@ -72,11 +104,7 @@ public final class IntelligenceGeofence
     }
 
     public String toJSONString()  {
-        String result = null;
-        try {
-            result = toJSONObject().toString();
-        } catch (JSONException ignore) {}
-        return result;
+        return JsonCodecs.toJson(this, CODEC);
     }
 
     /**
@@ -85,33 +113,116 @@ public final class IntelligenceGeofence
      * @param json - String object containing single Geofence object description in JSON format.
      * */
     public IntelligenceGeofence(String json) throws JSONException {
-        this(new JSONObject(json));
+        this(JsonCodecs.fromJson(json, CODEC));
+    }
+
+    private IntelligenceGeofence(IntelligenceGeofence geofence) {
+        this(geofence.mId, geofence.mProjectId, geofence.mName, geofence.mAddress,
+                geofence.mLatitude, geofence.mLongitude, geofence.mRadius, geofence.mTags);
     }
 
+    /**
+     * Streaming codec, reads the same JSON as the JSONObject constructor and writes the same JSON as toJSONObject.
+     * */
+    static final JsonCodec<IntelligenceGeofence> CODEC = new JsonCodec<IntelligenceGeofence>() {
+
+        @Override
+        public IntelligenceGeofence read(JsonReader reader) throws IOException {
+
+            int id = NO_VALUE;
+            int projectId = NO_VALUE;
+            String name = null;
+            String address = null;
+            double latitude = Double.NaN;
+            double longitude = Double.NaN;
+            double radius = Double.NaN;
+            String tags = null;
+            boolean hasGeolocation = false;
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String key = reader.nextName();
+                if (GEOFENCE_ID_KEY.equals(key)) {
+                    id = JsonCodecs.nextInt(reader, NO_VALUE);
+                } else if (GEOFENCE_PROJECT_ID_KEY.equals(key)) {
+                    projectId = JsonCodecs.nextInt(reader, NO_VALUE);
+                } else if (GEOFENCE_NAME_KEY.equals(key)) {
+                    name = JsonCodecs.nextString(reader);
+                } else if (GEOFENCE_ADDRESS_KEY.equals(key)) {
+                    address = JsonCodecs.nextString(reader);
+                } else if (GEOFENCE_RADIUS_KEY.equals(key)) {
+                    radius = JsonCodecs.nextDouble(reader, Double.NaN);
+                } else if (GEOFENCE_TAGS_KEY.equals(key)) {
+                    tags = JsonCodecs.nextString(reader);
+                } else if (GEOFENCE_GEOLOCATION_KEY.equals(key)) {
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        String geolocationKey = reader.nextName();
+                        if (GEOFENCE_LATITUDE_KEY.equals(geolocationKey)) {
+                            latitude = JsonCodecs.nextDouble(reader, Double.NaN);
+                        } else if (GEOFENCE_LONGITUDE_KEY.equals(geolocationKey)) {
+                            longitude = JsonCodecs.nextDouble(reader, Double.NaN);
+                        } else {
+                            reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                    hasGeolocation = true;
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            if (!hasGeolocation) {
+                throw new IOException("No value for " + GEOFENCE_GEOLOCATION_KEY);
+            }
+
+            return new IntelligenceGeofence(id, projectId, name, address, latitude, longitude, radius, tags);
+        }
+
+        @Override
+        public void write(JsonWriter writer, IntelligenceGeofence geofence) throws IOException {
+            writer.beginObject();
+            writer.name(GEOFENCE_ID_KEY).value(geofence.getId());
+            writer.name(GEOFENCE_PROJECT_ID_KEY).value(geofence.getProjectId());
+            writer.name(GEOFENCE_NAME_KEY).value(geofence.mName);
+            writer.name(GEOFENCE_ADDRESS_KEY).value(geofence.mAddress);
+            writer.name(GEOFENCE_RADIUS_KEY).value(geofence.getRadius());
+            writer.name(GEOFENCE_GEOLOCATION_KEY).beginObject();
+            writer.name(GEOFENCE_LATITUDE_KEY).value(geofence.getLatitude());
+            writer.name(GEOFENCE_LONGITUDE_KEY).value(geofence.getLongitude());
+            writer.endObject();
+            writer.name(GEOFENCE_TAGS_KEY).value(geofence.mTags);
+            writer.endObject();
+        }
+
+    };
+
     /**
      * Public getters
      * */
     public Double getLongitude()
     {
-        return mLongitude;
+        return Double.isNaN(mLongitude) ? null : mLongitude;
     }
 
 
     public Double getLatitude()
     {
-        return mLatitude;
+        return Double.isNaN(mLatitude) ? null : mLatitude;
     }
 
 
     public Integer getId()
     {
-        return mId;
+        return mId == NO_VALUE ? null : mId;
     }
 
 
     public Integer getProjectId()
     {
-        return mProjectId;
+        return mProjectId == NO_VALUE ? null : mProjectId;
     }
 
 
@@ -128,10 +239,81 @@ public final class IntelligenceGeofence
 
     public Double getRadius()
     {
-        return mRadius;
+        return Double.isNaN(mRadius) ? null : mRadius;
     }
 
     public String getTags() {
         return mTags;
     }
+
+    /**
+     * Primitive getters, they don't allocate and return NO_VALUE or NaN for missing values.
+     * */
+    public double getLongitudeValue() {
+        return mLongitude;
+    }
+
+    public double getLatitudeValue() {
+        return mLatitude;
+    }
+
+    public int getIdValue() {
+        return mId;
+    }
+
+    public int getProjectIdValue() {
+        return mProjectId;
+    }
+
+    public double getRadiusValue() {
+        return mRadius;
+    }
+
+    /**
+     * @return true if the geofence has an id and a valid circular region, and can be monitored.
+     * */
+    boolean hasRegion() {
+        return mId != NO_VALUE
+                && mLatitude >= -90 && mLatitude <= 90
+                && mLongitude >= -180 && mLongitude <= 180
+                && mRadius > 0;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+
+        if (this == object) {
+            return true;
+        }
+
+        if (!(object instanceof IntelligenceGeofence)) {
+            return false;
+        }
+
+        IntelligenceGeofence geofence = (IntelligenceGeofence) object;
+
+        return mId == geofence.mId
+                && mProjectId == geofence.mProjectId
+                && Double.compare(mLatitude, geofence.mLatitude) == 0
+                && Double.compare(mLongitude, geofence.mLongitude) == 0
+                && Double.compare(mRadius, geofence.mRadius) == 0
+                && stringsEqual(mName, geofence.mName)
+                && stringsEqual(mAddress, geofence.mAddress)
+                && stringsEqual(mTags, geofence.mTags);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = mId;
+        result = 31 * result + mProjectId;
+        long bits = Double.doubleToLongBits(mLatitude);
+        result = 31 * result + (int) (bits ^ (bits >>> 32));
+        bits = Double.doubleToLongBits(mLongitude);
+        result = 31 * result + (int) (bits ^ (bits >>> 32));
+        return result;
+    }
+
+    private static boolean stringsEqual(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
 }
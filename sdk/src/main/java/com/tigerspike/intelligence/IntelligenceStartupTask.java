@@ -4,12 +4,13 @@ import com.tigerspike.intelligence.exceptions.IntelligenceAuthenticationExceptio
 import com.tigerspike.intelligence.exceptions.IntelligenceException;
 import com.tigerspike.intelligence.exceptions.IntelligenceParseException;
 
-import org.json.JSONArray;
 import org.json.JSONException;
-import org.json.JSONObject;
 
 public class IntelligenceStartupTask extends IntelligenceTask {
 
+    // Attempts to create the SDK user with a new random user name and password.
+    private static final int MAX_CREATE_USER_ATTEMPTS = 5;
+
     private OAuth mOAuth;
     private Integer mSDKUserRole;
     private Integer mCompanyId;
@@ -37,7 +38,7 @@ public class IntelligenceStartupTask extends IntelligenceTask {
 
                     if (isSuccess(response)) {
                         try {
-                            return new AuthenticationToken(response.bodyData());
+                            return response.read(AuthenticationToken.CODEC);
                         } catch (JSONException e) {
                             return null;
                         }
@@ -73,7 +74,7 @@ public class IntelligenceStartupTask extends IntelligenceTask {
         AuthenticationToken authenticationToken = mOAuth.getApplicationUserToken();
 
         User user;
-        int retries = 5;
+        int retries = MAX_CREATE_USER_ATTEMPTS;
 
         String password;
 
@@ -83,13 +84,17 @@ public class IntelligenceStartupTask extends IntelligenceTask {
 
             Response response = mOAuth.createCreateUserRequest(authenticationToken, user).execute();
 
+            // Server and connection errors end the attempts, the TaskExecutor retries them with a
+            // backoff if the user could not have been created. Only retry at once the rejected random users.
+            if (RetryPolicy.isRetryable(response.code())) {
+                throw new IntelligenceException("Could not create and SDK User account.").addCause(response.exception());
+            }
+
             if (isSuccess(response)) {
 
                 try {
 
-                    JSONObject jsonObject = JSONUtils.parseSimpleJSONObject(response.bodyData());
-                    JSONArray jsonArray = jsonObject.getJSONArray("Data");
-                    user = new User(jsonArray.getJSONObject(0));
+                    user = response.readFirstData(User.CODEC);
                     user.setPassword(password);
                     if (user.getUserId() == null) {
                         user = null;
@@ -137,7 +142,7 @@ public class IntelligenceStartupTask extends IntelligenceTask {
         if (isSuccess(response)) {
 
             try {
-                authenticationToken = new AuthenticationToken(response.bodyData());
+                authenticationToken = response.read(AuthenticationToken.CODEC);
             } catch (JSONException e) {
                 throw(new IntelligenceException("Could not create SDK User token.").addCause(e));
             }
@@ -160,7 +165,7 @@ public class IntelligenceStartupTask extends IntelligenceTask {
         if (isSuccess(response)) {
 
             try {
-                AuthenticationToken authenticationToken = new AuthenticationToken(response.bodyData());
+                AuthenticationToken authenticationToken = response.read(AuthenticationToken.CODEC);
                 if ( authenticationToken != null ) {
                     mOAuth.setApplicationUserToken(authenticationToken);
                 }
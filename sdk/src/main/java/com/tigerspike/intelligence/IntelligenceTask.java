@@ -3,6 +3,10 @@ package com.tigerspike.intelligence;
 import com.tigerspike.intelligence.exceptions.IntelligenceException;
 import com.tigerspike.intelligence.exceptions.IntelligenceRequestException;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 abstract class IntelligenceTask implements Cloneable {
 
     private boolean mAutoRefreshToken = true;
@@ -10,6 +14,23 @@ abstract class IntelligenceTask implements Cloneable {
     // OAuth object is used for  validate and refresh token request creation on handleUnauthorizedError method
     // Please read the handleUnauthorizedError documentation for a full explanation of the default behavior.
     private OAuth mOAuth;
+    // Set by TaskExecutor.addTask, System.nanoTime() when the task was queued.
+    long mEnqueuedAt;
+    // Number of times the TaskExecutor retried the task after a retryable failure.
+    int mRetryCount;
+    // Set by TaskExecutor when the network did not allow the task, System.nanoTime() when it was first deferred, 0 if never.
+    long mDeferredAt;
+
+    // Task executing on the current thread, its deadline bounds the timeouts of the requests it sends.
+    private static final ThreadLocal<IntelligenceTask> sExecutingTask = new ThreadLocal<>();
+
+    private volatile boolean mCancelled;
+    // System.nanoTime() after which the task is dropped, 0 for none.
+    private volatile long mDeadline;
+    // Thread executing the task, interrupted when it is cancelled.
+    private Thread mThread;
+    // Identical tasks queued while this one was pending, notified with its result instead of executing.
+    private ArrayList<IntelligenceTask> mCoalescedTasks;
 
     // IntelligenceTask should be not initialized itself cause is used only as a root class for all the tasks in Intelligence SDK
     IntelligenceTask() {
@@ -27,6 +48,93 @@ abstract class IntelligenceTask implements Cloneable {
         return mAutoRefreshToken;
     }
 
+    /**
+     * Cancels the task: a queued task is dropped, an executing one fails unless it finishes anyway.
+     *
+     * @param interrupt true to interrupt the thread executing the task.
+     */
+    void cancel(boolean interrupt) {
+        mCancelled = true;
+        synchronized (this) {
+            if (interrupt && mThread != null) {
+                mThread.interrupt();
+            }
+        }
+    }
+
+    boolean isCancelled() {
+        return mCancelled;
+    }
+
+    /**
+     * Sets the time the task may wait in the queue and execute, from now on.
+     */
+    void setTimeout(long timeoutMillis) {
+        mDeadline = System.nanoTime() + timeoutMillis * 1000000;
+    }
+
+    /**
+     * @return the exception to fail the task with when it was cancelled or its deadline passed, null otherwise.
+     */
+    IntelligenceException staleException() {
+
+        if (mCancelled) {
+            return new IntelligenceRequestException(IntelligenceRequestException.ErrorCode.Cancelled);
+        }
+
+        if (remainingMillis() == 0) {
+            return new IntelligenceRequestException(IntelligenceRequestException.ErrorCode.Timeout);
+        }
+
+        return null;
+    }
+
+    /**
+     * @return milliseconds before the deadline of the task, 0 if passed, -1 if it has none.
+     */
+    long remainingMillis() {
+        long deadline = mDeadline;
+        return deadline == 0 ? -1 : Math.max(0, (deadline - System.nanoTime()) / 1000000);
+    }
+
+    /**
+     * Called by the TaskExecutor on the thread about to execute the task.
+     */
+    void onExecuteStart() {
+        synchronized (this) {
+            mThread = Thread.currentThread();
+        }
+        sExecutingTask.set(this);
+    }
+
+    /**
+     * Called by the TaskExecutor on the thread that executed the task, before it executes another one.
+     */
+    void onExecuteEnd() {
+        synchronized (this) {
+            mThread = null;
+        }
+        sExecutingTask.remove();
+        // Clear an interrupt of a cancel racing with the end of the task.
+        Thread.interrupted();
+    }
+
+    /**
+     * @return the timeout of a blocking call of the task executing on this thread, at most defaultMillis.
+     */
+    static int timeoutMillis(int defaultMillis) {
+
+        IntelligenceTask task = sExecutingTask.get();
+        long remainingMillis = task == null ? -1 : task.remainingMillis();
+
+        if (remainingMillis < 0) {
+            return defaultMillis;
+        }
+
+        // 0 is no timeout for sockets, a passed deadline fails at once instead.
+        return (int) Math.max(1, Math.min(defaultMillis, remainingMillis));
+    }
+
     // To be executed on Main thread
     void onPreExecute() {
     }
@@ -46,6 +154,74 @@ abstract class IntelligenceTask implements Cloneable {
     // To be executed on Seperate thread
     abstract void execute() throws Exception;
 
+    /**
+     * @return the networks the task can be executed on, Any by default: interactive calls are never deferred.
+     */
+    NetworkRequirement networkRequirement() {
+        return NetworkRequirement.Any;
+    }
+
+    /**
+     * @return key of the read-only call of the task: an identical task of the same class queued while
+     * this one is pending is not executed, it gets the result of this one. Null by default, to always
+     * execute the task.
+     */
+    String coalesceKey() {
+        return null;
+    }
+
+    /**
+     * Notifies the identical task, and the ones coalesced with it, with the result of this task.
+     */
+    void coalesce(IntelligenceTask task) {
+
+        if (mCoalescedTasks == null) {
+            mCoalescedTasks = new ArrayList<>();
+        }
+
+        mCoalescedTasks.add(task);
+        mCoalescedTasks.addAll(task.takeCoalescedTasks());
+    }
+
+    /**
+     * @return the tasks coalesced with this one, which are not notified by it anymore.
+     */
+    List<IntelligenceTask> takeCoalescedTasks() {
+
+        List<IntelligenceTask> coalescedTasks = mCoalescedTasks;
+        mCoalescedTasks = null;
+
+        return coalescedTasks != null ? coalescedTasks : Collections.<IntelligenceTask>emptyList();
+    }
+
+    /**
+     * Called instead of onPostExecute when the task this one was coalesced with finished.
+     *
+     * @param task the identical task that was executed.
+     */
+    void onCoalescedFinish(IntelligenceTask task) {
+        if (mTaskListener != null) {
+            mTaskListener.onTaskFinish(task);
+        }
+    }
+
+    /**
+     * @return the value a TaskFuture listening to the task is completed with, null by default.
+     */
+    Object result() {
+        return null;
+    }
+
+    /**
+     * Networks a task can be executed on, see NetworkQuality.allows.
+     */
+    enum NetworkRequirement {
+        // Any connected network.
+        Any,
+        // An unmetered network, or a metered one which is not poor. Deferred for at most TaskExecutor.MAX_DEFERRAL_MS otherwise.
+        UnmeteredOrGood
+    }
+
     interface TaskListener {
         void onTaskFinish(IntelligenceTask intelligenceTask);
 
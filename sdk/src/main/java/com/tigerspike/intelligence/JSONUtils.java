@@ -3,6 +3,12 @@ package com.tigerspike.intelligence;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+/**
+ * JSONUtils
+ *
+ * Typed accessors for JSONObject values. They look values up with opt, so absent keys never
+ * throw, and they only hand strings to the number parsers when they look like numbers.
+ */
 final class JSONUtils {
 
     public static JSONObject parseSimpleJSONObject(String json) {
@@ -22,42 +28,42 @@ final class JSONUtils {
         return getBoolean(jsonObject, name, null);
     }
 
+    /**
+     * @return true if the value is true or "true" (ignoring case), false for any other present value
+     * and defaultValue if the value is absent.
+     */
     public static Boolean getBoolean(JSONObject jsonObject, String name, Boolean defaultValue) {
 
-        try {
-            return Boolean.valueOf(jsonObject.getString(name));
-        } catch (Exception exception) {
+        String value = optString(jsonObject, name);
+
+        if (value == null) {
             return defaultValue;
         }
 
+        return Boolean.valueOf(value);
+
     }
 
     public static Integer getInteger(JSONObject jsonObject, String name) {
         return getInteger(jsonObject, name, null);
     }
 
+    /**
+     * @return the value parsed as an Integer, or defaultValue if the value is absent or not an integer.
+     */
     public static Integer getInteger(JSONObject jsonObject, String name, Integer defaultValue) {
-
-        try {
-            return Integer.valueOf(jsonObject.getString(name));
-        } catch (Exception exception) {
-            return defaultValue;
-        }
-
+        return parseInteger(optString(jsonObject, name), defaultValue);
     }
 
     public static Double getDouble(JSONObject jsonObject, String name) {
         return getDouble(jsonObject, name, null);
     }
 
+    /**
+     * @return the value parsed as a Double, or defaultValue if the value is absent or not a number.
+     */
     public static Double getDouble(JSONObject jsonObject, String name, Double defaultValue) {
-
-        try {
-            return Double.valueOf(jsonObject.getString(name));
-        } catch (Exception exception) {
-            return defaultValue;
-        }
-
+        return parseDouble(optString(jsonObject, name), defaultValue);
     }
 
     public static String getString(JSONObject jsonObject, String name) {
@@ -66,12 +72,149 @@ final class JSONUtils {
 
     public static String getString(JSONObject jsonObject, String name, String defaultValue) {
 
+        String value = optString(jsonObject, name);
+
+        return value == null ? defaultValue : value;
+
+    }
+
+    /**
+     * Primitive version of getInteger that does not allocate for JSON numbers.
+     *
+     * @return the value as an int, or defaultValue if the value is absent or not a number.
+     */
+    public static int optInt(JSONObject jsonObject, String name, int defaultValue) {
+
+        Object value = jsonObject.opt(name);
+
+        if (value instanceof Number) {
+            return ((Number) value).intValue();
+        }
+
+        if (value instanceof String && isInteger((String) value)) {
+            try {
+                return Integer.parseInt((String) value);
+            } catch (NumberFormatException ignore) {}
+        }
+
+        return defaultValue;
+    }
+
+    /**
+     * Primitive version of getDouble that does not allocate for JSON numbers.
+     *
+     * @return the value as a double, or defaultValue if the value is absent or not a number.
+     */
+    public static double optDouble(JSONObject jsonObject, String name, double defaultValue) {
+
+        Object value = jsonObject.opt(name);
+
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+
+        if (value instanceof String && isDecimal((String) value)) {
+            try {
+                return Double.parseDouble((String) value);
+            } catch (NumberFormatException ignore) {}
+        }
+
+        return defaultValue;
+    }
+
+    /**
+     * @return the value as a String, or null if the value is absent or JSON null.
+     */
+    public static String optString(JSONObject jsonObject, String name) {
+
+        Object value = jsonObject.opt(name);
+
+        if (value == null || value == JSONObject.NULL) {
+            return null;
+        }
+
+        return value instanceof String ? (String) value : value.toString();
+    }
+
+    /**
+     * @return value parsed as an Integer, or defaultValue if value is null or not an integer.
+     */
+    static Integer parseInteger(String value, Integer defaultValue) {
+
+        if (!isInteger(value)) {
+            return defaultValue;
+        }
+
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException exception) {
+            // Out of range.
+            return defaultValue;
+        }
+    }
+
+    /**
+     * @return value parsed as a Double, or defaultValue if value is null or not a number.
+     */
+    static Double parseDouble(String value, Double defaultValue) {
+
+        if (!isDecimal(value)) {
+            return defaultValue;
+        }
+
         try {
-            return jsonObject.getString(name);
-        } catch (Exception exception) {
+            return Double.valueOf(value);
+        } catch (NumberFormatException exception) {
             return defaultValue;
         }
+    }
+
+    /**
+     * @return true if value is an optional sign followed by digits only.
+     */
+    private static boolean isInteger(String value) {
+
+        if (value == null || value.isEmpty()) {
+            return false;
+        }
+
+        int start = (value.charAt(0) == '-' || value.charAt(0) == '+') ? 1 : 0;
+
+        if (start == value.length()) {
+            return false;
+        }
+
+        for (int i = start; i < value.length(); i++) {
+            char character = value.charAt(i);
+            if (character < '0' || character > '9') {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @return true if value only contains characters of a decimal number, e.g. "-1.5e3".
+     */
+    private static boolean isDecimal(String value) {
+
+        if (value == null || value.isEmpty()) {
+            return false;
+        }
+
+        boolean hasDigit = false;
+
+        for (int i = 0; i < value.length(); i++) {
+            char character = value.charAt(i);
+            if (character >= '0' && character <= '9') {
+                hasDigit = true;
+            } else if (character != '-' && character != '+' && character != '.' && character != 'e' && character != 'E') {
+                return false;
+            }
+        }
 
+        return hasDigit;
     }
 
 }
@@ -0,0 +1,36 @@
+package com.tigerspike.intelligence;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * JsonCodec
+ *
+ * Streaming reader and writer of a model, used instead of building JSONObject trees.
+ * See JsonCodecs for the helpers to read and write strings and lists.
+ *
+ * @param <T> the model type.
+ */
+interface JsonCodec<T> {
+
+    /**
+     * Reads the value the reader is positioned at.
+     *
+     * @param reader the reader.
+     * @return the model.
+     * @throws IOException if the JSON is malformed or misses a required value.
+     */
+    T read(JsonReader reader) throws IOException;
+
+    /**
+     * Writes value as a JSON object.
+     *
+     * @param writer the writer.
+     * @param value the model to write.
+     * @throws IOException if the writer fails.
+     */
+    void write(JsonWriter writer, T value) throws IOException;
+
+}
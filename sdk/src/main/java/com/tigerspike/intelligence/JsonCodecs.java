@@ -0,0 +1,253 @@
+package com.tigerspike.intelligence;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import org.json.JSONException;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JsonCodecs
+ *
+ * Helpers to read and write models with their JsonCodec, and lenient value readers that follow
+ * the same rules as JSONUtils: numbers may be sent as JSON numbers or strings, and JSON null
+ * is treated as an absent value.
+ *
+ * Parse errors are reported as JSONException so callers handle them like the org.json errors.
+ */
+final class JsonCodecs {
+
+    /**
+     * Key of the list returned by the Intelligence API in every response.
+     */
+    static final String KEY_DATA = "Data";
+
+    private JsonCodecs() {
+    }
+
+    /**
+     * Reads a single model from json.
+     */
+    static <T> T fromJson(String json, JsonCodec<T> codec) throws JSONException {
+
+        JsonReader reader = createReader(json);
+
+        try {
+            return codec.read(reader);
+        } catch (IOException | RuntimeException exception) {
+            throw parseException(exception);
+        }
+    }
+
+    /**
+     * Reads a JSON array of models.
+     */
+    static <T> List<T> listFromJson(String json, JsonCodec<T> codec) throws JSONException {
+
+        JsonReader reader = createReader(json);
+
+        try {
+            return readList(reader, codec);
+        } catch (IOException | RuntimeException exception) {
+            throw parseException(exception);
+        }
+    }
+
+    /**
+     * Reads the models of the "Data" array of an API response, skipping the rest of the response.
+     *
+     * @throws JSONException if the JSON is malformed or there is no "Data" array.
+     */
+    static <T> List<T> dataFromJson(String json, JsonCodec<T> codec) throws JSONException {
+
+        JsonReader reader = createReader(json);
+
+        try {
+            List<T> data = null;
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (KEY_DATA.equals(reader.nextName()) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                    data = readList(reader, codec);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            if (data == null) {
+                throw new JSONException("No value for " + KEY_DATA);
+            }
+
+            return data;
+
+        } catch (IOException | RuntimeException exception) {
+            throw parseException(exception);
+        }
+    }
+
+    /**
+     * @return value written as a JSON object, null values are omitted.
+     */
+    static <T> String toJson(T value, JsonCodec<T> codec) {
+
+        StringWriter stringWriter = new StringWriter();
+
+        try {
+            codec.write(createWriter(stringWriter), value);
+        } catch (IOException e) {
+            // Can't happen, StringWriter does not throw.
+            throw new IllegalStateException(e);
+        }
+
+        return stringWriter.toString();
+    }
+
+    /**
+     * @return values written as a JSON array of objects.
+     */
+    static <T> String listToJson(List<? extends T> values, JsonCodec<T> codec) {
+
+        StringWriter stringWriter = new StringWriter();
+
+        try {
+            writeList(createWriter(stringWriter), values, codec);
+        } catch (IOException e) {
+            // Can't happen, StringWriter does not throw.
+            throw new IllegalStateException(e);
+        }
+
+        return stringWriter.toString();
+    }
+
+    static <T> List<T> readList(JsonReader reader, JsonCodec<T> codec) throws IOException {
+
+        List<T> values = new ArrayList<>();
+
+        reader.beginArray();
+        while (reader.hasNext()) {
+            values.add(codec.read(reader));
+        }
+        reader.endArray();
+
+        return values;
+    }
+
+    static <T> void writeList(JsonWriter writer, List<? extends T> values, JsonCodec<T> codec) throws IOException {
+
+        writer.beginArray();
+        for (T value : values) {
+            codec.write(writer, value);
+        }
+        writer.endArray();
+    }
+
+    // Value readers.
+
+    /**
+     * @return the next value as a string, or null for JSON null, objects and arrays.
+     */
+    static String nextString(JsonReader reader) throws IOException {
+
+        switch (reader.peek()) {
+            case STRING:
+            case NUMBER:
+                return reader.nextString();
+            case BOOLEAN:
+                return String.valueOf(reader.nextBoolean());
+            case NULL:
+                reader.nextNull();
+                return null;
+            default:
+                reader.skipValue();
+                return null;
+        }
+    }
+
+    /**
+     * @return the next value as an Integer, or defaultValue if it is null or not an integer.
+     */
+    static Integer nextInteger(JsonReader reader, Integer defaultValue) throws IOException {
+        return JSONUtils.parseInteger(nextString(reader), defaultValue);
+    }
+
+    /**
+     * @return the next value as an int, or defaultValue if it is null or not a number.
+     * JSON numbers with decimals are truncated.
+     */
+    static int nextInt(JsonReader reader, int defaultValue) throws IOException {
+
+        boolean isNumber = reader.peek() == JsonToken.NUMBER;
+        String value = nextString(reader);
+
+        Integer integer = JSONUtils.parseInteger(value, null);
+
+        if (integer != null) {
+            return integer;
+        }
+
+        if (isNumber) {
+            Double number = JSONUtils.parseDouble(value, null);
+            if (number != null) {
+                return number.intValue();
+            }
+        }
+
+        return defaultValue;
+    }
+
+    /**
+     * @return the next value as a double, or defaultValue if it is null or not a number.
+     */
+    static double nextDouble(JsonReader reader, double defaultValue) throws IOException {
+
+        Double value = JSONUtils.parseDouble(nextString(reader), null);
+
+        return value == null ? defaultValue : value;
+    }
+
+    /**
+     * @return true for true or "true", false for any other value and defaultValue for null.
+     */
+    static Boolean nextBoolean(JsonReader reader, Boolean defaultValue) throws IOException {
+
+        String value = nextString(reader);
+
+        return value == null ? defaultValue : Boolean.valueOf(value);
+    }
+
+    private static JsonReader createReader(String json) throws JSONException {
+
+        if (json == null) {
+            throw new JSONException("No JSON to parse");
+        }
+
+        return new JsonReader(new StringReader(json));
+    }
+
+    private static JsonWriter createWriter(StringWriter stringWriter) {
+
+        JsonWriter writer = new JsonWriter(stringWriter);
+
+        // Same as org.json, keys with null values are left out.
+        writer.setSerializeNulls(false);
+
+        return writer;
+    }
+
+    private static JSONException parseException(Exception exception) {
+
+        if (exception instanceof JSONException) {
+            return (JSONException) exception;
+        }
+
+        return new JSONException(exception.getClass().getSimpleName() + ": " + exception.getMessage());
+    }
+
+}
@@ -31,6 +31,13 @@ public interface Location
                       @Nullable Integer page_size,
                       @Nullable Integer page_number);
 
+    /**
+     * Sends GET Geofences request to retreive list of Geofences
+     *
+     * @return future completed with the geofences.
+     * */
+    IntelligenceFuture<List<IntelligenceGeofence>> getGeofences();
+
     List<IntelligenceGeofence> getCachedGeofences();
 
     /**
@@ -4,11 +4,8 @@ import android.support.annotation.Nullable;
 
 import com.tigerspike.intelligence.exceptions.IntelligenceRequestException;
 
-import org.json.JSONArray;
 import org.json.JSONException;
-import org.json.JSONObject;
 
-import java.util.ArrayList;
 import java.util.List;
 
 public class LocationGetGeoFencesTask extends IntelligenceTask {
@@ -54,15 +51,7 @@ public class LocationGetGeoFencesTask extends IntelligenceTask {
 
         try {
 
-            JSONObject jsonObject = new JSONObject(response.bodyData());
-            JSONArray jsonArray = jsonObject.getJSONArray("Data");
-
-            geoFences = new ArrayList<>();
-
-            for (int i = 0; i < jsonArray.length(); ++i) {
-                IntelligenceGeofence geoFence = new IntelligenceGeofence(jsonArray.getJSONObject(i));
-                geoFences.add(geoFence);
-            }
+            geoFences = response.readData(IntelligenceGeofence.CODEC);
 
         } catch (JSONException e) {
             throw new IntelligenceRequestException(IntelligenceRequestException.ErrorCode.ParseError, "Could not parse geofences").addCause(e);
@@ -70,4 +59,14 @@ public class LocationGetGeoFencesTask extends IntelligenceTask {
 
     }
 
+    @Override
+    String coalesceKey() {
+        return mLongitude + "," + mLatitude + "," + mRadius + "," + mPageSize + "," + mPageNumber;
+    }
+
+    @Override
+    Object result() {
+        return geoFences;
+    }
+
 }
@@ -11,10 +11,11 @@ import com.tigerspike.intelligence.exceptions.IntelligenceRequestException;
 
 import org.json.JSONException;
 
+import java.io.File;
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -31,8 +32,12 @@ final class LocationModule extends IntelligenceModule implements Location
     private Analytics mAnalytics;
     private TaskExecutor mTaskExecutor;
     private RequestURLBuilder mRequestURLBuilder;
+    private RequestContext mRequestContext;
     private DataStore mDataStore;
     private android.location.Location mLastKnownLocation;
+    private File mGeofenceCacheFile;
+    // Last geofences update queued by updateGeofences.
+    private LocationGetGeoFencesTask mGeofencesUpdate;
 
     GeoManager mGeoManager;
 
@@ -44,12 +49,17 @@ final class LocationModule extends IntelligenceModule implements Location
      *
      * */
     private static String GEOFENCE_CACHE_KEY = "GeoFences";
+    private static String GEOFENCE_CACHE_FILE = "intelligence_geofences.bin";
 
     /**
      * Available Location Endpoints
      *
      * */
     static final String ENDPOINT_GET_GEOFENCES = "projects/{PROJECT_ID}/geofences";
+    // Time to live of the cached geofence pages.
+    static final long GEOFENCES_CACHE_TTL_MS = 10 * 60 * 1000;
+    // Time an update of the geofences may wait and run before it is dropped as stale.
+    static final long GEOFENCES_UPDATE_TIMEOUT_MS = 60 * 1000;
 
     static final String KEY_LONGITUDE = "longitude";
     static final String KEY_LATITUDE = "latitude";
@@ -71,13 +81,16 @@ final class LocationModule extends IntelligenceModule implements Location
         mAnalytics = analytics;
 
         mRequestURLBuilder = new RequestURLBuilder(mConfiguration);
+        mRequestContext = taskExecutor.getRequestContext();
+
+        mGeofenceCacheFile = new File(application.getFilesDir(), GEOFENCE_CACHE_FILE);
 
         mHasLocationPermissions = Utils.hasPermission(application, Constants.ANDROID_PERMISSION_ACCESS_FINE_LOCATION);
 
         if (!mHasLocationPermissions) {
             Log.w("Intelligence.Location","To use geofences and location tracking, set the " + Constants.ANDROID_PERMISSION_ACCESS_FINE_LOCATION + " permission in the app's manifest.");
         } else {
-            mGeoManager = new GeoManager(application);
+            mGeoManager = new GeoManager(application, new GeofenceTransitionFilter(mDataStore, mConfiguration));
             mGeoManager.setListener(mGeoManagerListener);
         }
 
@@ -124,22 +137,43 @@ final class LocationModule extends IntelligenceModule implements Location
         return mLastKnownLocation;
     }
 
+    /**
+     * Queues an update of the geofences around the last known location, replacing the update still
+     * pending for a previous location.
+     */
     void updateGeofences() {
 
-        if (mConfiguration.getUseGeofences()) {
-
-            if (mLastKnownLocation != null) {
-                //50 is page size for geofences listing
-                getGeofences(mOnUpdateGeofencesListener, mLastKnownLocation.getLongitude(), mLastKnownLocation.getLatitude(), 10000.0, 50, 0);
-            } else {
-                //50 is page size for geofences listing
-                getGeofences(mOnUpdateGeofencesListener, null, null, 10000.0, 50, 0);
-            }
+        if (!mConfiguration.getUseGeofences() || !mTaskExecutor.hasConnection()) {
+            return;
+        }
 
+        if (mGeofencesUpdate != null) {
+            // Dropped if still queued, its location is stale.
+            mGeofencesUpdate.cancel(false);
         }
 
+        Double longitude = mLastKnownLocation != null ? mLastKnownLocation.getLongitude() : null;
+        Double latitude = mLastKnownLocation != null ? mLastKnownLocation.getLatitude() : null;
+
+        //50 is page size for geofences listing
+        mGeofencesUpdate = new LocationGetGeoFencesTask(this, longitude, latitude, 10000.0, 50, 0, mUpdateGeofencesTaskListener);
+        mGeofencesUpdate.setTimeout(GEOFENCES_UPDATE_TIMEOUT_MS);
+        mTaskExecutor.addTask(mGeofencesUpdate);
+
     }
 
+    private IntelligenceTask.TaskListener mUpdateGeofencesTaskListener = new IntelligenceTask.TaskListener() {
+        @Override
+        public void onTaskFinish(IntelligenceTask intelligenceTask) {
+            mOnUpdateGeofencesListener.onGetGeofences(((LocationGetGeoFencesTask) intelligenceTask).geoFences, null);
+        }
+
+        @Override
+        public void onTaskError(IntelligenceTask intelligenceTask, IntelligenceException e) {
+            mOnUpdateGeofencesListener.onGetGeofences(null, e);
+        }
+    };
+
     private OnGetGeofencesListener mOnUpdateGeofencesListener = new OnGetGeofencesListener() {
 
         @Override
@@ -162,34 +196,7 @@ final class LocationModule extends IntelligenceModule implements Location
     @Override
     public void getGeofences(@Nullable final OnGetGeofencesListener onGetGeofencesListener)
     {
-
-        if (!mTaskExecutor.hasConnection()) {
-            if (onGetGeofencesListener != null) {
-                onGetGeofencesListener.onGetGeofences(null, new IntelligenceRequestException(IntelligenceRequestException.ErrorCode.InternetOfflineError));
-            }
-            return;
-        }
-
-        IntelligenceTask.TaskListener taskListener = null;
-
-        if (onGetGeofencesListener != null) {
-
-            taskListener = new IntelligenceTask.TaskListener() {
-                @Override
-                public void onTaskFinish(IntelligenceTask intelligenceTask) {
-                    onGetGeofencesListener.onGetGeofences(((LocationGetGeoFencesTask) intelligenceTask).geoFences, null);
-                }
-
-                @Override
-                public void onTaskError(IntelligenceTask intelligenceTask, IntelligenceException e) {
-                    onGetGeofencesListener.onGetGeofences(null, e);
-                }
-            };
-
-        }
-
-        mTaskExecutor.addTask(new LocationGetGeoFencesTask(this, taskListener));
-
+        getGeofences(onGetGeofencesListener, null, null, null, null, null);
     }
 
     @Override
@@ -200,33 +207,36 @@ final class LocationModule extends IntelligenceModule implements Location
                                        @Nullable Integer page_size,
                                        @Nullable Integer page_number) {
 
-        if (!mTaskExecutor.hasConnection()) {
-            if (onGetGeofencesListener != null) {
-                onGetGeofencesListener.onGetGeofences(null, new IntelligenceRequestException(IntelligenceRequestException.ErrorCode.InternetOfflineError));
-            }
-            return;
-        }
-
-        IntelligenceTask.TaskListener taskListener = null;
+        IntelligenceFuture<List<IntelligenceGeofence>> future = getGeofences(longitude, latitude, radius, page_size, page_number);
 
         if (onGetGeofencesListener != null) {
-
-            taskListener = new IntelligenceTask.TaskListener() {
+            future.addListener(new IntelligenceFuture.Listener<List<IntelligenceGeofence>>() {
                 @Override
-                public void onTaskFinish(IntelligenceTask intelligenceTask) {
-                    onGetGeofencesListener.onGetGeofences(((LocationGetGeoFencesTask) intelligenceTask).geoFences, null);
+                public void onComplete(@Nullable List<IntelligenceGeofence> result, @Nullable IntelligenceException intelligenceException) {
+                    onGetGeofencesListener.onGetGeofences(result, intelligenceException);
                 }
+            });
+        }
 
-                @Override
-                public void onTaskError(IntelligenceTask intelligenceTask, IntelligenceException e) {
-                    onGetGeofencesListener.onGetGeofences(null, e);
-                }
-            };
+    }
 
-        }
+    @Override
+    public IntelligenceFuture<List<IntelligenceGeofence>> getGeofences() {
+        return getGeofences(null, null, null, null, null);
+    }
 
-        mTaskExecutor.addTask(new LocationGetGeoFencesTask(this, longitude, latitude, radius, page_size, page_number, taskListener));
+    private IntelligenceFuture<List<IntelligenceGeofence>> getGeofences(@Nullable Double longitude,
+                                                                       @Nullable Double latitude,
+                                                                       @Nullable Double radius,
+                                                                       @Nullable Integer pageSize,
+                                                                       @Nullable Integer pageNumber) {
 
+        if (!mTaskExecutor.hasConnection()) {
+            return IntelligenceFuture.failed(new IntelligenceRequestException(IntelligenceRequestException.ErrorCode.InternetOfflineError));
+        }
+
+        TaskFuture<List<IntelligenceGeofence>> future = new TaskFuture<>();
+        return mTaskExecutor.submit(new LocationGetGeoFencesTask(this, longitude, latitude, radius, pageSize, pageNumber, future), future);
     }
 
     Request createGetGeofencesRequest(@Nullable Double longitude,
@@ -254,42 +264,83 @@ final class LocationModule extends IntelligenceModule implements Location
             e.printStackTrace();
         }
 
-        return RequestBuilder.GET(queryUrl)
+        return mRequestContext.GET(queryUrl)
                 .accept(Constants.CONTENT_TYPE_JSON)
                 .authentication(mOAuth.getCurrentAuthenticationToken())
+                .cache(GEOFENCES_CACHE_TTL_MS)
                 .build();
     }
 
     public List<IntelligenceGeofence> getCachedGeofences() {
 
+        PackedGeofences packedGeofences = getPackedCachedGeofences();
+
+        if (packedGeofences == null) {
+            return new ArrayList<>();
+        }
+
+        return packedGeofences.unpack();
+    }
+
+    /**
+     * Reads the cached Geofences without creating IntelligenceGeofence objects.
+     *
+     * @return the cached Geofences, or null if there is no valid cache.
+     * */
+    PackedGeofences getPackedCachedGeofences() {
+
+        if (!mGeofenceCacheFile.exists()) {
+            return migrateLegacyCache();
+        }
+
+        try {
+            return PackedGeofences.readFrom(mGeofenceCacheFile);
+        } catch (IOException e) {
+            // Unreadable cache, it will be replaced with the next geofences update.
+            return null;
+        }
+    }
+
+    /**
+     * Packs the Geofences cached as JSON strings in the DataStore by previous versions into the
+     * geofence cache file, once.
+     *
+     * @return the migrated Geofences, or null if there were none.
+     * */
+    private PackedGeofences migrateLegacyCache() {
+
         Set<String> cachedGeofences = mDataStore.getStringSet(GEOFENCE_CACHE_KEY, null);
-        List<IntelligenceGeofence> geofencesList = new ArrayList<>();
 
-        if (cachedGeofences != null) {
-            for (String geofence : cachedGeofences) {
-                try {
-                    geofencesList.add(new IntelligenceGeofence(geofence));
-                } catch (JSONException ignore) {}
-            }
+        if (cachedGeofences == null) {
+            return null;
+        }
+
+        List<IntelligenceGeofence> geofences = new ArrayList<>();
+        for (String geofence : cachedGeofences) {
+            try {
+                geofences.add(new IntelligenceGeofence(geofence));
+            } catch (JSONException ignore) {}
         }
 
-        return geofencesList;
+        cacheGeofences(geofences);
+
+        return PackedGeofences.pack(geofences);
     }
 
     /**
-     * Caches Geofences data - puts it into DataStore.
+     * Caches Geofences data - writes it packed into the geofence cache file.
      *
-     * @param geofences - a list of geofences. Every String contains JSON data for single Geofence.
+     * @param geofences - a list of geofences.
      * */
     private void cacheGeofences(List<IntelligenceGeofence> geofences) {
-        HashSet<String> geofenceSet = new HashSet<>();
-        for (IntelligenceGeofence geofence:geofences) {
-            String jsonFence = geofence.toJSONString();
-            if (jsonFence != null) {
-                geofenceSet.add(jsonFence);
-            }
+        try {
+            PackedGeofences.pack(geofences).writeTo(mGeofenceCacheFile);
+
+            // Geofences used to be cached as JSON strings in the DataStore, kept until the file is written.
+            mDataStore.remove(GEOFENCE_CACHE_KEY);
+        } catch (IOException e) {
+            Log.w("Intelligence.Location", "Could not cache geofences", e);
         }
-        mDataStore.setStringSet(GEOFENCE_CACHE_KEY, geofenceSet);
     }
 
 }
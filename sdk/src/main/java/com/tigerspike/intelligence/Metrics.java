@@ -0,0 +1,353 @@
+package com.tigerspike.intelligence;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Metrics
+ *
+ * Counters, gauges and histograms of the SDK internals, returned by Intelligence.getMetrics().
+ * All metrics are created with the registry, so recording a value never allocates and can be
+ * done on any thread.
+ *
+ * Request metrics are kept per Module, see requestLatencyName and requestStatusName.
+ */
+public final class Metrics {
+
+    public static final String TASK_QUEUE_DEPTH = "task.queue_depth";
+    public static final String TASK_WAIT_TIME = "task.wait_time_us";
+    public static final String TASK_ERRORS = "task.errors";
+    public static final String TASK_RETRIES = "task.retries";
+    public static final String TASK_CANCELLED = "task.cancelled";
+    public static final String TASK_EXPIRED = "task.expired";
+    public static final String TASK_DEFERRED = "task.deferred";
+    public static final String TASK_COALESCED = "task.coalesced";
+
+    public static final String BYTES_SENT = "request.bytes_sent";
+    public static final String BYTES_RECEIVED = "request.bytes_received";
+    public static final String REQUESTS_REJECTED = "request.rejected";
+    public static final String RESPONSE_CACHE_HITS = "response_cache.hits";
+    public static final String RESPONSE_CACHE_MISSES = "response_cache.misses";
+
+    public static final String ANALYTICS_EVENTS_ENQUEUED = "analytics.events_enqueued";
+    public static final String ANALYTICS_EVENTS_DROPPED = "analytics.events_dropped";
+    public static final String ANALYTICS_EVENTS_UPLOADED = "analytics.events_uploaded";
+    public static final String ANALYTICS_EVENTS_SAMPLED_OUT = "analytics.events_sampled_out";
+    public static final String ANALYTICS_EVENTS_AGGREGATED = "analytics.events_aggregated";
+
+    public static final String TOKEN_REFRESHES = "oauth.token_refreshes";
+
+    public static final String DATASTORE_WRITE_TIME = "datastore.write_time_us";
+
+    /**
+     * Status classes of the request status counters, any other code or a connection error is counted as "error".
+     */
+    private static final String[] STATUS_CLASSES = { "2xx", "3xx", "4xx", "5xx", "error" };
+    private static final int STATUS_ERROR = STATUS_CLASSES.length - 1;
+
+    private static final Module[] MODULES = Module.values();
+
+    private final Map<String, Counter> mCounters = new LinkedHashMap<>();
+    private final Map<String, Gauge> mGauges = new LinkedHashMap<>();
+    private final Map<String, Histogram> mHistograms = new LinkedHashMap<>();
+
+    final Gauge taskQueueDepth = gauge(TASK_QUEUE_DEPTH);
+    final Histogram taskWaitTime = histogram(TASK_WAIT_TIME);
+    final Counter taskErrors = counter(TASK_ERRORS);
+    final Counter taskRetries = counter(TASK_RETRIES);
+    final Counter taskCancelled = counter(TASK_CANCELLED);
+    final Counter taskExpired = counter(TASK_EXPIRED);
+    final Counter taskDeferred = counter(TASK_DEFERRED);
+    final Counter taskCoalesced = counter(TASK_COALESCED);
+
+    final Counter bytesSent = counter(BYTES_SENT);
+    final Counter bytesReceived = counter(BYTES_RECEIVED);
+    final Counter requestsRejected = counter(REQUESTS_REJECTED);
+    final Counter responseCacheHits = counter(RESPONSE_CACHE_HITS);
+    final Counter responseCacheMisses = counter(RESPONSE_CACHE_MISSES);
+
+    final Counter analyticsEventsEnqueued = counter(ANALYTICS_EVENTS_ENQUEUED);
+    final Counter analyticsEventsDropped = counter(ANALYTICS_EVENTS_DROPPED);
+    final Counter analyticsEventsUploaded = counter(ANALYTICS_EVENTS_UPLOADED);
+    final Counter analyticsEventsSampledOut = counter(ANALYTICS_EVENTS_SAMPLED_OUT);
+    final Counter analyticsEventsAggregated = counter(ANALYTICS_EVENTS_AGGREGATED);
+
+    final Counter tokenRefreshes = counter(TOKEN_REFRESHES);
+
+    final Histogram dataStoreWriteTime = histogram(DATASTORE_WRITE_TIME);
+
+    private final Histogram[] mRequestLatency = new Histogram[MODULES.length];
+    private final Counter[][] mRequestStatus = new Counter[MODULES.length][STATUS_CLASSES.length];
+
+    Metrics() {
+        for (Module module : MODULES) {
+            mRequestLatency[module.ordinal()] = histogram(requestLatencyName(module));
+            for (int i = 0; i < STATUS_CLASSES.length; i++) {
+                mRequestStatus[module.ordinal()][i] = counter(requestStatusName(module, STATUS_CLASSES[i]));
+            }
+        }
+    }
+
+    /**
+     * @return name of the request latency histogram of module, e.g. "request.analytics.latency_us".
+     */
+    public static String requestLatencyName(Module module) {
+        return "request." + module + ".latency_us";
+    }
+
+    /**
+     * @param statusClass "2xx", "3xx", "4xx", "5xx" or "error".
+     * @return name of the request status counter of module, e.g. "request.analytics.status_2xx".
+     */
+    public static String requestStatusName(Module module, String statusClass) {
+        return "request." + module + ".status_" + statusClass;
+    }
+
+    public Counter getCounter(String name) {
+        return mCounters.get(name);
+    }
+
+    public Gauge getGauge(String name) {
+        return mGauges.get(name);
+    }
+
+    public Histogram getHistogram(String name) {
+        return mHistograms.get(name);
+    }
+
+    public Map<String, Counter> getCounters() {
+        return Collections.unmodifiableMap(mCounters);
+    }
+
+    public Map<String, Gauge> getGauges() {
+        return Collections.unmodifiableMap(mGauges);
+    }
+
+    public Map<String, Histogram> getHistograms() {
+        return Collections.unmodifiableMap(mHistograms);
+    }
+
+    /**
+     * Records a request sent to the Intelligence API.
+     *
+     * @param url url of the request, its host tells the module.
+     * @param statusCode HTTP status code, -1 if the request failed.
+     * @param elapsedNanos time taken by the request.
+     * @param requestBody body sent, null if none.
+     * @param responseBody body received, null if none.
+     */
+    void recordRequest(java.net.URL url, int statusCode, long elapsedNanos, String requestBody, String responseBody) {
+
+        bytesSent.add(utf8Length(requestBody));
+        bytesReceived.add(utf8Length(responseBody));
+
+        Module module = Module.fromURL(url);
+
+        if (module == null) {
+            return;
+        }
+
+        int statusClass = statusCode / 100 - 2;
+        if (statusClass < 0 || statusClass >= STATUS_ERROR) {
+            statusClass = STATUS_ERROR;
+        }
+
+        mRequestLatency[module.ordinal()].record(elapsedNanos / 1000);
+        mRequestStatus[module.ordinal()][statusClass].increment();
+    }
+
+    /**
+     * @return number of bytes of value encoded as UTF-8, without encoding it.
+     */
+    static long utf8Length(String value) {
+
+        if (value == null) {
+            return 0;
+        }
+
+        long length = 0;
+
+        for (int i = 0; i < value.length(); i++) {
+            char character = value.charAt(i);
+            if (character < 0x80) {
+                length++;
+            } else if (character < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(character) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+
+        return length;
+    }
+
+    private Counter counter(String name) {
+        Counter counter = new Counter();
+        mCounters.put(name, counter);
+        return counter;
+    }
+
+    private Gauge gauge(String name) {
+        Gauge gauge = new Gauge();
+        mGauges.put(name, gauge);
+        return gauge;
+    }
+
+    private Histogram histogram(String name) {
+        Histogram histogram = new Histogram();
+        mHistograms.put(name, histogram);
+        return histogram;
+    }
+
+    /**
+     * Monotonic count.
+     */
+    public static final class Counter {
+
+        private final AtomicLong mCount = new AtomicLong();
+
+        Counter() {
+        }
+
+        void increment() {
+            mCount.incrementAndGet();
+        }
+
+        void add(long value) {
+            mCount.addAndGet(value);
+        }
+
+        public long getCount() {
+            return mCount.get();
+        }
+
+    }
+
+    /**
+     * Last value set.
+     */
+    public static final class Gauge {
+
+        private final AtomicLong mValue = new AtomicLong();
+
+        Gauge() {
+        }
+
+        void set(long value) {
+            mValue.set(value);
+        }
+
+        public long getValue() {
+            return mValue.get();
+        }
+
+    }
+
+    /**
+     * Histogram of non negative values with log-linear buckets, like HdrHistogram: every power of
+     * two is split in 16 buckets, so percentiles are within 1/16 (6.25%) of the recorded values.
+     * Values above 2^40 are recorded as 2^40 - 1.
+     */
+    public static final class Histogram {
+
+        private static final int SUB_BUCKET_BITS = 4;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        private static final int MAX_EXPONENT = 39;
+        private static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+
+        private final AtomicLongArray mBuckets = new AtomicLongArray((MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS);
+        private final AtomicLong mCount = new AtomicLong();
+        private final AtomicLong mSum = new AtomicLong();
+        private final AtomicLong mMax = new AtomicLong();
+
+        Histogram() {
+        }
+
+        void record(long value) {
+
+            if (value < 0) {
+                value = 0;
+            } else if (value > MAX_VALUE) {
+                value = MAX_VALUE;
+            }
+
+            mBuckets.incrementAndGet(bucketIndex(value));
+            mCount.incrementAndGet();
+            mSum.addAndGet(value);
+
+            long max = mMax.get();
+            while (value > max && !mMax.compareAndSet(max, value)) {
+                max = mMax.get();
+            }
+        }
+
+        public long getCount() {
+            return mCount.get();
+        }
+
+        public long getMax() {
+            return mMax.get();
+        }
+
+        public double getMean() {
+            long count = mCount.get();
+            return count == 0 ? 0 : mSum.get() / (double) count;
+        }
+
+        /**
+         * @param percentile between 0 and 1, e.g. 0.99.
+         * @return highest value of the bucket holding the percentile, 0 if nothing was recorded.
+         */
+        public long getPercentile(double percentile) {
+
+            long count = mCount.get();
+
+            if (count == 0) {
+                return 0;
+            }
+
+            long rank = Math.max(1, (long) Math.ceil(percentile * count));
+            long seen = 0;
+
+            for (int i = 0; i < mBuckets.length(); i++) {
+                seen += mBuckets.get(i);
+                if (seen >= rank) {
+                    return Math.min(bucketUpperBound(i), mMax.get());
+                }
+            }
+
+            return mMax.get();
+        }
+
+        static int bucketIndex(long value) {
+
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+
+            int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+
+            return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+        }
+
+        static long bucketUpperBound(int index) {
+
+            if (index < SUB_BUCKETS) {
+                return index;
+            }
+
+            int shift = index / SUB_BUCKETS - 1;
+            long lowerBound = (long) (index % SUB_BUCKETS + SUB_BUCKETS) << shift;
+
+            return lowerBound + (1L << shift) - 1;
+        }
+
+    }
+
+}
@@ -1,5 +1,7 @@
 package com.tigerspike.intelligence;
 
+import java.net.URL;
+
 /**
  * Created by marcinowoc on 25/01/16.
  */
@@ -26,4 +28,24 @@ public enum Module {
     public String toString() {
         return this.name;
     }
+
+    private static final Module[] MODULES = values();
+
+    /**
+     * @return the module serving the url, from the start of its host, null if none.
+     */
+    static Module fromURL(URL url) {
+
+        String host = url == null ? null : url.getHost();
+
+        if (host != null) {
+            for (Module module : MODULES) {
+                if (host.startsWith(module.name)) {
+                    return module;
+                }
+            }
+        }
+
+        return null;
+    }
 }
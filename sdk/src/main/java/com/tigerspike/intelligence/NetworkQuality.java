@@ -0,0 +1,138 @@
+package com.tigerspike.intelligence;
+
+import android.net.ConnectivityManager;
+import android.telephony.TelephonyManager;
+
+/**
+ * NetworkQuality
+ *
+ * Type and metered status of the active network, updated by the TaskExecutor, and the round trip
+ * time and throughput observed by the requests sent on it.
+ *
+ * Estimates are exponentially weighted moving averages, reset when the network type changes, and
+ * unknown until MIN_SAMPLES were observed. Round trip time is the time to the first byte of requests
+ * with a body too small for its upload to matter, throughput is measured on the download of large
+ * response bodies. DNS lookups, connections and TLS handshakes are left out of both.
+ */
+final class NetworkQuality {
+
+    // Weight of a new observation in the averages.
+    private static final double WEIGHT = 0.3;
+    // Requests sending fewer bytes measure the round trip time, responses of more bytes the throughput.
+    static final long THROUGHPUT_MIN_BYTES = 8 * 1024;
+    // Observations needed before an estimate is trusted.
+    static final int MIN_SAMPLES = 3;
+
+    // Below these, a metered network is too poor for deferrable work.
+    static final long POOR_THROUGHPUT_BYTES_PER_SECOND = 16 * 1024;
+    static final long POOR_RTT_MS = 2000;
+
+    private int mType = -1;
+    private int mSubtype;
+    private boolean mMetered;
+
+    private double mRttMillis = -1;
+    private double mThroughput = -1;
+    private int mRttSamples;
+    private int mThroughputSamples;
+
+    /**
+     * Called when the active network changed.
+     *
+     * @param type    ConnectivityManager network type, -1 if not connected.
+     * @param subtype TelephonyManager network type of a mobile network.
+     * @param metered true if the network is metered.
+     */
+    synchronized void onNetworkChanged(int type, int subtype, boolean metered) {
+
+        if (type != mType || subtype != mSubtype) {
+            mRttMillis = -1;
+            mThroughput = -1;
+            mRttSamples = 0;
+            mThroughputSamples = 0;
+        }
+
+        mType = type;
+        mSubtype = subtype;
+        mMetered = metered;
+    }
+
+    /**
+     * Called with every request that got a response.
+     *
+     * @param requestBytes         bytes of the request body.
+     * @param timeToFirstByteNanos time between sending the request and the response headers, -1 if unknown.
+     * @param responseBytes        bytes of the response body.
+     * @param responseNanos        time reading the response body, -1 if unknown.
+     */
+    synchronized void recordRequest(long requestBytes, long timeToFirstByteNanos, long responseBytes, long responseNanos) {
+
+        // A large body is only sent once the response is read, so it is part of the time to the first byte.
+        if (requestBytes < THROUGHPUT_MIN_BYTES && timeToFirstByteNanos > 0) {
+            mRttMillis = average(mRttMillis, timeToFirstByteNanos / 1000000.0);
+            mRttSamples++;
+        }
+
+        if (responseBytes >= THROUGHPUT_MIN_BYTES && responseNanos > 0) {
+            mThroughput = average(mThroughput, responseBytes * 1000000000.0 / responseNanos);
+            mThroughputSamples++;
+        }
+    }
+
+    private static double average(double average, double value) {
+        return average < 0 ? value : average + WEIGHT * (value - average);
+    }
+
+    synchronized boolean isMetered() {
+        return mMetered;
+    }
+
+    /**
+     * @return estimated round trip time in milliseconds, -1 if unknown.
+     */
+    synchronized long getRttMillis() {
+        return mRttSamples < MIN_SAMPLES ? -1 : (long) mRttMillis;
+    }
+
+    /**
+     * @return estimated throughput in bytes per second, -1 if unknown.
+     */
+    synchronized long getThroughput() {
+        return mThroughputSamples < MIN_SAMPLES ? -1 : (long) mThroughput;
+    }
+
+    /**
+     * @return true if the network is a 2G network, or was measured as slow as one.
+     */
+    synchronized boolean isPoor() {
+
+        if (mType == ConnectivityManager.TYPE_MOBILE) {
+            switch (mSubtype) {
+                case TelephonyManager.NETWORK_TYPE_GPRS:
+                case TelephonyManager.NETWORK_TYPE_EDGE:
+                case TelephonyManager.NETWORK_TYPE_CDMA:
+                case TelephonyManager.NETWORK_TYPE_1xRTT:
+                case TelephonyManager.NETWORK_TYPE_IDEN:
+                    return true;
+            }
+        }
+
+        long rttMillis = getRttMillis();
+        long throughput = getThroughput();
+
+        return rttMillis > POOR_RTT_MS || (throughput >= 0 && throughput < POOR_THROUGHPUT_BYTES_PER_SECOND);
+    }
+
+    /**
+     * @return true if tasks with the requirement can be executed on the network now.
+     */
+    boolean allows(IntelligenceTask.NetworkRequirement networkRequirement) {
+        switch (networkRequirement) {
+            case UnmeteredOrGood:
+                return !isMetered() || !isPoor();
+            default:
+                return true;
+        }
+    }
+
+}
@@ -36,17 +36,22 @@ final class OAuth {
 
     private Configuration mConfiguration;
     private RequestURLBuilder mRequestURLBuilder;
+    private RequestContext mRequestContext;
+    private Metrics mMetrics;
 
     /**
      * Construct Authentication object with specified configuration.
      *
      * @param configuration configuration object
      * @param dataStore data store object
+     * @param requestContext context of the requests, with the metrics counting the token refreshes
      */
-    public OAuth(Configuration configuration, DataStore dataStore) {
+    public OAuth(Configuration configuration, DataStore dataStore, RequestContext requestContext) {
 
         mConfiguration = configuration;
         mRequestURLBuilder = new RequestURLBuilder(mConfiguration);
+        mRequestContext = requestContext;
+        mMetrics = requestContext.getMetrics();
 
         mDataStore = dataStore;
 
@@ -54,7 +59,7 @@ final class OAuth {
         String tokenString = mDataStore.get(KEY_APPLICATION_USER_TOKEN);
         if (tokenString != null) {
             try {
-                mApplicationUserToken = new AuthenticationToken(tokenString);
+                mApplicationUserToken = JsonCodecs.fromJson(tokenString, AuthenticationToken.CODEC);
             } catch (JSONException e) {
                 // JSON is broken, erase stored token
                 mDataStore.set(KEY_APPLICATION_USER_TOKEN,null,true);
@@ -65,7 +70,7 @@ final class OAuth {
         tokenString = mDataStore.get(KEY_INTERNAL_USER_TOKEN);
         if (tokenString != null) {
             try {
-                mInternalUserToken = new AuthenticationToken(tokenString);
+                mInternalUserToken = JsonCodecs.fromJson(tokenString, AuthenticationToken.CODEC);
             } catch (JSONException e) {
                 // JSON is broken, erase stored token
                 mDataStore.set(KEY_INTERNAL_USER_TOKEN,null,true);
@@ -76,7 +81,7 @@ final class OAuth {
         tokenString = mDataStore.get(KEY_USER_TOKEN);
         if (tokenString != null) {
             try {
-                mUserToken = new AuthenticationToken(tokenString);
+                mUserToken = JsonCodecs.fromJson(tokenString, AuthenticationToken.CODEC);
             } catch (JSONException e) {
                 // JSON is broken, erase stored token
                 mDataStore.set(KEY_USER_TOKEN,null,true);
@@ -87,7 +92,7 @@ final class OAuth {
         String userString = mDataStore.get(KEY_INTERNAL_USER);
         if (userString != null) {
             try {
-                mInternalUser = new User(userString);
+                mInternalUser = JsonCodecs.fromJson(userString, User.CODEC);
             } catch (JSONException e) {
                 // JSON is broken, erase stored user
                 mDataStore.set(KEY_INTERNAL_USER,null,true);
@@ -98,7 +103,7 @@ final class OAuth {
         userString = mDataStore.get(KEY_USER);
         if (userString != null) {
             try {
-                mUser = new User(userString);
+                mUser = JsonCodecs.fromJson(userString, User.CODEC);
             } catch (JSONException e) {
                 // JSON is broken, erase stored user
                 mDataStore.set(KEY_USER,null,true);
@@ -212,12 +217,15 @@ final class OAuth {
     private static final String ENDPOINT_ASSIGN_ROLES = "projects/{PROJECT_ID}/assignrole";
     private static final String ENDPOINT_REVOKE_ROLES = "projects/{PROJECT_ID}/revokerole";
 
+    // Time to live of the cached user responses, dropped on user updates and role changes.
+    private static final long USER_CACHE_TTL_MS = 5 * 60 * 1000;
+
 
     Request createAuthenticationRequest() throws IntelligenceException {
 
         URL url = mRequestURLBuilder.authenticationBaseURL().urlPath(ENDPOINT_AUTHENTICATE).url();
 
-        return RequestBuilder.POST(url)
+        return mRequestContext.POST(url)
                 .accept(Constants.CONTENT_TYPE_JSON)
                 .param(KEY_PARAM_GRANT_TYPE, KEY_AUTHENTICATION_TYPE_CLIENT_CREDENTIALS)
                 .param(KEY_PARAM_CLIENT_ID, mConfiguration.getClientID())
@@ -230,7 +238,7 @@ final class OAuth {
 
         URL url = mRequestURLBuilder.authenticationBaseURL().urlPath(ENDPOINT_AUTHENTICATE).url();
 
-        return RequestBuilder.POST(url)
+        return mRequestContext.POST(url)
                 .accept(Constants.CONTENT_TYPE_JSON)
                 .param(KEY_PARAM_GRANT_TYPE, KEY_AUTHENTICATION_TYPE_USERNAME_PASSWORD)
                 .param(KEY_PARAM_CLIENT_ID, mConfiguration.getClientID())
@@ -251,7 +259,9 @@ final class OAuth {
 
         URL url = mRequestURLBuilder.authenticationBaseURL().urlPath(ENDPOINT_REFRESH_TOKEN).url();
 
-        return RequestBuilder.POST(url)
+        mMetrics.tokenRefreshes.increment();
+
+        return mRequestContext.POST(url)
                 .accept(Constants.CONTENT_TYPE_JSON)
                 .param(KEY_PARAM_GRANT_TYPE, KEY_AUTHENTICATION_TYPE_REFRESH_TOKEN)
                 .param(KEY_PARAM_CLIENT_ID, mConfiguration.getClientID())
@@ -265,7 +275,7 @@ final class OAuth {
 
         URL url = mRequestURLBuilder.authenticationBaseURL().urlPath(ENDPOINT_VALIDATE_TOKEN).url();
 
-        return RequestBuilder.GET(url)
+        return mRequestContext.GET(url)
                 .accept(Constants.CONTENT_TYPE_JSON)
                 .authentication(authenticationToken)
                 .build();
@@ -278,9 +288,10 @@ final class OAuth {
                 .addParam("PROVIDER_ID", Constants.PROVIDER_ID_PARAM)
                 .url();
 
-        return RequestBuilder.GET(url)
+        return mRequestContext.GET(url)
                 .accept(Constants.CONTENT_TYPE_JSON)
                 .authentication(authenticationToken)
+                .cache(USER_CACHE_TTL_MS)
                 .build();
 
     }
@@ -291,9 +302,10 @@ final class OAuth {
                 .addParam("USER_ID", Integer.toString(id))
                 .url();
 
-        return RequestBuilder.GET(url)
+        return mRequestContext.GET(url)
                 .accept(Constants.CONTENT_TYPE_JSON)
                 .authentication(authenticationToken)
+                .cache(USER_CACHE_TTL_MS)
                 .build();
 
     }
@@ -302,7 +314,7 @@ final class OAuth {
 
         URL url = mRequestURLBuilder.identityBaseURL().urlPath(ENDPOINT_CREATE_USER).url();
 
-        return RequestBuilder.POST(url)
+        return mRequestContext.POST(url)
                 .accept(Constants.CONTENT_TYPE_JSON)
                 .authentication(authenticationToken)
                 .body(new JSONArray().put(user.toJSONObject()))
@@ -316,7 +328,7 @@ final class OAuth {
                 .addParam("USER_ID", String.valueOf(user.getUserId()))
                 .url();
 
-        return RequestBuilder.PUT(url)
+        return mRequestContext.PUT(url)
                 .accept(Constants.CONTENT_TYPE_JSON)
                 .authentication(authenticationToken)
                 .body(new JSONArray().put(user.toJSONObject()))
@@ -349,7 +361,7 @@ final class OAuth {
         JSONArray rolesJson = new JSONArray();
         rolesJson.put(roleId);
 
-        return RequestBuilder.POST(queryUrl)
+        return mRequestContext.POST(queryUrl)
                 .accept(Constants.CONTENT_TYPE_JSON)
                 .authentication(authenticationToken)
                 .body(rolesJson)
@@ -374,7 +386,7 @@ final class OAuth {
             e.printStackTrace();
         }
 
-        return RequestBuilder.DELETE(queryUrl)
+        return mRequestContext.DELETE(queryUrl)
                 .accept(Constants.CONTENT_TYPE_JSON)
                 .authentication(authenticationToken)
                 .build();
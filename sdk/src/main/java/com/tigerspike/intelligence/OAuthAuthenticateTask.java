@@ -6,9 +6,7 @@ import com.tigerspike.intelligence.OAuth.UserType;
 import com.tigerspike.intelligence.exceptions.IntelligenceException;
 import com.tigerspike.intelligence.exceptions.IntelligenceRequestException;
 
-import org.json.JSONArray;
 import org.json.JSONException;
-import org.json.JSONObject;
 
 public class OAuthAuthenticateTask extends IntelligenceTask {
 
@@ -60,7 +58,7 @@ public class OAuthAuthenticateTask extends IntelligenceTask {
         handleError(response);
 
         try {
-            authenticationToken = new AuthenticationToken(response.bodyData());
+            authenticationToken = response.read(AuthenticationToken.CODEC);
         } catch (JSONException jsonException) {
             throw (new IntelligenceRequestException(IntelligenceRequestException.ErrorCode.ParseError).addCause(jsonException));
         }
@@ -82,9 +80,7 @@ public class OAuthAuthenticateTask extends IntelligenceTask {
         handleError(response);
 
         try {
-            JSONObject jsonObject = JSONUtils.parseSimpleJSONObject(response.bodyData());
-            JSONArray jsonArray = jsonObject.getJSONArray("Data");
-            user = new User(jsonArray.getJSONObject(0));
+            user = response.readFirstData(User.CODEC);
         } catch (JSONException jsonException) {
             throw (new IntelligenceRequestException(IntelligenceRequestException.ErrorCode.ParseError).addCause(jsonException));
         }
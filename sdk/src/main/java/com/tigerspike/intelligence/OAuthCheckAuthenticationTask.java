@@ -70,7 +70,7 @@ public class OAuthCheckAuthenticationTask extends IntelligenceTask {
 
                 handleError(refreshTokenResponse);
 
-                AuthenticationToken newToken = new AuthenticationToken(refreshTokenResponse.bodyData());
+                AuthenticationToken newToken = refreshTokenResponse.read(AuthenticationToken.CODEC);
 
                 if (isRealUser) {
                     mOAuth.setUserToken(newToken);
@@ -110,7 +110,7 @@ public class OAuthCheckAuthenticationTask extends IntelligenceTask {
 
                 handleError(authenticationResponse);//This can throw exception and stop code execution
 
-                AuthenticationToken newToken = new AuthenticationToken(authenticationResponse.bodyData());
+                AuthenticationToken newToken = authenticationResponse.read(AuthenticationToken.CODEC);
 
                 if (isRealUser) {
                     mOAuth.setUserToken(newToken);
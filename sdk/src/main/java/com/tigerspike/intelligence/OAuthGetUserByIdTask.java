@@ -2,9 +2,7 @@ package com.tigerspike.intelligence;
 
 import com.tigerspike.intelligence.exceptions.IntelligenceParseException;
 
-import org.json.JSONArray;
 import org.json.JSONException;
-import org.json.JSONObject;
 
 public class OAuthGetUserByIdTask extends IntelligenceTask {
 
@@ -28,12 +26,20 @@ public class OAuthGetUserByIdTask extends IntelligenceTask {
         handleError(response);
 
         try {
-            JSONObject jsonObject = JSONUtils.parseSimpleJSONObject(response.bodyData());
-            JSONArray jsonArray = jsonObject.getJSONArray("Data");
-            user = new User(jsonArray.getJSONObject(0));
+            user = response.readFirstData(User.CODEC);
         } catch (JSONException jsonException) {
             throw (new IntelligenceParseException("Could not retrieve user").addCause(jsonException));
         }
     }
 
+    @Override
+    String coalesceKey() {
+        return String.valueOf(mId);
+    }
+
+    @Override
+    Object result() {
+        return user;
+    }
+
 }
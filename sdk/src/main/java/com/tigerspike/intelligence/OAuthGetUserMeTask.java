@@ -2,9 +2,7 @@ package com.tigerspike.intelligence;
 
 import com.tigerspike.intelligence.exceptions.IntelligenceRequestException;
 
-import org.json.JSONArray;
 import org.json.JSONException;
-import org.json.JSONObject;
 
 public class OAuthGetUserMeTask extends IntelligenceTask {
 
@@ -26,12 +24,21 @@ public class OAuthGetUserMeTask extends IntelligenceTask {
         handleError(response);
 
         try {
-            JSONObject jsonObject = JSONUtils.parseSimpleJSONObject(response.bodyData());
-            JSONArray jsonArray = jsonObject.getJSONArray("Data");
-            user = new User(jsonArray.getJSONObject(0));
+            user = response.readFirstData(User.CODEC);
         } catch (JSONException jsonException) {
             throw (new IntelligenceRequestException(IntelligenceRequestException.ErrorCode.ParseError, "Could not parse user").addCause(jsonException));
         }
     }
 
+    @Override
+    String coalesceKey() {
+        // The token of the current user is read when the task executes.
+        return "me";
+    }
+
+    @Override
+    Object result() {
+        return user;
+    }
+
 }
@@ -2,9 +2,7 @@ package com.tigerspike.intelligence;
 
 import com.tigerspike.intelligence.exceptions.IntelligenceRequestException;
 
-import org.json.JSONArray;
 import org.json.JSONException;
-import org.json.JSONObject;
 
 public class OAuthUpdateUserTask extends IntelligenceTask {
 
@@ -28,13 +26,16 @@ public class OAuthUpdateUserTask extends IntelligenceTask {
         handleError(response);
 
         try {
-            JSONObject jsonObject = JSONUtils.parseSimpleJSONObject(response.bodyData());
-            JSONArray jsonArray = jsonObject.getJSONArray("Data");
-            user = new User(jsonArray.getJSONObject(0));
+            user = response.readFirstData(User.CODEC);
         } catch (JSONException e) {
             throw new IntelligenceRequestException(IntelligenceRequestException.ErrorCode.ParseError, "Could not parse user");
         }
 
     }
 
+    @Override
+    Object result() {
+        return user;
+    }
+
 }
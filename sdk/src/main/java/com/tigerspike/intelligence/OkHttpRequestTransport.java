@@ -0,0 +1,234 @@
+package com.tigerspike.intelligence;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.RequestBody;
+
+/**
+ * OkHttpRequestTransport
+ *
+ * Sends the requests with OkHttp instead of HttpsURLConnection, enabled by Configuration.setUseHttp2.
+ *
+ * The requests to a host reuse its connection instead of opening one per request: the DNS lookup,
+ * TCP connection and TLS handshake are only paid once, and HTTP/2 compresses the headers when the
+ * server and the platform support it. The TaskExecutor sends one request at a time, so requests are
+ * not multiplexed.
+ *
+ * The phases of a timed request are marked on its RequestTiming from the OkHttp events, as
+ * Request.send does for HttpsURLConnection.
+ *
+ * Failed requests are not retried by OkHttp, the RetryPolicy of the request decides.
+ */
+class OkHttpRequestTransport implements RequestTransport {
+
+    private static final MediaType CONTENT_TYPE_JSON = MediaType.parse(Constants.CONTENT_TYPE_JSON);
+    private static final MediaType CONTENT_TYPE_FORM_URL_ENCODED = MediaType.parse(Constants.CONTENT_TYPE_FORM_URL_ENCODED);
+
+    private final OkHttpClient mClient;
+
+    /**
+     * @param securityPolicy policy of the connections, only the DefaultRequestSecurityPolicy is supported, null for the platform default.
+     */
+    OkHttpRequestTransport(RequestSecurityPolicy securityPolicy) {
+        this(createClient(securityPolicy));
+    }
+
+    /**
+     * @param client client sending the requests.
+     */
+    OkHttpRequestTransport(OkHttpClient client) {
+        mClient = client.newBuilder().eventListenerFactory(TIMING_EVENT_LISTENER_FACTORY).build();
+    }
+
+    private static OkHttpClient createClient(RequestSecurityPolicy securityPolicy) {
+
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .connectTimeout(Constants.CONNECTION_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                .readTimeout(Constants.CONNECTION_RESPONSE_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                .retryOnConnectionFailure(false);
+
+        if (securityPolicy instanceof DefaultRequestSecurityPolicy) {
+            DefaultRequestSecurityPolicy defaultSecurityPolicy = (DefaultRequestSecurityPolicy) securityPolicy;
+            builder.sslSocketFactory(defaultSecurityPolicy.getSocketFactory(), defaultSecurityPolicy.getTrustManager())
+                    .hostnameVerifier(defaultSecurityPolicy.getHostnameVerifier());
+        }
+
+        return builder.build();
+    }
+
+    @Override
+    public Response execute(Request request, RequestTiming timing) {
+
+        int responseCode = -1;
+        String responseBody = null;
+        long retryAfterMillis = -1;
+        String cacheControl = null;
+        Exception exception = null;
+
+        try {
+
+            okhttp3.Request.Builder builder = new okhttp3.Request.Builder().url(request.urlWithParams());
+
+            if (timing != null) {
+                builder.tag(RequestTiming.class, timing);
+            }
+
+            if (request.getHeaders() != null) {
+                for (Map.Entry<String, String> entry : request.getHeaders().entrySet()) {
+                    // Connections are managed by OkHttp.
+                    if (!"Connection".equalsIgnoreCase(entry.getKey())) {
+                        builder.header(entry.getKey(), entry.getValue());
+                    }
+                }
+            }
+
+            RequestBody body = null;
+
+            if (request.getMethod() == Request.Method.POST || request.getMethod() == Request.Method.PUT) {
+                body = request.getBody() != null
+                        ? RequestBody.create(CONTENT_TYPE_JSON, request.getBody())
+                        : RequestBody.create(CONTENT_TYPE_FORM_URL_ENCODED, request.formBody());
+            }
+
+            builder.method(request.getMethod().toString(), body);
+
+            Call call = mClient.newCall(builder.build());
+            call.timeout().timeout(IntelligenceTask.timeoutMillis(Constants.CONNECTION_TIMEOUT_MS + Constants.CONNECTION_RESPONSE_TIMEOUT_MS), TimeUnit.MILLISECONDS);
+            okhttp3.Response response = call.execute();
+
+            try {
+                responseCode = response.code();
+                responseBody = response.body().string();
+                retryAfterMillis = readRetryAfter(response);
+                cacheControl = response.header("Cache-Control");
+            } finally {
+                response.close();
+            }
+
+        } catch (IOException | IllegalArgumentException e) {
+            exception = e;
+        }
+
+        Response response = new Response(request, responseCode, responseBody, exception);
+        response.setRetryAfterMillis(retryAfterMillis);
+        response.setCacheControl(cacheControl);
+
+        return response;
+    }
+
+    private static final EventListener.Factory TIMING_EVENT_LISTENER_FACTORY = new EventListener.Factory() {
+        @Override
+        public EventListener create(Call call) {
+            RequestTiming timing = call.request().tag(RequestTiming.class);
+            return timing != null ? new TimingEventListener(timing) : EventListener.NONE;
+        }
+    };
+
+    /**
+     * Marks the OkHttp events of a call on the RequestTiming of its request. The events are reported
+     * on the thread executing the call.
+     */
+    private static final class TimingEventListener extends EventListener {
+
+        private final RequestTiming mTiming;
+
+        TimingEventListener(RequestTiming timing) {
+            mTiming = timing;
+        }
+
+        @Override
+        public void dnsStart(Call call, String domainName) {
+            mTiming.mark(RequestTiming.Phase.DnsStart);
+        }
+
+        @Override
+        public void dnsEnd(Call call, String domainName, List<InetAddress> inetAddressList) {
+            mTiming.mark(RequestTiming.Phase.DnsEnd);
+        }
+
+        @Override
+        public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+            mTiming.mark(RequestTiming.Phase.ConnectStart);
+        }
+
+        @Override
+        public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+            // After the TLS handshake.
+            mTiming.mark(RequestTiming.Phase.ConnectEnd);
+        }
+
+        @Override
+        public void requestHeadersStart(Call call) {
+            mTiming.mark(RequestTiming.Phase.RequestStart);
+        }
+
+        @Override
+        public void requestHeadersEnd(Call call, okhttp3.Request request) {
+            // Marked again at the end of the body, if any.
+            mTiming.mark(RequestTiming.Phase.RequestEnd);
+        }
+
+        @Override
+        public void requestBodyEnd(Call call, long byteCount) {
+            mTiming.mark(RequestTiming.Phase.RequestEnd);
+        }
+
+        @Override
+        public void responseHeadersStart(Call call) {
+            mTiming.mark(RequestTiming.Phase.ResponseHeadersStart);
+        }
+
+        @Override
+        public void responseHeadersEnd(Call call, okhttp3.Response response) {
+            mTiming.mark(RequestTiming.Phase.ResponseHeadersEnd);
+        }
+
+        @Override
+        public void responseBodyStart(Call call) {
+            mTiming.mark(RequestTiming.Phase.ResponseBodyStart);
+        }
+
+        @Override
+        public void responseBodyEnd(Call call, long byteCount) {
+            mTiming.mark(RequestTiming.Phase.ResponseBodyEnd);
+        }
+
+    }
+
+    /**
+     * Reads the Retry-After header, given in seconds or as an HTTP date.
+     *
+     * @return milliseconds to wait, -1 if the header is missing or invalid.
+     */
+    private static long readRetryAfter(okhttp3.Response response) {
+
+        String retryAfter = response.header("Retry-After");
+
+        if (retryAfter == null) {
+            return -1;
+        }
+
+        try {
+            return Math.max(0, Long.parseLong(retryAfter.trim()) * 1000);
+        } catch (NumberFormatException e) {
+            Date date = response.headers().getDate("Retry-After");
+            return date == null ? -1 : Math.max(0, date.getTime() - System.currentTimeMillis());
+        }
+
+    }
+
+}
@@ -0,0 +1,295 @@
+package com.tigerspike.intelligence;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * PackedGeofences
+ *
+ * Column oriented representation of a list of geofences, used to cache them on disk.
+ *
+ * Coordinates, radii and IDs are kept in primitive arrays and name, address and tags are indexes into
+ * a table of distinct strings, so the whole cache is written in one go and read back with a single
+ * memory mapped read, without any JSON parsing.
+ *
+ * Missing values are stored as NO_VALUE for integers, NaN for doubles and NO_STRING for strings.
+ */
+final class PackedGeofences {
+
+    static final int NO_VALUE = IntelligenceGeofence.NO_VALUE;
+    static final int NO_STRING = -1;
+
+    private static final int MAGIC = 0x47454F46; // "GEOF"
+    private static final int VERSION = 1;
+
+    // 5 int columns and 3 double columns.
+    private static final int BYTES_PER_GEOFENCE = 5 * 4 + 3 * 8;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    final int[] ids;
+    final int[] projectIds;
+    final double[] latitudes;
+    final double[] longitudes;
+    final double[] radii;
+    final int[] names;
+    final int[] addresses;
+    final int[] tags;
+    final String[] strings;
+
+    private PackedGeofences(int size, String[] strings) {
+        this(new int[size], new int[size], new double[size], new double[size], new double[size],
+                new int[size], new int[size], new int[size], strings);
+    }
+
+    private PackedGeofences(int[] ids, int[] projectIds, double[] latitudes, double[] longitudes, double[] radii,
+                            int[] names, int[] addresses, int[] tags, String[] strings) {
+        this.ids = ids;
+        this.projectIds = projectIds;
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+        this.radii = radii;
+        this.names = names;
+        this.addresses = addresses;
+        this.tags = tags;
+        this.strings = strings;
+    }
+
+    /**
+     * Packs a list of geofences.
+     */
+    static PackedGeofences pack(@NonNull List<IntelligenceGeofence> geofences) {
+
+        int size = geofences.size();
+
+        int[] ids = new int[size];
+        int[] projectIds = new int[size];
+        double[] latitudes = new double[size];
+        double[] longitudes = new double[size];
+        double[] radii = new double[size];
+        int[] names = new int[size];
+        int[] addresses = new int[size];
+        int[] tags = new int[size];
+
+        HashMap<String, Integer> stringIndexes = new HashMap<>();
+        ArrayList<String> strings = new ArrayList<>();
+
+        for (int i = 0; i < size; i++) {
+            IntelligenceGeofence geofence = geofences.get(i);
+            ids[i] = geofence.getIdValue();
+            projectIds[i] = geofence.getProjectIdValue();
+            latitudes[i] = geofence.getLatitudeValue();
+            longitudes[i] = geofence.getLongitudeValue();
+            radii[i] = geofence.getRadiusValue();
+            names[i] = indexOf(geofence.getName(), stringIndexes, strings);
+            addresses[i] = indexOf(geofence.getAddress(), stringIndexes, strings);
+            tags[i] = indexOf(geofence.getTags(), stringIndexes, strings);
+        }
+
+        return new PackedGeofences(ids, projectIds, latitudes, longitudes, radii, names, addresses, tags,
+                strings.toArray(new String[strings.size()]));
+    }
+
+    /**
+     * @return the number of geofences.
+     */
+    int size() {
+        return ids.length;
+    }
+
+    /**
+     * @return the string at the given index of the string table, or null for NO_STRING.
+     */
+    @Nullable String getString(int index) {
+        return index == NO_STRING ? null : strings[index];
+    }
+
+    /**
+     * Creates the IntelligenceGeofence objects of the packed geofences.
+     */
+    List<IntelligenceGeofence> unpack() {
+
+        int size = size();
+        List<IntelligenceGeofence> geofences = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            geofences.add(new IntelligenceGeofence(ids[i], projectIds[i], getString(names[i]), getString(addresses[i]),
+                    latitudes[i], longitudes[i], radii[i], getString(tags[i])));
+        }
+
+        return geofences;
+    }
+
+    /**
+     * Writes the packed geofences into the file. The data is written to a temporary file first
+     * so a failed write never leaves a truncated cache behind.
+     *
+     * @param file destination file.
+     * @throws IOException if the file could not be written.
+     */
+    void writeTo(@NonNull File file) throws IOException {
+
+        File temporaryFile = new File(file.getPath() + ".tmp");
+
+        DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)));
+
+        try {
+            int size = size();
+
+            outputStream.writeInt(MAGIC);
+            outputStream.writeInt(VERSION);
+            outputStream.writeInt(size);
+            outputStream.writeInt(strings.length);
+
+            writeInts(outputStream, ids);
+            writeInts(outputStream, projectIds);
+            writeDoubles(outputStream, latitudes);
+            writeDoubles(outputStream, longitudes);
+            writeDoubles(outputStream, radii);
+            writeInts(outputStream, names);
+            writeInts(outputStream, addresses);
+            writeInts(outputStream, tags);
+
+            for (String string : strings) {
+                byte[] bytes = string.getBytes(UTF_8);
+                outputStream.writeInt(bytes.length);
+                outputStream.write(bytes);
+            }
+        } finally {
+            outputStream.close();
+        }
+
+        if (!temporaryFile.renameTo(file)) {
+            temporaryFile.delete();
+            throw new IOException("Could not replace " + file.getPath());
+        }
+    }
+
+    /**
+     * Reads packed geofences previously written with writeTo by memory mapping the file.
+     *
+     * @param file source file.
+     * @return the packed geofences.
+     * @throws IOException if the file could not be read or is not a valid geofence cache.
+     */
+    static PackedGeofences readFrom(@NonNull File file) throws IOException {
+
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Unknown geofence cache format");
+            }
+
+            int size = buffer.getInt();
+            int stringCount = buffer.getInt();
+
+            if (size < 0 || stringCount < 0 || (long) size * BYTES_PER_GEOFENCE + stringCount * 4L > buffer.remaining()) {
+                throw new IOException("Corrupted geofence cache");
+            }
+
+            PackedGeofences packedGeofences = new PackedGeofences(size, new String[stringCount]);
+
+            readInts(buffer, packedGeofences.ids);
+            readInts(buffer, packedGeofences.projectIds);
+            readDoubles(buffer, packedGeofences.latitudes);
+            readDoubles(buffer, packedGeofences.longitudes);
+            readDoubles(buffer, packedGeofences.radii);
+            readInts(buffer, packedGeofences.names);
+            readInts(buffer, packedGeofences.addresses);
+            readInts(buffer, packedGeofences.tags);
+
+            byte[] bytes = new byte[0];
+
+            for (int i = 0; i < stringCount; i++) {
+                int length = buffer.getInt();
+                if (length < 0 || length > buffer.remaining()) {
+                    throw new IOException("Corrupted geofence cache");
+                }
+                if (bytes.length < length) {
+                    bytes = new byte[length];
+                }
+                buffer.get(bytes, 0, length);
+                packedGeofences.strings[i] = new String(bytes, 0, length, UTF_8);
+            }
+
+            packedGeofences.validateStringIndexes();
+
+            return packedGeofences;
+
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated geofence cache");
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    private void validateStringIndexes() throws IOException {
+        for (int i = 0; i < size(); i++) {
+            if (!isValidStringIndex(names[i]) || !isValidStringIndex(addresses[i]) || !isValidStringIndex(tags[i])) {
+                throw new IOException("Corrupted geofence cache");
+            }
+        }
+    }
+
+    private boolean isValidStringIndex(int index) {
+        return index == NO_STRING || (index >= 0 && index < strings.length);
+    }
+
+    private static int indexOf(String string, HashMap<String, Integer> stringIndexes, ArrayList<String> strings) {
+
+        if (string == null) {
+            return NO_STRING;
+        }
+
+        Integer index = stringIndexes.get(string);
+
+        if (index == null) {
+            index = strings.size();
+            strings.add(string);
+            stringIndexes.put(string, index);
+        }
+
+        return index;
+    }
+
+    private static void writeInts(DataOutputStream outputStream, int[] values) throws IOException {
+        for (int value : values) {
+            outputStream.writeInt(value);
+        }
+    }
+
+    private static void writeDoubles(DataOutputStream outputStream, double[] values) throws IOException {
+        for (double value : values) {
+            outputStream.writeDouble(value);
+        }
+    }
+
+    private static void readInts(ByteBuffer buffer, int[] values) {
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + values.length * 4);
+    }
+
+    private static void readDoubles(ByteBuffer buffer, double[] values) {
+        buffer.asDoubleBuffer().get(values);
+        buffer.position(buffer.position() + values.length * 8);
+    }
+
+}
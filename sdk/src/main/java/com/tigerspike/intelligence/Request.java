@@ -1,12 +1,16 @@
 package com.tigerspike.intelligence;
 
+import com.tigerspike.intelligence.exceptions.IntelligenceRequestException;
+
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.net.InetAddress;
 import java.net.URL;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.TreeMap;
 
 import javax.net.ssl.HttpsURLConnection;
 
@@ -14,6 +18,13 @@ class Request {
 
     private Method mMethod;
     private RequestSecurityPolicy mRequestSecurityPolicy;
+    private RequestTransport mRequestTransport;
+    private Metrics mMetrics;
+    private RequestTracer mRequestTracer;
+    private RetryPolicy mRetryPolicy;
+    private ResponseCache mResponseCache;
+    private NetworkQuality mNetworkQuality;
+    private long mCacheTtlMillis;
     private URL mUrl;
     private String mBody;
     private HashMap<String, String> mHeaders;
@@ -70,6 +81,13 @@ class Request {
         mBody = request.mBody;
         mHeaders = request.mHeaders;
         mParams = request.mParams;
+        mRequestTransport = request.mRequestTransport;
+        mMetrics = request.mMetrics;
+        mRequestTracer = request.mRequestTracer;
+        mRetryPolicy = request.mRetryPolicy;
+        mResponseCache = request.mResponseCache;
+        mNetworkQuality = request.mNetworkQuality;
+        mCacheTtlMillis = request.mCacheTtlMillis;
     }
 
     /**
@@ -108,6 +126,50 @@ class Request {
         return mParams;
     }
 
+    /**
+     * Returns the body of the request, null when the parameters are sent instead.
+     *
+     * @return body String
+     */
+    public String getBody() {
+        return mBody;
+    }
+
+    /**
+     * Returns how long the response of the request may be cached.
+     *
+     * @return milliseconds, 0 if the response is not cached.
+     */
+    public long getCacheTtlMillis() {
+        return mCacheTtlMillis;
+    }
+
+    void setCacheTtlMillis(long cacheTtlMillis) {
+        mCacheTtlMillis = cacheTtlMillis;
+    }
+
+    /**
+     * Returns the key identifying the request: its method, URL, parameters and Authorization header.
+     *
+     * @return key String
+     */
+    String key() {
+
+        StringBuilder key = new StringBuilder(mMethod.toString()).append(' ').append(mUrl);
+
+        if (mParams != null && !mParams.isEmpty()) {
+            for (Map.Entry<String, String> param : new TreeMap<>(mParams).entrySet()) {
+                key.append('&').append(param.getKey()).append('=').append(param.getValue());
+            }
+        }
+
+        if (mHeaders != null) {
+            key.append('\n').append(mHeaders.get("Authorization"));
+        }
+
+        return key.toString();
+    }
+
     /**
      * Set custom RequestSecurityPolicy to apply security policy for HttpsConnection.
      * @param RequestSecurityPolicy securityPolicy to be set.
@@ -116,6 +178,54 @@ class Request {
         mRequestSecurityPolicy = securityPolicy;
     }
 
+    /**
+     * Set a transport that sends the request instead of HttpsURLConnection.
+     * @param requestTransport transport to be used, null for HttpsURLConnection.
+     */
+    void setRequestTransport(RequestTransport requestTransport) {
+        mRequestTransport = requestTransport;
+    }
+
+    /**
+     * Set the Metrics recording the latency, status and size of the request.
+     * @param metrics metrics to be used, null to not record the request.
+     */
+    void setMetrics(Metrics metrics) {
+        mMetrics = metrics;
+    }
+
+    /**
+     * Set the RequestTracer deciding whether the phases of the request are timed.
+     * @param requestTracer tracer to be used, null to never time the request.
+     */
+    void setRequestTracer(RequestTracer requestTracer) {
+        mRequestTracer = requestTracer;
+    }
+
+    /**
+     * Set the RetryPolicy tracking the failures of the modules.
+     * @param retryPolicy policy to be used, null to always send the request.
+     */
+    void setRetryPolicy(RetryPolicy retryPolicy) {
+        mRetryPolicy = retryPolicy;
+    }
+
+    /**
+     * Set the ResponseCache answering the request when it has a cache time to live.
+     * @param responseCache cache to be used, null to always send the request.
+     */
+    void setResponseCache(ResponseCache responseCache) {
+        mResponseCache = responseCache;
+    }
+
+    /**
+     * Set the NetworkQuality estimating the round trip time and throughput from the request.
+     * @param networkQuality estimate to be updated, null to not measure the request.
+     */
+    void setNetworkQuality(NetworkQuality networkQuality) {
+        mNetworkQuality = networkQuality;
+    }
+
     /**
      * Executes the request and returns a Response Object containing the Result of the request.
      *
@@ -123,6 +233,81 @@ class Request {
      */
     public Response execute() {
 
+        if (mResponseCache != null && mMethod == Method.GET && mCacheTtlMillis > 0) {
+            Response cachedResponse = mResponseCache.get(this);
+            if (cachedResponse != null) {
+                return cachedResponse;
+            }
+        }
+
+        if (mRetryPolicy != null) {
+            IntelligenceRequestException rejection = mRetryPolicy.checkRequest(mUrl);
+            if (rejection != null) {
+                if (mMetrics != null) {
+                    mMetrics.requestsRejected.increment();
+                }
+                return new Response(this, -1, null, rejection);
+            }
+        }
+
+        return perform();
+
+    }
+
+    /**
+     * Sends the request, recording its metrics and timing.
+     *
+     * @return Response
+     */
+    private Response perform() {
+
+        long start = System.nanoTime();
+
+        RequestTiming timing = mRequestTracer != null ? mRequestTracer.start(this) : null;
+
+        // Requests not sampled are still timed for the NetworkQuality, without reporting their phases.
+        RequestTiming sendTiming = timing != null || mNetworkQuality == null ? timing
+                : new RequestTiming(mMethod.toString(), mUrl, RequestTiming.SILENT_LISTENER);
+
+        Response response = mRequestTransport != null ? mRequestTransport.execute(this, sendTiming) : send(sendTiming);
+
+        long elapsedNanos = System.nanoTime() - start;
+
+        if (mMetrics != null) {
+            mMetrics.recordRequest(mUrl, response.code(), elapsedNanos, mBody, response.bodyData());
+        }
+
+        // A transport which did not mark the phases leaves the request unmeasured.
+        if (sendTiming != null && mNetworkQuality != null && response.code() > 0) {
+            mNetworkQuality.recordRequest(Metrics.utf8Length(mBody), sendTiming.getTimeToFirstByteNanos(),
+                    Metrics.utf8Length(response.bodyData()), sendTiming.getResponseNanos());
+        }
+
+        if (timing != null) {
+            timing.finish(response.code(), response.exception());
+            response.setTiming(timing);
+        }
+
+        if (mRetryPolicy != null) {
+            mRetryPolicy.onResponse(mUrl, mMethod, response);
+        }
+
+        if (mResponseCache != null) {
+            mResponseCache.onResponse(this, response);
+        }
+
+        return response;
+
+    }
+
+    /**
+     * Sends the request with HttpsURLConnection.
+     *
+     * @param timing timing of the request, null if the request is not timed.
+     * @return Response
+     */
+    private Response send(RequestTiming timing) {
+
         HttpsURLConnection conn = null;
         InputStream inputStream = null;
         OutputStream outputStream = null;
@@ -130,6 +315,8 @@ class Request {
 
         int responseCode = -1;
         String responseBody = null;
+        long retryAfterMillis = -1;
+        String cacheControl = null;
 
 
         try {
@@ -147,30 +334,14 @@ class Request {
             }
 
             if ((mMethod == Method.GET || mMethod == Method.DELETE) && mParams.size() > 0) {
-
-                // Add Parameters to URL
-                StringBuilder urlWithParams = new StringBuilder();
-
-                for (Map.Entry<String, String> entry : mParams.entrySet()) {
-                    if (urlWithParams.length() == 0) {
-                        urlWithParams.append("?");
-                    } else {
-                        urlWithParams.append("&");
-                    }
-                    urlWithParams.append(entry.getKey()).append("=").append(entry.getValue());
-                }
-
-                urlWithParams.insert(0, mUrl.toString());
-
-                conn = (HttpsURLConnection) new URL(urlWithParams.toString()).openConnection();
-
+                conn = (HttpsURLConnection) new URL(urlWithParams()).openConnection();
             } else {
                 conn = (HttpsURLConnection) mUrl.openConnection();
             }
 
 
-            conn.setReadTimeout(Constants.CONNECTION_RESPONSE_TIMEOUT_MS);
-            conn.setConnectTimeout(Constants.CONNECTION_TIMEOUT_MS);
+            conn.setReadTimeout(IntelligenceTask.timeoutMillis(Constants.CONNECTION_RESPONSE_TIMEOUT_MS));
+            conn.setConnectTimeout(IntelligenceTask.timeoutMillis(Constants.CONNECTION_TIMEOUT_MS));
 
             conn.setDoInput(true);
             if (mMethod == Method.POST || mMethod == Method.PUT) {
@@ -190,24 +361,11 @@ class Request {
                 conn.setRequestProperty(entry.getKey(), entry.getValue());
             }
 
-            if (Thread.interrupted()) {
-                throw new InterruptedException();
-            }
-
             if (mMethod == Method.POST || mMethod == Method.PUT) {
 
                 if (mBody == null) {
 
-                    StringBuilder body = new StringBuilder();
-
-                    for (Map.Entry<String, String> entry : mParams.entrySet()) {
-                        if (body.length() > 0) {
-                            body.append("&");
-                        }
-                        body.append(entry.getKey()).append("=").append(entry.getValue());
-                    }
-
-                    mBody = body.toString();
+                    mBody = formBody();
 
                     conn.setRequestProperty("Content-Type", Constants.CONTENT_TYPE_FORM_URL_ENCODED);
 
@@ -217,18 +375,55 @@ class Request {
 
                 }
 
+            }
+
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+
+            if (timing != null) {
+                // Resolve the host beforehand to tell the lookup from the connection, the system caches the address for connect.
+                timing.mark(RequestTiming.Phase.DnsStart);
+                InetAddress.getAllByName(conn.getURL().getHost());
+                timing.mark(RequestTiming.Phase.DnsEnd);
+                timing.mark(RequestTiming.Phase.ConnectStart);
+                conn.connect();
+                timing.mark(RequestTiming.Phase.ConnectEnd);
+            }
+
+            if (mMethod == Method.POST || mMethod == Method.PUT) {
+
+                if (timing != null) {
+                    timing.mark(RequestTiming.Phase.RequestStart);
+                }
+
                 outputStream = conn.getOutputStream();
                 outputStream.write(mBody.getBytes());
                 outputStream.flush();
 
+                if (timing != null) {
+                    timing.mark(RequestTiming.Phase.RequestEnd);
+                }
+
             }
 
             if (Thread.interrupted()) {
                 throw new InterruptedException();
             }
 
+            if (timing != null) {
+                timing.mark(RequestTiming.Phase.ResponseHeadersStart);
+            }
+
             responseCode = conn.getResponseCode();
 
+            if (timing != null) {
+                timing.mark(RequestTiming.Phase.ResponseHeadersEnd);
+            }
+
+            retryAfterMillis = readRetryAfter(conn);
+            cacheControl = conn.getHeaderField("Cache-Control");
+
             //if there is success response then take inputstream otherwise get error stream
             if (responseCode/100 != 2 ) {
                 inputStream = conn.getErrorStream();
@@ -237,7 +432,17 @@ class Request {
             }
 
             if (inputStream != null) {
+
+                if (timing != null) {
+                    timing.mark(RequestTiming.Phase.ResponseBodyStart);
+                }
+
                 responseBody = readStream(inputStream);
+
+                if (timing != null) {
+                    timing.mark(RequestTiming.Phase.ResponseBodyEnd);
+                }
+
             }
 
         } catch (Exception e) {
@@ -266,7 +471,73 @@ class Request {
 
         }
 
-        return new Response(this, responseCode, responseBody, exception);
+        Response response = new Response(this, responseCode, responseBody, exception);
+        response.setRetryAfterMillis(retryAfterMillis);
+        response.setCacheControl(cacheControl);
+
+        return response;
+
+    }
+
+    /**
+     * @return the url, with the parameters appended for GET and DELETE requests.
+     */
+    String urlWithParams() {
+
+        if ((mMethod != Method.GET && mMethod != Method.DELETE) || mParams == null || mParams.isEmpty()) {
+            return mUrl.toString();
+        }
+
+        // Add Parameters to URL
+        StringBuilder urlWithParams = new StringBuilder(mUrl.toString());
+        char separator = '?';
+
+        for (Map.Entry<String, String> entry : mParams.entrySet()) {
+            urlWithParams.append(separator).append(entry.getKey()).append("=").append(entry.getValue());
+            separator = '&';
+        }
+
+        return urlWithParams.toString();
+    }
+
+    /**
+     * @return the parameters as a form url encoded body, sent by POST and PUT requests without body.
+     */
+    String formBody() {
+
+        StringBuilder body = new StringBuilder();
+
+        if (mParams != null) {
+            for (Map.Entry<String, String> entry : mParams.entrySet()) {
+                if (body.length() > 0) {
+                    body.append("&");
+                }
+                body.append(entry.getKey()).append("=").append(entry.getValue());
+            }
+        }
+
+        return body.toString();
+    }
+
+    /**
+     * Reads the Retry-After header, given in seconds or as an HTTP date.
+     *
+     * @return milliseconds to wait, -1 if the header is missing or invalid.
+     */
+    private static long readRetryAfter(HttpsURLConnection conn) {
+
+        String retryAfter = conn.getHeaderField("Retry-After");
+
+        if (retryAfter == null) {
+            return -1;
+        }
+
+        try {
+            return Math.max(0, Long.parseLong(retryAfter.trim()) * 1000);
+        } catch (NumberFormatException e) {
+            long date = conn.getHeaderFieldDate("Retry-After", -1);
+            return date < 0 ? -1 : Math.max(0, date - System.currentTimeMillis());
+        }
 
     }
 
@@ -7,22 +7,32 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.HashMap;
 
+/**
+ * Builds one Request, and is used by a single thread. Requests of an Intelligence instance are
+ * started from its RequestContext, the static factories build requests without collaborators.
+ */
 final class RequestBuilder {
 
     private URL mUrl;
     private String mBody;
     private Request.Method mMethod;
-    private static RequestSecurityPolicy mRequestSecurityPolicy;
+    private RequestContext mRequestContext;
+    private long mCacheTtlMillis;
     private HashMap<String, String> mHeaders;
     private HashMap<String, String> mParameters;
 
-    private RequestBuilder(Request.Method method, URL url) {
+    RequestBuilder(RequestContext requestContext, Request.Method method, URL url) {
+        mRequestContext = requestContext;
         mMethod = method;
         mUrl = url;
         mHeaders = new HashMap<>();
         mParameters = new HashMap<>();
     }
 
+    private RequestBuilder(Request.Method method, URL url) {
+        this(null, method, url);
+    }
+
     private RequestBuilder(Request.Method method, String url) throws MalformedURLException{
         this(method, new URL(url));
     }
@@ -34,9 +44,10 @@ final class RequestBuilder {
      */
     public Request build() {
         Request request = new Request(mMethod, mUrl, mHeaders, mParameters, mBody);
-        if (mRequestSecurityPolicy != null){
-            request.setRequestSecurityPolicy(mRequestSecurityPolicy);
+        if (mRequestContext != null) {
+            mRequestContext.apply(request);
         }
+        request.setCacheTtlMillis(mCacheTtlMillis);
         return request;
     }
 
@@ -129,19 +140,13 @@ final class RequestBuilder {
     }
 
     /**
-     * Set custom RequestSecurityPolicy for further building Request.
-     * @param RequestSecurityPolicy securityPolicy to be set.
-     */
-    public static void setRequestSecurityPolicy(RequestSecurityPolicy securityPolicy){
-        mRequestSecurityPolicy = securityPolicy;
-    }
-
-    /**
-     * Get currently used RequestSecurityPolicy in RequestBuilder.
-     * @return  RequestSecurityPolicy policyChecker.
+     * Allows the response of a GET request to be cached, when the response cache is enabled.
+     * @param ttlMillis how long the response may be used, in milliseconds.
+     * @return RequestBuilder
      */
-    public static RequestSecurityPolicy getRequestSecurityPolicy(){
-        return mRequestSecurityPolicy;
+    public RequestBuilder cache(long ttlMillis) {
+        mCacheTtlMillis = ttlMillis;
+        return this;
     }
 
     /**
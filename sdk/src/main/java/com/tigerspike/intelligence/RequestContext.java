@@ -0,0 +1,119 @@
+package com.tigerspike.intelligence;
+
+import java.net.URL;
+
+/**
+ * RequestContext
+ *
+ * Collaborators of the Requests built by an Intelligence instance: security policy, transport,
+ * metrics, tracer, retry policy, response cache and network quality. Any of them may be null.
+ *
+ * Immutable and shared by OAuth and the modules. Each request is built by its own RequestBuilder,
+ * so requests can be built on several threads at once without locking.
+ */
+final class RequestContext {
+
+    private final RequestSecurityPolicy mRequestSecurityPolicy;
+    private final RequestTransport mRequestTransport;
+    private final Metrics mMetrics;
+    private final RequestTracer mRequestTracer;
+    private final RetryPolicy mRetryPolicy;
+    private final ResponseCache mResponseCache;
+    private final NetworkQuality mNetworkQuality;
+
+    /**
+     * @param requestSecurityPolicy policy checking the requests, null for none.
+     * @param requestTransport      transport sending the requests, null to send them with HttpsURLConnection.
+     * @param metrics               metrics recording the requests, null to not record them.
+     * @param requestTracer         tracer sampling the requests, null to not time them.
+     * @param retryPolicy           policy of failed requests, null to always send them.
+     * @param responseCache         cache of GET responses, null to disable caching.
+     * @param networkQuality        estimate of the network updated by the requests, null to not measure them.
+     */
+    RequestContext(RequestSecurityPolicy requestSecurityPolicy, RequestTransport requestTransport, Metrics metrics, RequestTracer requestTracer,
+                   RetryPolicy retryPolicy, ResponseCache responseCache, NetworkQuality networkQuality) {
+        mRequestSecurityPolicy = requestSecurityPolicy;
+        mRequestTransport = requestTransport;
+        mMetrics = metrics;
+        mRequestTracer = requestTracer;
+        mRetryPolicy = retryPolicy;
+        mResponseCache = responseCache;
+        mNetworkQuality = networkQuality;
+    }
+
+    /**
+     * Creates a new RequestBuilder in this context with supplied url and Method type GET
+     */
+    RequestBuilder GET(URL url) {
+        return new RequestBuilder(this, Request.Method.GET, url);
+    }
+
+    /**
+     * Creates a new RequestBuilder in this context with supplied url and Method type POST
+     */
+    RequestBuilder POST(URL url) {
+        return new RequestBuilder(this, Request.Method.POST, url);
+    }
+
+    /**
+     * Creates a new RequestBuilder in this context with supplied url and Method type PUT
+     */
+    RequestBuilder PUT(URL url) {
+        return new RequestBuilder(this, Request.Method.PUT, url);
+    }
+
+    /**
+     * Creates a new RequestBuilder in this context with supplied url and Method type DELETE
+     */
+    RequestBuilder DELETE(URL url) {
+        return new RequestBuilder(this, Request.Method.DELETE, url);
+    }
+
+    /**
+     * Sets the collaborators on a request built in this context.
+     */
+    void apply(Request request) {
+        if (mRequestSecurityPolicy != null) {
+            request.setRequestSecurityPolicy(mRequestSecurityPolicy);
+        }
+        if (mRequestTransport != null) {
+            request.setRequestTransport(mRequestTransport);
+        }
+        if (mMetrics != null) {
+            request.setMetrics(mMetrics);
+        }
+        if (mRequestTracer != null) {
+            request.setRequestTracer(mRequestTracer);
+        }
+        if (mRetryPolicy != null) {
+            request.setRetryPolicy(mRetryPolicy);
+        }
+        if (mResponseCache != null) {
+            request.setResponseCache(mResponseCache);
+        }
+        if (mNetworkQuality != null) {
+            request.setNetworkQuality(mNetworkQuality);
+        }
+    }
+
+    RequestSecurityPolicy getRequestSecurityPolicy() {
+        return mRequestSecurityPolicy;
+    }
+
+    Metrics getMetrics() {
+        return mMetrics;
+    }
+
+    RequestTracer getRequestTracer() {
+        return mRequestTracer;
+    }
+
+    RetryPolicy getRetryPolicy() {
+        return mRetryPolicy;
+    }
+
+    NetworkQuality getNetworkQuality() {
+        return mNetworkQuality;
+    }
+
+}
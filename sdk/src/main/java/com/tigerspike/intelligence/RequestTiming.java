@@ -0,0 +1,140 @@
+package com.tigerspike.intelligence;
+
+import java.net.URL;
+
+/**
+ * RequestTiming
+ *
+ * Timestamps, from System.nanoTime(), of the phases of a sampled request. The phases are reported
+ * to the OnPhaseListener set with Intelligence.setRequestPhaseListener as they happen, and the
+ * record is attached to the Response. Requests not sampled are timed with SILENT_LISTENER when a
+ * NetworkQuality needs their phases.
+ *
+ * Neither transport reports the TLS handshake as its own phase, so Connect covers the TCP
+ * connection and the handshake. Connections reused by OkHttp have no Dns and Connect phases.
+ */
+public final class RequestTiming {
+
+    public enum Phase {
+        CallStart, DnsStart, DnsEnd, ConnectStart, ConnectEnd, RequestStart, RequestEnd,
+        ResponseHeadersStart, ResponseHeadersEnd, ResponseBodyStart, ResponseBodyEnd, CallEnd, CallFailed
+    }
+
+    // Listener of the requests timed only for the NetworkQuality.
+    static final OnPhaseListener SILENT_LISTENER = new OnPhaseListener() {
+        @Override
+        public void onPhase(RequestTiming timing, Phase phase, long nanoTime) {
+        }
+    };
+
+    private final String mMethod;
+    private final URL mUrl;
+    private final OnPhaseListener mListener;
+    private final long[] mTimes = new long[Phase.values().length];
+
+    private int mReachedPhases;
+    private int mStatusCode = -1;
+    private Exception mException;
+
+    RequestTiming(String method, URL url, OnPhaseListener listener) {
+        mMethod = method;
+        mUrl = url;
+        mListener = listener;
+    }
+
+    void mark(Phase phase) {
+        long now = System.nanoTime();
+        mTimes[phase.ordinal()] = now;
+        mReachedPhases |= 1 << phase.ordinal();
+        mListener.onPhase(this, phase, now);
+    }
+
+    void finish(int statusCode, Exception exception) {
+        mStatusCode = statusCode;
+        mException = exception;
+        mark(exception == null ? Phase.CallEnd : Phase.CallFailed);
+    }
+
+    public String getMethod() {
+        return mMethod;
+    }
+
+    public URL getURL() {
+        return mUrl;
+    }
+
+    /**
+     * @return HTTP status code, -1 until the call ends or if it failed.
+     */
+    public int getStatusCode() {
+        return mStatusCode;
+    }
+
+    /**
+     * @return exception that made the call fail, null otherwise.
+     */
+    public Exception getException() {
+        return mException;
+    }
+
+    public boolean hasPhase(Phase phase) {
+        return (mReachedPhases & 1 << phase.ordinal()) != 0;
+    }
+
+    /**
+     * @return System.nanoTime() when the phase was reached, only meaningful if hasPhase(phase).
+     */
+    public long getTime(Phase phase) {
+        return mTimes[phase.ordinal()];
+    }
+
+    /**
+     * @return nanoseconds between two phases, -1 if one of them was not reached.
+     */
+    public long getDuration(Phase start, Phase end) {
+        if (!hasPhase(start) || !hasPhase(end)) {
+            return -1;
+        }
+        return getTime(end) - getTime(start);
+    }
+
+    public long getDnsNanos() {
+        return getDuration(Phase.DnsStart, Phase.DnsEnd);
+    }
+
+    public long getConnectNanos() {
+        return getDuration(Phase.ConnectStart, Phase.ConnectEnd);
+    }
+
+    public long getRequestNanos() {
+        return getDuration(Phase.RequestStart, Phase.RequestEnd);
+    }
+
+    /**
+     * @return nanoseconds between the end of the request and the response headers, the time spent by the backend.
+     */
+    public long getTimeToFirstByteNanos() {
+        return getDuration(Phase.ResponseHeadersStart, Phase.ResponseHeadersEnd);
+    }
+
+    public long getResponseNanos() {
+        return getDuration(Phase.ResponseBodyStart, Phase.ResponseBodyEnd);
+    }
+
+    public long getTotalNanos() {
+        return getDuration(Phase.CallStart, hasPhase(Phase.CallFailed) ? Phase.CallFailed : Phase.CallEnd);
+    }
+
+    // Listener interfaces
+    public interface OnPhaseListener {
+        /**
+         * Called on the thread executing the request, keep it short.
+         *
+         * @param timing   timing record of the request so far.
+         * @param phase    phase reached.
+         * @param nanoTime System.nanoTime() when the phase was reached.
+         */
+        void onPhase(RequestTiming timing, Phase phase, long nanoTime);
+    }
+
+}
@@ -0,0 +1,40 @@
+package com.tigerspike.intelligence;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides which requests are timed, one every sampleInterval requests, and creates their RequestTiming.
+ */
+class RequestTracer {
+
+    private volatile RequestTiming.OnPhaseListener mListener;
+    private volatile int mSampleInterval = 1;
+    private final AtomicLong mRequestCount = new AtomicLong();
+
+    /**
+     * @param listener       listener of the request phases, null to stop timing requests.
+     * @param sampleInterval time one request every sampleInterval requests, 1 to time all of them.
+     */
+    void setListener(RequestTiming.OnPhaseListener listener, int sampleInterval) {
+        mSampleInterval = Math.max(1, sampleInterval);
+        mListener = listener;
+    }
+
+    /**
+     * @return timing of the request, after its CallStart, or null if the request is not sampled.
+     */
+    RequestTiming start(Request request) {
+
+        RequestTiming.OnPhaseListener listener = mListener;
+
+        if (listener == null || mRequestCount.getAndIncrement() % mSampleInterval != 0) {
+            return null;
+        }
+
+        RequestTiming timing = new RequestTiming(request.getMethod().toString(), request.getURL(), listener);
+        timing.mark(RequestTiming.Phase.CallStart);
+
+        return timing;
+    }
+
+}
@@ -0,0 +1,20 @@
+package com.tigerspike.intelligence;
+
+import android.support.annotation.Nullable;
+
+/**
+ * RequestTransport
+ *
+ * Sends a Request and returns its Response. Requests are sent with HttpsURLConnection unless the
+ * RequestContext has a transport: OkHttpRequestTransport when the configuration uses HTTP/2, or a
+ * fake one which lets the whole SDK run without network, e.g. in load tests.
+ */
+interface RequestTransport {
+
+    /**
+     * @param timing timing to mark the phases of the request on as they happen, null if the request is not timed.
+     * @return the response. Connection errors are returned in the Response exception, as Request.execute does.
+     */
+    Response execute(Request request, @Nullable RequestTiming timing);
+
+}
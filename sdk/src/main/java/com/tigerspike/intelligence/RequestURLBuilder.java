@@ -1,19 +1,35 @@
 package com.tigerspike.intelligence;
 
 import android.support.annotation.NonNull;
-import android.support.annotation.Nullable;
 
 import com.tigerspike.intelligence.exceptions.IntelligenceInvalidParameterException;
 
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Immutable, every method returns a new RequestURLBuilder. The instance created from the
+ * Configuration is shared by a module and its tasks, each URL is built from its own
+ * moduleBaseURL().urlPath(...).addParam(...) chain, so URLs can be built on several threads at once.
+ */
 final class RequestURLBuilder {
-    private HashMap<String, String> mUrlParameters;
-    private String mCurrentUrlScheme;
-    private Environment mEnvironment;
-    private Region mRegion;
+    // Parameters of the configuration, shared and never modified.
+    private final HashMap<String, String> mConfigurationParameters;
+    // Parameters added to this URL, null if none.
+    private final HashMap<String, String> mUrlParameters;
+    private final Module mCurrentModule;
+    private final String mCurrentUrlPath;
+    private final Environment mEnvironment;
+    private final Region mRegion;
+
+    // Base url of each module, computed once as the configuration does not change.
+    private final String[] mBaseURLs;
+
+    // Compiled url schemes of each module, by url path.
+    private final ArrayList<ConcurrentHashMap<String, UrlTemplate>> mTemplates;
 
     private static final String VERSION_PARAM = "VERSION";
     private static final String PROJECT_ID_PARAM = "PROJECT_ID";
@@ -27,26 +43,49 @@ final class RequestURLBuilder {
      * @throws IntelligenceInvalidParameterException
      */
     RequestURLBuilder(@NonNull Configuration configuration) {
-        mUrlParameters = new HashMap<>();
-        mUrlParameters.put(VERSION_PARAM, Constants.API_VERSION_PARAM);
+        mConfigurationParameters = new HashMap<>();
+        mConfigurationParameters.put(VERSION_PARAM, Constants.API_VERSION_PARAM);
+
+        mEnvironment = configuration.getEnvironment();
+        mRegion = configuration.getRegion();
 
-        if (configuration.getEnvironment() != null) {
-            mEnvironment = configuration.getEnvironment();
-        }
-        if (configuration.getRegion() != null) {
-            mRegion = configuration.getRegion();
-        }
         if (configuration.getProjectID() != null) {
-            mUrlParameters.put(PROJECT_ID_PARAM, configuration.getProjectID().toString());
+            mConfigurationParameters.put(PROJECT_ID_PARAM, configuration.getProjectID().toString());
         }
         if (configuration.getApplicationID() != null) {
-            mUrlParameters.put(APP_ID_PARAM, configuration.getApplicationID().toString());
+            mConfigurationParameters.put(APP_ID_PARAM, configuration.getApplicationID().toString());
         }
         if (configuration.getCompanyID() != null) {
-            mUrlParameters.put(COMPANY_ID_PARAM, configuration.getCompanyID().toString());
+            mConfigurationParameters.put(COMPANY_ID_PARAM, configuration.getCompanyID().toString());
+        }
+
+        mUrlParameters = null;
+        mCurrentModule = null;
+        mCurrentUrlPath = "";
+
+        mBaseURLs = new String[Module.values().length];
+        mTemplates = new ArrayList<>();
+        for (Module module : Module.values()) {
+            mTemplates.add(new ConcurrentHashMap<String, UrlTemplate>());
+            // Without environment or region the base url is left out, and building an URL fails as before.
+            if (mEnvironment != null && mRegion != null) {
+                mBaseURLs[module.ordinal()] = baseURLForModule(module);
+            }
         }
     }
 
+    private RequestURLBuilder(RequestURLBuilder builder, Module module, String urlPath, HashMap<String, String> urlParameters) {
+        mConfigurationParameters = builder.mConfigurationParameters;
+        mEnvironment = builder.mEnvironment;
+        mRegion = builder.mRegion;
+        mBaseURLs = builder.mBaseURLs;
+        mTemplates = builder.mTemplates;
+
+        mCurrentModule = module;
+        mCurrentUrlPath = urlPath;
+        mUrlParameters = urlParameters;
+    }
+
     /**
      * Allows user to append an urlPath to baseUrl, which is base object to construct URL from it.
      *
@@ -54,40 +93,39 @@ final class RequestURLBuilder {
      * @throws IntelligenceInvalidParameterException
      */
     RequestURLBuilder urlPath(String urlPath) {
-        mCurrentUrlScheme += urlPath;
-        return this;
+        return new RequestURLBuilder(this, mCurrentModule, mCurrentUrlPath.isEmpty() ? urlPath : mCurrentUrlPath + urlPath, mUrlParameters);
     }
 
     /**
      * @return Identity base url
      */
     public RequestURLBuilder identityBaseURL() {
-        mCurrentUrlScheme = baseURLForModule(Module.Identity);
-        return this;
+        return module(Module.Identity);
     }
 
     /**
      * @return Authentication base url
      */
     public RequestURLBuilder authenticationBaseURL() {
-        mCurrentUrlScheme = baseURLForModule(Module.Authentication);
-        return this;
+        return module(Module.Authentication);
     }
 
     /**
      * @return Analytics base url
      */
     public RequestURLBuilder analyticsBaseURL() {
-        mCurrentUrlScheme = baseURLForModule(Module.Analytics);
-        return this;
+        return module(Module.Analytics);
     }
 
     /**
      * @return Location base url
      */
     public RequestURLBuilder locationBaseURL() {
-        mCurrentUrlScheme = baseURLForModule(Module.Location);
-        return this;
+        return module(Module.Location);
+    }
+
+    private RequestURLBuilder module(Module module) {
+        return new RequestURLBuilder(this, module, "", null);
     }
 
     /**
@@ -100,14 +138,22 @@ final class RequestURLBuilder {
      * @return String baseUrl for module
      */
     private String baseURLForModule(Module module) {
-        String baseUrl = "https://";
+
+        String baseUrl = mBaseURLs[module.ordinal()];
+
+        if (baseUrl != null) {
+            return baseUrl;
+        }
+
+        baseUrl = "https://";
         if (module.toString().length() > 0) {
             baseUrl += module.toString();
         }
 
-        if (mapEnvironmentIntoString(mEnvironment) != null) {
-            baseUrl += mapEnvironmentIntoString(mEnvironment).length() > 0 ? "-" : "";
-            baseUrl += mapEnvironmentIntoString(mEnvironment);
+        String environment = mapEnvironmentIntoString(mEnvironment);
+        if (environment != null) {
+            baseUrl += environment.length() > 0 ? "-" : "";
+            baseUrl += environment;
         }
 
         baseUrl += ".phoenixplatform.";
@@ -126,58 +172,18 @@ final class RequestURLBuilder {
      * @throws IntelligenceInvalidParameterException
      */
     URL url() throws IntelligenceInvalidParameterException {
-        return constructUrl(mCurrentUrlScheme, mUrlParameters);
-    }
 
-    /**
-     * This method can construct any URL object if few conditions are fulfilled
-     *
-     * @param urlScheme - a String that contains URL format in which parameters are enclosed into braces,
-     *                  example - identity.api.phoenixplatform.com/v2/companies/{COMPANY_ID}/users"
-     * @param urlParams - a nullable HashMap that contains values related to keys, which are included in URLScheme
-     *                  If this parameter is null, URLScheme is used as plain URL address
-     * @return URL object constructed with combination of baseUrl, urlPath and urlParams
-     * @throws IntelligenceInvalidParameterException
-     */
-    private URL constructUrl(String urlScheme, @Nullable HashMap<String, String> urlParams)
-            throws IntelligenceInvalidParameterException {
-        if (urlParams == null) {
-            URL url = null;
-            try {
-                url = new URL(urlScheme);
-            } catch (MalformedURLException e) {
-                e.printStackTrace();
-            }
-
-            return url;
-        }
-
-        String[] URLComponents = urlScheme.split("/");
-        String newUrlString = "";
-        for (String component : URLComponents) {
-            //If there is at least more than one component, put divider at the end of String
-            if (!newUrlString.equalsIgnoreCase("")) {
-                newUrlString += "/";
-            }
+        ConcurrentHashMap<String, UrlTemplate> templates = mTemplates.get(mCurrentModule.ordinal());
+        UrlTemplate template = templates.get(mCurrentUrlPath);
 
-            String regEx = "\\{([^}]*.?)\\}";
-            if (component.matches(regEx)) {
-                String componentKey = component.substring(1, component.length() - 1);
-                String parameter = urlParams.get(componentKey);
-
-                if (parameter != null) {
-                    newUrlString += parameter;
-                } else {
-                    throw (new IntelligenceInvalidParameterException(IntelligenceInvalidParameterException.ErrorCode.MissingParameter, "Parameter (" + componentKey + ") not found in parameters collection"));
-                }
-            } else {
-                newUrlString += component;
-            }
+        if (template == null) {
+            template = UrlTemplate.compile(baseURLForModule(mCurrentModule) + mCurrentUrlPath);
+            templates.put(mCurrentUrlPath, template);
         }
 
         URL buildURL = null;
         try {
-            buildURL = new URL(newUrlString);
+            buildURL = new URL(template.expand(mUrlParameters, mConfigurationParameters));
         } catch (MalformedURLException e) {
             e.printStackTrace();
         }
@@ -192,8 +198,109 @@ final class RequestURLBuilder {
      */
     RequestURLBuilder addParam(String key, String value) {
         //If key is already there, value will be updated
-        mUrlParameters.put(key, value);
-        return this;
+        HashMap<String, String> urlParameters = mUrlParameters == null ? new HashMap<String, String>() : new HashMap<>(mUrlParameters);
+        urlParameters.put(key, value);
+        return new RequestURLBuilder(this, mCurrentModule, mCurrentUrlPath, urlParameters);
+    }
+
+    /**
+     * URL scheme split once into literal parts and parameters.
+     *
+     * A path component enclosed into braces is a parameter, example - identity.api.phoenixplatform.com/v2/companies/{COMPANY_ID}/users.
+     * Empty trailing components are dropped, as with String.split.
+     */
+    static final class UrlTemplate {
+
+        // mLiterals[i] goes before mKeys[i], the last literal ends the url.
+        private final String[] mLiterals;
+        private final String[] mKeys;
+        private final int mLength;
+
+        private UrlTemplate(String[] literals, String[] keys) {
+            mLiterals = literals;
+            mKeys = keys;
+
+            int length = 0;
+            for (String literal : literals) {
+                length += literal.length();
+            }
+            mLength = length + keys.length * 8;
+        }
+
+        static UrlTemplate compile(String urlScheme) {
+
+            ArrayList<String> literals = new ArrayList<>();
+            ArrayList<String> keys = new ArrayList<>();
+            StringBuilder literal = new StringBuilder();
+            boolean isEmpty = true;
+
+            for (String component : urlScheme.split("/")) {
+
+                //If there is at least more than one component, put divider before the component
+                if (!isEmpty) {
+                    literal.append('/');
+                }
+
+                if (isParameter(component)) {
+                    literals.add(literal.toString());
+                    keys.add(component.substring(1, component.length() - 1));
+                    literal.setLength(0);
+                    isEmpty = false;
+                } else {
+                    literal.append(component);
+                    isEmpty = isEmpty && component.isEmpty();
+                }
+            }
+
+            literals.add(literal.toString());
+
+            return new UrlTemplate(literals.toArray(new String[literals.size()]), keys.toArray(new String[keys.size()]));
+        }
+
+        /**
+         * @param urlParams           parameters added to the url, null if none.
+         * @param defaultParams       parameters used when not added to the url.
+         * @return the url with the parameters replaced by their values.
+         * @throws IntelligenceInvalidParameterException if a parameter has no value.
+         */
+        String expand(HashMap<String, String> urlParams, HashMap<String, String> defaultParams) throws IntelligenceInvalidParameterException {
+
+            StringBuilder url = new StringBuilder(mLength);
+
+            for (int i = 0; i < mKeys.length; i++) {
+
+                String parameter = urlParams != null ? urlParams.get(mKeys[i]) : null;
+
+                if (parameter == null) {
+                    parameter = defaultParams.get(mKeys[i]);
+                }
+
+                if (parameter == null) {
+                    throw (new IntelligenceInvalidParameterException(IntelligenceInvalidParameterException.ErrorCode.MissingParameter, "Parameter (" + mKeys[i] + ") not found in parameters collection"));
+                }
+
+                url.append(mLiterals[i]).append(parameter);
+            }
+
+            return url.append(mLiterals[mKeys.length]).toString();
+        }
+
+        /**
+         * @return true if the component matches the parameter expression "\\{([^}]*.?)\\}".
+         */
+        private static boolean isParameter(String component) {
+
+            int length = component.length();
+
+            if (length < 2 || component.charAt(0) != '{' || component.charAt(length - 1) != '}') {
+                return false;
+            }
+
+            int closingBrace = component.indexOf('}', 1);
+
+            return closingBrace >= length - 2;
+        }
+
     }
 
     /**
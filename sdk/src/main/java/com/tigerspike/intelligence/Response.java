@@ -11,6 +11,8 @@ import com.tigerspike.intelligence.exceptions.IntelligenceRequestException;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.util.List;
+
 final class Response {
 
     //keys for getting error and error description from response body
@@ -37,6 +39,9 @@ final class Response {
     private Exception mResponseException;
     private int mResponseCode;
     private String mBodyData;
+    private RequestTiming mTiming;
+    private long mRetryAfterMillis = -1;
+    private String mCacheControl;
 
     /**
      * Create response object with supplied values.
@@ -53,6 +58,19 @@ final class Response {
         mBodyData = bodyData;
     }
 
+    /**
+     * Returns a copy of this response for another request, without the timing of this one.
+     *
+     * @param request the other request.
+     * @return Response
+     */
+    Response copy(Request request) {
+        Response response = new Response(request, mResponseCode, mBodyData, mResponseException);
+        response.mRetryAfterMillis = mRetryAfterMillis;
+        response.mCacheControl = mCacheControl;
+        return response;
+    }
+
     /**
      * Returns associated Request object of this Response
      *
@@ -71,6 +89,45 @@ final class Response {
         return mResponseException;
     }
 
+    /**
+     * Returns the phase timestamps of the request, null if the request was not sampled.
+     *
+     * @return RequestTiming
+     */
+    public RequestTiming timing() {
+        return mTiming;
+    }
+
+    void setTiming(RequestTiming timing) {
+        mTiming = timing;
+    }
+
+    /**
+     * Returns the delay asked by the Retry-After header of the response.
+     *
+     * @return milliseconds, -1 if the response has no Retry-After header.
+     */
+    public long retryAfterMillis() {
+        return mRetryAfterMillis;
+    }
+
+    void setRetryAfterMillis(long retryAfterMillis) {
+        mRetryAfterMillis = retryAfterMillis;
+    }
+
+    /**
+     * Returns the Cache-Control header of the response.
+     *
+     * @return String, null if the response has no Cache-Control header.
+     */
+    public String cacheControl() {
+        return mCacheControl;
+    }
+
+    void setCacheControl(String cacheControl) {
+        mCacheControl = cacheControl;
+    }
+
     /**
      * Return response code
      *
@@ -98,6 +155,46 @@ final class Response {
     }
 
 
+    /**
+     * Reads the response body as a single model.
+     *
+     * @param codec codec of the model.
+     * @return the model.
+     * @throws JSONException if the body is not valid JSON for the model.
+     */
+    public <T> T read(JsonCodec<T> codec) throws JSONException {
+        return JsonCodecs.fromJson(mBodyData, codec);
+    }
+
+    /**
+     * Reads the "Data" list of an Intelligence API response body.
+     *
+     * @param codec codec of the listed models.
+     * @return the models.
+     * @throws JSONException if the body is not valid JSON or has no "Data" list.
+     */
+    public <T> List<T> readData(JsonCodec<T> codec) throws JSONException {
+        return JsonCodecs.dataFromJson(mBodyData, codec);
+    }
+
+    /**
+     * Reads the first model of the "Data" list of an Intelligence API response body.
+     *
+     * @param codec codec of the listed models.
+     * @return the first model.
+     * @throws JSONException if the body is not valid JSON or the "Data" list is missing or empty.
+     */
+    public <T> T readFirstData(JsonCodec<T> codec) throws JSONException {
+
+        List<T> data = readData(codec);
+
+        if (data.isEmpty()) {
+            throw new JSONException("Empty " + JsonCodecs.KEY_DATA);
+        }
+
+        return data.get(0);
+    }
+
     public void handleAuthenticationModuleErrorInResponse() throws IntelligenceException {
         assert(request().getURL().getHost().startsWith(Module.Authentication.toString()));
 
@@ -0,0 +1,143 @@
+package com.tigerspike.intelligence;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * In memory LRU cache of the successful responses of GET requests built with RequestBuilder.cache.
+ *
+ * A response is kept for the time to live of its request, or less when its Cache-Control max-age
+ * is shorter, and never when Cache-Control is no-store or no-cache. A successful write (POST, PUT
+ * or DELETE) to a module drops the cached responses of that module.
+ *
+ * Responses are kept in memory only: they hold authenticated user data, which should not outlive
+ * the process outside of the DataStore.
+ */
+class ResponseCache {
+
+    private final int mMaxEntries;
+    private final Metrics mMetrics;
+    private final LinkedHashMap<String, Entry> mEntries;
+
+    ResponseCache(int maxEntries, Metrics metrics) {
+        mMaxEntries = maxEntries;
+        mMetrics = metrics;
+        mEntries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > mMaxEntries;
+            }
+        };
+    }
+
+    /**
+     * @return a copy of the cached response of the request, null if none is fresh.
+     */
+    Response get(Request request) {
+
+        Entry entry;
+
+        synchronized (this) {
+            entry = mEntries.get(request.key());
+            if (entry != null && entry.mExpiresAt - System.nanoTime() <= 0) {
+                mEntries.remove(request.key());
+                entry = null;
+            }
+        }
+
+        if (entry == null) {
+            mMetrics.responseCacheMisses.increment();
+            return null;
+        }
+
+        mMetrics.responseCacheHits.increment();
+
+        return entry.mResponse.copy(request);
+    }
+
+    /**
+     * Called with the response of every sent request, caches it or invalidates the module on writes.
+     */
+    void onResponse(Request request, Response response) {
+
+        if (!response.isSuccess() || response.exception() != null) {
+            return;
+        }
+
+        if (request.getMethod() != Request.Method.GET) {
+            invalidate(Module.fromURL(request.getURL()));
+            return;
+        }
+
+        long ttlMillis = timeToLive(request.getCacheTtlMillis(), response.cacheControl());
+
+        if (ttlMillis > 0) {
+            synchronized (this) {
+                mEntries.put(request.key(), new Entry(response, Module.fromURL(request.getURL()), System.nanoTime() + ttlMillis * 1000000));
+            }
+        }
+    }
+
+    /**
+     * Drops the cached responses of the module.
+     */
+    synchronized void invalidate(Module module) {
+        Iterator<Entry> iterator = mEntries.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().mModule == module) {
+                iterator.remove();
+            }
+        }
+    }
+
+    synchronized void clear() {
+        mEntries.clear();
+    }
+
+    /**
+     * @return milliseconds to keep the response, 0 to not cache it.
+     */
+    static long timeToLive(long requestTtlMillis, String cacheControl) {
+
+        if (requestTtlMillis <= 0 || cacheControl == null) {
+            return Math.max(0, requestTtlMillis);
+        }
+
+        long ttlMillis = requestTtlMillis;
+
+        for (String directive : cacheControl.toLowerCase().split(",")) {
+
+            directive = directive.trim();
+
+            if (directive.equals("no-store") || directive.equals("no-cache")) {
+                return 0;
+            }
+
+            if (directive.startsWith("max-age=")) {
+                try {
+                    ttlMillis = Math.min(ttlMillis, Long.parseLong(directive.substring("max-age=".length())) * 1000);
+                } catch (NumberFormatException e) {
+                    // Ignore malformed max-age.
+                }
+            }
+        }
+
+        return Math.max(0, ttlMillis);
+    }
+
+    private static final class Entry {
+
+        private final Response mResponse;
+        private final Module mModule;
+        private final long mExpiresAt;
+
+        Entry(Response response, Module module, long expiresAt) {
+            mResponse = response;
+            mModule = module;
+            mExpiresAt = expiresAt;
+        }
+
+    }
+
+}
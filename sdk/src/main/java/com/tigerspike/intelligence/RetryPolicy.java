@@ -0,0 +1,210 @@
+package com.tigerspike.intelligence;
+
+import com.tigerspike.intelligence.exceptions.IntelligenceRequestException;
+
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.URL;
+import java.net.UnknownHostException;
+import java.util.Random;
+
+/**
+ * RetryPolicy
+ *
+ * Decides when a failed task is retried by the TaskExecutor, and stops sending requests to a
+ * module failing repeatedly.
+ *
+ * Connection errors, 408, 429 and 5xx responses are retryable. A failed POST may have been
+ * processed by the server though, so it is only retried when it could not connect, or got a 429 or
+ * 503, which are sent before processing. A retried task waits an exponential backoff with full
+ * jitter, or the Retry-After of the response if longer.
+ *
+ * Each Module has a circuit breaker: after FAILURE_THRESHOLD retryable failures in a row, its
+ * requests fail at once with ServiceUnavailable for OPEN_DURATION_MS, or the Retry-After of the
+ * last response. Requests are sent again once it elapsed: a success closes the circuit, a single
+ * failure opens it again.
+ */
+final class RetryPolicy {
+
+    static final int MAX_RETRY_COUNT = 3;
+
+    private static final long BASE_DELAY_MS = 1000;
+    private static final long MAX_DELAY_MS = 60000;
+
+    private static final int FAILURE_THRESHOLD = 5;
+    private static final long OPEN_DURATION_MS = 30000;
+
+    private static final int HTTP_REQUEST_TIMEOUT = 408;
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    private static final int HTTP_SERVICE_UNAVAILABLE = 503;
+
+    /**
+     * Delay in milliseconds before the failure of the task running on this thread can be retried,
+     * -1 if the last request of the task did not fail with a retryable error.
+     */
+    private final ThreadLocal<long[]> mRetryDelay = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[]{-1};
+        }
+    };
+
+    private final CircuitBreaker[] mCircuitBreakers = new CircuitBreaker[Module.values().length];
+    private final Random mRandom = new Random();
+
+    RetryPolicy() {
+        for (int i = 0; i < mCircuitBreakers.length; i++) {
+            mCircuitBreakers[i] = new CircuitBreaker();
+        }
+    }
+
+    /**
+     * @return true if a request failing with statusCode may succeed when sent again.
+     */
+    static boolean isRetryable(int statusCode) {
+        return statusCode < 0 || statusCode == HTTP_REQUEST_TIMEOUT || statusCode == HTTP_TOO_MANY_REQUESTS || statusCode / 100 == 5;
+    }
+
+    /**
+     * @return true if a request failing with the response can be sent again without the risk of repeating
+     * a write processed by the server.
+     */
+    static boolean canRetry(Request.Method method, Response response) {
+
+        int statusCode = response.code();
+
+        if (!isRetryable(statusCode)) {
+            return false;
+        }
+
+        if (method != Request.Method.POST) {
+            // GET, PUT and DELETE are idempotent.
+            return true;
+        }
+
+        return statusCode == HTTP_TOO_MANY_REQUESTS || statusCode == HTTP_SERVICE_UNAVAILABLE || isConnectFailure(response.exception());
+    }
+
+    /**
+     * @return true if the request failed before it could be sent to the server.
+     */
+    private static boolean isConnectFailure(Exception exception) {
+        return exception instanceof ConnectException || exception instanceof NoRouteToHostException || exception instanceof UnknownHostException;
+    }
+
+    /**
+     * Called before a request is sent.
+     *
+     * @return null if the request can be sent, otherwise the exception to fail it with.
+     */
+    IntelligenceRequestException checkRequest(URL url) {
+
+        Module module = Module.fromURL(url);
+
+        if (module == null) {
+            return null;
+        }
+
+        long remainingMillis = mCircuitBreakers[module.ordinal()].remainingOpenMillis();
+
+        if (remainingMillis <= 0) {
+            return null;
+        }
+
+        mRetryDelay.get()[0] = remainingMillis;
+
+        return new IntelligenceRequestException(IntelligenceRequestException.ErrorCode.ServiceUnavailable,
+                "Requests to " + module + " suspended for " + remainingMillis + "ms after repeated failures");
+    }
+
+    /**
+     * Called with the response of every sent request.
+     */
+    void onResponse(URL url, Request.Method method, Response response) {
+
+        Module module = Module.fromURL(url);
+        CircuitBreaker circuitBreaker = module == null ? null : mCircuitBreakers[module.ordinal()];
+
+        if (isRetryable(response.code())) {
+
+            long retryAfterMillis = response.retryAfterMillis();
+
+            if (circuitBreaker != null) {
+                circuitBreaker.onFailure(retryAfterMillis);
+            }
+
+            mRetryDelay.get()[0] = canRetry(method, response) ? Math.max(0, retryAfterMillis) : -1;
+
+        } else {
+
+            if (circuitBreaker != null) {
+                circuitBreaker.onSuccess();
+            }
+
+            mRetryDelay.get()[0] = -1;
+
+        }
+    }
+
+    /**
+     * Closes the circuits, called when the network comes back as the failures were likely caused by its loss.
+     */
+    void reset() {
+        for (CircuitBreaker circuitBreaker : mCircuitBreakers) {
+            circuitBreaker.onSuccess();
+        }
+    }
+
+    /**
+     * Called before a task is executed, forgets the failures of the previous task of the thread.
+     */
+    void beginTask() {
+        mRetryDelay.get()[0] = -1;
+    }
+
+    /**
+     * Called after a task failed on the thread that executed it.
+     *
+     * @param attempt number of times the task was already retried.
+     * @return delay in milliseconds before retrying the task, -1 if it should not be retried.
+     */
+    long retryDelay(int attempt) {
+
+        long minimumDelay = mRetryDelay.get()[0];
+
+        if (minimumDelay < 0 || attempt >= MAX_RETRY_COUNT) {
+            return -1;
+        }
+
+        long backoff = Math.min(MAX_DELAY_MS, BASE_DELAY_MS << attempt);
+        long jitter;
+        synchronized (mRandom) {
+            jitter = (long) (mRandom.nextDouble() * backoff);
+        }
+
+        return Math.max(minimumDelay, jitter);
+    }
+
+    private static final class CircuitBreaker {
+
+        private int mConsecutiveFailures;
+        private long mOpenUntil;
+
+        synchronized long remainingOpenMillis() {
+            return mConsecutiveFailures < FAILURE_THRESHOLD ? 0 : mOpenUntil - System.currentTimeMillis();
+        }
+
+        synchronized void onSuccess() {
+            mConsecutiveFailures = 0;
+        }
+
+        synchronized void onFailure(long retryAfterMillis) {
+            mConsecutiveFailures++;
+            if (mConsecutiveFailures >= FAILURE_THRESHOLD) {
+                mOpenUntil = System.currentTimeMillis() + Math.max(OPEN_DURATION_MS, retryAfterMillis);
+            }
+        }
+
+    }
+
+}
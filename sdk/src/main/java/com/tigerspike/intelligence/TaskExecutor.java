@@ -8,6 +8,8 @@ import android.content.IntentFilter;
 import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
 import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
 import com.tigerspike.intelligence.exceptions.IntelligenceException;
@@ -15,24 +17,41 @@ import com.tigerspike.intelligence.exceptions.IntelligenceRequestException;
 
 import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.List;
 
 public class TaskExecutor {
 
+    // Longest time a task waits for a network meeting its requirement, it is executed on any network after it.
+    static final long MAX_DEFERRAL_MS = 10 * 60 * 1000;
+
     private Application mApplication;
     private OAuth mOAuth;
+    private RequestContext mRequestContext;
+    private Metrics mMetrics;
+    private RetryPolicy mRetryPolicy;
+    private NetworkQuality mNetworkQuality;
+    private Handler mHandler;
 
     private LinkedList<IntelligenceTask> mTaskQueue;
+    // Tasks the current network does not allow, queued again on network change or once deferred for too long.
+    private LinkedList<IntelligenceTask> mDeferredTasks;
     private Boolean mIsBusy = false;
     private Boolean mNetworkConnected = false;
 
     ArrayList<OnNetworkChangeListener> mOnNetworkChangeListeners;
 
-    TaskExecutor(Application application, OAuth oAuth) {
+    TaskExecutor(Application application, OAuth oAuth, RequestContext requestContext) {
 
         mApplication = application;
         mOAuth = oAuth;
+        mRequestContext = requestContext;
+        mMetrics = requestContext.getMetrics();
+        mRetryPolicy = requestContext.getRetryPolicy();
+        mNetworkQuality = requestContext.getNetworkQuality() != null ? requestContext.getNetworkQuality() : new NetworkQuality();
+        mHandler = new Handler(Looper.getMainLooper());
 
         mTaskQueue = new LinkedList<>();
+        mDeferredTasks = new LinkedList<>();
 
         mOnNetworkChangeListeners = new ArrayList<>();
 
@@ -54,9 +73,28 @@ public class TaskExecutor {
     }
 
     void shutdown() {
+        mHandler.removeCallbacksAndMessages(null);
         mApplication.unregisterReceiver(mConnectionListener);
     }
 
+    Metrics getMetrics() {
+        return mMetrics;
+    }
+
+    /**
+     * @return the context the tasks build their requests in.
+     */
+    RequestContext getRequestContext() {
+        return mRequestContext;
+    }
+
+    /**
+     * @return the estimate of the active network, updated on network change and by the requests.
+     */
+    NetworkQuality getNetworkQuality() {
+        return mNetworkQuality;
+    }
+
     public Boolean hasConnection() {
         return mNetworkConnected;
     }
@@ -68,6 +106,9 @@ public class TaskExecutor {
         NetworkInfo networkInfo = connectivityManager.getActiveNetworkInfo();
         Boolean connected = networkInfo != null && networkInfo.isConnected();
 
+        mNetworkQuality.onNetworkChanged(connected ? networkInfo.getType() : -1, connected ? networkInfo.getSubtype() : 0,
+                connectivityManager.isActiveNetworkMetered());
+
         if (connected && !mNetworkConnected) {
             mNetworkConnected = true;
             onNetworkDetected();
@@ -76,6 +117,11 @@ public class TaskExecutor {
             onNetworkLost();
         }
 
+        if (connected) {
+            // The new network may allow them.
+            resumeDeferredTasks();
+        }
+
     }
 
     private BroadcastReceiver mConnectionListener = new BroadcastReceiver() {
@@ -88,6 +134,7 @@ public class TaskExecutor {
     };
 
     private void onNetworkDetected() {
+        mRetryPolicy.reset();
         for (OnNetworkChangeListener onNetworkChangeListener : mOnNetworkChangeListeners) {
             onNetworkChangeListener.onNetworkDetected();
         }
@@ -99,25 +146,108 @@ public class TaskExecutor {
         }
     }
 
+    /**
+     * Adds the task completing the future, which can cancel it.
+     *
+     * @return the future.
+     */
+    <T> IntelligenceFuture<T> submit(IntelligenceTask task, TaskFuture<T> future) {
+        future.setTask(task);
+        addTask(task);
+        return future;
+    }
+
     void addTask(IntelligenceTask task) {
+        task.mEnqueuedAt = System.nanoTime();
+
+        if (coalesce(task)) {
+            mMetrics.taskCoalesced.increment();
+            return;
+        }
+
         mTaskQueue.addLast(task);
+        mMetrics.taskQueueDepth.set(mTaskQueue.size());
         processQueue(false);
     }
 
+    /**
+     * Hands a task without deadline to an identical task still queued or deferred, e.g. the same call
+     * made again on every network change while offline.
+     *
+     * @return true if the task gets the result of the pending one instead of being queued.
+     */
+    private synchronized boolean coalesce(IntelligenceTask task) {
+
+        String key = task.coalesceKey();
+
+        if (key == null || task.isCancelled() || task.remainingMillis() >= 0) {
+            return false;
+        }
+
+        IntelligenceTask pendingTask = findPendingTask(mTaskQueue, task.getClass(), key);
+
+        if (pendingTask == null) {
+            pendingTask = findPendingTask(mDeferredTasks, task.getClass(), key);
+        }
+
+        if (pendingTask == null) {
+            return false;
+        }
+
+        pendingTask.coalesce(task);
+
+        return true;
+    }
+
+    private static IntelligenceTask findPendingTask(List<IntelligenceTask> tasks, Class<?> taskClass, String key) {
+
+        for (IntelligenceTask pendingTask : tasks) {
+            if (pendingTask.getClass() == taskClass && !pendingTask.isCancelled() && key.equals(pendingTask.coalesceKey())) {
+                return pendingTask;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Queues the tasks coalesced with a task dropped without executing, ahead of the other tasks.
+     */
+    private void requeueCoalescedTasks(IntelligenceTask task) {
+
+        List<IntelligenceTask> coalescedTasks = task.takeCoalescedTasks();
+
+        if (coalescedTasks.isEmpty()) {
+            return;
+        }
+
+        IntelligenceTask firstTask = coalescedTasks.get(0);
+
+        for (int i = 1; i < coalescedTasks.size(); i++) {
+            firstTask.coalesce(coalescedTasks.get(i));
+        }
+
+        mTaskQueue.addFirst(firstTask);
+    }
+
     private synchronized void processQueue(boolean inProgress) {
 
         if (!inProgress && mIsBusy) {
             return;
         }
 
-        if (mTaskQueue.size() == 0) {
+        IntelligenceTask task = pollTask();
+
+        mMetrics.taskQueueDepth.set(mTaskQueue.size());
+
+        if (task == null) {
             mIsBusy = false;
             return;
         }
 
         mIsBusy = true;
 
-        IntelligenceTask task = mTaskQueue.poll();
+        mMetrics.taskWaitTime.record((System.nanoTime() - task.mEnqueuedAt) / 1000);
 
         task.onPreExecute();
 
@@ -125,21 +255,149 @@ public class TaskExecutor {
 
     }
 
-    private void onExecuted(IntelligenceTask intelligenceTask, Exception exception) {
+    /**
+     * @return the next task of the queue, failing the cancelled and expired tasks before it and deferring
+     * the ones the network does not allow. Null if none is left.
+     */
+    private IntelligenceTask pollTask() {
+
+        IntelligenceTask task;
+
+        while ((task = mTaskQueue.poll()) != null) {
+
+            IntelligenceException staleException = task.staleException();
+
+            if (staleException != null) {
+                onStale(task, staleException);
+            } else if (shouldDefer(task)) {
+                defer(task);
+            } else {
+                return task;
+            }
+        }
+
+        return null;
+    }
+
+    private boolean shouldDefer(IntelligenceTask task) {
+        return !mNetworkQuality.allows(task.networkRequirement())
+                && (task.mDeferredAt == 0 || System.nanoTime() - task.mDeferredAt < MAX_DEFERRAL_MS * 1000000);
+    }
+
+    private void defer(IntelligenceTask task) {
+
+        if (task.mDeferredAt == 0) {
+            task.mDeferredAt = System.nanoTime();
+            mMetrics.taskDeferred.increment();
+        }
+
+        if (mDeferredTasks.isEmpty()) {
+            // The first deferred task is the oldest, the others are resumed with it.
+            long delayMillis = MAX_DEFERRAL_MS - (System.nanoTime() - task.mDeferredAt) / 1000000;
+            long remainingMillis = task.remainingMillis();
+            if (remainingMillis >= 0) {
+                // Resumed by its deadline, to fail it in time.
+                delayMillis = Math.min(delayMillis, remainingMillis);
+            }
+            mHandler.removeCallbacks(mResumeDeferredTasks);
+            mHandler.postDelayed(mResumeDeferredTasks, Math.max(0, delayMillis));
+        }
+
+        mDeferredTasks.addLast(task);
+    }
+
+    private final Runnable mResumeDeferredTasks = new Runnable() {
+        @Override
+        public void run() {
+            resumeDeferredTasks();
+        }
+    };
+
+    /**
+     * Queues the deferred tasks again ahead of the other tasks, the ones still not allowed are deferred again.
+     */
+    private synchronized void resumeDeferredTasks() {
+
+        if (mDeferredTasks.isEmpty()) {
+            return;
+        }
+
+        mHandler.removeCallbacks(mResumeDeferredTasks);
 
-        if (exception == null) {
+        mTaskQueue.addAll(0, mDeferredTasks);
+        mDeferredTasks.clear();
+
+        processQueue(false);
+    }
+
+    private void onStale(IntelligenceTask intelligenceTask, IntelligenceException staleException) {
+
+        if (intelligenceTask.isCancelled()) {
+            mMetrics.taskCancelled.increment();
+        } else {
+            mMetrics.taskExpired.increment();
+            Log.w(intelligenceTask.getClass().getName(), "Dropped after its deadline");
+        }
+
+        intelligenceTask.onError(staleException);
+
+        // Their own calls were not cancelled.
+        requeueCoalescedTasks(intelligenceTask);
+    }
+
+    private void onExecuted(final IntelligenceTask intelligenceTask, Exception exception, long retryDelay) {
+
+        IntelligenceException staleException = exception != null ? intelligenceTask.staleException() : null;
+
+        if (staleException != null) {
+            // Failed because it was cancelled or ran out of time, retrying would not help.
+            onStale(intelligenceTask, staleException);
+        } else if (exception != null && retryDelay >= 0 && mNetworkConnected) {
+
+            Log.w(exception.getClass().getName(), "Retrying in " + retryDelay + "ms: " + String.valueOf(exception.getMessage()));
+
+            mMetrics.taskRetries.increment();
+            intelligenceTask.mRetryCount++;
+
+            mHandler.postDelayed(new Runnable() {
+                @Override
+                public void run() {
+                    addTask(intelligenceTask);
+                }
+            }, retryDelay);
+
+        } else if (exception == null) {
             intelligenceTask.onPostExecute();
+
+            for (IntelligenceTask coalescedTask : intelligenceTask.takeCoalescedTasks()) {
+                IntelligenceException coalescedStaleException = coalescedTask.staleException();
+                if (coalescedStaleException != null) {
+                    onStale(coalescedTask, coalescedStaleException);
+                } else {
+                    coalescedTask.onCoalescedFinish(intelligenceTask);
+                }
+            }
         } else {
+            mMetrics.taskErrors.increment();
+
+            IntelligenceException intelligenceException;
+
             if (exception instanceof IntelligenceException) {
 
                 Log.e(exception.getClass().getName(), "(" + String.valueOf(((IntelligenceException) exception).getErrorCode()) + ") " + String.valueOf(exception.getMessage()));
 
-                intelligenceTask.onError((IntelligenceException) exception);
+                intelligenceException = (IntelligenceException) exception;
             } else {
 
                 Log.e(exception.getClass().getName(), String.valueOf(exception.getMessage()));
 
-                intelligenceTask.onError(new IntelligenceRequestException(IntelligenceRequestException.ErrorCode.UnhandledError, "Unknown exception, see cause for more details").addCause(exception));
+                intelligenceException = new IntelligenceRequestException(IntelligenceRequestException.ErrorCode.UnhandledError, "Unknown exception, see cause for more details").addCause(exception);
+            }
+
+            intelligenceTask.onError(intelligenceException);
+
+            for (IntelligenceTask coalescedTask : intelligenceTask.takeCoalescedTasks()) {
+                coalescedTask.onError(intelligenceException);
             }
         }
 
@@ -152,21 +410,28 @@ public class TaskExecutor {
     class TaskTask extends AsyncTask<IntelligenceTask, Void, IntelligenceTask> {
 
         private Exception mException;
+        private long mRetryDelay = -1;
 
         @Override
         protected IntelligenceTask doInBackground(IntelligenceTask... tasks) {
             IntelligenceTask intelligenceTask = tasks[0];
             intelligenceTask.setOAuth(mOAuth);
+            mRetryPolicy.beginTask();
+            intelligenceTask.onExecuteStart();
             try {
                 intelligenceTask.execute();
             } catch (Exception exception) {
                 mException = exception;
+                // Read on this thread, the policy keeps the last failure per thread.
+                mRetryDelay = mRetryPolicy.retryDelay(intelligenceTask.mRetryCount);
+            } finally {
+                intelligenceTask.onExecuteEnd();
             }
             return intelligenceTask;
         }
 
         protected void onPostExecute(IntelligenceTask intelligenceTask) {
-            onExecuted(intelligenceTask, mException);
+            onExecuted(intelligenceTask, mException, mRetryDelay);
         }
 
     }
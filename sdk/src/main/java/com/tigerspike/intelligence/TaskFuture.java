@@ -0,0 +1,49 @@
+package com.tigerspike.intelligence;
+
+import com.tigerspike.intelligence.exceptions.IntelligenceException;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Future completed by the task it listens to, with the result of the task.
+ */
+final class TaskFuture<T> extends IntelligenceFuture<T> implements IntelligenceTask.TaskListener {
+
+    private volatile IntelligenceTask mTask;
+
+    /**
+     * Sets the task completing the future, called by TaskExecutor.submit before the task is queued.
+     */
+    void setTask(IntelligenceTask task) {
+        mTask = task;
+    }
+
+    @Override
+    public IntelligenceFuture<T> setTimeout(long timeout, TimeUnit unit) {
+        IntelligenceTask task = mTask;
+        if (task != null) {
+            task.setTimeout(unit.toMillis(timeout));
+        }
+        return this;
+    }
+
+    @Override
+    void onCancel(boolean mayInterruptIfRunning) {
+        IntelligenceTask task = mTask;
+        if (task != null) {
+            task.cancel(mayInterruptIfRunning);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void onTaskFinish(IntelligenceTask intelligenceTask) {
+        complete((T) intelligenceTask.result(), null);
+    }
+
+    @Override
+    public void onTaskError(IntelligenceTask intelligenceTask, IntelligenceException exception) {
+        complete(null, exception);
+    }
+
+}
@@ -0,0 +1,320 @@
+package com.tigerspike.intelligence;
+
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import com.tigerspike.intelligence.exceptions.IntelligenceException;
+import com.tigerspike.intelligence.exceptions.IntelligenceRequestException;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * TaskOutbox
+ *
+ * Write tasks requested while offline, kept in the DataStore and queued in order by replay once the
+ * network is back, so they survive the app being killed in the meantime.
+ *
+ * Each entry has a key naming what it writes, e.g. a role of a user: a new entry replaces the pending
+ * entry with the same key, so only the last write is sent. Entries are removed once their task
+ * finished, or failed while online; a task failing offline is replayed again next time.
+ *
+ * Each entry belongs to the user signed in when it was added, and is only replayed while that user is
+ * signed in. The entries are cleared on logout.
+ *
+ * The listener of an entry is kept in memory only, it is not called if the app was restarted. Entries
+ * with personal data are not persistent either, they are lost if the app is killed before replay.
+ */
+class TaskOutbox {
+
+    static final String KEY_TASK_OUTBOX = "TASK_OUTBOX";
+    static final int MAX_ENTRIES = 100;
+
+    /**
+     * Creates the tasks of a type of entry from their payload.
+     */
+    interface TaskFactory {
+        IntelligenceTask createTask(String type, String payload, @Nullable IntelligenceTask.TaskListener taskListener) throws JSONException;
+    }
+
+    private final DataStore mDataStore;
+    private final TaskExecutor mTaskExecutor;
+    private final HashMap<String, TaskFactory> mFactories = new HashMap<>();
+
+    // Entries by key, in the order they were added. Loaded from the DataStore on first use.
+    private LinkedHashMap<String, Entry> mEntries;
+
+    TaskOutbox(DataStore dataStore, TaskExecutor taskExecutor) {
+        mDataStore = dataStore;
+        mTaskExecutor = taskExecutor;
+    }
+
+    synchronized void registerFactory(String type, TaskFactory factory) {
+        mFactories.put(type, factory);
+    }
+
+    /**
+     * Keeps a task until replay, replacing the pending task with the same key, whose listener fails with Cancelled.
+     *
+     * @param owner      ID of the signed in user, null if none.
+     * @param persistent false to keep the entry in memory only, for payloads which must not be written to the DataStore.
+     */
+    void add(String type, String key, @Nullable Integer owner, String payload, boolean persistent, @Nullable IntelligenceTask.TaskListener taskListener) {
+
+        ArrayList<Entry> dropped = new ArrayList<>();
+
+        synchronized (this) {
+
+            load();
+
+            dropped.add(mEntries.remove(key));
+
+            mEntries.put(key, new Entry(type, key, owner, payload, persistent, taskListener));
+
+            Iterator<Entry> iterator = mEntries.values().iterator();
+            while (mEntries.size() > MAX_ENTRIES) {
+                dropped.add(iterator.next());
+                iterator.remove();
+            }
+
+            store();
+        }
+
+        cancel(dropped, "Replaced by a newer write");
+    }
+
+    /**
+     * Removes all the entries, called on logout. Their listeners fail with Cancelled.
+     */
+    void clear() {
+
+        ArrayList<Entry> dropped;
+
+        synchronized (this) {
+
+            load();
+
+            dropped = new ArrayList<>(mEntries.values());
+
+            mEntries.clear();
+
+            store();
+        }
+
+        cancel(dropped, "User logged out");
+    }
+
+    private static void cancel(ArrayList<Entry> entries, String reason) {
+        for (Entry entry : entries) {
+            // A queued entry is reported by its task.
+            if (entry != null && !entry.mQueued && entry.mTaskListener != null) {
+                entry.mTaskListener.onTaskError(null, new IntelligenceRequestException(IntelligenceRequestException.ErrorCode.Cancelled, reason));
+            }
+        }
+    }
+
+    /**
+     * Queues the pending tasks of the signed in user in the order they were added, the tasks already
+     * queued are not queued again.
+     *
+     * @param owner ID of the signed in user, null if none.
+     */
+    void replay(@Nullable Integer owner) {
+
+        ArrayList<IntelligenceTask> tasks = new ArrayList<>();
+        ArrayList<TaskFuture<?>> futures = new ArrayList<>();
+
+        synchronized (this) {
+            load();
+            createTasks(owner, tasks, futures);
+        }
+
+        // Queued outside of the iteration, a task can finish before addTask returns.
+        for (int i = 0; i < tasks.size(); i++) {
+            if (futures.get(i) != null) {
+                // The future can then cancel the task or set its timeout.
+                mTaskExecutor.submit(tasks.get(i), futures.get(i));
+            } else {
+                mTaskExecutor.addTask(tasks.get(i));
+            }
+        }
+    }
+
+    private void createTasks(@Nullable Integer owner, ArrayList<IntelligenceTask> tasks, ArrayList<TaskFuture<?>> futures) {
+
+        boolean changed = false;
+        Iterator<Entry> iterator = mEntries.values().iterator();
+
+        while (iterator.hasNext()) {
+
+            final Entry entry = iterator.next();
+
+            if (entry.mQueued || !entry.isOwnedBy(owner)) {
+                continue;
+            }
+
+            if (entry.mTaskListener instanceof IntelligenceFuture && ((IntelligenceFuture) entry.mTaskListener).isCancelled()) {
+                iterator.remove();
+                changed = true;
+                continue;
+            }
+
+            TaskFactory factory = mFactories.get(entry.mType);
+
+            if (factory == null) {
+                // Not registered yet, the module replays again once it is.
+                continue;
+            }
+
+            IntelligenceTask task;
+
+            try {
+                task = factory.createTask(entry.mType, entry.mPayload, new EntryListener(entry));
+            } catch (JSONException | RuntimeException e) {
+                Log.e(TaskOutbox.class.getName(), "Dropped invalid " + entry.mType + ": " + e.getMessage());
+                iterator.remove();
+                changed = true;
+                continue;
+            }
+
+            entry.mQueued = true;
+            tasks.add(task);
+            futures.add(entry.mTaskListener instanceof TaskFuture ? (TaskFuture<?>) entry.mTaskListener : null);
+        }
+
+        if (changed) {
+            store();
+        }
+    }
+
+    synchronized int size() {
+        load();
+        return mEntries.size();
+    }
+
+    private synchronized void onEntryDone(Entry entry, boolean keep) {
+
+        entry.mQueued = false;
+
+        if (!keep && mEntries.get(entry.mKey) == entry) {
+            mEntries.remove(entry.mKey);
+            store();
+        }
+    }
+
+    private void load() {
+
+        if (mEntries != null) {
+            return;
+        }
+
+        mEntries = new LinkedHashMap<>();
+
+        String json = mDataStore.get(KEY_TASK_OUTBOX);
+
+        if (json == null) {
+            return;
+        }
+
+        try {
+            JSONArray entries = new JSONArray(json);
+            for (int i = 0; i < entries.length(); i++) {
+                JSONArray entry = entries.getJSONArray(i);
+                // Entries stored without an owner are only replayed while no user is signed in.
+                Integer owner = entry.isNull(3) ? null : entry.getInt(3);
+                mEntries.put(entry.getString(1), new Entry(entry.getString(0), entry.getString(1), owner, entry.getString(2), true, null));
+            }
+        } catch (JSONException e) {
+            Log.e(TaskOutbox.class.getName(), "Dropped invalid outbox: " + e.getMessage());
+        }
+    }
+
+    private void store() {
+
+        // Compact form: [[type, key, payload, owner], ...]
+        JSONArray entries = new JSONArray();
+        for (Entry entry : mEntries.values()) {
+            if (entry.mPersistent) {
+                entries.put(new JSONArray().put(entry.mType).put(entry.mKey).put(entry.mPayload).put(entry.mOwner != null ? entry.mOwner : JSONObject.NULL));
+            }
+        }
+
+        if (entries.length() == 0) {
+            mDataStore.remove(KEY_TASK_OUTBOX);
+            return;
+        }
+
+        mDataStore.set(KEY_TASK_OUTBOX, entries.toString());
+    }
+
+    private static final class Entry {
+
+        private final String mType;
+        private final String mKey;
+        private final Integer mOwner;
+        private final String mPayload;
+        private final boolean mPersistent;
+        private final IntelligenceTask.TaskListener mTaskListener;
+        private boolean mQueued;
+
+        Entry(String type, String key, Integer owner, String payload, boolean persistent, IntelligenceTask.TaskListener taskListener) {
+            mType = type;
+            mKey = key;
+            mOwner = owner;
+            mPayload = payload;
+            mPersistent = persistent;
+            mTaskListener = taskListener;
+        }
+
+        boolean isOwnedBy(Integer owner) {
+            return mOwner == null ? owner == null : mOwner.equals(owner);
+        }
+
+    }
+
+    /**
+     * Removes the entry once its task is done, then calls the listener of the entry.
+     */
+    private final class EntryListener implements IntelligenceTask.TaskListener {
+
+        private final Entry mEntry;
+
+        EntryListener(Entry entry) {
+            mEntry = entry;
+        }
+
+        @Override
+        public void onTaskFinish(IntelligenceTask intelligenceTask) {
+
+            onEntryDone(mEntry, false);
+
+            if (mEntry.mTaskListener != null) {
+                mEntry.mTaskListener.onTaskFinish(intelligenceTask);
+            }
+        }
+
+        @Override
+        public void onTaskError(IntelligenceTask intelligenceTask, IntelligenceException exception) {
+
+            if (!mTaskExecutor.hasConnection()) {
+                // Failed because the network was lost again, replayed once it is back.
+                onEntryDone(mEntry, true);
+                return;
+            }
+
+            onEntryDone(mEntry, false);
+
+            if (mEntry.mTaskListener != null) {
+                mEntry.mTaskListener.onTaskError(intelligenceTask, exception);
+            }
+        }
+
+    }
+
+}
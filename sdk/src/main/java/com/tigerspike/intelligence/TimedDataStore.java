@@ -0,0 +1,49 @@
+package com.tigerspike.intelligence;
+
+import java.util.Set;
+
+/**
+ * DataStore recording the time taken by the writes of another DataStore in Metrics.
+ */
+class TimedDataStore extends DataStore {
+
+    private DataStore mDataStore;
+    private Metrics mMetrics;
+
+    TimedDataStore(DataStore dataStore, Metrics metrics) {
+        mDataStore = dataStore;
+        mMetrics = metrics;
+    }
+
+    @Override
+    String get(String key, String defaultValue) {
+        return mDataStore.get(key, defaultValue);
+    }
+
+    @Override
+    void set(String key, String value, boolean commit) {
+        long start = System.nanoTime();
+        mDataStore.set(key, value, commit);
+        mMetrics.dataStoreWriteTime.record((System.nanoTime() - start) / 1000);
+    }
+
+    @Override
+    void setStringSet(String key, Set<String> values) {
+        long start = System.nanoTime();
+        mDataStore.setStringSet(key, values);
+        mMetrics.dataStoreWriteTime.record((System.nanoTime() - start) / 1000);
+    }
+
+    @Override
+    Set<String> getStringSet(String key, Set<String> defaultValues) {
+        return mDataStore.getStringSet(key, defaultValues);
+    }
+
+    @Override
+    void remove(String key, boolean commit) {
+        long start = System.nanoTime();
+        mDataStore.remove(key, commit);
+        mMetrics.dataStoreWriteTime.record((System.nanoTime() - start) / 1000);
+    }
+
+}
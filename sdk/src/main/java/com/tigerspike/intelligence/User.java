@@ -2,11 +2,14 @@ package com.tigerspike.intelligence;
 
 import android.annotation.SuppressLint;
 
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import com.tigerspike.intelligence.exceptions.IntelligenceIdentityException;
 
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.IOException;
 import java.lang.reflect.Array;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
@@ -122,8 +125,8 @@ public class User
     public User(String json)
             throws JSONException
     {
-        this(new JSONObject(json));
-
+        this();
+        copyFrom(JsonCodecs.fromJson(json, CODEC));
     }
 
     public JSONObject toJSONObject() {
@@ -150,8 +153,118 @@ public class User
     }
 
     public String toJSONString() {
-        JSONObject jsonObject = toJSONObject();
-        return jsonObject != null ? jsonObject.toString() : null;
+        return JsonCodecs.toJson(this, CODEC);
+    }
+
+    /**
+     * Streaming codec, reads the same JSON as the JSONObject constructor and writes the same JSON as toJSONObject.
+     */
+    static final JsonCodec<User> CODEC = new JsonCodec<User>() {
+
+        @Override
+        public User read(JsonReader reader) throws IOException {
+
+            User user = new User();
+
+            // Values absent in the JSON are cleared, like the JSONObject constructor does.
+            Integer userId = null;
+            String userType = null;
+            String username = null;
+            String password = null;
+            String firstName = null;
+            String lastName = null;
+            Integer lockingCount = null;
+            String reference = null;
+            Boolean isActive = false;
+            Integer companyId = null;
+            String createDate = null;
+            String modifyDate = null;
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String key = reader.nextName();
+                if (USER_ID_KEY.equals(key)) {
+                    userId = JsonCodecs.nextInteger(reader, null);
+                } else if (USER_TYPE_ID_KEY.equals(key)) {
+                    userType = JsonCodecs.nextString(reader);
+                } else if (USERNAME_KEY.equals(key)) {
+                    username = JsonCodecs.nextString(reader);
+                } else if (PASSWORD_KEY.equals(key)) {
+                    password = JsonCodecs.nextString(reader);
+                } else if (FIRSTNAME_KEY.equals(key)) {
+                    firstName = JsonCodecs.nextString(reader);
+                } else if (LASTNAME_KEY.equals(key)) {
+                    lastName = JsonCodecs.nextString(reader);
+                } else if (LOCKING_COUNT_KEY.equals(key)) {
+                    lockingCount = JsonCodecs.nextInteger(reader, null);
+                } else if (REFERENCE_KEY.equals(key)) {
+                    reference = JsonCodecs.nextString(reader);
+                } else if (IS_ACTIVE_KEY.equals(key)) {
+                    isActive = JsonCodecs.nextBoolean(reader, false);
+                } else if (COMPANY_ID_KEY.equals(key)) {
+                    companyId = JsonCodecs.nextInteger(reader, null);
+                } else if (CREATE_DATE_KEY.equals(key)) {
+                    createDate = JsonCodecs.nextString(reader);
+                } else if (MODIFY_DATE_KEY.equals(key)) {
+                    modifyDate = JsonCodecs.nextString(reader);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            user.setUserId(userId);
+            user.setUserType(userType);
+            user.setUsername(username);
+            user.setPassword(password);
+            user.setFirstName(firstName);
+            user.setLastName(lastName);
+            user.setLockingCount(lockingCount);
+            user.setReference(reference);
+            user.setIsActive(isActive);
+            user.setCompanyID(companyId);
+            user.setCreateDate(user.parseDateValue(createDate));
+            user.setModifyDate(user.parseDateValue(modifyDate));
+
+            return user;
+        }
+
+        @Override
+        public void write(JsonWriter writer, User user) throws IOException {
+            writer.beginObject();
+            writer.name(USER_ID_KEY).value(user.getUserId() == null ? null : user.getUserId().toString());
+            writer.name(COMPANY_ID_KEY).value(user.getCompanyId() == null ? null : user.getCompanyId().toString());
+            writer.name(USERNAME_KEY).value(user.getUsername());
+            writer.name(PASSWORD_KEY).value(user.getPassword());
+            writer.name(FIRSTNAME_KEY).value(user.getFirstName());
+            writer.name(LASTNAME_KEY).value(user.getLastName());
+            writer.name(AVATAR_KEY).value(user.getAvatarUrl() == null ? "" : user.getAvatarUrl());
+            writer.name(LOCKING_COUNT_KEY).value(Integer.toString(0));
+            writer.name(REFERENCE_KEY).value("");
+            writer.name(IS_ACTIVE_KEY).value(Boolean.toString(true));
+            writer.name(METADATA_KEY).value("");
+            writer.name(USER_TYPE_ID_KEY).value("User");
+            writer.endObject();
+        }
+
+    };
+
+    private void copyFrom(User user) {
+        mUserId = user.mUserId;
+        mUserType = user.mUserType;
+        mUsername = user.mUsername;
+        mFirstName = user.mFirstName;
+        mLastName = user.mLastName;
+        mLockingCount = user.mLockingCount;
+        mReference = user.mReference;
+        isActive = user.isActive;
+        mCreateDate = user.mCreateDate;
+        mModifyDate = user.mModifyDate;
+        mAvatarUrl = user.mAvatarUrl;
+        mMetaData = user.mMetaData;
+        mIdentifiers = user.mIdentifiers;
+        mCompanyId = user.mCompanyId;
+        mPassword = user.mPassword;
     }
 
 
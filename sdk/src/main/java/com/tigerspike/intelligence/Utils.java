@@ -2,10 +2,6 @@ package com.tigerspike.intelligence;
 
 import android.content.Context;
 import android.content.pm.PackageManager;
-import android.text.TextUtils;
-
-import org.json.JSONException;
-import org.json.JSONObject;
 
 import java.util.Random;
 
@@ -54,18 +50,4 @@ class Utils {
 
 
     }
-
-    public static String getInstallationId(DataStore dataStore) {
-        String installationString = dataStore != null ? dataStore.get(Constants.KEY_INSTALLATION_DATA) : null;
-        if (!TextUtils.isEmpty(installationString)) {
-            JSONObject jsonObject = null;
-            try {
-                jsonObject = new JSONObject(installationString);
-            } catch (JSONException e) {
-                e.printStackTrace();
-            }
-            return JSONUtils.getString(jsonObject, Constants.KEY_INSTALLATION_ID, null);
-        }
-        return "";
-    }
 }
@@ -20,7 +20,13 @@ public class IntelligenceRequestException extends IntelligenceException {
         /// Error to return if the user's role does not grant them access to this method.
         Forbidden(2005),
         /// Error to return if an error occurs that we can not handle.
-        UnhandledError(2006);
+        UnhandledError(2006),
+        /// Error to return if the module stopped sending requests after repeated server failures.
+        ServiceUnavailable(2007),
+        /// Error to return if the call was cancelled before it finished.
+        Cancelled(2008),
+        /// Error to return if the call did not finish before its deadline.
+        Timeout(2009);
 
         private Integer code;
 
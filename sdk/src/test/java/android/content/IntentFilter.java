@@ -0,0 +1,11 @@
+package android.content;
+
+public class IntentFilter {
+
+    public IntentFilter() {
+    }
+
+    public final void addAction(String action) {
+    }
+
+}
@@ -0,0 +1,54 @@
+package android.net;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+
+public class Uri {
+
+    private final String mUriString;
+
+    private Uri(String uriString) {
+        mUriString = uriString;
+    }
+
+    public static Uri parse(String uriString) {
+        return new Uri(uriString);
+    }
+
+    public Builder buildUpon() {
+        return new Builder(mUriString);
+    }
+
+    @Override
+    public String toString() {
+        return mUriString;
+    }
+
+    public static final class Builder {
+
+        private final StringBuilder mUriString;
+
+        private Builder(String uriString) {
+            mUriString = new StringBuilder(uriString);
+        }
+
+        public Builder appendQueryParameter(String key, String value) {
+            mUriString.append(mUriString.indexOf("?") < 0 ? '?' : '&').append(encode(key)).append('=').append(encode(value));
+            return this;
+        }
+
+        public Uri build() {
+            return new Uri(mUriString.toString());
+        }
+
+        private static String encode(String value) {
+            try {
+                return URLEncoder.encode(value, "UTF-8").replace("+", "%20");
+            } catch (UnsupportedEncodingException e) {
+                throw new AssertionError(e);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,27 @@
+package android.os;
+
+/**
+ * Runs posted runnables at once, the same way the AsyncTask stub runs tasks synchronously.
+ */
+public class Handler {
+
+    public Handler(Looper looper) {
+    }
+
+    public final boolean post(Runnable runnable) {
+        runnable.run();
+        return true;
+    }
+
+    public final boolean postDelayed(Runnable runnable, long delayMillis) {
+        runnable.run();
+        return true;
+    }
+
+    public final void removeCallbacks(Runnable runnable) {
+    }
+
+    public final void removeCallbacksAndMessages(Object token) {
+    }
+
+}
@@ -0,0 +1,19 @@
+package android.util;
+
+public class Base64 {
+
+    public static final int DEFAULT = 0;
+
+    public static byte[] decode(String str, int flags) {
+        try {
+            return java.util.Base64.getMimeDecoder().decode(str);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("bad base-64", e);
+        }
+    }
+
+    public static String encodeToString(byte[] input, int flags) {
+        return java.util.Base64.getEncoder().encodeToString(input) + "\n";
+    }
+
+}
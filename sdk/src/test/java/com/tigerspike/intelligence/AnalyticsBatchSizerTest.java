@@ -0,0 +1,63 @@
+package com.tigerspike.intelligence;
+
+import android.net.ConnectivityManager;
+import android.telephony.TelephonyManager;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AnalyticsBatchSizerTest extends TestCase {
+
+    /*
+     * Check if the limit grows additively on fast uploads and is halved on slow uploads and timeouts, within its bounds
+     */
+    @Test
+    public void additiveIncreaseMultiplicativeDecrease() {
+
+        AnalyticsBatchSizer batchSizer = new AnalyticsBatchSizer(new NetworkQuality());
+        long fast = 100 * 1000000L;
+        long slow = (AnalyticsBatchSizer.UPLOAD_TARGET_MS + 1) * 1000000L;
+
+        assertEquals("Initial limit not match", AnalyticsBatchSizer.INITIAL_BYTES, batchSizer.byteLimit());
+
+        batchSizer.onSuccess(fast);
+        assertEquals("Increased limit not match", AnalyticsBatchSizer.INITIAL_BYTES + AnalyticsBatchSizer.BYTES_INCREASE, batchSizer.byteLimit());
+
+        batchSizer.onSuccess(slow);
+        assertEquals("Limit after slow upload not match", (AnalyticsBatchSizer.INITIAL_BYTES + AnalyticsBatchSizer.BYTES_INCREASE) / 2, batchSizer.byteLimit());
+
+        for (int i = 0; i < 10; i++) {
+            batchSizer.onTimeout();
+        }
+        assertEquals("Minimum limit not match", AnalyticsBatchSizer.MIN_BYTES, batchSizer.byteLimit());
+
+        for (int i = 0; i < 100; i++) {
+            batchSizer.onSuccess(fast);
+        }
+        assertEquals("Maximum limit not match", AnalyticsBatchSizer.MAX_BYTES, batchSizer.byteLimit());
+    }
+
+    /*
+     * Check if the limit is bounded by the measured throughput, and minimal on a poor network not measured yet
+     */
+    @Test
+    public void boundedByNetwork() {
+
+        NetworkQuality networkQuality = new NetworkQuality();
+        AnalyticsBatchSizer batchSizer = new AnalyticsBatchSizer(networkQuality);
+
+        networkQuality.onNetworkChanged(ConnectivityManager.TYPE_MOBILE, TelephonyManager.NETWORK_TYPE_EDGE, true);
+        assertEquals("Limit on 2G not match", AnalyticsBatchSizer.MIN_BYTES, batchSizer.byteLimit());
+
+        // 10 KB/s
+        for (int i = 0; i < NetworkQuality.MIN_SAMPLES; i++) {
+            networkQuality.recordRequest(100, 100 * 1000000L, 100 * 1024, 10 * 1000000000L);
+        }
+        assertEquals("Limit at 10 KB/s not match", 10 * 1024 * AnalyticsBatchSizer.UPLOAD_TARGET_MS / 1000, batchSizer.byteLimit());
+    }
+
+}
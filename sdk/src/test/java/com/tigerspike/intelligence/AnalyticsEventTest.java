@@ -6,6 +6,7 @@ import org.json.JSONException;
 import org.json.JSONObject;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.Mockito;
 import org.mockito.runners.MockitoJUnitRunner;
 
 import java.util.HashMap;
@@ -53,4 +54,35 @@ public class AnalyticsEventTest  extends TestCase {
         assertEquals("Latitude not match", -122.031219, jsonObject.getJSONObject("Geolocation").getDouble("Latitude"));
         assertEquals("MetaData not match", "{\"key\":\"value\"}", jsonObject.getJSONObject("MetaData").toString());
     }
+
+    /*
+    * Check if the envelope is written in events, and if it is only matched by the same installation and user
+    */
+    @Test
+    public void analyticsEnvelope() throws JSONException {
+        Installation device = Mockito.mock(Installation.class);
+        Mockito.when(device.getInstalledVersion()).thenReturn("0.2.0");
+        Mockito.when(device.getModelReference()).thenReturn("HUAWEI P7-L10");
+        Mockito.when(device.getOperatingSystemVersion()).thenReturn("4.4.2");
+
+        AnalyticsEnvelope envelope = new AnalyticsEnvelope("installationId", device, 10069, 40003, 310375);
+
+        assertTrue("Envelope not matched", envelope.matches("installationId", 310375));
+        assertFalse("Envelope matched another user", envelope.matches("installationId", null));
+        assertFalse("Envelope matched another installation", envelope.matches("", 310375));
+        assertTrue("Envelope without installation not matched", new AnalyticsEnvelope("", device, 10069, 40003, null).matches(null, null));
+
+        AnalyticsEvent analyticsEvent = new AnalyticsEvent("up", "300");
+        analyticsEvent.setEnvelope(envelope);
+
+        JSONObject jsonObject = analyticsEvent.toJSONObject();
+
+        assertEquals("ProjectId not match", 40003, jsonObject.getInt("ProjectId"));
+        assertEquals("PhoenixIdentity_UserId not match", 310375, jsonObject.getInt("PhoenixIdentity_UserId"));
+        assertEquals("PhoenixIdentity_ApplicationId not match", 10069, jsonObject.getInt("PhoenixIdentity_ApplicationId"));
+        assertEquals("PhoenixIdentity_InstallationId not match", "installationId", jsonObject.getString("PhoenixIdentity_InstallationId"));
+        assertEquals("ApplicationVersion not match", "0.2.0", jsonObject.getString("ApplicationVersion"));
+        assertEquals("DeviceType not match", "HUAWEI P7-L10", jsonObject.getString("DeviceType"));
+        assertEquals("OperatingSystemVersion not match", "Android 4.4.2", jsonObject.getString("OperatingSystemVersion"));
+    }
 }
@@ -0,0 +1,191 @@
+package com.tigerspike.intelligence;
+
+import android.app.Application;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+
+import junit.framework.TestCase;
+
+import org.json.JSONArray;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AnalyticsModuleTest extends TestCase {
+
+    /*
+     * Check if a batch rejected with invalid_request is bisected, dropping only the invalid event
+     */
+    @Test
+    public void bisectInvalidRequest() throws Exception {
+
+        List<AnalyticsEvent> events = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            events.add(new AnalyticsEvent("Test.Event", i == 6 ? "invalid" : String.valueOf(i)));
+        }
+
+        MockDatastore dataStore = new MockDatastore();
+        dataStore.set("eventQueue", JsonCodecs.listToJson(events, AnalyticsEvent.CODEC));
+
+        final List<Integer> batchSizes = new ArrayList<>();
+        final List<String> uploaded = new ArrayList<>();
+
+        RequestTransport transport = new RequestTransport() {
+            @Override
+            public Response execute(Request request, RequestTiming timing) {
+                try {
+                    JSONArray batch = new JSONArray(request.getBody());
+                    batchSizes.add(batch.length());
+                    if (request.getBody().contains("\"invalid\"")) {
+                        return new Response(request, 400, "{\"error\":\"invalid_request\",\"error_description\":\"Invalid event\"}", null);
+                    }
+                    for (int i = 0; i < batch.length(); i++) {
+                        uploaded.add(batch.getJSONObject(i).getString("EventValue"));
+                    }
+                    return new Response(request, 200, "{\"Data\":" + request.getBody() + "}", null);
+                } catch (Exception e) {
+                    return new Response(request, -1, null, e);
+                }
+            }
+        };
+
+        Configuration configuration = new Configuration();
+        configuration.setRegion(Region.Europe);
+        configuration.setEnvironment(Environment.Production);
+        configuration.setProjectID(1);
+
+        Application application = Mockito.mock(Application.class);
+        Mockito.when(application.checkCallingOrSelfPermission(Mockito.anyString())).thenReturn(PackageManager.PERMISSION_DENIED);
+
+        Metrics metrics = new Metrics();
+        RequestContext requestContext = new RequestContext(null, transport, metrics, null, new RetryPolicy(), null, null);
+        TaskExecutor taskExecutor = new TaskExecutor(application, null, requestContext);
+
+        AnalyticsModule analytics = new AnalyticsModule(configuration, taskExecutor, dataStore, new OAuth(configuration, dataStore, requestContext),
+                application, new InstallationStore(dataStore));
+        analytics.startUp();
+
+        assertEquals("Batch sizes not match", "[10, 5, 5, 2, 1, 1, 3]", batchSizes.toString());
+        assertEquals("Uploaded events not match", "[0, 1, 2, 3, 4, 5, 7, 8, 9]", uploaded.toString());
+        assertEquals("Dropped count not match", 1, metrics.analyticsEventsDropped.getCount());
+        assertEquals("Uploaded count not match", 9, metrics.analyticsEventsUploaded.getCount());
+    }
+
+    /*
+     * Check if an event changed by the app after being tracked is queued and stored as it was tracked
+     */
+    @Test
+    public void snapshotTrackedEvent() throws Exception {
+
+        final List<String> bodies = new ArrayList<>();
+
+        RequestTransport transport = new RequestTransport() {
+            @Override
+            public Response execute(Request request, RequestTiming timing) {
+                bodies.add(request.getBody());
+                return new Response(request, 400, "{\"error\":\"invalid_client\",\"error_description\":\"Rejected\"}", null);
+            }
+        };
+
+        Configuration configuration = new Configuration();
+        configuration.setRegion(Region.Europe);
+        configuration.setEnvironment(Environment.Production);
+        configuration.setProjectID(1);
+
+        PackageInfo packageInfo = Mockito.mock(PackageInfo.class);
+        packageInfo.versionName = "1.0";
+
+        PackageManager packageManager = Mockito.mock(PackageManager.class);
+        Mockito.when(packageManager.getPackageInfo(Mockito.anyString(), Mockito.anyInt())).thenReturn(packageInfo);
+
+        Application application = Mockito.mock(Application.class);
+        Mockito.when(application.getPackageName()).thenReturn("com.tigerspike.intelligence");
+        Mockito.when(application.getPackageManager()).thenReturn(packageManager);
+        Mockito.when(application.checkCallingOrSelfPermission(Mockito.anyString())).thenReturn(PackageManager.PERMISSION_DENIED);
+
+        MockDatastore dataStore = new MockDatastore();
+        RequestContext requestContext = new RequestContext(null, transport, new Metrics(), null, new RetryPolicy(), null, null);
+        TaskExecutor taskExecutor = new TaskExecutor(application, null, requestContext);
+
+        AnalyticsModule analytics = new AnalyticsModule(configuration, taskExecutor, dataStore, new OAuth(configuration, dataStore, requestContext),
+                application, new InstallationStore(dataStore));
+
+        AnalyticsEvent event = new AnalyticsEvent("Test.Event", "1");
+        event.setTargetID("tracked");
+        analytics.trackEvent(event);
+
+        event.setTargetID("changed");
+        analytics.trackEvent(new AnalyticsEvent("Test.Other", "2"));
+
+        assertEquals("Requests count not match", 2, bodies.size());
+        assertEquals("Sent target not match", "tracked", new JSONArray(bodies.get(1)).getJSONObject(0).getString("TargetId"));
+        assertEquals("Stored target not match", "tracked", new JSONArray(dataStore.get("eventQueue")).getJSONObject(0).getString("TargetId"));
+    }
+
+    /*
+     * Check if the stored queue is only written again when it changed
+     */
+    @Test
+    public void storeChangedQueueOnly() throws Exception {
+
+        List<AnalyticsEvent> events = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            events.add(new AnalyticsEvent("Test.Event", String.valueOf(i)));
+        }
+
+        final List<String> writes = new ArrayList<>();
+
+        MockDatastore dataStore = new MockDatastore() {
+            @Override
+            void set(String key, String value, boolean commit) {
+                if ("eventQueue".equals(key)) {
+                    writes.add(value);
+                }
+                super.set(key, value, commit);
+            }
+        };
+        dataStore.set("eventQueue", JsonCodecs.listToJson(events, AnalyticsEvent.CODEC));
+        writes.clear();
+
+        final boolean[] accept = {false};
+
+        RequestTransport transport = new RequestTransport() {
+            @Override
+            public Response execute(Request request, RequestTiming timing) {
+                if (!accept[0]) {
+                    return new Response(request, 500, "{\"error\":\"server_error\",\"error_description\":\"Failed\"}", null);
+                }
+                return new Response(request, 200, "{\"Data\":" + request.getBody() + "}", null);
+            }
+        };
+
+        Configuration configuration = new Configuration();
+        configuration.setRegion(Region.Europe);
+        configuration.setEnvironment(Environment.Production);
+        configuration.setProjectID(1);
+
+        Application application = Mockito.mock(Application.class);
+        Mockito.when(application.checkCallingOrSelfPermission(Mockito.anyString())).thenReturn(PackageManager.PERMISSION_DENIED);
+
+        RequestContext requestContext = new RequestContext(null, transport, new Metrics(), null, new RetryPolicy(), null, null);
+        TaskExecutor taskExecutor = new TaskExecutor(application, null, requestContext);
+
+        AnalyticsModule analytics = new AnalyticsModule(configuration, taskExecutor, dataStore, new OAuth(configuration, dataStore, requestContext),
+                application, new InstallationStore(dataStore));
+
+        analytics.startUp();
+        analytics.startUp();
+        assertTrue("Unchanged queue written", writes.isEmpty());
+
+        accept[0] = true;
+        analytics.startUp();
+        assertEquals("Writes not match", 1, writes.size());
+        assertEquals("Stored queue not match", 0, new JSONArray(writes.get(0)).length());
+    }
+
+}
@@ -0,0 +1,104 @@
+package com.tigerspike.intelligence;
+
+import junit.framework.TestCase;
+
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AnalyticsSamplerTest extends TestCase {
+
+    private static final String SCREEN_VIEWED = Constants.APPLICATION_SCREEN_VIEWED_EVENT;
+    private static final String APPLICATION_TIME = "Phoenix.Analytics.Application.Time";
+
+    private static final AnalyticsEnvelope USER = createEnvelope("installation", 1);
+
+    /*
+     * Check if events of a sampled type are kept at about their rate with the rate in their MetaData, and other types are all kept
+     */
+    @Test
+    public void sampling() {
+
+        HashMap<String, Double> rates = new HashMap<>();
+        rates.put(SCREEN_VIEWED, 0.1);
+
+        AnalyticsSampler sampler = new AnalyticsSampler(rates, Collections.<String>emptySet(), new Random(42));
+
+        int kept = 0;
+        AnalyticsEvent keptEvent = null;
+
+        for (int i = 0; i < 10000; i++) {
+            AnalyticsEvent event = new AnalyticsEventScreenViewed("Home", 1.0);
+            if (sampler.offer(event, USER) == AnalyticsSampler.Decision.Keep) {
+                kept++;
+                keptEvent = event;
+            }
+        }
+
+        assertTrue("Kept events not about the rate: " + kept, kept > 900 && kept < 1100);
+        assertTrue("Sampling rate not in MetaData", keptEvent.toJSONString().contains("\"" + AnalyticsSampler.META_DATA_SAMPLING_RATE + "\":\"0.1\""));
+        assertEquals("Not sampled type not kept", AnalyticsSampler.Decision.Keep, sampler.offer(new AnalyticsEvent("Custom.Event"), USER));
+    }
+
+    /*
+     * Check if events of an aggregated type are counted and summed per target, and drained as one summary event each
+     */
+    @Test
+    public void aggregation() {
+
+        AnalyticsSampler sampler = new AnalyticsSampler(new HashMap<String, Double>(), Collections.singleton(APPLICATION_TIME), new Random(42));
+
+        assertEquals(AnalyticsSampler.Decision.Aggregate, sampler.offer(new AnalyticsEvent(APPLICATION_TIME, "1.5"), USER));
+        assertEquals(AnalyticsSampler.Decision.Aggregate, sampler.offer(new AnalyticsEvent(APPLICATION_TIME, "2.5"), USER));
+        assertEquals(AnalyticsSampler.Decision.Aggregate, sampler.offer(new AnalyticsEvent(APPLICATION_TIME, "invalid"), USER));
+
+        AnalyticsEvent targeted = new AnalyticsEvent(APPLICATION_TIME, "10");
+        targeted.setTargetID("Other");
+        sampler.offer(targeted, USER);
+
+        List<AnalyticsEvent> summaries = sampler.drain();
+
+        assertEquals("Summary count not match", 2, summaries.size());
+        assertEquals("Summary type not match", APPLICATION_TIME, summaries.get(0).getType());
+        assertEquals("Summary value not match", "4.0", summaries.get(0).getValue());
+        assertTrue("Count not in MetaData", summaries.get(0).toJSONString().contains("\"" + AnalyticsSampler.META_DATA_COUNT + "\":\"3\""));
+        assertEquals("Summary target not match", "Other", summaries.get(1).getTargetID());
+        assertEquals("Summary value not match", "10.0", summaries.get(1).getValue());
+
+        assertTrue("Window not cleared", sampler.drain().isEmpty());
+    }
+
+    /*
+     * Check if events tracked by another user or installation are aggregated apart, with their own envelope
+     */
+    @Test
+    public void aggregationPerEnvelope() throws Exception {
+
+        AnalyticsSampler sampler = new AnalyticsSampler(new HashMap<String, Double>(), Collections.singleton(APPLICATION_TIME), new Random(42));
+
+        sampler.offer(new AnalyticsEvent(APPLICATION_TIME, "1"), USER);
+        sampler.offer(new AnalyticsEvent(APPLICATION_TIME, "2"), createEnvelope("installation", 2));
+        sampler.offer(new AnalyticsEvent(APPLICATION_TIME, "3"), createEnvelope("installation", null));
+
+        List<AnalyticsEvent> summaries = sampler.drain();
+
+        assertEquals("Summary count not match", 3, summaries.size());
+        assertEquals("Summary user not match", 1, new JSONObject(summaries.get(0).toJSONString()).getInt("PhoenixIdentity_UserId"));
+        assertEquals("Summary user not match", 2, new JSONObject(summaries.get(1).toJSONString()).getInt("PhoenixIdentity_UserId"));
+        assertEquals("Summary value not match", "3.0", summaries.get(2).getValue());
+        assertTrue("Summary without user has a user", new JSONObject(summaries.get(2).toJSONString()).isNull("PhoenixIdentity_UserId"));
+    }
+
+    private static AnalyticsEnvelope createEnvelope(String installationID, Integer userID) {
+        return new AnalyticsEnvelope(installationID, Mockito.mock(Installation.class), 10, 40003, userID);
+    }
+
+}
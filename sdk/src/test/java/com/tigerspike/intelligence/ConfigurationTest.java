@@ -14,6 +14,8 @@ import org.junit.runner.RunWith;
 import org.mockito.Mockito;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import java.util.Collections;
+
 /**
  * Created by Mel on 23/07/15.
  */
@@ -632,5 +634,102 @@ public class ConfigurationTest extends TestCase
         assertEquals("certificate_trust_policy read from file is not a CertificateTrustPolicy type", CertificateTrustPolicy.class, configuration.getCertificateTrustPolicy().getClass());
     }
 
+    /*
+    * Given comma separated certificate pins then each pin must be returned trimmed, and none when not set
+    * */
+    @Test
+    public void certificatePins() {
+        Configuration configuration = new Configuration();
+
+        assertEquals("Pins returned when not set", 0, configuration.getCertificatePins().length);
+
+        configuration.setCertificatePins("sha256/AAAA=, sha256/BBBB=");
+
+        String[] pins = new Configuration(configuration).getCertificatePins();
+        assertEquals("Pins not match", 2, pins.length);
+        assertEquals("Pin not match", "sha256/AAAA=", pins[0]);
+        assertEquals("Pin not match", "sha256/BBBB=", pins[1]);
+    }
+
+    /*
+    * Given use_http2 in the configuration file then the HTTP/2 transport must be used, and not when not set
+    * */
+    @Test
+    public void JSONFileUseHttp2() throws Exception {
+        Configuration configuration = new Configuration();
+
+        assertFalse("HTTP/2 used when not set", configuration.getUseHttp2());
+
+        Mockito.when(mockAssetManager.open(Mockito.anyString())).thenReturn(IOUtils.toInputStream("{\"region\":\"US\",\"environment\":\"uat\",\"client_id\":\"AndroidIntelligenceSDKApp_p\",\"client_secret\":\"G1Ep4NU9Tp1Myp726oseqtcmxiopxpxhwzkonyxu\",\"application_id\":\"10069\",\"project_id\":\"40003\",\"company_id\":\"19017\",\"sdk_user_role\":16018,\"certificate_trust_policy\": \"any\",\"use_http2\": true}"));
+        configuration.loadFromJSON(mockApplication, "intelligence.json");
+
+        assertTrue("use_http2 read from file not match", configuration.getUseHttp2());
+    }
+
+    /*
+    * Given no geofence properties then the dwell time, exit delay and minimum interval must default to 0
+    * */
+    @Test
+    public void geofenceDefaults() {
+        Configuration configuration = new Configuration();
+
+        assertEquals("Default dwell time not match", 0, configuration.getGeofenceDwellTime());
+        assertEquals("Default exit delay not match", 0, configuration.getGeofenceExitDelay());
+        assertEquals("Default minimum interval not match", 0, configuration.getGeofenceMinInterval());
+
+        configuration.setGeofenceExitDelay(30);
+        configuration.setGeofenceMinInterval(60);
+
+        Configuration copy = new Configuration(configuration);
+        assertEquals("Exit delay not match", 30, copy.getGeofenceExitDelay());
+        assertEquals("Minimum interval not match", 60, copy.getGeofenceMinInterval());
+    }
+
+    /*
+    * Given analytics sampling and aggregation properties then the rates, types and window must be parsed, and invalid rates refused
+    * */
+    @Test
+    public void analyticsSampling() {
+        Configuration configuration = new Configuration();
+
+        assertTrue("Rates returned when not set", configuration.getAnalyticsSamplingRates().isEmpty());
+        assertTrue("Aggregated types returned when not set", configuration.getAnalyticsAggregatedTypes().isEmpty());
+        assertEquals("Default aggregation window not match", 60, configuration.getAnalyticsAggregationWindow());
+
+        configuration.setAnalyticsSamplingRates("Phoenix.Identity.Application.ScreenViewed=0.1, Custom.Event = 1");
+        configuration.setAnalyticsAggregatedTypes("Phoenix.Analytics.Application.Time,");
+        configuration.setAnalyticsAggregationWindow(300);
+
+        Configuration copy = new Configuration(configuration);
+        assertEquals("Rate not match", 0.1, copy.getAnalyticsSamplingRates().get("Phoenix.Identity.Application.ScreenViewed"));
+        assertEquals("Rate not match", 1.0, copy.getAnalyticsSamplingRates().get("Custom.Event"));
+        assertEquals("Aggregated types not match", Collections.singleton("Phoenix.Analytics.Application.Time"), copy.getAnalyticsAggregatedTypes());
+        assertEquals("Aggregation window not match", 300, copy.getAnalyticsAggregationWindow());
+
+        try {
+            configuration.setAnalyticsSamplingRates("Custom.Event=2");
+            fail("Rate above 1 accepted");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+        assertEquals("Refused rates kept", 2, configuration.getAnalyticsSamplingRates().size());
+    }
+
+    /*
+    * Given an invalid analytics_sampling_rates in the configuration file then loading the file must fail with InvalidProperty
+    * */
+    @Test
+    public void JSONFileInvalidSamplingRates() throws Exception {
+        Configuration configuration = new Configuration();
+
+        Mockito.when(mockAssetManager.open(Mockito.anyString())).thenReturn(IOUtils.toInputStream("{\"region\":\"US\",\"environment\":\"uat\",\"client_id\":\"AndroidIntelligenceSDKApp_p\",\"client_secret\":\"G1Ep4NU9Tp1Myp726oseqtcmxiopxpxhwzkonyxu\",\"application_id\":\"10069\",\"project_id\":\"40003\",\"company_id\":\"19017\",\"sdk_user_role\":16018,\"certificate_trust_policy\": \"any\",\"analytics_sampling_rates\": \"Custom.Event=abc\"}"));
+
+        try {
+            configuration.loadFromJSON(mockApplication, "intelligence.json");
+            fail("Invalid sampling rates accepted");
+        } catch (IntelligenceConfigurationException e) {
+            assertEquals("Error code not match", IntelligenceConfigurationException.ErrorCode.InvalidProperty.getCode(), e.getErrorCode());
+        }
+    }
 
 }
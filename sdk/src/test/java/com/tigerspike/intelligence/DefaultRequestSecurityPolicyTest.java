@@ -0,0 +1,141 @@
+package com.tigerspike.intelligence;
+
+import android.util.Base64;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.security.MessageDigest;
+import java.security.PublicKey;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLSession;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DefaultRequestSecurityPolicyTest extends TestCase {
+
+    // The chain as sent, for servers whose path is the chain itself.
+    private static final DefaultRequestSecurityPolicy.ChainCleaner SENT_CHAIN = new DefaultRequestSecurityPolicy.ChainCleaner() {
+        @Override
+        public List<X509Certificate> clean(X509Certificate[] chain, String hostname) {
+            return Arrays.asList(chain);
+        }
+    };
+
+    private static final HostnameVerifier ANY_HOSTNAME = new HostnameVerifier() {
+        @Override
+        public boolean verify(String hostname, SSLSession session) {
+            return true;
+        }
+    };
+
+    /*
+     * Check if pins are decoded once, and malformed pins are refused
+     */
+    @Test
+    public void decodePins() throws Exception {
+
+        byte[] hash = MessageDigest.getInstance("SHA-256").digest("key".getBytes("UTF-8"));
+
+        byte[][] pins = DefaultRequestSecurityPolicy.decodePins(new String[]{"sha256/" + Base64.encodeToString(hash, Base64.DEFAULT).trim()});
+        assertEquals(1, pins.length);
+        assertTrue("Pin not decoded", MessageDigest.isEqual(hash, pins[0]));
+
+        try {
+            DefaultRequestSecurityPolicy.decodePins(new String[]{"sha1/AAAA"});
+            fail("Pin without sha256/ accepted");
+        } catch (IllegalArgumentException e) {
+            // Expected.
+        }
+
+        try {
+            DefaultRequestSecurityPolicy.decodePins(new String[]{"sha256/AAAA"});
+            fail("Pin of the wrong length accepted");
+        } catch (IllegalArgumentException e) {
+            // Expected.
+        }
+    }
+
+    /*
+     * Check if a server is verified only when one of the certificates of its validated path matches a pin
+     */
+    @Test
+    public void verifyPins() throws Exception {
+
+        Certificate leaf = createCertificate("leaf");
+        Certificate intermediate = createCertificate("intermediate");
+
+        SSLSession session = Mockito.mock(SSLSession.class);
+        Mockito.when(session.getPeerCertificates()).thenReturn(new Certificate[]{leaf, intermediate});
+
+        byte[][] intermediatePin = new byte[][]{MessageDigest.getInstance("SHA-256").digest("intermediate".getBytes("UTF-8"))};
+        byte[][] otherPin = new byte[][]{MessageDigest.getInstance("SHA-256").digest("other".getBytes("UTF-8"))};
+
+        assertTrue("Pinned intermediate not trusted", new DefaultRequestSecurityPolicy.PinningHostnameVerifier(ANY_HOSTNAME, intermediatePin, SENT_CHAIN).verify("identity.phoenixplatform.eu", session));
+        assertFalse("Server without pinned key trusted", new DefaultRequestSecurityPolicy.PinningHostnameVerifier(ANY_HOSTNAME, otherPin, SENT_CHAIN).verify("identity.phoenixplatform.eu", session));
+
+        HostnameVerifier noHostname = new HostnameVerifier() {
+            @Override
+            public boolean verify(String hostname, SSLSession session) {
+                return false;
+            }
+        };
+        assertFalse("Invalid host name trusted", new DefaultRequestSecurityPolicy.PinningHostnameVerifier(noHostname, intermediatePin, SENT_CHAIN).verify("identity.phoenixplatform.eu", session));
+    }
+
+    /*
+     * Check if a pinned certificate appended to the chain of an unpinned leaf, but not on its validated path, is not trusted
+     */
+    @Test
+    public void verifyPinsOnValidatedPath() throws Exception {
+
+        final Certificate leaf = createCertificate("attacker leaf");
+        final Certificate root = createCertificate("public root");
+        Certificate pinned = createCertificate("intermediate");
+
+        SSLSession session = Mockito.mock(SSLSession.class);
+        Mockito.when(session.getPeerCertificates()).thenReturn(new Certificate[]{leaf, pinned});
+
+        // The trust manager validates the leaf up to a public root, the appended certificate is not on the path.
+        DefaultRequestSecurityPolicy.ChainCleaner validatedPath = new DefaultRequestSecurityPolicy.ChainCleaner() {
+            @Override
+            public List<X509Certificate> clean(X509Certificate[] chain, String hostname) {
+                return Arrays.asList((X509Certificate) leaf, (X509Certificate) root);
+            }
+        };
+
+        byte[][] intermediatePin = new byte[][]{MessageDigest.getInstance("SHA-256").digest("intermediate".getBytes("UTF-8"))};
+
+        assertFalse("Pin matched off the validated path", new DefaultRequestSecurityPolicy.PinningHostnameVerifier(ANY_HOSTNAME, intermediatePin, validatedPath).verify("identity.phoenixplatform.eu", session));
+        assertFalse("Pin matched off the leaf of an unvalidated chain", new DefaultRequestSecurityPolicy.PinningHostnameVerifier(ANY_HOSTNAME, intermediatePin, DefaultRequestSecurityPolicy.LEAF_CHAIN_CLEANER).verify("identity.phoenixplatform.eu", session));
+
+        DefaultRequestSecurityPolicy.ChainCleaner untrusted = new DefaultRequestSecurityPolicy.ChainCleaner() {
+            @Override
+            public List<X509Certificate> clean(X509Certificate[] chain, String hostname) throws CertificateException {
+                throw new CertificateException("No trusted path");
+            }
+        };
+        assertFalse("Untrusted chain verified", new DefaultRequestSecurityPolicy.PinningHostnameVerifier(ANY_HOSTNAME, intermediatePin, untrusted).verify("identity.phoenixplatform.eu", session));
+    }
+
+    private Certificate createCertificate(String publicKey) throws Exception {
+
+        PublicKey key = Mockito.mock(PublicKey.class);
+        Mockito.when(key.getEncoded()).thenReturn(publicKey.getBytes("UTF-8"));
+
+        X509Certificate certificate = Mockito.mock(X509Certificate.class);
+        Mockito.when(certificate.getPublicKey()).thenReturn(key);
+
+        return certificate;
+    }
+
+}
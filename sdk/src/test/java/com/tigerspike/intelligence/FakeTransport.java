@@ -0,0 +1,113 @@
+package com.tigerspike.intelligence;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+/**
+ * RequestTransport answering the Intelligence API calls made by the SDK without network.
+ *
+ * Counts the requests and the analytics events it receives. When offline, requests fail with an
+ * IOException the same way Request.execute reports connection errors.
+ */
+public class FakeTransport implements RequestTransport {
+
+    static final String TOKEN_JSON = "{\"access_token\":\"8a8ab1e6d07f4cf9b6a2c7cd2d5b3e3f\",\"token_type\":\"bearer\"," +
+            "\"expires_in\":7200,\"refresh_token\":\"0c2dd7a3b0e34f9c8d0a4a5f7d9b1e62\"}";
+    static final String USER_JSON = "{\"Id\":310375,\"CompanyId\":4,\"Username\":\"user\",\"FirstName\":\"First\",\"IsActive\":true}";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private volatile boolean mOnline = true;
+
+    private int mRequestCount;
+    private int mFailedRequestCount;
+    private int mAnalyticsRequestCount;
+    private int mAnalyticsEventCount;
+    private long mBytesSent;
+
+    void setOnline(boolean online) {
+        mOnline = online;
+    }
+
+    boolean isOnline() {
+        return mOnline;
+    }
+
+    @Override
+    public synchronized Response execute(Request request, RequestTiming timing) {
+
+        mRequestCount++;
+
+        if (request.getBody() != null) {
+            mBytesSent += request.getBody().getBytes(UTF_8).length;
+        }
+
+        if (!mOnline) {
+            mFailedRequestCount++;
+            return new Response(request, -1, null, new IOException("Network is unreachable"));
+        }
+
+        String path = request.getURL().getPath();
+        Request.Method method = request.getMethod();
+
+        try {
+
+            if (path.endsWith("/token")) {
+                return new Response(request, 200, TOKEN_JSON, null);
+            }
+
+            if (path.endsWith("/validate")) {
+                return new Response(request, 200, "{}", null);
+            }
+
+            if (path.endsWith("/events") && method == Request.Method.POST) {
+                mAnalyticsRequestCount++;
+                mAnalyticsEventCount += new JSONArray(request.getBody()).length();
+                return new Response(request, 200, "{\"Data\":" + request.getBody() + "}", null);
+            }
+
+            if (path.endsWith("/installations")) {
+                JSONArray installations = new JSONArray(request.getBody());
+                installations.getJSONObject(0).put("Id", 5000);
+                return new Response(request, 200, "{\"Data\":" + installations.toString() + "}", null);
+            }
+
+            if (path.endsWith("/users/me") || (path.endsWith("/users") && method == Request.Method.POST)) {
+                return new Response(request, 200, "{\"Data\":[" + USER_JSON + "]}", null);
+            }
+
+            if (path.endsWith("/assignrole") || path.endsWith("/revokerole")) {
+                return new Response(request, 200, "{\"Data\":[]}", null);
+            }
+
+        } catch (JSONException e) {
+            return new Response(request, 400, "{\"error\":\"invalid_request\",\"error_description\":\"" + e.getMessage() + "\"}", null);
+        }
+
+        return new Response(request, 404, null, null);
+    }
+
+    synchronized int getRequestCount() {
+        return mRequestCount;
+    }
+
+    synchronized int getFailedRequestCount() {
+        return mFailedRequestCount;
+    }
+
+    synchronized int getAnalyticsRequestCount() {
+        return mAnalyticsRequestCount;
+    }
+
+    synchronized int getAnalyticsEventCount() {
+        return mAnalyticsEventCount;
+    }
+
+    synchronized long getBytesSent() {
+        return mBytesSent;
+    }
+
+}
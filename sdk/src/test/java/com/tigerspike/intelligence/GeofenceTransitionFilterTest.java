@@ -0,0 +1,177 @@
+package com.tigerspike.intelligence;
+
+import junit.framework.TestCase;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.Collections;
+import java.util.List;
+
+@RunWith(MockitoJUnitRunner.class)
+public class GeofenceTransitionFilterTest extends TestCase {
+
+    private static final long NOW = 1445000000000L;
+
+    private static final long DWELL_TIME = 10000;
+    private static final long EXIT_DELAY = 30000;
+    private static final long MIN_INTERVAL = 60000;
+
+    private MockDatastore mDataStore;
+    private GeofenceTransitionFilter mFilter;
+
+    @Before
+    public void init() {
+        mDataStore = new MockDatastore();
+        mFilter = new GeofenceTransitionFilter(mDataStore, DWELL_TIME, EXIT_DELAY, MIN_INTERVAL);
+    }
+
+    /*
+     * An enter is only confirmed after the dwell time.
+     */
+    @Test
+    public void enterIsConfirmedAfterDwellTime() {
+
+        assertTrue("Enter confirmed before the dwell time", mFilter.onTransition(1, GeofenceTransitionFilter.TRANSITION_ENTER, NOW).isEmpty());
+        assertTrue("Enter confirmed before the dwell time", mFilter.flush(NOW + DWELL_TIME - 1).isEmpty());
+
+        List<GeofenceTransitionFilter.Transition> transitions = mFilter.flush(NOW + DWELL_TIME);
+
+        assertEquals("Enter not confirmed after the dwell time", 1, transitions.size());
+        assertEquals(1, transitions.get(0).geofenceID);
+        assertEquals(GeofenceTransitionFilter.TRANSITION_ENTER, transitions.get(0).transition);
+
+        assertTrue("Enter confirmed twice", mFilter.flush(NOW + DWELL_TIME * 2).isEmpty());
+    }
+
+    /*
+     * Leaving before the dwell time means the enter never happened.
+     */
+    @Test
+    public void exitDuringDwellTimeCancelsEnter() {
+
+        mFilter.onTransition(1, GeofenceTransitionFilter.TRANSITION_ENTER, NOW);
+
+        assertTrue(mFilter.onTransition(1, GeofenceTransitionFilter.TRANSITION_EXIT, NOW + 1000).isEmpty());
+        assertTrue("Cancelled enter was confirmed", mFilter.flush(NOW + DWELL_TIME + EXIT_DELAY).isEmpty());
+    }
+
+    /*
+     * Re-entering before the exit delay means the exit never happened.
+     */
+    @Test
+    public void reenterDuringExitDelayCancelsExit() {
+
+        enter(1, NOW);
+
+        assertTrue(mFilter.onTransition(1, GeofenceTransitionFilter.TRANSITION_EXIT, NOW + DWELL_TIME).isEmpty());
+        assertTrue(mFilter.onTransition(1, GeofenceTransitionFilter.TRANSITION_ENTER, NOW + DWELL_TIME + 1000).isEmpty());
+        assertTrue("Cancelled exit was confirmed", mFilter.flush(NOW + DWELL_TIME + EXIT_DELAY * 2).isEmpty());
+    }
+
+    /*
+     * An exit is confirmed after the exit delay.
+     */
+    @Test
+    public void exitIsConfirmedAfterExitDelay() {
+
+        enter(1, NOW);
+
+        long exitTime = NOW + DWELL_TIME;
+        mFilter.onTransition(1, GeofenceTransitionFilter.TRANSITION_EXIT, exitTime);
+
+        assertTrue("Exit confirmed before the exit delay", mFilter.flush(exitTime + EXIT_DELAY - 1).isEmpty());
+
+        List<GeofenceTransitionFilter.Transition> transitions = mFilter.flush(exitTime + EXIT_DELAY);
+
+        assertEquals("Exit not confirmed after the exit delay", 1, transitions.size());
+        assertEquals(GeofenceTransitionFilter.TRANSITION_EXIT, transitions.get(0).transition);
+    }
+
+    /*
+     * Enters within the minimum interval are suppressed, and so are their exits.
+     */
+    @Test
+    public void enterWithinMinIntervalIsSuppressed() {
+
+        enter(1, NOW);
+
+        long time = NOW + DWELL_TIME;
+        mFilter.onTransition(1, GeofenceTransitionFilter.TRANSITION_EXIT, time);
+        assertEquals(1, mFilter.flush(time + EXIT_DELAY).size());
+
+        time += EXIT_DELAY;
+        mFilter.onTransition(1, GeofenceTransitionFilter.TRANSITION_ENTER, time);
+        assertTrue("Enter within the minimum interval was reported", mFilter.flush(time + DWELL_TIME).isEmpty());
+
+        time += DWELL_TIME;
+        mFilter.onTransition(1, GeofenceTransitionFilter.TRANSITION_EXIT, time);
+        assertTrue("Exit of a suppressed enter was reported", mFilter.flush(time + EXIT_DELAY).isEmpty());
+    }
+
+    /*
+     * Without configured values every transition is reported straight away, as before the filter.
+     */
+    @Test
+    public void defaultConfigurationReportsEveryTransition() {
+
+        GeofenceTransitionFilter filter = new GeofenceTransitionFilter(new MockDatastore(), new Configuration());
+
+        assertEquals("Enter not reported straight away", 1, filter.onTransition(1, GeofenceTransitionFilter.TRANSITION_ENTER, NOW).size());
+        assertEquals("Exit not reported straight away", 1, filter.onTransition(1, GeofenceTransitionFilter.TRANSITION_EXIT, NOW + 1000).size());
+        assertEquals("Enter again not reported", 1, filter.onTransition(1, GeofenceTransitionFilter.TRANSITION_ENTER, NOW + 2000).size());
+    }
+
+    /*
+     * The state survives a new instance of the filter.
+     */
+    @Test
+    public void stateIsRestoredFromDataStore() {
+
+        mFilter.onTransition(1, GeofenceTransitionFilter.TRANSITION_ENTER, NOW);
+
+        assertNotNull("State was not persisted", mDataStore.get("GeofenceTransitionState"));
+
+        GeofenceTransitionFilter restoredFilter = new GeofenceTransitionFilter(mDataStore, DWELL_TIME, EXIT_DELAY, MIN_INTERVAL);
+
+        assertEquals("Pending enter was not restored", 1, restoredFilter.flush(NOW + DWELL_TIME).size());
+    }
+
+    /*
+     * Corrupted state is ignored.
+     */
+    @Test
+    public void corruptedStateIsIgnored() {
+
+        mDataStore.set("GeofenceTransitionState", "1,2;x,y,z,w,v;");
+
+        GeofenceTransitionFilter restoredFilter = new GeofenceTransitionFilter(mDataStore, DWELL_TIME, EXIT_DELAY, MIN_INTERVAL);
+
+        assertTrue(restoredFilter.flush(NOW).isEmpty());
+    }
+
+    /*
+     * Fences that are not monitored anymore are forgotten.
+     */
+    @Test
+    public void retainDropsUnmonitoredFences() {
+
+        mFilter.onTransition(1, GeofenceTransitionFilter.TRANSITION_ENTER, NOW);
+        mFilter.onTransition(2, GeofenceTransitionFilter.TRANSITION_ENTER, NOW);
+
+        mFilter.retain(Collections.singletonList(2));
+
+        List<GeofenceTransitionFilter.Transition> transitions = mFilter.flush(NOW + DWELL_TIME);
+
+        assertEquals(1, transitions.size());
+        assertEquals(2, transitions.get(0).geofenceID);
+    }
+
+    private void enter(int geofenceID, long time) {
+        mFilter.onTransition(geofenceID, GeofenceTransitionFilter.TRANSITION_ENTER, time);
+        assertEquals(1, mFilter.flush(time + DWELL_TIME).size());
+    }
+
+}
@@ -115,5 +115,38 @@ public class InstallationTest extends TestCase {
 
     }
 
+    /*
+     * Test the installation store parses the stored installation once and writes it only when it changed.
+     */
+    @Test
+    public void installationStore() throws Exception {
+
+        MockDatastore storedDataStore = new MockDatastore();
+        storedDataStore.set(Constants.KEY_INSTALLATION_DATA, "{\"Id\":5,\"InstallationId\":\"abc\",\"InstalledVersion\":\"1.0\",\"OperatingSystemVersion\":\"5.1\",\"UserId\":7}");
+        MockDatastore dataStore = Mockito.spy(storedDataStore);
+
+        InstallationStore installationStore = new InstallationStore(dataStore);
+
+        assertEquals("InstallationID not read properly", "abc", installationStore.getInstallationID());
+        assertEquals("InstallationID not read properly", "abc", installationStore.getInstallationID());
+        assertSame("Installation parsed again", installationStore.get(), installationStore.get());
+        Mockito.verify(dataStore, Mockito.times(1)).get(Mockito.eq(Constants.KEY_INSTALLATION_DATA), Mockito.<String>any());
+
+        Installation installation = new Installation(installationStore.get());
+        installation.updateAppAndOSVersion(mockApplication);
+        assertEquals("Fingerprint not match", installationStore.get().fingerprint(), installation.fingerprint());
+
+        installationStore.set(installation);
+        installationStore.set(new Installation(installation));
+        Mockito.verify(dataStore, Mockito.never()).set(Mockito.eq(Constants.KEY_INSTALLATION_DATA), Mockito.anyString(), Mockito.anyBoolean());
+
+        installation = new Installation(installation);
+        installation.setUserID(8);
+        assertFalse("Fingerprint did not change with the user", installationStore.get().fingerprint().equals(installation.fingerprint()));
+
+        installationStore.set(installation);
+        Mockito.verify(dataStore, Mockito.times(1)).set(Mockito.eq(Constants.KEY_INSTALLATION_DATA), Mockito.anyString(), Mockito.anyBoolean());
+        assertEquals("Installation not updated", Integer.valueOf(8), new InstallationStore(dataStore).get().getUserID());
+    }
 
-}
\ No newline at end of file
+}
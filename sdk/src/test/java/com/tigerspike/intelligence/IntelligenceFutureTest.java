@@ -0,0 +1,111 @@
+package com.tigerspike.intelligence;
+
+import com.tigerspike.intelligence.exceptions.IntelligenceException;
+import com.tigerspike.intelligence.exceptions.IntelligenceRequestException;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+@RunWith(MockitoJUnitRunner.class)
+public class IntelligenceFutureTest extends TestCase {
+
+    /*
+     * Check if a future completed by its task returns the result of the task, and calls listeners added before and after
+     */
+    @Test
+    public void completedByTask() throws Exception {
+
+        final User user = new User();
+        final List<User> notified = new ArrayList<>();
+
+        TaskFuture<User> future = new TaskFuture<>();
+
+        IntelligenceFuture.Listener<User> listener = new IntelligenceFuture.Listener<User>() {
+            @Override
+            public void onComplete(User result, IntelligenceException intelligenceException) {
+                notified.add(result);
+            }
+        };
+
+        future.addListener(listener);
+        assertFalse("Future done before its task", future.isDone());
+
+        future.onTaskFinish(new IntelligenceTask() {
+            @Override
+            void execute() {
+            }
+
+            @Override
+            Object result() {
+                return user;
+            }
+        });
+
+        future.addListener(listener);
+
+        assertTrue("Future not done", future.isDone());
+        assertSame("Result not match", user, future.get());
+        assertEquals("Listeners not called once each", 2, notified.size());
+        assertSame("Notified result not match", user, notified.get(0));
+    }
+
+    /*
+     * Check if a failed future throws its exception from get, and is completed only once
+     */
+    @Test
+    public void failed() throws Exception {
+
+        IntelligenceRequestException exception = new IntelligenceRequestException(IntelligenceRequestException.ErrorCode.InternetOfflineError);
+        IntelligenceFuture<User> future = IntelligenceFuture.failed(exception);
+
+        future.complete(new User(), null);
+
+        assertSame("Exception not match", exception, future.getException());
+
+        try {
+            future.get();
+            fail("Failed future returned a result");
+        } catch (ExecutionException e) {
+            assertSame("Cause not match", exception, e.getCause());
+        }
+    }
+
+    /*
+     * Check if all completes once every future is, with the first exception
+     */
+    @Test
+    public void all() throws Exception {
+
+        IntelligenceFuture<User> user = new IntelligenceFuture<>();
+        IntelligenceFuture<List<IntelligenceGeofence>> geofences = new IntelligenceFuture<>();
+        IntelligenceRequestException exception = new IntelligenceRequestException(IntelligenceRequestException.ErrorCode.Forbidden);
+
+        IntelligenceFuture<Void> all = IntelligenceFuture.all(user, geofences);
+
+        geofences.complete(null, exception);
+        assertFalse("All done before every future", all.isDone());
+
+        try {
+            all.get(10, TimeUnit.MILLISECONDS);
+            fail("Pending future returned");
+        } catch (TimeoutException e) {
+            // Expected
+        }
+
+        user.complete(new User(), null);
+
+        assertTrue("All not done", all.isDone());
+        assertSame("Exception not match", exception, all.getException());
+        assertTrue("All of no future not done", IntelligenceFuture.all().isDone());
+    }
+
+}
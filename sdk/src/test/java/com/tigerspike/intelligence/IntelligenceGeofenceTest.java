@@ -30,4 +30,47 @@ public class IntelligenceGeofenceTest extends TestCase
         assertEquals("Radius not match", 528.23, geofence.getRadius());
         assertEquals("Tags not match", "tags", geofence.getTags());
     }
+
+    /*
+    * Tests if numbers sent as JSON numbers are read and missing values are returned as sentinels
+    * */
+    @Test
+    public void ReadingSparseJson() throws JSONException {
+        String geofenceJson = "{\"Id\": 67745, \"Name\": null, \"Geolocation\": {\"Latitude\": -33.8870009, \"Longitude\": \"\"}, \"Radius\": \"abc\"}";
+
+        IntelligenceGeofence geofence = new IntelligenceGeofence(geofenceJson);
+
+        assertEquals("Id not match", 67745, geofence.getIdValue());
+        assertEquals("Latitude not match", -33.8870009, geofence.getLatitudeValue());
+
+        assertEquals("Missing project Id not match", IntelligenceGeofence.NO_VALUE, geofence.getProjectIdValue());
+        assertNull("Missing project Id not null", geofence.getProjectId());
+        assertNull("Null name not null", geofence.getName());
+        assertTrue("Empty longitude not NaN", Double.isNaN(geofence.getLongitudeValue()));
+        assertNull("Malformed radius not null", geofence.getRadius());
+    }
+
+    /*
+    * Tests if only geofences with an id, a location and a radius have a region to monitor
+    * */
+    @Test
+    public void HasRegion() throws JSONException {
+        assertTrue("Valid geofence without region", new IntelligenceGeofence("{\"Id\": 1, \"Geolocation\": {\"Latitude\": -33.88, \"Longitude\": 151.21}, \"Radius\": 100}").hasRegion());
+        assertFalse("Geofence without id has region", new IntelligenceGeofence("{\"Geolocation\": {\"Latitude\": -33.88, \"Longitude\": 151.21}, \"Radius\": 100}").hasRegion());
+        assertFalse("Geofence without longitude has region", new IntelligenceGeofence("{\"Id\": 1, \"Geolocation\": {\"Latitude\": -33.88}, \"Radius\": 100}").hasRegion());
+        assertFalse("Geofence with malformed radius has region", new IntelligenceGeofence("{\"Id\": 1, \"Geolocation\": {\"Latitude\": -33.88, \"Longitude\": 151.21}, \"Radius\": \"abc\"}").hasRegion());
+        assertFalse("Geofence with out of range latitude has region", new IntelligenceGeofence("{\"Id\": 1, \"Geolocation\": {\"Latitude\": 95, \"Longitude\": 151.21}, \"Radius\": 100}").hasRegion());
+    }
+
+    /*
+    * Tests if a geofence written to JSON is read back equal
+    * */
+    @Test
+    public void JsonRoundTrip() throws JSONException {
+        String geofenceJson = "{\"Id\": \"67745\", \"ProjectId\": \"40003\", \"Name\": \"Surry Hills Suburb\", \"Geolocation\": {\"Latitude\": \"-33.8870009\", \"Longitude\": \"151.2088037\"}, \"Radius\": \"528.23\"}";
+
+        IntelligenceGeofence geofence = new IntelligenceGeofence(geofenceJson);
+
+        assertEquals("Geofence not equal after round trip", geofence, new IntelligenceGeofence(geofence.toJSONString()));
+    }
 }
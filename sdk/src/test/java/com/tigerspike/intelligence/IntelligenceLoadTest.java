@@ -0,0 +1,340 @@
+package com.tigerspike.intelligence;
+
+import android.app.Application;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.IntentFilter;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+
+import com.tigerspike.intelligence.exceptions.IntelligenceException;
+
+import junit.framework.TestCase;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Offline load test of the whole Intelligence instance.
+ *
+ * Replays a session against a FakeTransport: start up, login, a burst of events and screen views
+ * with activity pauses and resumes, geofence transitions and network flaps. Prints the latency of
+ * each SDK call, the requests sent per event and the bytes written to the DataStore, and checks
+ * that every event is delivered once and the stored queue is empty at the end. The report is part
+ * of the failure messages.
+ *
+ * Skipped unless the intelligence.loadTest system property is true, e.g.
+ * ./gradlew :sdk:testDebugUnitTest -Dintelligence.loadTest=true
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class IntelligenceLoadTest extends TestCase {
+
+    private static final int EVENT_BURST = 1000;
+    private static final int LIFECYCLE_INTERVAL = 50;
+    private static final int NETWORK_FLAP_INTERVAL = 200;
+    private static final int OFFLINE_EVENTS = 20;
+    private static final int GEOFENCES = 25;
+
+    private static final String KEY_STORAGE_EVENT_QUEUE = "eventQueue";
+    private static final String PROPERTY_LOAD_TEST = "intelligence.loadTest";
+
+    private Application mockApplication;
+    private FakeTransport transport;
+    private CountingDataStore dataStore;
+
+    private Intelligence intelligence;
+    private BroadcastReceiver connectivityReceiver;
+    private Application.ActivityLifecycleCallbacks activityLifecycleCallbacks;
+
+    private int trackedEvents;
+
+    /*
+     * Initializes the mocked application, with network and without location permission.
+     */
+    @Before
+    public void init() throws Exception {
+
+        Assume.assumeTrue(Boolean.getBoolean(PROPERTY_LOAD_TEST));
+
+        PackageInfo packageInfo = Mockito.mock(PackageInfo.class);
+        packageInfo.versionName = "1.0";
+
+        PackageManager packageManager = Mockito.mock(PackageManager.class);
+        Mockito.when(packageManager.getPackageInfo(Mockito.anyString(), Mockito.anyInt())).thenReturn(packageInfo);
+
+        transport = new FakeTransport();
+        dataStore = new CountingDataStore();
+
+        NetworkInfo networkInfo = Mockito.mock(NetworkInfo.class);
+        Mockito.when(networkInfo.isConnected()).thenAnswer(new Answer<Boolean>() {
+            @Override
+            public Boolean answer(InvocationOnMock invocation) {
+                return transport.isOnline();
+            }
+        });
+
+        ConnectivityManager connectivityManager = Mockito.mock(ConnectivityManager.class);
+        Mockito.when(connectivityManager.getActiveNetworkInfo()).thenReturn(networkInfo);
+
+        mockApplication = Mockito.mock(Application.class);
+        Mockito.when(mockApplication.getPackageName()).thenReturn("com.tigerspike.intelligence");
+        Mockito.when(mockApplication.getPackageManager()).thenReturn(packageManager);
+        Mockito.when(mockApplication.getSystemService(Context.CONNECTIVITY_SERVICE)).thenReturn(connectivityManager);
+        Mockito.when(mockApplication.checkCallingOrSelfPermission(Constants.ANDROID_PERMISSION_ACCESS_NETWORK_STATE)).thenReturn(PackageManager.PERMISSION_GRANTED);
+        Mockito.when(mockApplication.checkCallingOrSelfPermission(Constants.ANDROID_PERMISSION_ACCESS_FINE_LOCATION)).thenReturn(PackageManager.PERMISSION_DENIED);
+    }
+
+    /*
+     * Replays a session and checks that every event is delivered once and nothing is left queued.
+     */
+    @Test
+    public void replaySession() throws Exception {
+
+        Latencies startUp = new Latencies("startUp");
+        Latencies login = new Latencies("login");
+        Latencies trackEvent = new Latencies("trackEvent");
+        Latencies trackScreenViewed = new Latencies("trackScreenViewed");
+        Latencies lifecycle = new Latencies("activity pause/resume");
+        Latencies geofenceTransition = new Latencies("geofence transition");
+        Latencies offlineTrackEvent = new Latencies("trackEvent offline");
+        Latencies networkDetected = new Latencies("network detected");
+
+        long start = System.nanoTime();
+        startIntelligence();
+        startUp.record(System.nanoTime() - start);
+
+        // Application opened event.
+        trackedEvents++;
+
+        final IntelligenceException[] loginError = new IntelligenceException[1];
+        start = System.nanoTime();
+        intelligence.identity.login("user", "password", new Identity.OnLoginListener() {
+            @Override
+            public void onLogin(IntelligenceException intelligenceException) {
+                loginError[0] = intelligenceException;
+            }
+        });
+        login.record(System.nanoTime() - start);
+        assertNull("Login failed", loginError[0]);
+
+        for (int i = 0; i < EVENT_BURST; i++) {
+
+            if (i % 2 == 0) {
+                start = System.nanoTime();
+                intelligence.analytics.trackEvent(new AnalyticsEvent("Load.Test.Event", String.valueOf(i)));
+                trackEvent.record(System.nanoTime() - start);
+            } else {
+                start = System.nanoTime();
+                intelligence.analytics.trackScreenViewed("Screen " + (i % 10), 1.5);
+                trackScreenViewed.record(System.nanoTime() - start);
+            }
+            trackedEvents++;
+
+            if (i % LIFECYCLE_INTERVAL == 0) {
+                start = System.nanoTime();
+                activityLifecycleCallbacks.onActivityPaused(null);
+                activityLifecycleCallbacks.onActivityResumed(null);
+                lifecycle.record(System.nanoTime() - start);
+            }
+
+            if (i % NETWORK_FLAP_INTERVAL == NETWORK_FLAP_INTERVAL - 1) {
+
+                setOnline(false);
+
+                for (int j = 0; j < OFFLINE_EVENTS; j++) {
+                    start = System.nanoTime();
+                    intelligence.analytics.trackEvent(new AnalyticsEvent("Load.Test.Offline", String.valueOf(j)));
+                    offlineTrackEvent.record(System.nanoTime() - start);
+                    trackedEvents++;
+                }
+
+                start = System.nanoTime();
+                setOnline(true);
+                networkDetected.record(System.nanoTime() - start);
+            }
+        }
+
+        GeoManager.Listener geofenceListener = ((LocationModule) intelligence.location).mGeoManagerListener;
+
+        for (int i = 0; i < GEOFENCES; i++) {
+            start = System.nanoTime();
+            geofenceListener.onEnterGeofence(60000 + i);
+            geofenceTransition.record(System.nanoTime() - start);
+
+            start = System.nanoTime();
+            geofenceListener.onExitGeofence(60000 + i);
+            geofenceTransition.record(System.nanoTime() - start);
+
+            trackedEvents += 2;
+        }
+
+        intelligence.shutdown();
+
+        String report = report(Arrays.asList(startUp, login, trackEvent, trackScreenViewed, lifecycle, geofenceTransition, offlineTrackEvent, networkDetected));
+
+        assertEquals("Events not delivered once" + report, trackedEvents, transport.getAnalyticsEventCount());
+        assertEquals("Events left in the stored queue" + report, "[]", dataStore.get(KEY_STORAGE_EVENT_QUEUE));
+        assertEquals("Uploaded events not counted" + report, trackedEvents, intelligence.getMetrics().getCounter(Metrics.ANALYTICS_EVENTS_UPLOADED).getCount());
+    }
+
+    private void startIntelligence() throws Exception {
+
+        Configuration configuration = new Configuration();
+        configuration.setRegion(Region.Europe);
+        configuration.setEnvironment(Environment.Production);
+        configuration.setClientID("clientid");
+        configuration.setClientSecret("secret");
+        configuration.setProjectID(40003);
+        configuration.setApplicationID(10);
+        configuration.setCompanyID(4);
+        configuration.setSDKUserRole(1008);
+        configuration.setCertificateTrustPolicy(CertificateTrustPolicy.Valid);
+        configuration.setUseGeofences(false);
+
+        intelligence = new Intelligence(mockApplication, configuration, dataStore, transport);
+
+        ArgumentCaptor<BroadcastReceiver> receiverCaptor = ArgumentCaptor.forClass(BroadcastReceiver.class);
+        Mockito.verify(mockApplication).registerReceiver(receiverCaptor.capture(), Mockito.any(IntentFilter.class));
+        connectivityReceiver = receiverCaptor.getValue();
+
+        ArgumentCaptor<Application.ActivityLifecycleCallbacks> callbacksCaptor = ArgumentCaptor.forClass(Application.ActivityLifecycleCallbacks.class);
+        Mockito.verify(mockApplication).registerActivityLifecycleCallbacks(callbacksCaptor.capture());
+        activityLifecycleCallbacks = callbacksCaptor.getValue();
+
+        final IntelligenceException[] startUpError = new IntelligenceException[1];
+        intelligence.startUp(new Intelligence.OnStartUpListener() {
+            @Override
+            public void onStartup(IntelligenceException intelligenceException) {
+                startUpError[0] = intelligenceException;
+            }
+        });
+        assertNull("Start up failed", startUpError[0]);
+    }
+
+    /**
+     * Changes the network state and sends the connectivity broadcast, which notifies the
+     * TaskExecutor.OnNetworkChangeListeners.
+     */
+    private void setOnline(boolean online) {
+        transport.setOnline(online);
+        connectivityReceiver.onReceive(mockApplication, null);
+    }
+
+    private String report(List<Latencies> latencies) {
+
+        StringBuilder report = new StringBuilder("\nIntelligence load test\n");
+        report.append(String.format("%-24s %8s %12s %12s%n", "operation", "count", "p50 (us)", "p99 (us)"));
+
+        for (Latencies latency : latencies) {
+            report.append(String.format("%-24s %8d %12.1f %12.1f%n", latency.getName(), latency.getCount(),
+                    latency.percentile(0.50) / 1000.0, latency.percentile(0.99) / 1000.0));
+        }
+
+        report.append(String.format("events tracked           %8d%n", trackedEvents));
+        report.append(String.format("requests                 %8d (%d failed)%n", transport.getRequestCount(), transport.getFailedRequestCount()));
+        report.append(String.format("analytics requests/event %12.3f%n", transport.getAnalyticsRequestCount() / (double) trackedEvents));
+        report.append(String.format("requests/event           %12.3f%n", transport.getRequestCount() / (double) trackedEvents));
+        report.append(String.format("bytes sent               %8d%n", transport.getBytesSent()));
+        report.append(String.format("storage writes           %8d%n", dataStore.getWriteCount()));
+        report.append(String.format("bytes written to storage %8d (%.1f per event)%n", dataStore.getBytesWritten(), dataStore.getBytesWritten() / (double) trackedEvents));
+
+        Metrics metrics = intelligence.getMetrics();
+        for (Map.Entry<String, Metrics.Counter> counter : metrics.getCounters().entrySet()) {
+            if (counter.getValue().getCount() > 0) {
+                report.append(String.format("%-36s %8d%n", counter.getKey(), counter.getValue().getCount()));
+            }
+        }
+        for (Map.Entry<String, Metrics.Histogram> histogram : metrics.getHistograms().entrySet()) {
+            if (histogram.getValue().getCount() > 0) {
+                report.append(String.format("%-36s %8d p50 %6d p99 %6d max %6d%n", histogram.getKey(), histogram.getValue().getCount(),
+                        histogram.getValue().getPercentile(0.50), histogram.getValue().getPercentile(0.99), histogram.getValue().getMax()));
+            }
+        }
+
+        return report.toString();
+    }
+
+    /**
+     * Latency samples of one operation, in nanoseconds.
+     */
+    private static final class Latencies {
+
+        private final String mName;
+        private final List<Long> mSamples = new ArrayList<>();
+
+        Latencies(String name) {
+            mName = name;
+        }
+
+        void record(long nanos) {
+            mSamples.add(nanos);
+        }
+
+        String getName() {
+            return mName;
+        }
+
+        int getCount() {
+            return mSamples.size();
+        }
+
+        long percentile(double percentile) {
+
+            if (mSamples.isEmpty()) {
+                return 0;
+            }
+
+            long[] sorted = new long[mSamples.size()];
+            for (int i = 0; i < sorted.length; i++) {
+                sorted[i] = mSamples.get(i);
+            }
+            Arrays.sort(sorted);
+
+            return sorted[(int) Math.ceil(percentile * sorted.length) - 1];
+        }
+
+    }
+
+    /**
+     * MockDatastore counting the writes and the bytes written.
+     */
+    private static final class CountingDataStore extends MockDatastore {
+
+        private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+        private int mWriteCount;
+        private long mBytesWritten;
+
+        @Override
+        void set(String key, String value, boolean commit) {
+            mWriteCount++;
+            mBytesWritten += value == null ? 0 : value.getBytes(UTF_8).length;
+            super.set(key, value, commit);
+        }
+
+        int getWriteCount() {
+            return mWriteCount;
+        }
+
+        long getBytesWritten() {
+            return mBytesWritten;
+        }
+
+    }
+
+}
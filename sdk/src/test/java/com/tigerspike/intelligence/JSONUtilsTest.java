@@ -39,5 +39,36 @@ public class JSONUtilsTest extends TestCase {
 
     }
 
+    /*
+     * Check typed accessors for present, absent, null and malformed values
+     */
+    @Test
+    public void typedAccessors() throws JSONException {
+
+        JSONObject jsonObject = new JSONObject("{\"int\":\"25\",\"number\":25,\"double\":\"1.5\",\"bool\":\"true\",\"null\":null,\"text\":\"abc\",\"big\":\"99999999999\"}");
+
+        assertEquals(Integer.valueOf(25), JSONUtils.getInteger(jsonObject, "int"));
+        assertEquals(Integer.valueOf(25), JSONUtils.getInteger(jsonObject, "number"));
+        assertEquals(Double.valueOf(1.5), JSONUtils.getDouble(jsonObject, "double"));
+        assertEquals(Double.valueOf(25), JSONUtils.getDouble(jsonObject, "int"));
+        assertEquals(Boolean.TRUE, JSONUtils.getBoolean(jsonObject, "bool"));
+        assertEquals(Boolean.FALSE, JSONUtils.getBoolean(jsonObject, "text"));
+        assertEquals("25", JSONUtils.getString(jsonObject, "number"));
+
+        assertNull(JSONUtils.getInteger(jsonObject, "missing"));
+        assertNull(JSONUtils.getInteger(jsonObject, "null"));
+        assertNull(JSONUtils.getInteger(jsonObject, "text"));
+        assertNull(JSONUtils.getInteger(jsonObject, "double"));
+        assertNull(JSONUtils.getInteger(jsonObject, "big"));
+        assertNull(JSONUtils.getDouble(jsonObject, "text"));
+        assertNull(JSONUtils.getBoolean(jsonObject, "missing"));
+        assertNull(JSONUtils.getString(jsonObject, "null"));
+        assertEquals("default", JSONUtils.getString(jsonObject, "missing", "default"));
+
+        assertEquals(25, JSONUtils.optInt(jsonObject, "number", -1));
+        assertEquals(-1, JSONUtils.optInt(jsonObject, "text", -1));
+        assertEquals(1.5, JSONUtils.optDouble(jsonObject, "double", 0));
+        assertTrue(Double.isNaN(JSONUtils.optDouble(jsonObject, "missing", Double.NaN)));
+    }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,124 @@
+package com.tigerspike.intelligence;
+
+import junit.framework.TestCase;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+@RunWith(MockitoJUnitRunner.class)
+public class JsonCodecsTest extends TestCase {
+
+    /*
+     * Check if the Data list of an API response is read, skipping the other values
+     */
+    @Test
+    public void readData() throws JSONException {
+
+        String json = "{\"TotalRecords\":2,\"Meta\":{\"Page\":[1,2]},\"Data\":[" +
+                "{\"Id\":\"1\",\"Geolocation\":{\"Latitude\":-33.88,\"Longitude\":\"151.2\"},\"Radius\":100,\"Extra\":[{}]}," +
+                "{\"Id\":2,\"Name\":null,\"Geolocation\":{}}]}";
+
+        List<IntelligenceGeofence> geofences = JsonCodecs.dataFromJson(json, IntelligenceGeofence.CODEC);
+
+        assertEquals(2, geofences.size());
+        assertEquals(1, geofences.get(0).getIdValue());
+        assertEquals(-33.88, geofences.get(0).getLatitudeValue());
+        assertEquals(151.2, geofences.get(0).getLongitudeValue());
+        assertEquals(100.0, geofences.get(0).getRadiusValue());
+        assertEquals(2, geofences.get(1).getIdValue());
+        assertNull(geofences.get(1).getName());
+        assertNull(geofences.get(1).getLatitude());
+    }
+
+    /*
+     * Check if malformed and incomplete JSON is reported as JSONException
+     */
+    @Test
+    public void invalidJson() {
+
+        try {
+            JsonCodecs.dataFromJson("{\"Data\":[{\"Id\":1", IntelligenceGeofence.CODEC);
+            fail("Malformed JSON was read");
+        } catch (JSONException expected) {
+        }
+
+        try {
+            JsonCodecs.dataFromJson("{\"Total\":0}", IntelligenceGeofence.CODEC);
+            fail("Missing Data was read");
+        } catch (JSONException expected) {
+        }
+
+        try {
+            JsonCodecs.fromJson("{\"access_token\":\"abcde\"}", AuthenticationToken.CODEC);
+            fail("Incomplete token was read");
+        } catch (JSONException expected) {
+        }
+    }
+
+    /*
+     * Check if a stored event is read back with the same JSON representation
+     */
+    @Test
+    public void analyticsEventRoundTrip() throws JSONException {
+
+        AnalyticsEvent analyticsEvent = new AnalyticsEvent("up", "300");
+        analyticsEvent.setProjectId(40003);
+        analyticsEvent.setUserID(310375);
+        analyticsEvent.setLocation(37.332331, -122.031219);
+        HashMap<String, String> metadata = new HashMap<>();
+        metadata.put("key", "value");
+        analyticsEvent.setMetaData(metadata);
+
+        String json = JsonCodecs.listToJson(Collections.singletonList(analyticsEvent), AnalyticsEvent.CODEC);
+        AnalyticsEvent storedEvent = JsonCodecs.listFromJson(json, AnalyticsEvent.CODEC).get(0);
+
+        JSONObject expected = analyticsEvent.toJSONObject();
+        JSONObject actual = new JSONObject(storedEvent.toJSONString());
+
+        assertEquals(expected.getString("EventDate"), actual.getString("EventDate"));
+        assertEquals(expected.getInt("ProjectId"), actual.getInt("ProjectId"));
+        assertEquals(expected.getString("EventValue"), actual.getString("EventValue"));
+        assertEquals(expected.getInt("PhoenixIdentity_UserId"), actual.getInt("PhoenixIdentity_UserId"));
+        assertEquals(expected.getJSONObject("Geolocation").getDouble("Latitude"), actual.getJSONObject("Geolocation").getDouble("Latitude"));
+        assertEquals("value", actual.getJSONObject("MetaData").getString("key"));
+        assertFalse("Absent value was written", actual.has("IpAddress"));
+        assertEquals("Expiration time not match", analyticsEvent.getExpirationTime(), storedEvent.getExpirationTime());
+        assertTrue("Fresh event is expired", storedEvent.getExpirationTime() > System.currentTimeMillis());
+    }
+
+    /*
+     * Check if persisted users and installations are read back
+     */
+    @Test
+    public void userAndInstallationRoundTrip() throws JSONException {
+
+        User user = new User("{\"Id\":\"12\",\"CompanyId\":3,\"Username\":\"user\",\"FirstName\":\"First\",\"IsActive\":\"true\"}");
+
+        assertEquals(Integer.valueOf(12), user.getUserId());
+        assertEquals(Integer.valueOf(3), user.getCompanyId());
+        assertTrue(user.isActive());
+        assertNull("Absent locking count was not cleared", user.getLockingCount());
+
+        User storedUser = new User(user.toJSONString());
+
+        assertEquals(Integer.valueOf(12), storedUser.getUserId());
+        assertEquals("First", storedUser.getFirstName());
+
+        Installation installation = new Installation("{\"Id\":5,\"InstallationId\":\"abc\",\"DeviceTypeId\":\"1\",\"ProjectId\":40003}");
+        Installation storedInstallation = new Installation(installation.toJSONString());
+
+        assertEquals(Integer.valueOf(5), storedInstallation.getID());
+        assertEquals("abc", storedInstallation.getInstallationID());
+        assertEquals(Integer.valueOf(1), storedInstallation.getDeviceTypeID());
+        assertEquals(Integer.valueOf(40003), storedInstallation.getProjectID());
+        assertNull(storedInstallation.getUserID());
+    }
+
+}
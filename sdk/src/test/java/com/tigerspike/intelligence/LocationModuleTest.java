@@ -0,0 +1,99 @@
+package com.tigerspike.intelligence;
+
+import android.app.Application;
+import android.content.pm.PackageManager;
+
+import junit.framework.TestCase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+@RunWith(MockitoJUnitRunner.class)
+public class LocationModuleTest extends TestCase
+{
+    private File mFilesDir;
+
+    @Before
+    public void init() throws IOException {
+        mFilesDir = File.createTempFile("files", "");
+        mFilesDir.delete();
+        mFilesDir.mkdir();
+    }
+
+    @After
+    public void cleanUp() {
+        for (File file : mFilesDir.listFiles()) {
+            file.delete();
+        }
+        mFilesDir.delete();
+    }
+
+    /*
+     * Check if the geofences cached in the DataStore by previous versions are packed into the cache file once
+     */
+    @Test
+    public void migrateLegacyCache() {
+
+        Set<String> legacyCache = new HashSet<>();
+        legacyCache.add("{\"Id\": \"67746\", \"ProjectId\": \"40003\", \"Name\": \"Tigerspike Sydney\", \"Geolocation\": {\"Latitude\": \"-33.8696\", \"Longitude\": \"151.2070\"}, \"Radius\": \"100\", \"Tags\": \"tags\"}");
+
+        DataStore dataStore = Mockito.mock(DataStore.class);
+        Mockito.when(dataStore.getStringSet("GeoFences", null)).thenReturn(legacyCache).thenReturn(null);
+
+        Application application = Mockito.mock(Application.class);
+        Mockito.when(application.getFilesDir()).thenReturn(mFilesDir);
+        Mockito.when(application.checkCallingOrSelfPermission(Mockito.anyString())).thenReturn(PackageManager.PERMISSION_DENIED);
+
+        Configuration configuration = new Configuration();
+        TaskExecutor taskExecutor = new TaskExecutor(application, null, new RequestContext(null, null, new Metrics(), null, new RetryPolicy(), null, null));
+
+        LocationModule location = new LocationModule(configuration, taskExecutor, dataStore, null, application, Mockito.mock(Analytics.class));
+
+        List<IntelligenceGeofence> geofences = location.getCachedGeofences();
+
+        assertEquals("Migrated geofences not match", 1, geofences.size());
+        assertEquals("Id not match", new Integer(67746), geofences.get(0).getId());
+        Mockito.verify(dataStore).remove("GeoFences");
+
+        // Read from the cache file from now on.
+        assertEquals("Cached geofences not match", 1, location.getCachedGeofences().size());
+        Mockito.verify(dataStore, Mockito.times(1)).getStringSet("GeoFences", null);
+    }
+
+    /*
+     * Check if the geofences cached in the DataStore by previous versions are kept when the cache file can not be written
+     */
+    @Test
+    public void keepLegacyCacheWhenWriteFails() {
+
+        Set<String> legacyCache = new HashSet<>();
+        legacyCache.add("{\"Id\": \"67746\", \"ProjectId\": \"40003\", \"Name\": \"Tigerspike Sydney\", \"Geolocation\": {\"Latitude\": \"-33.8696\", \"Longitude\": \"151.2070\"}, \"Radius\": \"100\", \"Tags\": \"tags\"}");
+
+        DataStore dataStore = Mockito.mock(DataStore.class);
+        Mockito.when(dataStore.getStringSet("GeoFences", null)).thenReturn(legacyCache);
+
+        // The cache file can not be written into a missing directory.
+        Application application = Mockito.mock(Application.class);
+        Mockito.when(application.getFilesDir()).thenReturn(new File(mFilesDir, "missing"));
+        Mockito.when(application.checkCallingOrSelfPermission(Mockito.anyString())).thenReturn(PackageManager.PERMISSION_DENIED);
+
+        Configuration configuration = new Configuration();
+        TaskExecutor taskExecutor = new TaskExecutor(application, null, new RequestContext(null, null, new Metrics(), null, new RetryPolicy(), null, null));
+
+        LocationModule location = new LocationModule(configuration, taskExecutor, dataStore, null, application, Mockito.mock(Analytics.class));
+
+        assertEquals("Migrated geofences not match", 1, location.getCachedGeofences().size());
+        Mockito.verify(dataStore, Mockito.never()).remove("GeoFences");
+    }
+
+}
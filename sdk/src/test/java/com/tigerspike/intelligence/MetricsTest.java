@@ -0,0 +1,80 @@
+package com.tigerspike.intelligence;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.net.URL;
+
+@RunWith(MockitoJUnitRunner.class)
+public class MetricsTest extends TestCase {
+
+    /*
+     * Check if the histogram percentiles are within a bucket width of the recorded values
+     */
+    @Test
+    public void histogramPercentiles() {
+
+        Metrics.Histogram histogram = new Metrics().taskWaitTime;
+
+        assertEquals("Empty histogram percentile not 0", 0, histogram.getPercentile(0.99));
+
+        for (int i = 1; i <= 10000; i++) {
+            histogram.record(i);
+        }
+
+        assertEquals(10000, histogram.getCount());
+        assertEquals(10000, histogram.getMax());
+        assertEquals(5000.5, histogram.getMean());
+
+        long p50 = histogram.getPercentile(0.50);
+        long p99 = histogram.getPercentile(0.99);
+
+        assertTrue("p50 not accurate: " + p50, p50 >= 5000 && p50 <= 5000 * 17 / 16);
+        assertTrue("p99 not accurate: " + p99, p99 >= 9900 && p99 <= 10000);
+        assertEquals("p100 not max", 10000, histogram.getPercentile(1));
+    }
+
+    /*
+     * Check if every value falls in a bucket containing it
+     */
+    @Test
+    public void histogramBuckets() {
+
+        long[] values = {0, 1, 15, 16, 17, 31, 32, 33, 1000, 123456789L, (1L << 40) - 1};
+
+        for (long value : values) {
+            int index = Metrics.Histogram.bucketIndex(value);
+            assertTrue("Bucket upper bound below " + value, Metrics.Histogram.bucketUpperBound(index) >= value);
+            assertTrue("Bucket lower bound above " + value, index == 0 || Metrics.Histogram.bucketUpperBound(index - 1) < value);
+        }
+    }
+
+    /*
+     * Check if requests are recorded per module and status class
+     */
+    @Test
+    public void recordRequest() throws Exception {
+
+        Metrics metrics = new Metrics();
+
+        metrics.recordRequest(new URL("https://analytics.phoenixplatform.eu/v2/projects/1/events"), 200, 2000000, "[{}]", "{\"Data\":[{}]}");
+        metrics.recordRequest(new URL("https://analytics.phoenixplatform.eu/v2/projects/1/events"), -1, 1000000, "[é]", null);
+        metrics.recordRequest(new URL("https://identity.phoenixplatform.eu/v2/users/me"), 404, 1000000, null, null);
+
+        assertEquals(1, metrics.getCounter(Metrics.requestStatusName(Module.Analytics, "2xx")).getCount());
+        assertEquals(1, metrics.getCounter(Metrics.requestStatusName(Module.Analytics, "error")).getCount());
+        assertEquals(1, metrics.getCounter(Metrics.requestStatusName(Module.Identity, "4xx")).getCount());
+        assertEquals(0, metrics.getCounter(Metrics.requestStatusName(Module.Identity, "2xx")).getCount());
+
+        Metrics.Histogram analyticsLatency = metrics.getHistogram(Metrics.requestLatencyName(Module.Analytics));
+        assertEquals(2, analyticsLatency.getCount());
+        assertEquals(2000, analyticsLatency.getMax());
+
+        assertEquals("Bytes sent not UTF-8 length", 4 + 4, metrics.getCounter(Metrics.BYTES_SENT).getCount());
+        assertEquals(13, metrics.getCounter(Metrics.BYTES_RECEIVED).getCount());
+    }
+
+}
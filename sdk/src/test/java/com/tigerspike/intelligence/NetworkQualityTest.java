@@ -0,0 +1,85 @@
+package com.tigerspike.intelligence;
+
+import android.net.ConnectivityManager;
+import android.telephony.TelephonyManager;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class NetworkQualityTest extends TestCase {
+
+    /*
+     * Check if small requests estimate the round trip time, large responses the throughput, and a new network resets both
+     */
+    @Test
+    public void estimates() {
+
+        NetworkQuality networkQuality = new NetworkQuality();
+        networkQuality.onNetworkChanged(ConnectivityManager.TYPE_WIFI, 0, false);
+
+        assertEquals("Unknown round trip time not match", -1, networkQuality.getRttMillis());
+        assertEquals("Unknown throughput not match", -1, networkQuality.getThroughput());
+
+        networkQuality.recordRequest(100, 200 * 1000000L, 100, 1000000L);
+        networkQuality.recordRequest(100, 100 * 1000000L, 100, 1000000L);
+        assertEquals("Round trip time trusted too early", -1, networkQuality.getRttMillis());
+
+        networkQuality.recordRequest(100, 100 * 1000000L, 100, 1000000L);
+        assertEquals("Round trip time not match", 149, networkQuality.getRttMillis());
+
+        // Large uploads and unknown phases do not count
+        networkQuality.recordRequest(100 * 1024, 10 * 1000000000L, 100, -1);
+        networkQuality.recordRequest(100, -1, 100 * 1024, -1);
+        assertEquals("Round trip time of a large upload not ignored", 149, networkQuality.getRttMillis());
+        assertEquals("Unknown transfer not ignored", -1, networkQuality.getThroughput());
+
+        for (int i = 0; i < NetworkQuality.MIN_SAMPLES; i++) {
+            networkQuality.recordRequest(100 * 1024, 5 * 1000000000L, 100 * 1024, 1000 * 1000000L);
+        }
+        assertEquals("Throughput not match", 100 * 1024, networkQuality.getThroughput());
+        assertEquals("Round trip time not match after throughput", 149, networkQuality.getRttMillis());
+
+        networkQuality.onNetworkChanged(ConnectivityManager.TYPE_WIFI, 0, false);
+        assertEquals("Same network reset the estimate", 149, networkQuality.getRttMillis());
+
+        networkQuality.onNetworkChanged(ConnectivityManager.TYPE_MOBILE, TelephonyManager.NETWORK_TYPE_LTE, true);
+        assertEquals("New network kept the round trip time", -1, networkQuality.getRttMillis());
+        assertEquals("New network kept the throughput", -1, networkQuality.getThroughput());
+    }
+
+    /*
+     * Check if deferrable tasks are not allowed on 2G or slow metered networks only
+     */
+    @Test
+    public void allows() {
+
+        NetworkQuality networkQuality = new NetworkQuality();
+
+        networkQuality.onNetworkChanged(ConnectivityManager.TYPE_MOBILE, TelephonyManager.NETWORK_TYPE_EDGE, true);
+        assertTrue("2G not poor", networkQuality.isPoor());
+        assertFalse("Deferrable task allowed on 2G", networkQuality.allows(IntelligenceTask.NetworkRequirement.UnmeteredOrGood));
+        assertTrue("Interactive task not allowed on 2G", networkQuality.allows(IntelligenceTask.NetworkRequirement.Any));
+
+        networkQuality.onNetworkChanged(ConnectivityManager.TYPE_MOBILE, TelephonyManager.NETWORK_TYPE_LTE, true);
+        assertTrue("Deferrable task not allowed on a good metered network", networkQuality.allows(IntelligenceTask.NetworkRequirement.UnmeteredOrGood));
+
+        networkQuality.recordRequest(100, 100 * 1000000L, 100 * 1024, 10 * 1000000000L);
+        assertTrue("Deferrable task not allowed after one slow request", networkQuality.allows(IntelligenceTask.NetworkRequirement.UnmeteredOrGood));
+
+        for (int i = 1; i < NetworkQuality.MIN_SAMPLES; i++) {
+            networkQuality.recordRequest(100, 100 * 1000000L, 100 * 1024, 10 * 1000000000L);
+        }
+        assertFalse("Deferrable task allowed on a slow metered network", networkQuality.allows(IntelligenceTask.NetworkRequirement.UnmeteredOrGood));
+
+        networkQuality.onNetworkChanged(ConnectivityManager.TYPE_WIFI, 0, false);
+        for (int i = 0; i < NetworkQuality.MIN_SAMPLES; i++) {
+            networkQuality.recordRequest(100, 100 * 1000000L, 100 * 1024, 10 * 1000000000L);
+        }
+        assertTrue("Deferrable task not allowed on a slow unmetered network", networkQuality.allows(IntelligenceTask.NetworkRequirement.UnmeteredOrGood));
+    }
+
+}
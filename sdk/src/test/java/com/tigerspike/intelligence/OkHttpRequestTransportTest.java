@@ -0,0 +1,177 @@
+package com.tigerspike.intelligence;
+
+import junit.framework.TestCase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import okhttp3.OkHttpClient;
+import okhttp3.internal.http.HttpDate;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+@RunWith(MockitoJUnitRunner.class)
+public class OkHttpRequestTransportTest extends TestCase {
+
+    private MockWebServer server;
+    private OkHttpRequestTransport transport;
+
+    @Before
+    public void init() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        transport = new OkHttpRequestTransport(new OkHttpClient());
+    }
+
+    @After
+    public void close() throws Exception {
+        server.shutdown();
+    }
+
+    /*
+     * Check if the parameters of a POST without body are sent form url encoded, and the Connection header is left to OkHttp
+     */
+    @Test
+    public void formBody() throws Exception {
+
+        server.enqueue(new MockResponse().setBody("{}"));
+
+        LinkedHashMap<String, String> headers = new LinkedHashMap<>();
+        headers.put("Connection", "close");
+        headers.put("Authorization", "Basic abc");
+
+        Response response = transport.execute(new Request(Request.Method.POST, url("/token"), headers, params()), null);
+        RecordedRequest recorded = server.takeRequest();
+
+        assertEquals("Code not match", 200, response.code());
+        assertEquals("Body not match", "{}", response.bodyData());
+        assertEquals("Form body not match", "grant_type=password&username=user", recorded.getBody().readUtf8());
+        assertTrue("Content type not match", recorded.getHeader("Content-Type").startsWith(Constants.CONTENT_TYPE_FORM_URL_ENCODED));
+        assertEquals("Header not match", "Basic abc", recorded.getHeader("Authorization"));
+        assertFalse("Connection header sent", "close".equalsIgnoreCase(recorded.getHeader("Connection")));
+    }
+
+    /*
+     * Check if a POST with body sends the JSON body and not the parameters
+     */
+    @Test
+    public void jsonBody() throws Exception {
+
+        server.enqueue(new MockResponse().setBody("{}"));
+
+        transport.execute(new Request(Request.Method.POST, url("/users"), new LinkedHashMap<String, String>(), params(), "{\"Id\":1}"), null);
+        RecordedRequest recorded = server.takeRequest();
+
+        assertEquals("JSON body not match", "{\"Id\":1}", recorded.getBody().readUtf8());
+        assertTrue("Content type not match", recorded.getHeader("Content-Type").startsWith(Constants.CONTENT_TYPE_JSON));
+    }
+
+    /*
+     * Check if the parameters of GET and DELETE requests are sent in the query
+     */
+    @Test
+    public void queryParams() throws Exception {
+
+        server.enqueue(new MockResponse().setBody("{}"));
+        server.enqueue(new MockResponse().setBody("{}"));
+
+        transport.execute(new Request(Request.Method.GET, url("/users"), new LinkedHashMap<String, String>(), params()), null);
+        transport.execute(new Request(Request.Method.DELETE, url("/users"), new LinkedHashMap<String, String>(), params()), null);
+
+        RecordedRequest get = server.takeRequest();
+        RecordedRequest delete = server.takeRequest();
+
+        assertEquals("GET method not match", "GET", get.getMethod());
+        assertEquals("GET path not match", "/users?grant_type=password&username=user", get.getPath());
+        assertEquals("DELETE method not match", "DELETE", delete.getMethod());
+        assertEquals("DELETE path not match", "/users?grant_type=password&username=user", delete.getPath());
+        assertEquals("DELETE body sent", 0, delete.getBodySize());
+    }
+
+    /*
+     * Check if Retry-After, in seconds or as an HTTP date, and Cache-Control are read from the response
+     */
+    @Test
+    public void responseHeaders() throws Exception {
+
+        server.enqueue(new MockResponse().setResponseCode(503).setHeader("Retry-After", "120"));
+        server.enqueue(new MockResponse().setResponseCode(429).setHeader("Retry-After", HttpDate.format(new Date(System.currentTimeMillis() + 60000))));
+        server.enqueue(new MockResponse().setBody("{}").setHeader("Cache-Control", "private, max-age=10"));
+        server.enqueue(new MockResponse().setResponseCode(503).setHeader("Retry-After", "soon"));
+
+        Response seconds = transport.execute(new Request(Request.Method.GET, url("/users/me"), new LinkedHashMap<String, String>(), null), null);
+        Response date = transport.execute(new Request(Request.Method.GET, url("/users/me"), new LinkedHashMap<String, String>(), null), null);
+        Response cached = transport.execute(new Request(Request.Method.GET, url("/users/me"), new LinkedHashMap<String, String>(), null), null);
+        Response invalid = transport.execute(new Request(Request.Method.GET, url("/users/me"), new LinkedHashMap<String, String>(), null), null);
+
+        assertEquals("Code not match", 503, seconds.code());
+        assertEquals("Retry-After in seconds not match", 120000, seconds.retryAfterMillis());
+        assertTrue("Retry-After date not match: " + date.retryAfterMillis(), date.retryAfterMillis() > 50000 && date.retryAfterMillis() <= 60000);
+        assertEquals("Cache-Control not match", "private, max-age=10", cached.cacheControl());
+        assertEquals("Retry-After read without header", -1, cached.retryAfterMillis());
+        assertEquals("Invalid Retry-After not match", -1, invalid.retryAfterMillis());
+    }
+
+    /*
+     * Check if the phases of a timed request are marked from the OkHttp events, and measure the network quality
+     */
+    @Test
+    public void phases() throws Exception {
+
+        for (int i = 0; i <= NetworkQuality.MIN_SAMPLES; i++) {
+            server.enqueue(new MockResponse().setBody("{}"));
+        }
+
+        final List<RequestTiming.Phase> phases = new ArrayList<>();
+        RequestTiming timing = new RequestTiming("POST", url("/users"), new RequestTiming.OnPhaseListener() {
+            @Override
+            public void onPhase(RequestTiming timing, RequestTiming.Phase phase, long nanoTime) {
+                phases.add(phase);
+            }
+        });
+
+        Response response = transport.execute(new Request(Request.Method.POST, url("/users"), new LinkedHashMap<String, String>(), null, "{\"Id\":1}"), timing);
+
+        assertEquals("Code not match", 200, response.code());
+        assertEquals("Phases not match", Arrays.asList(RequestTiming.Phase.ConnectStart, RequestTiming.Phase.ConnectEnd,
+                RequestTiming.Phase.RequestStart, RequestTiming.Phase.RequestEnd, RequestTiming.Phase.RequestEnd,
+                RequestTiming.Phase.ResponseHeadersStart, RequestTiming.Phase.ResponseHeadersEnd,
+                RequestTiming.Phase.ResponseBodyStart, RequestTiming.Phase.ResponseBodyEnd), phases.subList(phases.indexOf(RequestTiming.Phase.ConnectStart), phases.size()));
+        assertTrue("Time to first byte not set", timing.getTimeToFirstByteNanos() >= 0);
+
+        // Requests of the transport measure the network quality, the connection is reused.
+        NetworkQuality networkQuality = new NetworkQuality();
+        for (int i = 0; i < NetworkQuality.MIN_SAMPLES; i++) {
+            Request request = new Request(Request.Method.GET, url("/users/me"), new LinkedHashMap<String, String>(), null);
+            request.setRequestTransport(transport);
+            request.setNetworkQuality(networkQuality);
+            request.execute();
+        }
+        assertEquals("Requests not match", NetworkQuality.MIN_SAMPLES + 1, server.getRequestCount());
+
+        assertTrue("Round trip time not measured", networkQuality.getRttMillis() >= 0);
+    }
+
+    private URL url(String path) {
+        return server.url(path).url();
+    }
+
+    private static LinkedHashMap<String, String> params() {
+        LinkedHashMap<String, String> params = new LinkedHashMap<>();
+        params.put("grant_type", "password");
+        params.put("username", "user");
+        return params;
+    }
+
+}
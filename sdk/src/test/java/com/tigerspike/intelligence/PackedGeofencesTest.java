@@ -0,0 +1,101 @@
+package com.tigerspike.intelligence;
+
+import junit.framework.TestCase;
+
+import org.json.JSONException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PackedGeofencesTest extends TestCase
+{
+    private File mFile;
+
+    @Before
+    public void init() throws IOException {
+        mFile = File.createTempFile("geofences", ".bin");
+    }
+
+    @After
+    public void cleanUp() {
+        mFile.delete();
+    }
+
+    /*
+    * Tests if geofences written to the cache file are read back with the same values
+    * */
+    @Test
+    public void writeAndRead() throws IOException, JSONException {
+        List<IntelligenceGeofence> geofences = new ArrayList<>();
+        geofences.add(new IntelligenceGeofence("{\"Id\": \"67745\", \"ProjectId\": \"40003\", \"Name\": \"Surry Hills Suburb\", \"Address\": \"119 Devonshire St, Surry Hills NSW 2010, Australia\", \"Geolocation\": {\"Latitude\": \"-33.8870009\", \"Longitude\": \"151.2088037\"}, \"Radius\": \"528.23\", \"Tags\": \"tags\"}"));
+        geofences.add(new IntelligenceGeofence("{\"Id\": \"67746\", \"ProjectId\": \"40003\", \"Name\": \"Tigerspike Sydney\", \"Geolocation\": {\"Latitude\": \"-33.8696\", \"Longitude\": \"151.2070\"}, \"Radius\": \"100\", \"Tags\": \"tags\"}"));
+
+        PackedGeofences.pack(geofences).writeTo(mFile);
+
+        PackedGeofences packedGeofences = PackedGeofences.readFrom(mFile);
+
+        assertEquals("Size not match", 2, packedGeofences.size());
+        assertEquals("Tags were not shared in the string table", 4, packedGeofences.strings.length);
+
+        List<IntelligenceGeofence> cachedGeofences = packedGeofences.unpack();
+
+        IntelligenceGeofence geofence = cachedGeofences.get(0);
+        assertEquals("Id not match", new Integer(67745), geofence.getId());
+        assertEquals("Project Id not match", new Integer(40003), geofence.getProjectId());
+        assertEquals("name not match", "Surry Hills Suburb", geofence.getName());
+        assertEquals("Address not match", "119 Devonshire St, Surry Hills NSW 2010, Australia", geofence.getAddress());
+        assertEquals("Latitude not match", -33.8870009, geofence.getLatitude());
+        assertEquals("Longitude not match", 151.2088037, geofence.getLongitude());
+        assertEquals("Radius not match", 528.23, geofence.getRadius());
+        assertEquals("Tags not match", "tags", geofence.getTags());
+
+        geofence = cachedGeofences.get(1);
+        assertEquals("Id not match", new Integer(67746), geofence.getId());
+        assertNull("Missing address was not kept", geofence.getAddress());
+        assertEquals("Tags not match", "tags", geofence.getTags());
+    }
+
+    /*
+    * Tests if missing values are kept as nulls
+    * */
+    @Test
+    public void missingValues() throws IOException {
+        List<IntelligenceGeofence> geofences = new ArrayList<>();
+        geofences.add(new IntelligenceGeofence(IntelligenceGeofence.NO_VALUE, IntelligenceGeofence.NO_VALUE, null, null, Double.NaN, Double.NaN, Double.NaN, null));
+
+        PackedGeofences.pack(geofences).writeTo(mFile);
+
+        IntelligenceGeofence geofence = PackedGeofences.readFrom(mFile).unpack().get(0);
+
+        assertNull(geofence.getId());
+        assertNull(geofence.getProjectId());
+        assertNull(geofence.getName());
+        assertNull(geofence.getLatitude());
+        assertNull(geofence.getRadius());
+    }
+
+    /*
+    * Tests if an invalid cache file is rejected
+    * */
+    @Test
+    public void invalidFile() throws IOException {
+        FileOutputStream outputStream = new FileOutputStream(mFile);
+        outputStream.write(new byte[] { 0x47, 0x45, 0x4F, 0x46, 0, 0, 0, 1, 0x7F, 0 });
+        outputStream.close();
+
+        try {
+            PackedGeofences.readFrom(mFile);
+            fail("Invalid cache file was read");
+        } catch (IOException expected) {
+        }
+    }
+}
@@ -57,4 +57,28 @@ public class RequestBuilderTest extends TestCase {
 
     }
 
-}
\ No newline at end of file
+    /*
+     * Test if requests built from a RequestContext are sent with its collaborators.
+     */
+    @Test
+    public void buildRequestInContext() throws Exception {
+
+        final Response transportResponse = new Response(null, 200, "{}", null);
+
+        RequestTransport transport = new RequestTransport() {
+            @Override
+            public Response execute(Request request, RequestTiming timing) {
+                return transportResponse;
+            }
+        };
+
+        Metrics metrics = new Metrics();
+        RequestContext requestContext = new RequestContext(null, transport, metrics, null, null, null, null);
+
+        URL url = new URL("https://analytics.phoenixplatform.eu/v2/projects/1/events");
+
+        assertSame("Request not sent with the transport of the context", transportResponse, requestContext.POST(url).body("[]").build().execute());
+        assertEquals("Request not recorded in the metrics of the context", 1, metrics.getCounter("request.analytics.status_2xx").getCount());
+    }
+
+}
@@ -8,7 +8,10 @@ import org.mockito.runners.MockitoJUnitRunner;
 
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 
 /**
  * Created by markvanrees on 03/08/15.
@@ -64,5 +67,70 @@ public class RequestTest extends TestCase {
 
     }
 
+    /*
+     * Check if one request every sample interval is timed, and its phases reported in order
+     */
+    @Test
+    public void sampleRequestTiming() throws Exception {
+
+        final List<RequestTiming.Phase> phases = new ArrayList<>();
+
+        RequestTracer requestTracer = new RequestTracer();
+        requestTracer.setListener(new RequestTiming.OnPhaseListener() {
+            @Override
+            public void onPhase(RequestTiming timing, RequestTiming.Phase phase, long nanoTime) {
+                phases.add(phase);
+            }
+        }, 3);
+
+        FakeTransport transport = new FakeTransport();
+        int timedResponses = 0;
+
+        for (int i = 0; i < 9; i++) {
+            Request request = new Request(Request.Method.GET, new URL("https://identity.api.phoenixplatform.com/v2/token"), null, null);
+            request.setRequestTransport(transport);
+            request.setRequestTracer(requestTracer);
+            if (request.execute().timing() != null) {
+                timedResponses++;
+            }
+        }
+
+        assertEquals("Sampled request count not match", 3, timedResponses);
+        assertEquals("Phases not match", Arrays.asList(RequestTiming.Phase.CallStart, RequestTiming.Phase.CallEnd), phases.subList(0, 2));
+
+        transport.setOnline(false);
+        Request request = new Request(Request.Method.GET, new URL("https://identity.api.phoenixplatform.com/v2/token"), null, null);
+        request.setRequestTransport(transport);
+        request.setRequestTracer(requestTracer);
+        RequestTiming timing = request.execute().timing();
+
+        assertNotNull("Request not sampled", timing);
+        assertTrue("Failure not reported", timing.hasPhase(RequestTiming.Phase.CallFailed));
+        assertNotNull("Exception not set", timing.getException());
+        assertTrue("Total time not set", timing.getTotalNanos() >= 0);
+        assertEquals("Missing phase has a duration", -1, timing.getDnsNanos());
+    }
+
+    /*
+     * Check if requests with another Authorization have another key
+     */
+    @Test
+    public void requestKey() throws Exception {
+
+        Request request = createGetRequest();
+        Request otherUserRequest = createGetRequest();
+        otherUserRequest.getHeaders().put("Authorization", "Bearer other");
+
+        assertEquals(request.key(), createGetRequest().key());
+        assertFalse("Other user request has the same key", request.key().equals(otherUserRequest.key()));
+    }
+
+    private Request createGetRequest() throws MalformedURLException {
+
+        HashMap<String, String> headers = new HashMap<>();
+        headers.put("Authorization", "Bearer token");
+
+        return new Request(Request.Method.GET, new URL("https://identity.api.phoenixplatform.com/v2/users/me"), headers, null);
+    }
 
-}
\ No newline at end of file
+}
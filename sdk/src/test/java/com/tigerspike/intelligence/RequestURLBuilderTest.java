@@ -9,6 +9,7 @@ import org.junit.runner.RunWith;
 import org.mockito.runners.MockitoJUnitRunner;
 
 import java.net.URL;
+import java.util.HashMap;
 
 /**
  * Created by marcinowoc on 26/01/16.
@@ -240,5 +241,52 @@ public class RequestURLBuilderTest extends TestCase {
         assertEquals("https://authentication.phoenixplatform.com.au/v2", url.toString());
     }
 
+    /*
+     * Check if parameters of the url path are replaced by the configuration and added parameters, only for the url they were added to, and missing ones are reported
+     */
+    @Test
+    public void replaceUrlParameters() throws IntelligenceInvalidParameterException {
+
+        Configuration configuration = new Configuration();
+        configuration.setRegion(Region.Europe);
+        configuration.setEnvironment(Environment.Production);
+        configuration.setProjectID(40003);
+
+        RequestURLBuilder requestURLBuilder = new RequestURLBuilder(configuration);
+
+        URL url = requestURLBuilder.identityBaseURL().urlPath("projects/{PROJECT_ID}/users/{USER_ID}/identifiers/").addParam("USER_ID", "310375").url();
+        assertEquals("https://identity.phoenixplatform.eu/v2/projects/40003/users/310375/identifiers", url.toString());
+
+        url = requestURLBuilder.identityBaseURL().urlPath("projects/{PROJECT_ID}/users/{USER_ID}/identifiers/").addParam("USER_ID", "1").url();
+        assertEquals("https://identity.phoenixplatform.eu/v2/projects/40003/users/1/identifiers", url.toString());
+
+        try {
+            requestURLBuilder.identityBaseURL().urlPath("projects/{PROJECT_ID}/users/{USER_ID}/identifiers/").url();
+            fail("Parameter added to another url used");
+        } catch (IntelligenceInvalidParameterException e) {
+            assertEquals(IntelligenceInvalidParameterException.ErrorCode.MissingParameter.getCode(), e.getErrorCode());
+        }
+
+        try {
+            requestURLBuilder.analyticsBaseURL().urlPath("companies/{COMPANY_ID}/events").url();
+            fail("Missing parameter not reported");
+        } catch (IntelligenceInvalidParameterException e) {
+            assertEquals(IntelligenceInvalidParameterException.ErrorCode.MissingParameter.getCode(), e.getErrorCode());
+        }
+    }
+
+    /*
+     * Check if url templates split components enclosed into braces only
+     */
+    @Test
+    public void compileUrlTemplate() throws IntelligenceInvalidParameterException {
+
+        HashMap<String, String> parameters = new HashMap<>();
+        parameters.put("A", "1");
+        parameters.put("B}", "2");
+
+        RequestURLBuilder.UrlTemplate template = RequestURLBuilder.UrlTemplate.compile("https://host/v2/{A}/x{A}/{B}}/{A}.json//{A}");
+        assertEquals("https://host/v2/1/x{A}/2/{A}.json//1", template.expand(parameters, new HashMap<String, String>()));
+    }
 
 }
@@ -0,0 +1,91 @@
+package com.tigerspike.intelligence;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.net.URL;
+import java.util.HashMap;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ResponseCacheTest extends TestCase {
+
+    private static final String USER_ME_URL = "https://identity.phoenixplatform.eu/v2/providers/1/users/me";
+    private static final String USERS_URL = "https://identity.phoenixplatform.eu/v2/companies/4/users";
+    private static final String GEOFENCES_URL = "https://location.phoenixplatform.eu/v2/projects/1/geofences";
+
+    /*
+     * Check if a cached GET is answered from memory until a write to its module
+     */
+    @Test
+    public void cacheAndInvalidate() throws Exception {
+
+        ResponseCache responseCache = new ResponseCache(10, new Metrics());
+
+        Request getMe = createRequest(Request.Method.GET, USER_ME_URL, 60000);
+        Request getGeofences = createRequest(Request.Method.GET, GEOFENCES_URL, 60000);
+
+        assertNull("Empty cache answered", responseCache.get(getMe));
+
+        responseCache.onResponse(getMe, new Response(getMe, 200, "{\"Data\":[]}", null));
+        responseCache.onResponse(getGeofences, new Response(getGeofences, 200, "{\"Data\":[]}", null));
+
+        Request getMeAgain = createRequest(Request.Method.GET, USER_ME_URL, 60000);
+        Response cachedResponse = responseCache.get(getMeAgain);
+
+        assertNotNull("Response not cached", cachedResponse);
+        assertEquals("{\"Data\":[]}", cachedResponse.bodyData());
+        assertSame("Cached response not copied for the request", getMeAgain, cachedResponse.request());
+
+        Request updateUser = createRequest(Request.Method.PUT, USERS_URL, 0);
+        responseCache.onResponse(updateUser, new Response(updateUser, 200, "{\"Data\":[]}", null));
+
+        assertNull("Write did not invalidate the module", responseCache.get(getMe));
+        assertNotNull("Write invalidated another module", responseCache.get(getGeofences));
+    }
+
+    /*
+     * Check if failed responses and requests without time to live are not cached
+     */
+    @Test
+    public void notCached() throws Exception {
+
+        ResponseCache responseCache = new ResponseCache(10, new Metrics());
+
+        Request getMe = createRequest(Request.Method.GET, USER_ME_URL, 60000);
+        responseCache.onResponse(getMe, new Response(getMe, 500, null, null));
+        assertNull("Failed response cached", responseCache.get(getMe));
+
+        Request uncached = createRequest(Request.Method.GET, USER_ME_URL, 0);
+        responseCache.onResponse(uncached, new Response(uncached, 200, "{}", null));
+        assertNull("Response without time to live cached", responseCache.get(getMe));
+    }
+
+    /*
+     * Check if Cache-Control shortens or prevents caching
+     */
+    @Test
+    public void cacheControl() {
+
+        assertEquals(60000, ResponseCache.timeToLive(60000, null));
+        assertEquals(10000, ResponseCache.timeToLive(60000, "private, max-age=10"));
+        assertEquals(60000, ResponseCache.timeToLive(60000, "max-age=3600"));
+        assertEquals(0, ResponseCache.timeToLive(60000, "no-cache"));
+        assertEquals(0, ResponseCache.timeToLive(60000, "No-Store, max-age=10"));
+        assertEquals(0, ResponseCache.timeToLive(0, "max-age=10"));
+    }
+
+    private Request createRequest(Request.Method method, String url, long cacheTtlMillis) throws Exception {
+
+        HashMap<String, String> headers = new HashMap<>();
+        headers.put("Authorization", "Bearer token");
+
+        Request request = new Request(method, new URL(url), headers, null);
+        request.setCacheTtlMillis(cacheTtlMillis);
+
+        return request;
+    }
+
+}
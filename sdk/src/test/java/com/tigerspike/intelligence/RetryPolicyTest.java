@@ -0,0 +1,119 @@
+package com.tigerspike.intelligence;
+
+import com.tigerspike.intelligence.exceptions.IntelligenceRequestException;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.net.UnknownHostException;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RetryPolicyTest extends TestCase {
+
+    private static final String ANALYTICS_URL = "https://analytics.phoenixplatform.eu/v2/projects/1/events";
+    private static final String IDENTITY_URL = "https://identity.phoenixplatform.eu/v2/users/me";
+
+    /*
+     * Check if connection errors, 408, 429 and 5xx are retried with a growing backoff, and other failures are not
+     */
+    @Test
+    public void retryableFailures() throws Exception {
+
+        RetryPolicy retryPolicy = new RetryPolicy();
+        URL url = new URL(ANALYTICS_URL);
+
+        assertTrue(RetryPolicy.isRetryable(-1));
+        assertTrue(RetryPolicy.isRetryable(408));
+        assertTrue(RetryPolicy.isRetryable(429));
+        assertTrue(RetryPolicy.isRetryable(503));
+        assertFalse(RetryPolicy.isRetryable(400));
+        assertFalse(RetryPolicy.isRetryable(401));
+
+        retryPolicy.beginTask();
+        assertEquals("Task without failed request retried", -1, retryPolicy.retryDelay(0));
+
+        retryPolicy.onResponse(url, Request.Method.GET, new Response(null, 400, null, null));
+        assertEquals("Client error retried", -1, retryPolicy.retryDelay(0));
+
+        retryPolicy.onResponse(url, Request.Method.GET, new Response(null, 503, null, null));
+        for (int attempt = 0; attempt < RetryPolicy.MAX_RETRY_COUNT; attempt++) {
+            long delay = retryPolicy.retryDelay(attempt);
+            assertTrue("Backoff out of bounds: " + delay, delay >= 0 && delay <= 1000L << attempt);
+        }
+        assertEquals("Retried more than MAX_RETRY_COUNT", -1, retryPolicy.retryDelay(RetryPolicy.MAX_RETRY_COUNT));
+    }
+
+    /*
+     * Check if a failed POST is only retried when the server did not process it
+     */
+    @Test
+    public void retryPostNotProcessed() throws Exception {
+
+        assertTrue("Refused connection not retried", RetryPolicy.canRetry(Request.Method.POST, new Response(null, -1, null, new ConnectException("Connection refused"))));
+        assertTrue("Unknown host not retried", RetryPolicy.canRetry(Request.Method.POST, new Response(null, -1, null, new UnknownHostException("identity.phoenixplatform.eu"))));
+        assertTrue("429 not retried", RetryPolicy.canRetry(Request.Method.POST, new Response(null, 429, null, null)));
+        assertTrue("503 not retried", RetryPolicy.canRetry(Request.Method.POST, new Response(null, 503, null, null)));
+
+        assertFalse("Timed out POST retried", RetryPolicy.canRetry(Request.Method.POST, new Response(null, -1, null, new SocketTimeoutException("Read timed out"))));
+        assertFalse("500 POST retried", RetryPolicy.canRetry(Request.Method.POST, new Response(null, 500, null, null)));
+        assertTrue("Timed out GET not retried", RetryPolicy.canRetry(Request.Method.GET, new Response(null, -1, null, new SocketTimeoutException("Read timed out"))));
+        assertTrue("500 PUT not retried", RetryPolicy.canRetry(Request.Method.PUT, new Response(null, 500, null, null)));
+
+        RetryPolicy retryPolicy = new RetryPolicy();
+        URL url = new URL(ANALYTICS_URL);
+
+        retryPolicy.beginTask();
+        retryPolicy.onResponse(url, Request.Method.POST, new Response(null, -1, null, new SocketTimeoutException("Read timed out")));
+        assertEquals("Timed out POST retried", -1, retryPolicy.retryDelay(0));
+    }
+
+    /*
+     * Check if the Retry-After of the response is the minimum delay
+     */
+    @Test
+    public void retryAfter() throws Exception {
+
+        RetryPolicy retryPolicy = new RetryPolicy();
+
+        Response response = new Response(null, 429, null, null);
+        response.setRetryAfterMillis(120000);
+
+        retryPolicy.beginTask();
+        retryPolicy.onResponse(new URL(ANALYTICS_URL), Request.Method.POST, response);
+
+        assertEquals("Retry-After not honored", 120000, retryPolicy.retryDelay(0));
+    }
+
+    /*
+     * Check if repeated failures of a module open its circuit, without affecting the other modules
+     */
+    @Test
+    public void circuitBreaker() throws Exception {
+
+        RetryPolicy retryPolicy = new RetryPolicy();
+        URL analyticsUrl = new URL(ANALYTICS_URL);
+
+        for (int i = 0; i < 4; i++) {
+            retryPolicy.onResponse(analyticsUrl, Request.Method.POST, new Response(null, 500, null, null));
+        }
+        assertNull("Circuit opened before the threshold", retryPolicy.checkRequest(analyticsUrl));
+
+        retryPolicy.onResponse(analyticsUrl, Request.Method.POST, new Response(null, 500, null, null));
+
+        IntelligenceRequestException rejection = retryPolicy.checkRequest(analyticsUrl);
+        assertNotNull("Circuit not opened", rejection);
+        assertEquals(IntelligenceRequestException.ErrorCode.ServiceUnavailable.getCode(), rejection.getErrorCode());
+        assertTrue("Rejected request not retried after the open period", retryPolicy.retryDelay(0) > 0);
+        assertNull("Other module rejected", retryPolicy.checkRequest(new URL(IDENTITY_URL)));
+
+        retryPolicy.reset();
+        assertNull("Circuit not closed by reset", retryPolicy.checkRequest(analyticsUrl));
+    }
+
+}
@@ -0,0 +1,260 @@
+package com.tigerspike.intelligence;
+
+import android.app.Application;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.IntentFilter;
+import android.content.pm.PackageManager;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.telephony.TelephonyManager;
+
+import com.tigerspike.intelligence.exceptions.IntelligenceException;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TaskExecutorTest extends TestCase {
+
+    /*
+     * Check if cancelled and expired tasks are dropped from the queue with their error, and the next task executed
+     */
+    @Test
+    public void dropStaleTasks() {
+
+        final Metrics metrics = new Metrics();
+        final TaskExecutor taskExecutor = createTaskExecutor(metrics);
+        final List<String> events = new ArrayList<>();
+
+        final RecordingTask cancelled = new RecordingTask("cancelled", events);
+        final RecordingTask expired = new RecordingTask("expired", events);
+        final RecordingTask fresh = new RecordingTask("fresh", events);
+
+        taskExecutor.addTask(new IntelligenceTask() {
+            @Override
+            void execute() {
+                // Queued while this task executes.
+                taskExecutor.addTask(cancelled);
+                taskExecutor.addTask(expired);
+                taskExecutor.addTask(fresh);
+                cancelled.cancel(true);
+                expired.setTimeout(-1);
+            }
+        });
+
+        assertEquals("Events not match", "[cancelled error 2008, expired error 2009, fresh executed, fresh finished]", events.toString());
+        assertEquals("Cancelled count not match", 1, metrics.taskCancelled.getCount());
+        assertEquals("Expired count not match", 1, metrics.taskExpired.getCount());
+    }
+
+    /*
+     * Check if a cancelled future cancels its queued task, and a deadline bounds the request timeouts of its task
+     */
+    @Test
+    public void cancelFuture() throws Exception {
+
+        final TaskExecutor taskExecutor = createTaskExecutor(new Metrics());
+        final List<String> events = new ArrayList<>();
+        final TaskFuture<Void> future = new TaskFuture<>();
+        final RecordingTask queued = new RecordingTask("queued", events, future);
+        final int[] timeouts = new int[2];
+
+        taskExecutor.addTask(new IntelligenceTask() {
+            @Override
+            void execute() {
+                taskExecutor.submit(queued, future);
+                future.cancel(false);
+            }
+        });
+
+        assertTrue("Future not cancelled", future.isCancelled());
+        assertTrue("Task not cancelled", queued.isCancelled());
+        assertEquals("Cancelled task executed", "[queued error 2008]", events.toString());
+
+        try {
+            future.get();
+            fail("Cancelled future returned");
+        } catch (CancellationException e) {
+            // Expected
+        }
+
+        IntelligenceTask bounded = new IntelligenceTask() {
+            @Override
+            void execute() {
+                timeouts[0] = IntelligenceTask.timeoutMillis(Constants.CONNECTION_RESPONSE_TIMEOUT_MS);
+            }
+        };
+        bounded.setTimeout(5000);
+        taskExecutor.addTask(bounded);
+        timeouts[1] = IntelligenceTask.timeoutMillis(Constants.CONNECTION_RESPONSE_TIMEOUT_MS);
+
+        assertTrue("Timeout not bounded by the deadline: " + timeouts[0], timeouts[0] > 0 && timeouts[0] <= 5000);
+        assertEquals("Timeout bounded outside of the task", Constants.CONNECTION_RESPONSE_TIMEOUT_MS, timeouts[1]);
+    }
+
+    /*
+     * Check if a deferrable task waits for a better network while interactive tasks go ahead of it
+     */
+    @Test
+    public void deferOnPoorMeteredNetwork() {
+
+        NetworkInfo networkInfo = Mockito.mock(NetworkInfo.class);
+        Mockito.when(networkInfo.isConnected()).thenReturn(true);
+        Mockito.when(networkInfo.getType()).thenReturn(ConnectivityManager.TYPE_MOBILE);
+        Mockito.when(networkInfo.getSubtype()).thenReturn(TelephonyManager.NETWORK_TYPE_EDGE);
+
+        ConnectivityManager connectivityManager = Mockito.mock(ConnectivityManager.class);
+        Mockito.when(connectivityManager.getActiveNetworkInfo()).thenReturn(networkInfo);
+        Mockito.when(connectivityManager.isActiveNetworkMetered()).thenReturn(true);
+
+        Application application = Mockito.mock(Application.class);
+        Mockito.when(application.checkCallingOrSelfPermission(Mockito.anyString())).thenReturn(PackageManager.PERMISSION_GRANTED);
+        Mockito.when(application.getSystemService(Context.CONNECTIVITY_SERVICE)).thenReturn(connectivityManager);
+
+        Metrics metrics = new Metrics();
+        TaskExecutor taskExecutor = new TaskExecutor(application, null, new RequestContext(null, null, metrics, null, new RetryPolicy(), null, null));
+
+        ArgumentCaptor<BroadcastReceiver> receiverCaptor = ArgumentCaptor.forClass(BroadcastReceiver.class);
+        Mockito.verify(application).registerReceiver(receiverCaptor.capture(), Mockito.any(IntentFilter.class));
+
+        final List<String> events = new ArrayList<>();
+
+        taskExecutor.addTask(new RecordingTask("upload", events) {
+            @Override
+            NetworkRequirement networkRequirement() {
+                return NetworkRequirement.UnmeteredOrGood;
+            }
+        });
+        taskExecutor.addTask(new RecordingTask("login", events));
+
+        assertEquals("Events on 2G not match", "[login executed, login finished]", events.toString());
+        assertEquals("Deferred count not match", 1, metrics.taskDeferred.getCount());
+
+        Mockito.when(networkInfo.getType()).thenReturn(ConnectivityManager.TYPE_WIFI);
+        Mockito.when(connectivityManager.isActiveNetworkMetered()).thenReturn(false);
+        receiverCaptor.getValue().onReceive(application, null);
+
+        assertEquals("Events on Wi-Fi not match", "[login executed, login finished, upload executed, upload finished]", events.toString());
+    }
+
+    /*
+     * Check if an identical task queued while another is pending gets its result without executing, and is executed if the other one is cancelled
+     */
+    @Test
+    public void coalesceIdenticalTasks() throws Exception {
+
+        final Metrics metrics = new Metrics();
+        final TaskExecutor taskExecutor = createTaskExecutor(metrics);
+        final List<String> events = new ArrayList<>();
+        final TaskFuture<String> future = new TaskFuture<>();
+
+        final KeyedTask first = new KeyedTask("first", "a", events, null);
+        final KeyedTask identical = new KeyedTask("identical", "a", events, future);
+        final KeyedTask other = new KeyedTask("other", "b", events, null);
+        final KeyedTask bounded = new KeyedTask("bounded", "a", events, null);
+        final KeyedTask cancelled = new KeyedTask("cancelled", "c", events, null);
+        final KeyedTask replacement = new KeyedTask("replacement", "c", events, null);
+
+        taskExecutor.addTask(new IntelligenceTask() {
+            @Override
+            void execute() {
+                // Queued while this task executes.
+                taskExecutor.addTask(first);
+                taskExecutor.submit(identical, future);
+                taskExecutor.addTask(other);
+                bounded.setTimeout(60000);
+                taskExecutor.addTask(bounded);
+                taskExecutor.addTask(cancelled);
+                taskExecutor.addTask(replacement);
+                cancelled.cancel(false);
+            }
+        });
+
+        assertEquals("Events not match", "[first executed, first finished, identical finished, other executed, other finished, "
+                + "bounded executed, bounded finished, cancelled error 2008, replacement executed, replacement finished]", events.toString());
+        assertEquals("Future result not match", "first", future.get());
+        assertEquals("Coalesced count not match", 2, metrics.taskCoalesced.getCount());
+    }
+
+    private TaskExecutor createTaskExecutor(Metrics metrics) {
+
+        Application application = Mockito.mock(Application.class);
+        Mockito.when(application.checkCallingOrSelfPermission(Mockito.anyString())).thenReturn(PackageManager.PERMISSION_DENIED);
+
+        RequestContext requestContext = new RequestContext(null, null, metrics, null, new RetryPolicy(), null, null);
+
+        return new TaskExecutor(application, null, requestContext);
+    }
+
+    private static class RecordingTask extends IntelligenceTask {
+
+        private final String mName;
+        private final List<String> mEvents;
+
+        RecordingTask(String name, List<String> events) {
+            this(name, events, null);
+        }
+
+        RecordingTask(final String name, final List<String> events, final TaskListener taskListener) {
+            super(new TaskListener() {
+                @Override
+                public void onTaskFinish(IntelligenceTask intelligenceTask) {
+                    events.add(name + " finished");
+                    if (taskListener != null) {
+                        taskListener.onTaskFinish(intelligenceTask);
+                    }
+                }
+
+                @Override
+                public void onTaskError(IntelligenceTask intelligenceTask, IntelligenceException exception) {
+                    events.add(name + " error " + exception.getErrorCode());
+                    if (taskListener != null) {
+                        taskListener.onTaskError(intelligenceTask, exception);
+                    }
+                }
+            });
+            mName = name;
+            mEvents = events;
+        }
+
+        @Override
+        void execute() {
+            mEvents.add(mName + " executed");
+        }
+
+    }
+
+    private static class KeyedTask extends RecordingTask {
+
+        private final String mName;
+        private final String mKey;
+
+        KeyedTask(String name, String key, List<String> events, TaskListener taskListener) {
+            super(name, events, taskListener);
+            mName = name;
+            mKey = key;
+        }
+
+        @Override
+        String coalesceKey() {
+            return mKey;
+        }
+
+        @Override
+        Object result() {
+            return mName;
+        }
+
+    }
+
+}
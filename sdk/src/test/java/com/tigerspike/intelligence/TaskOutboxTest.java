@@ -0,0 +1,200 @@
+package com.tigerspike.intelligence;
+
+import android.app.Application;
+import android.content.pm.PackageManager;
+
+import com.tigerspike.intelligence.exceptions.IntelligenceException;
+import com.tigerspike.intelligence.exceptions.IntelligenceRequestException;
+
+import junit.framework.TestCase;
+
+import org.json.JSONArray;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TaskOutboxTest extends TestCase {
+
+    /*
+     * Check if kept writes survive a restart, replace the pending write with the same key, and are replayed in order once
+     */
+    @Test
+    public void replayInOrder() {
+
+        MockDatastore dataStore = new MockDatastore();
+        TaskExecutor taskExecutor = createTaskExecutor();
+        final List<String> events = new ArrayList<>();
+
+        TaskOutbox outbox = new TaskOutbox(dataStore, taskExecutor);
+        outbox.add("write", "role/1/2", 1, "assign 2", true, recordingListener("first", events));
+        outbox.add("write", "user/1", 1, "update 1", true, null);
+        outbox.add("write", "role/1/2", 1, "revoke 2", true, null);
+
+        assertEquals("Replaced write not cancelled", "[first error 2008]", events.toString());
+        assertNotNull("Outbox not stored", dataStore.get(TaskOutbox.KEY_TASK_OUTBOX));
+
+        // Restart
+        TaskOutbox restored = new TaskOutbox(dataStore, taskExecutor);
+        assertEquals("Restored entries not match", 2, restored.size());
+
+        restored.registerFactory("write", new TaskOutbox.TaskFactory() {
+            @Override
+            public IntelligenceTask createTask(String type, final String payload, IntelligenceTask.TaskListener taskListener) {
+                return new IntelligenceTask(taskListener) {
+                    @Override
+                    void execute() {
+                        events.add(payload);
+                    }
+                };
+            }
+        });
+
+        events.clear();
+        restored.replay(1);
+        restored.replay(1);
+
+        assertEquals("Replayed writes not match", "[update 1, revoke 2]", events.toString());
+        assertEquals("Replayed entries kept", 0, restored.size());
+        assertNull("Replayed outbox still stored", dataStore.get(TaskOutbox.KEY_TASK_OUTBOX));
+    }
+
+    /*
+     * Check if a write failing while offline is kept for the next replay without calling its listener
+     */
+    @Test
+    public void keepFailedOffline() {
+
+        TaskOutbox outbox = new TaskOutbox(new MockDatastore(), createTaskExecutor());
+        final List<String> events = new ArrayList<>();
+
+        outbox.registerFactory("write", new TaskOutbox.TaskFactory() {
+            @Override
+            public IntelligenceTask createTask(String type, String payload, IntelligenceTask.TaskListener taskListener) {
+                return new IntelligenceTask(taskListener) {
+                    @Override
+                    void execute() throws Exception {
+                        throw new IntelligenceRequestException(IntelligenceRequestException.ErrorCode.InternetOfflineError);
+                    }
+                };
+            }
+        });
+
+        outbox.add("write", "role/1/2", 1, "assign 2", true, recordingListener("write", events));
+        outbox.replay(1);
+
+        assertEquals("Listener called for a kept write", "[]", events.toString());
+        assertEquals("Failed write not kept", 1, outbox.size());
+    }
+
+    /*
+     * Check if writes are only replayed for the user who requested them, and cleared on logout
+     */
+    @Test
+    public void replayForOwner() {
+
+        TaskOutbox outbox = new TaskOutbox(new MockDatastore(), createTaskExecutor());
+        final List<String> events = new ArrayList<>();
+
+        outbox.registerFactory("write", recordingFactory(events));
+
+        outbox.add("write", "role/1/2", 1, "assign 2", true, null);
+        outbox.add("write", "role/3/2", 3, "assign 3", true, recordingListener("other", events));
+
+        outbox.replay(3);
+        assertEquals("Replayed writes not match", "[assign 3, other finished]", events.toString());
+
+        events.clear();
+        outbox.add("write", "role/3/4", 3, "assign 4", true, recordingListener("logged out", events));
+        outbox.clear();
+        outbox.replay(1);
+
+        assertEquals("Cleared writes not cancelled", "[logged out error 2008]", events.toString());
+        assertEquals("Cleared entries kept", 0, outbox.size());
+    }
+
+    /*
+     * Check if writes with personal data are not stored, and if a replayed future can cancel its task
+     */
+    @Test
+    public void memoryOnlyEntries() throws Exception {
+
+        MockDatastore dataStore = new MockDatastore();
+        TaskOutbox outbox = new TaskOutbox(dataStore, createTaskExecutor());
+
+        outbox.add("write", "user/1", 1, "{\"Username\":\"user@example.com\"}", false, null);
+        assertNull("Memory only write stored", dataStore.get(TaskOutbox.KEY_TASK_OUTBOX));
+
+        outbox.add("write", "role/1/2", 1, "assign 2", true, null);
+        JSONArray stored = new JSONArray(dataStore.get(TaskOutbox.KEY_TASK_OUTBOX));
+        assertEquals("Stored entries not match", 1, stored.length());
+        assertEquals("Stored owner not match", 1, stored.getJSONArray(0).getInt(3));
+
+        final List<IntelligenceTask> tasks = new ArrayList<>();
+        TaskFuture<Void> future = new TaskFuture<>();
+        outbox.add("write", "role/1/3", 1, "assign 3", true, future);
+
+        outbox.registerFactory("write", new TaskOutbox.TaskFactory() {
+            @Override
+            public IntelligenceTask createTask(String type, String payload, IntelligenceTask.TaskListener taskListener) {
+                IntelligenceTask task = new IntelligenceTask(taskListener) {
+                    @Override
+                    void execute() throws Exception {
+                        throw new IntelligenceRequestException(IntelligenceRequestException.ErrorCode.InternetOfflineError);
+                    }
+                };
+                tasks.add(task);
+                return task;
+            }
+        });
+
+        outbox.replay(1);
+        future.setTimeout(5, TimeUnit.SECONDS);
+
+        assertEquals("Replayed tasks not match", 3, tasks.size());
+        assertTrue("Future not attached to its task", tasks.get(2).remainingMillis() > 0);
+    }
+
+    private TaskOutbox.TaskFactory recordingFactory(final List<String> events) {
+        return new TaskOutbox.TaskFactory() {
+            @Override
+            public IntelligenceTask createTask(String type, final String payload, IntelligenceTask.TaskListener taskListener) {
+                return new IntelligenceTask(taskListener) {
+                    @Override
+                    void execute() {
+                        events.add(payload);
+                    }
+                };
+            }
+        };
+    }
+
+    private IntelligenceTask.TaskListener recordingListener(final String name, final List<String> events) {
+        return new IntelligenceTask.TaskListener() {
+            @Override
+            public void onTaskFinish(IntelligenceTask intelligenceTask) {
+                events.add(name + " finished");
+            }
+
+            @Override
+            public void onTaskError(IntelligenceTask intelligenceTask, IntelligenceException exception) {
+                events.add(name + " error " + exception.getErrorCode());
+            }
+        };
+    }
+
+    private TaskExecutor createTaskExecutor() {
+
+        // Without the network state permission the executor is offline, tasks are still executed when added.
+        Application application = Mockito.mock(Application.class);
+        Mockito.when(application.checkCallingOrSelfPermission(Mockito.anyString())).thenReturn(PackageManager.PERMISSION_DENIED);
+
+        return new TaskExecutor(application, null, new RequestContext(null, null, new Metrics(), null, new RetryPolicy(), null, null));
+    }
+
+}